@@ -0,0 +1,72 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point for the benchmarks jar. Accepts the usual JMH command line options and adds the GC profiler so that
+ * allocation rates are reported alongside throughput - unless <code>--no-gc-profiler</code> is given, e.g. to measure
+ * throughput without the profiler's overhead or to run other profilers alone.
+ */
+public final class BenchmarkRunner {
+
+    static final String NO_GC_PROFILER_OPTION = "--no-gc-profiler";
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+
+        final List<String> jmhArgs = new ArrayList<String>(Arrays.asList(args));
+        final boolean gcProfiler = !jmhArgs.remove(NO_GC_PROFILER_OPTION);
+
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(jmhArgs.toArray(new String[jmhArgs.size()]));
+
+        if (commandLineOptions.shouldHelp() || commandLineOptions.shouldList() || commandLineOptions.shouldListProfilers()) {
+            org.openjdk.jmh.Main.main(jmhArgs.toArray(new String[jmhArgs.size()]));
+            return;
+        }
+
+        final ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+        if (gcProfiler && !hasGcProfiler(commandLineOptions)) {
+            options.addProfiler(GCProfiler.class);
+        }
+
+        new Runner(options.build()).run();
+    }
+
+    private static boolean hasGcProfiler(final CommandLineOptions commandLineOptions) {
+
+        for (ProfilerConfig profiler : commandLineOptions.getProfilers()) {
+            if (profiler.getKlass().equals("gc") || profiler.getKlass().equals(GCProfiler.class.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
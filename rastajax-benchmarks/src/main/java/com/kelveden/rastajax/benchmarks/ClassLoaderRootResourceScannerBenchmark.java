@@ -0,0 +1,43 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks scanning for root resource classes with {@link ClassLoaderRootResourceScanner}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassLoaderRootResourceScannerBenchmark {
+
+    @Benchmark
+    public Set<Class<?>> scan(final CorpusState state) {
+        return new ClassLoaderRootResourceScanner(state.getCorpus().getClassLoader(), state.getCorpus().getPackageName()).scan();
+    }
+
+    @Benchmark
+    public Set<Class<?>> scanAllowingInterfaceInheritance(final CorpusState state) {
+        return new ClassLoaderRootResourceScanner(state.getCorpus().getClassLoader(), state.getCorpus().getPackageName()).allowInterfaceInheritance().scan();
+    }
+}
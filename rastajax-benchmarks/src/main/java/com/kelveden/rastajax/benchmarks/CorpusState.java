@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.corpus.Corpus;
+import com.kelveden.rastajax.corpus.CorpusGenerator;
+import com.kelveden.rastajax.corpus.CorpusSpecification;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * JMH state holding a generated {@link Corpus} of each of the benchmarked sizes. Each root resource has a sub-resource
+ * locator, inherits a resource method from a small interface hierarchy and is accompanied by a filler class so that
+ * scanning has something to skip.
+ */
+@State(Scope.Benchmark)
+public class CorpusState {
+
+    @Param({ "10", "100", "1000" })
+    public int rootResourceCount;
+
+    private Corpus corpus;
+    private List<Class<?>> rootResourceClasses;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        corpus = CorpusGenerator.generate(new CorpusSpecification()
+                .withRootResources(rootResourceCount)
+                .withLocatorDepth(1)
+                .withInterfaceHierarchyDepth(1)
+                .withFillerClassesPerArchive(rootResourceCount));
+
+        rootResourceClasses = corpus.loadRootResourceClasses();
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() {
+        corpus.delete();
+    }
+
+    public Corpus getCorpus() {
+        return corpus;
+    }
+
+    public List<Class<?>> getRootResourceClasses() {
+        return rootResourceClasses;
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.core.raw.ResourceClass;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the flat representation from an already loaded raw model.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatRepresentationBuilderBenchmark {
+
+    /**
+     * The loaded raw model.
+     */
+    @State(Scope.Benchmark)
+    public static class RawModel {
+
+        private Set<ResourceClass> resourceClasses;
+
+        @Setup(Level.Trial)
+        public void load(final CorpusState state) {
+            resourceClasses = RawResources.load(state.getRootResourceClasses());
+        }
+    }
+
+    @Benchmark
+    public Set<FlatResource> build(final RawModel model) {
+        return new FlatRepresentationBuilder().buildRepresentationFor(model.resourceClasses);
+    }
+
+    @Benchmark
+    public Set<FlatResource> buildInParallel(final RawModel model) {
+        return new FlatRepresentationBuilder().inParallel().buildRepresentationFor(model.resourceClasses);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import com.kelveden.rastajax.representation.flat.FlatRouteIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks resolving requests against a {@link FlatRouteIndex} - as the request validation and endpoint statistics
+ * filters do for every request. Each operation is a single lookup; the paths cycle through one concrete path per route.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FlatRouteIndexBenchmark {
+
+    /**
+     * The index and the requests to resolve against it.
+     */
+    @State(Scope.Benchmark)
+    public static class Index {
+
+        private FlatRouteIndex index;
+        private String[] requestMethodDesignators;
+        private String[] paths;
+
+        @Setup(Level.Trial)
+        public void build(final CorpusState state) {
+
+            final Set<FlatResource> representation = RestDescriber.describeApplication(state.getRootResourceClasses(), new FlatRepresentationBuilder());
+
+            index = new FlatRouteIndex(representation);
+
+            final List<FlatRoute> routes = index.getRoutes();
+            requestMethodDesignators = new String[routes.size()];
+            paths = new String[routes.size()];
+
+            for (int i = 0; i < routes.size(); i++) {
+                requestMethodDesignators[i] = routes.get(i).getResourceMethod().getRequestMethodDesignator();
+                paths[i] = "/" + routes.get(i).getUriTemplate().getTemplate().replaceAll("\\{[^}]*\\}", "1");
+            }
+        }
+    }
+
+    /**
+     * The position of a benchmark thread in the requests.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next(final int count) {
+
+            position = position + 1 == count ? 0 : position + 1;
+
+            return position;
+        }
+    }
+
+    @Benchmark
+    public FlatRoute lookup(final Index index, final Cursor cursor) {
+
+        final int request = cursor.next(index.paths.length);
+
+        return index.index.lookup(index.requestMethodDesignators[request], index.paths[request]);
+    }
+
+    @Benchmark
+    public FlatRoute lookupWithMediaTypes(final Index index, final Cursor cursor) {
+
+        final int request = cursor.next(index.paths.length);
+
+        return index.index.lookup(index.requestMethodDesignators[request], index.paths[request], null, "application/json");
+    }
+
+    @Benchmark
+    public FlatRoute lookupUnknownPath(final Index index) {
+        return index.index.lookup("GET", "/no/such/resource");
+    }
+}
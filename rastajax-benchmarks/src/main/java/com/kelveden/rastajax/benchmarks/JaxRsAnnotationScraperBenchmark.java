@@ -0,0 +1,103 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.core.JaxRsAnnotations;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks each of the entry points of {@link JaxRsAnnotations} over all the classes, methods, method parameters
+ * and fields of the root resources.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JaxRsAnnotationScraperBenchmark {
+
+    /**
+     * The reflective members to scrape - gathered up front so that only the scraping is measured.
+     */
+    @State(Scope.Benchmark)
+    public static class Members {
+
+        private final List<Class<?>> classes = new ArrayList<Class<?>>();
+        private final List<Class<?>> methodClasses = new ArrayList<Class<?>>();
+        private final List<Method> methods = new ArrayList<Method>();
+        private final List<Field> fields = new ArrayList<Field>();
+
+        @Setup(Level.Trial)
+        public void gather(final CorpusState state) {
+
+            for (Class<?> rootResourceClass : state.getRootResourceClasses()) {
+                classes.add(rootResourceClass);
+
+                for (Method method : rootResourceClass.getDeclaredMethods()) {
+                    methodClasses.add(rootResourceClass);
+                    methods.add(method);
+                }
+
+                for (Field field : rootResourceClass.getDeclaredFields()) {
+                    fields.add(field);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void scrapeClasses(final Members members, final Blackhole blackhole) {
+
+        for (Class<?> clazz : members.classes) {
+            blackhole.consume(JaxRsAnnotations.scrapeJaxRsAnnotationsFrom(clazz));
+        }
+    }
+
+    @Benchmark
+    public void scrapeMethods(final Members members, final Blackhole blackhole) {
+
+        for (int i = 0; i < members.methods.size(); i++) {
+            blackhole.consume(JaxRsAnnotations.scrapeJaxRsAnnotationsFrom(members.methodClasses.get(i), members.methods.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void scrapeMethodParameters(final Members members, final Blackhole blackhole) {
+
+        for (int i = 0; i < members.methods.size(); i++) {
+            final Method method = members.methods.get(i);
+
+            for (int parameterIndex = 0; parameterIndex < method.getParameterTypes().length; parameterIndex++) {
+                blackhole.consume(JaxRsAnnotations.scrapeJaxRsAnnotationsFrom(members.methodClasses.get(i), method, parameterIndex));
+            }
+        }
+    }
+
+    @Benchmark
+    public void scrapeFields(final Members members, final Blackhole blackhole) {
+
+        for (Field field : members.fields) {
+            blackhole.consume(JaxRsAnnotations.scrapeJaxRsAnnotationsFrom(field));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks serializing the flat representation to JSON - as the Rastajax JSON servlet does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    /**
+     * The representation to serialize.
+     */
+    @State(Scope.Benchmark)
+    public static class Representation {
+
+        private final ObjectMapper mapper = new ObjectMapper();
+        private Set<FlatResource> representation;
+
+        @Setup(Level.Trial)
+        public void build(final CorpusState state) {
+            representation = RestDescriber.describeApplication(state.getRootResourceClasses(), new FlatRepresentationBuilder());
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(final Representation representation) throws JsonProcessingException {
+        return representation.mapper.writeValueAsBytes(representation.representation);
+    }
+}
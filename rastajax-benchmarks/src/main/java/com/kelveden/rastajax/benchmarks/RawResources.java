@@ -0,0 +1,53 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.benchmarks;
+
+import com.kelveden.rastajax.core.RepresentationBuilder;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.core.raw.ResourceClass;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Loads the raw model through {@link RestDescriber} so that building representations can be measured separately from
+ * loading.
+ */
+final class RawResources {
+
+    /**
+     * A {@link RepresentationBuilder} whose representation is the raw model itself.
+     */
+    private static final RepresentationBuilder<Set<ResourceClass>> RAW_MODEL = new RepresentationBuilder<Set<ResourceClass>>() {
+
+        @Override
+        public Set<ResourceClass> buildRepresentationFor(final Set<ResourceClass> resourceClasses) {
+            return resourceClasses;
+        }
+
+        @Override
+        public Set<ResourceClass> buildRepresentationFor(final ResourceClass resourceClass) {
+            return Collections.singleton(resourceClass);
+        }
+    };
+
+    private RawResources() {
+    }
+
+    static Set<ResourceClass> load(final Iterable<Class<?>> rootResourceClasses) {
+        return RestDescriber.describeApplication(rootResourceClasses, RAW_MODEL);
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cache of the annotation indexes of archives by a hash of their content - so that a library jar found in several WARs
+ * is only scanned once. Safe for concurrent use: if several threads want the index of the same archive at once, one
+ * scans it and the others wait for the result.
+ */
+final class ArchiveIndexCache {
+
+    private final ConcurrentMap<String, FutureTask<IndexingAnnotationDB.ArchiveIndex>> indexesByContentHash = new ConcurrentHashMap<String, FutureTask<IndexingAnnotationDB.ArchiveIndex>>();
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Gets the index of an archive - scanning it if no archive with the same content has been scanned yet.
+     *
+     * @param contentHash
+     *      The hash of the content of the archive.
+     * @param scan
+     *      Scans the archive.
+     * @throws Exception
+     *      Whatever the scan throws.
+     */
+    IndexingAnnotationDB.ArchiveIndex get(final String contentHash, final Callable<IndexingAnnotationDB.ArchiveIndex> scan) throws Exception {
+
+        final FutureTask<IndexingAnnotationDB.ArchiveIndex> newTask = new FutureTask<IndexingAnnotationDB.ArchiveIndex>(scan);
+        FutureTask<IndexingAnnotationDB.ArchiveIndex> task = indexesByContentHash.putIfAbsent(contentHash, newTask);
+
+        if (task == null) {
+            misses.incrementAndGet();
+            task = newTask;
+            task.run();
+        } else {
+            hits.incrementAndGet();
+        }
+
+        try {
+            return task.get();
+
+        } catch (final ExecutionException e) {
+            // Let the next caller try again rather than remember the failure.
+            indexesByContentHash.remove(contentHash, task);
+
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    /**
+     * The number of archives whose indexes are held.
+     */
+    int size() {
+        return indexesByContentHash.size();
+    }
+
+    /**
+     * Forgets all the indexes held.
+     */
+    void clear() {
+        indexesByContentHash.clear();
+    }
+
+    /**
+     * The number of lookups answered from the cache.
+     */
+    int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of lookups that scanned an archive.
+     */
+    int getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Describes many WARs in parallel in one JVM, writing the representation of each to its own file in an output directory
+ * - named after the WAR with the extension of the output format.
+ * Each WAR gets its own class loader, which is closed once it is described; library jars that are identical across the
+ * WARs are only scanned once.
+ */
+class BatchRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BatchRunner.class);
+
+    static final String USAGE = "[--packages=<comma-separated packages>] [--threads=<count>] [--output=<directory>] [--format=json|ndjson|text|binary] [" + Runner.CLASS_FILES_ONLY_OPTION + "] <war file>...";
+
+    private static final String PACKAGES_OPTION = "--packages=";
+    private static final String THREADS_OPTION = "--threads=";
+    private static final String OUTPUT_OPTION = "--output=";
+
+    private final ArchiveIndexCache archiveIndexCache = new ArchiveIndexCache();
+
+    private String packages = Runner.DEFAULT_PACKAGES;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private File outputDirectory = new File(".");
+    private OutputFormat format = OutputFormat.TEXT;
+    private boolean classFilesOnly;
+    private final List<File> warFiles = new ArrayList<File>();
+
+    void run(final String[] args) throws CliExecutionException {
+
+        parseArguments(args);
+
+        if (!outputDirectory.isDirectory() && !outputDirectory.mkdirs()) {
+            throw new CliExecutionException("Could not create output directory '" + outputDirectory + "'.");
+        }
+
+        final long start = System.currentTimeMillis();
+
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, warFiles.size()), new BatchThreadFactory());
+        final Map<File, Future<File>> outputFiles = new LinkedHashMap<File, Future<File>>();
+
+        try {
+            for (Map.Entry<File, File> warAndOutputFile : assignOutputFiles().entrySet()) {
+                outputFiles.put(warAndOutputFile.getKey(), executor.submit(new DescribeTask(warAndOutputFile.getKey(), warAndOutputFile.getValue())));
+            }
+
+            final List<File> failures = new ArrayList<File>();
+
+            for (Map.Entry<File, Future<File>> outputFile : outputFiles.entrySet()) {
+                try {
+                    LOGGER.info("Described {} to {}.", outputFile.getKey(), outputFile.getValue().get());
+
+                } catch (final ExecutionException e) {
+                    LOGGER.error("Could not describe " + outputFile.getKey() + ".", e.getCause());
+                    failures.add(outputFile.getKey());
+                }
+            }
+
+            LOGGER.info("Described {} WARs in {}ms; {} library jar scans shared of {}.", new Object[] {
+                    warFiles.size() - failures.size(), System.currentTimeMillis() - start,
+                    archiveIndexCache.getHits(), archiveIndexCache.getHits() + archiveIndexCache.getMisses() });
+
+            if (!failures.isEmpty()) {
+                throw new CliExecutionException("Could not describe " + failures.size() + " of " + warFiles.size() + " WARs: " + failures + ".");
+            }
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CliExecutionException("Interrupted describing WARs.", e);
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void parseArguments(final String[] args) throws CliExecutionException {
+
+        for (String arg : args) {
+            if (arg.startsWith(PACKAGES_OPTION)) {
+                packages = arg.substring(PACKAGES_OPTION.length());
+
+            } else if (arg.startsWith(THREADS_OPTION)) {
+                try {
+                    threads = Integer.parseInt(arg.substring(THREADS_OPTION.length()));
+                } catch (final NumberFormatException e) {
+                    throw new CliExecutionException("Thread count must be a number: " + arg, e);
+                }
+
+                if (threads < 1) {
+                    throw new CliExecutionException("Thread count must be at least 1: " + arg);
+                }
+
+            } else if (arg.startsWith(OUTPUT_OPTION)) {
+                outputDirectory = new File(arg.substring(OUTPUT_OPTION.length()));
+
+            } else if (arg.startsWith(OutputFormat.OPTION)) {
+                format = OutputFormat.fromOption(arg);
+
+            } else if (Runner.CLASS_FILES_ONLY_OPTION.equals(arg)) {
+                classFilesOnly = true;
+
+            } else if (arg.startsWith("--")) {
+                throw new CliExecutionException("Unknown option '" + arg + "'. Usage: " + USAGE);
+
+            } else {
+                warFiles.add(new File(arg));
+            }
+        }
+
+        if (warFiles.isEmpty()) {
+            throw new CliExecutionException("No WAR files specified. Usage: " + USAGE);
+        }
+    }
+
+    /**
+     * Names the output file of each WAR after the WAR - distinguishing WARs of the same name in different directories by
+     * a numeric suffix.
+     */
+    private Map<File, File> assignOutputFiles() {
+
+        final Map<File, File> result = new LinkedHashMap<File, File>();
+        final Set<String> usedNames = new HashSet<String>();
+
+        for (File warFile : warFiles) {
+            final String baseName = FilenameUtils.getBaseName(warFile.getName());
+
+            String name = baseName;
+            for (int suffix = 2; !usedNames.add(name); suffix++) {
+                name = baseName + "-" + suffix;
+            }
+
+            result.put(warFile, new File(outputDirectory, name + "." + format.getFileExtension()));
+        }
+
+        return result;
+    }
+
+    private final class DescribeTask implements Callable<File> {
+
+        private final File warFile;
+        private final File outputFile;
+
+        DescribeTask(final File warFile, final File outputFile) {
+            this.warFile = warFile;
+            this.outputFile = outputFile;
+        }
+
+        @Override
+        public File call() throws CliExecutionException, IOException {
+
+            final Set<FlatResource> representation = Runner.loadRepresentation(warFile, packages, archiveIndexCache, classFilesOnly);
+
+            final OutputStream out = new FileOutputStream(outputFile);
+            try {
+                format.write(representation, out, false);
+            } finally {
+                out.close();
+            }
+
+            return outputFile;
+        }
+    }
+
+    private static final class BatchThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "rastajax-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
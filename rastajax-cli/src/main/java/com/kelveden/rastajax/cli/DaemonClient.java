@@ -0,0 +1,140 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client of a {@link DaemonServer} - describes a WAR by the daemon and prints the result as {@link Runner} would. Only
+ * the user who started the daemon can use it as requests carry the {@link DaemonToken token} from that user's token file.
+ */
+class DaemonClient {
+
+    static final String USAGE = "[--port=<port>] (<war file> [<comma-separated packages>] | --shutdown)";
+
+    private static final String SHUTDOWN_OPTION = "--shutdown";
+
+    private final File tokenDirectory;
+
+    private int port = DaemonServer.DEFAULT_PORT;
+
+    DaemonClient() {
+        this(DaemonToken.DEFAULT_DIRECTORY);
+    }
+
+    /**
+     * @param tokenDirectory
+     *      The directory to read the token file of the daemon from.
+     */
+    DaemonClient(final File tokenDirectory) {
+        this.tokenDirectory = tokenDirectory;
+    }
+
+    void run(final String[] args) throws CliExecutionException {
+
+        final List<String> arguments = new ArrayList<String>();
+        boolean shutdown = false;
+
+        for (String arg : args) {
+            if (arg.startsWith(DaemonServer.PORT_OPTION)) {
+                port = DaemonServer.parsePort(arg);
+            } else if (SHUTDOWN_OPTION.equals(arg)) {
+                shutdown = true;
+            } else {
+                arguments.add(arg);
+            }
+        }
+
+        final String request;
+
+        if (shutdown) {
+            request = DaemonServer.SHUTDOWN;
+
+        } else if (!arguments.isEmpty()) {
+            final String packages = arguments.size() > 1 ? arguments.get(1) : Runner.DEFAULT_PACKAGES;
+            request = DaemonServer.DESCRIBE + " " + packages + " " + new File(arguments.get(0)).getAbsolutePath();
+
+        } else {
+            throw new CliExecutionException("No WAR file specified. Usage: " + USAGE);
+        }
+
+        for (String line : send(request)) {
+            System.out.println(line);
+        }
+    }
+
+    private List<String> send(final String request) throws CliExecutionException {
+
+        final String token;
+        try {
+            token = DaemonToken.read(tokenDirectory, port);
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not read the token of the daemon on port " + port + " from " + tokenDirectory + ". Is it running?", e);
+        }
+
+        try {
+            final Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+
+            try {
+                final Writer out = new OutputStreamWriter(socket.getOutputStream(), DaemonServer.CHARSET);
+                out.write(token + " " + request + "\n");
+                out.flush();
+
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonServer.CHARSET));
+
+                final String status = in.readLine();
+
+                if (status == null) {
+                    throw new CliExecutionException("The daemon closed the connection without responding.");
+                }
+
+                if (status.startsWith(DaemonServer.ERROR + " ")) {
+                    throw new CliExecutionException(status.substring(DaemonServer.ERROR.length() + 1));
+                }
+
+                if (!status.startsWith(DaemonServer.OK + " ")) {
+                    throw new CliExecutionException("Unexpected response from the daemon: " + status);
+                }
+
+                final int lineCount = Integer.parseInt(status.substring(DaemonServer.OK.length() + 1));
+                final List<String> result = new ArrayList<String>(lineCount);
+
+                for (int i = 0; i < lineCount; i++) {
+                    final String line = in.readLine();
+
+                    if (line == null) {
+                        throw new CliExecutionException("The daemon closed the connection after " + i + " of " + lineCount + " lines.");
+                    }
+
+                    result.add(line);
+                }
+
+                return result;
+
+            } finally {
+                socket.close();
+            }
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not talk to the daemon on port " + port + ". Is it running?", e);
+        }
+    }
+}
@@ -0,0 +1,402 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long-running server that describes WARs on request over a loopback socket - so that each request is served by a warm
+ * JVM with the library jars it has already seen scanned and WARs that have not changed since they were last described
+ * not described again.
+ * <p>
+ * The protocol is line-based UTF-8 text; a connection carries any number of requests. Each request starts with the
+ * {@link DaemonToken token} that the daemon wrote to an owner-only file when it started, then a space - a request
+ * without it is answered <code>ERROR</code> and the connection closed. The requests are:
+ * <ul>
+ *     <li><code>DESCRIBE &lt;comma-separated packages&gt; &lt;WAR path&gt;</code> answers <code>OK &lt;n&gt;</code>
+ *     followed by the <code>n</code> lines of the representation as text;</li>
+ *     <li><code>PING</code> answers <code>OK 0</code>;</li>
+ *     <li><code>SHUTDOWN</code> answers <code>OK 0</code> and stops the server.</li>
+ * </ul>
+ * Failed requests are answered <code>ERROR &lt;message&gt;</code>. A request line longer than
+ * {@link #MAXIMUM_REQUEST_LENGTH} characters is answered <code>ERROR</code> and the connection closed without reading the
+ * rest of it; so is a connection beyond the {@link #MAXIMUM_CONNECTIONS} served at once.
+ */
+class DaemonServer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DaemonServer.class);
+
+    static final int DEFAULT_PORT = 17474;
+    static final String USAGE = "[--port=<port>]";
+    static final String PORT_OPTION = "--port=";
+
+    static final String DESCRIBE = "DESCRIBE";
+    static final String PING = "PING";
+    static final String SHUTDOWN = "SHUTDOWN";
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+    static final String CHARSET = "UTF-8";
+
+    static final int MAXIMUM_REQUEST_LENGTH = 8192;
+    static final int MAXIMUM_CONNECTIONS = 16;
+
+    private static final int READ_TIMEOUT_MILLIS = 60000;
+    private static final int IDLE_THREAD_TIMEOUT_SECONDS = 60;
+    private static final int MAXIMUM_CACHED_DESCRIPTIONS = 32;
+    private static final int MAXIMUM_CACHED_ARCHIVE_INDEXES = 10000;
+
+    private final ArchiveIndexCache archiveIndexCache = new ArchiveIndexCache();
+
+    private final Map<String, List<String>> descriptionsByKey = new LinkedHashMap<String, List<String>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, List<String>> eldest) {
+            return size() > MAXIMUM_CACHED_DESCRIPTIONS;
+        }
+    };
+
+    private final File tokenDirectory;
+
+    private int port = DEFAULT_PORT;
+    private volatile ServerSocket serverSocket;
+    private volatile String token;
+
+    DaemonServer() {
+        this(DaemonToken.DEFAULT_DIRECTORY);
+    }
+
+    /**
+     * @param tokenDirectory
+     *      The directory to write the token file to.
+     */
+    DaemonServer(final File tokenDirectory) {
+        this.tokenDirectory = tokenDirectory;
+    }
+
+    void run(final String[] args) throws CliExecutionException {
+
+        for (String arg : args) {
+            if (arg.startsWith(PORT_OPTION)) {
+                port = parsePort(arg);
+            } else {
+                throw new CliExecutionException("Unknown argument '" + arg + "'. Usage: " + USAGE);
+            }
+        }
+
+        try {
+            serverSocket = new ServerSocket(port, 0, InetAddress.getByName("127.0.0.1"));
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not listen on port " + port + ".", e);
+        }
+
+        final int boundPort = serverSocket.getLocalPort();
+
+        try {
+            token = DaemonToken.create(tokenDirectory, boundPort);
+
+        } catch (final IOException e) {
+            closeServerSocket();
+            throw new CliExecutionException("Could not write the daemon token to " + tokenDirectory + ".", e);
+        }
+
+        LOGGER.info("Rastajax daemon listening on {} with its token in {}.", serverSocket.getLocalSocketAddress(), DaemonToken.fileFor(tokenDirectory, boundPort));
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAXIMUM_CONNECTIONS, MAXIMUM_CONNECTIONS,
+                IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), new DaemonThreadFactory());
+        executor.allowCoreThreadTimeOut(true);
+
+        try {
+            while (!serverSocket.isClosed()) {
+                final Socket socket;
+                try {
+                    socket = serverSocket.accept();
+
+                } catch (final SocketException e) {
+                    // Closed by SHUTDOWN.
+                    break;
+
+                } catch (final IOException e) {
+                    LOGGER.warn("Could not accept connection.", e);
+                    continue;
+                }
+
+                try {
+                    executor.execute(new Connection(socket));
+
+                } catch (final RejectedExecutionException e) {
+                    LOGGER.warn("Rejected connection from {} as {} connections are already being served.", socket.getRemoteSocketAddress(), MAXIMUM_CONNECTIONS);
+                    new Connection(socket).reject("Too many connections - try again later.");
+                }
+            }
+
+        } finally {
+            executor.shutdownNow();
+            closeServerSocket();
+            DaemonToken.delete(tokenDirectory, boundPort, token);
+        }
+
+        LOGGER.info("Rastajax daemon stopped.");
+    }
+
+    static int parsePort(final String arg) throws CliExecutionException {
+
+        try {
+            return Integer.parseInt(arg.substring(PORT_OPTION.length()));
+
+        } catch (final NumberFormatException e) {
+            throw new CliExecutionException("Port must be a number: " + arg, e);
+        }
+    }
+
+    private List<String> describe(final String packages, final File warFile) throws CliExecutionException, IOException {
+
+        if (!warFile.isFile()) {
+            throw new FileNotFoundException("No such WAR file: " + warFile.getAbsolutePath());
+        }
+
+        // A WAR is only described again once it changes - as far as its size and modification time tell.
+        final String key = warFile.getCanonicalPath() + "|" + warFile.length() + "|" + warFile.lastModified() + "|" + packages;
+
+        synchronized (descriptionsByKey) {
+            final List<String> cached = descriptionsByKey.get(key);
+
+            if (cached != null) {
+                LOGGER.debug("Description of {} served from cache.", warFile);
+                return cached;
+            }
+        }
+
+        if (archiveIndexCache.size() > MAXIMUM_CACHED_ARCHIVE_INDEXES) {
+            archiveIndexCache.clear();
+        }
+
+        final long start = System.currentTimeMillis();
+
+        final Set<FlatResource> representation = Runner.loadRepresentation(warFile, packages, archiveIndexCache);
+
+        final StringWriter text = new StringWriter();
+        new TextRepresentationWriter(false).write(representation, text);
+
+        final List<String> result = new ArrayList<String>();
+        final BufferedReader lines = new BufferedReader(new StringReader(text.toString()));
+
+        String line;
+        while ((line = lines.readLine()) != null) {
+            result.add(line);
+        }
+
+        synchronized (descriptionsByKey) {
+            descriptionsByKey.put(key, Collections.unmodifiableList(result));
+        }
+
+        LOGGER.info("Described {} in {}ms.", warFile, System.currentTimeMillis() - start);
+
+        return result;
+    }
+
+    /**
+     * Reads a line - terminated by a line feed - of at most {@link #MAXIMUM_REQUEST_LENGTH} characters.
+     *
+     * @return
+     *      The line or null at the end of the stream.
+     * @throws RequestTooLongException
+     *      If the line is longer - having read no more of it than that.
+     */
+    static String readRequestLine(final Reader in) throws IOException {
+
+        final StringBuilder result = new StringBuilder();
+
+        int c;
+        while ((c = in.read()) >= 0) {
+            if (c == '\n') {
+                break;
+            }
+
+            if (result.length() == MAXIMUM_REQUEST_LENGTH) {
+                throw new RequestTooLongException();
+            }
+
+            result.append((char) c);
+        }
+
+        return (c < 0) && (result.length() == 0) ? null : result.toString();
+    }
+
+    private void closeServerSocket() {
+
+        try {
+            serverSocket.close();
+
+        } catch (final IOException e) {
+            LOGGER.warn("Could not close server socket.", e);
+        }
+    }
+
+    private final class Connection implements Runnable {
+
+        private final Socket socket;
+
+        Connection(final Socket socket) {
+            this.socket = socket;
+        }
+
+        @Override
+        public void run() {
+
+            try {
+                socket.setSoTimeout(READ_TIMEOUT_MILLIS);
+
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+                final PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), CHARSET)));
+
+                String request;
+                while ((request = readRequestLine(in)) != null) {
+                    if (!handle(request.trim(), out)) {
+                        break;
+                    }
+                }
+
+            } catch (final RequestTooLongException e) {
+                LOGGER.warn("Rejected request longer than {} characters from {}.", MAXIMUM_REQUEST_LENGTH, socket.getRemoteSocketAddress());
+                reject("Request longer than " + MAXIMUM_REQUEST_LENGTH + " characters.");
+
+            } catch (final IOException e) {
+                LOGGER.debug("Connection from {} failed.", socket.getRemoteSocketAddress(), e);
+
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Answers <code>ERROR</code> and closes the connection.
+         */
+        void reject(final String message) {
+
+            try {
+                fail(new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), CHARSET)), message);
+
+            } catch (final IOException e) {
+                LOGGER.debug("Could not reject connection from {}.", socket.getRemoteSocketAddress(), e);
+
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+
+            try {
+                socket.close();
+            } catch (final IOException e) {
+                LOGGER.debug("Could not close connection.", e);
+            }
+        }
+
+        /**
+         * @return
+         *      Whether to carry on reading requests from the connection.
+         */
+        private boolean handle(final String authenticatedRequest, final PrintWriter out) {
+
+            final int tokenEnd = authenticatedRequest.indexOf(' ');
+
+            if ((tokenEnd < 0) || !DaemonToken.matches(token, authenticatedRequest.substring(0, tokenEnd))) {
+                LOGGER.warn("Rejected request without a valid token from {}.", socket.getRemoteSocketAddress());
+                fail(out, "Not authorised - send the token from " + DaemonToken.fileFor(tokenDirectory, socket.getLocalPort()) + " first.");
+                return false;
+            }
+
+            final String request = authenticatedRequest.substring(tokenEnd + 1).trim();
+            final String[] parts = request.split(" ", 3);
+
+            if (PING.equals(parts[0])) {
+                respond(out, Collections.<String>emptyList());
+                return true;
+
+            } else if (SHUTDOWN.equals(parts[0])) {
+                respond(out, Collections.<String>emptyList());
+                closeServerSocket();
+                return false;
+
+            } else if (DESCRIBE.equals(parts[0]) && (parts.length == 3)) {
+                try {
+                    respond(out, describe(parts[1], new File(parts[2])));
+
+                } catch (final Exception e) {
+                    LOGGER.warn("Could not describe " + parts[2] + ".", e);
+                    fail(out, e.getMessage() == null ? e.getClass().getName() : e.getMessage());
+                }
+                return true;
+
+            } else {
+                fail(out, "Unknown request '" + request + "'.");
+                return true;
+            }
+        }
+
+        private void respond(final PrintWriter out, final List<String> lines) {
+
+            out.print(OK + " " + lines.size() + "\n");
+            for (String line : lines) {
+                out.print(line + "\n");
+            }
+            out.flush();
+        }
+
+        private void fail(final PrintWriter out, final String message) {
+
+            out.print(ERROR + " " + message.replace('\n', ' ') + "\n");
+            out.flush();
+        }
+    }
+
+    static final class RequestTooLongException extends IOException {
+
+        RequestTooLongException() {
+            super("Request longer than " + MAXIMUM_REQUEST_LENGTH + " characters.");
+        }
+    }
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+
+            final Thread thread = new Thread(runnable, "rastajax-daemon-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import java.io.*;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+/**
+ * The secret that a {@link DaemonClient} must send with every request to a {@link DaemonServer} - so that only the user
+ * who started the daemon can use it, even though any local user can connect to its loopback port.
+ * <p>
+ * The daemon writes a new random token to a file under <code>~/.rastajax/</code> each time it starts, readable and
+ * writable only by its owner, and deletes it when it stops. Clients read the token from the same file.
+ */
+final class DaemonToken {
+
+    static final File DEFAULT_DIRECTORY = new File(System.getProperty("user.home"), ".rastajax");
+
+    private static final int TOKEN_BYTES = 32;
+    private static final String CHARSET = "US-ASCII";
+
+    private DaemonToken() {
+    }
+
+    /**
+     * The file holding the token of the daemon listening on a port - so that daemons on different ports can run side by
+     * side.
+     */
+    static File fileFor(final File directory, final int port) {
+        return new File(directory, "daemon-" + port + ".token");
+    }
+
+    /**
+     * Creates a new random token and writes it to the token file for a port, replacing any left behind by a daemon that
+     * did not stop cleanly.
+     *
+     * @return
+     *      The token.
+     */
+    static String create(final File directory, final int port) throws IOException {
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory '" + directory + "'.");
+        }
+        restrictToOwner(directory, true);
+
+        final File tokenFile = fileFor(directory, port);
+
+        if (tokenFile.exists() && !tokenFile.delete()) {
+            throw new IOException("Could not delete old token file '" + tokenFile + "'.");
+        }
+
+        // The file is restricted before the token is written to it.
+        if (!tokenFile.createNewFile()) {
+            throw new IOException("Token file '" + tokenFile + "' was created by someone else.");
+        }
+        restrictToOwner(tokenFile, false);
+
+        final byte[] random = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(random);
+
+        final StringBuilder result = new StringBuilder(TOKEN_BYTES * 2);
+        for (byte b : random) {
+            result.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        final Writer out = new OutputStreamWriter(new FileOutputStream(tokenFile), CHARSET);
+        try {
+            out.write(result.toString());
+        } finally {
+            out.close();
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Reads the token of the daemon listening on a port.
+     */
+    static String read(final File directory, final int port) throws IOException {
+
+        final File tokenFile = fileFor(directory, port);
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(tokenFile), CHARSET));
+        try {
+            final String result = in.readLine();
+
+            if (result == null) {
+                throw new IOException("Token file '" + tokenFile + "' is empty.");
+            }
+
+            return result.trim();
+
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Deletes the token file for a port if it still holds the specified token.
+     */
+    static void delete(final File directory, final int port, final String token) {
+
+        try {
+            if (matches(token, read(directory, port))) {
+                fileFor(directory, port).delete();
+            }
+
+        } catch (final IOException e) {
+            // Already gone or replaced - nothing to clean up.
+        }
+    }
+
+    /**
+     * Compares a token with the one sent by a client in constant time - so that the time taken to reject a token does
+     * not tell how much of it was right.
+     */
+    static boolean matches(final String token, final String candidate) {
+
+        try {
+            return (candidate != null) && MessageDigest.isEqual(token.getBytes(CHARSET), candidate.getBytes(CHARSET));
+
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void restrictToOwner(final File file, final boolean executable) throws IOException {
+
+        final boolean restricted = file.setReadable(false, false) && file.setReadable(true, true)
+                && file.setWritable(false, false) && file.setWritable(true, true)
+                && file.setExecutable(false, false) && (!executable || file.setExecutable(true, true));
+
+        if (!restricted) {
+            throw new IOException("Could not restrict access to '" + file + "' to its owner.");
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.representation.flat.ApiChange;
+import com.kelveden.rastajax.representation.flat.BinaryRepresentationReader;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import com.kelveden.rastajax.representation.flat.RepresentationDiffer;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lists the API changes between two versions of an application - each given as a WAR file, an exploded WAR directory or
+ * a representation saved as JSON or in the binary format - one per line, breaking changes marked as such.
+ */
+class DiffRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DiffRunner.class);
+
+    static final String USAGE = "[--packages=<comma-separated packages>] [--breaking-only] [--fail-on-breaking] <before> <after>";
+
+    private static final String PACKAGES_OPTION = "--packages=";
+    private static final String BREAKING_ONLY_OPTION = "--breaking-only";
+    private static final String FAIL_ON_BREAKING_OPTION = "--fail-on-breaking";
+
+    private static final String WAR_EXTENSION = "war";
+
+    private String packages = Runner.DEFAULT_PACKAGES;
+    private boolean breakingOnly;
+    private boolean failOnBreaking;
+    private final List<File> files = new ArrayList<File>();
+
+    void run(final String[] args) throws CliExecutionException {
+
+        parseArguments(args);
+
+        final Set<FlatResource> before = load(files.get(0));
+        final Set<FlatResource> after = load(files.get(1));
+
+        final List<ApiChange> changes = new RepresentationDiffer().diff(before, after);
+
+        int breakingChanges = 0;
+
+        try {
+            final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Runner.OUTPUT_CHARSET), Runner.OUTPUT_BUFFER_SIZE);
+
+            for (ApiChange change : changes) {
+                if (change.isBreaking()) {
+                    breakingChanges++;
+                }
+
+                if (change.isBreaking() || !breakingOnly) {
+                    out.write(change.toString());
+                    out.write(System.getProperty("line.separator"));
+                }
+            }
+
+            out.flush();
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not write API changes.", e);
+        }
+
+        LOGGER.info("Found {} API changes of which {} are breaking.", changes.size(), breakingChanges);
+
+        if (failOnBreaking && (breakingChanges > 0)) {
+            throw new CliExecutionException(breakingChanges + " breaking API changes from " + files.get(0) + " to " + files.get(1) + ".");
+        }
+    }
+
+    private void parseArguments(final String[] args) throws CliExecutionException {
+
+        for (String arg : args) {
+            if (arg.startsWith(PACKAGES_OPTION)) {
+                packages = arg.substring(PACKAGES_OPTION.length());
+
+            } else if (arg.equals(BREAKING_ONLY_OPTION)) {
+                breakingOnly = true;
+
+            } else if (arg.equals(FAIL_ON_BREAKING_OPTION)) {
+                failOnBreaking = true;
+
+            } else if (arg.startsWith("--")) {
+                throw new CliExecutionException("Unknown option '" + arg + "'. Usage: " + USAGE);
+
+            } else {
+                files.add(new File(arg));
+            }
+        }
+
+        if (files.size() != 2) {
+            throw new CliExecutionException("Exactly two WARs or saved representations must be specified. Usage: " + USAGE);
+        }
+    }
+
+    private Set<FlatResource> load(final File file) throws CliExecutionException {
+
+        if (file.isDirectory() || WAR_EXTENSION.equalsIgnoreCase(FilenameUtils.getExtension(file.getName()))) {
+            return Runner.loadRepresentation(file, packages, null);
+        }
+
+        try {
+            if (OutputFormat.BINARY.getFileExtension().equalsIgnoreCase(FilenameUtils.getExtension(file.getName()))) {
+                return readBinary(file);
+            }
+
+            return new JsonRepresentationReader().read(file);
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not read saved representation '" + file + "'.", e);
+        }
+    }
+
+    private static Set<FlatResource> readBinary(final File file) throws IOException {
+
+        final InputStream in = new BufferedInputStream(new FileInputStream(file), Runner.OUTPUT_BUFFER_SIZE);
+
+        try {
+            return BinaryRepresentationReader.readAll(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import org.scannotation.AnnotationDB;
+
+import java.util.*;
+
+/**
+ * {@link AnnotationDB} whose indexes can be taken as an {@link ArchiveIndex} and merged with those of other archives - so
+ * that each archive can be scanned on its own and the result reused.
+ */
+final class IndexingAnnotationDB extends AnnotationDB {
+
+    IndexingAnnotationDB() {
+        setScanClassAnnotations(true);
+        setScanMethodAnnotations(false);
+        setScanParameterAnnotations(false);
+        setScanFieldAnnotations(false);
+    }
+
+    /**
+     * A copy of the indexes built so far.
+     */
+    ArchiveIndex toArchiveIndex() {
+        return new ArchiveIndex(copy(annotationIndex), copy(implementsIndex), copy(classIndex));
+    }
+
+    /**
+     * Adds the indexes of an archive to those of this database.
+     */
+    void merge(final ArchiveIndex archiveIndex) {
+        merge(archiveIndex.annotationIndex, annotationIndex);
+        merge(archiveIndex.implementsIndex, implementsIndex);
+        merge(archiveIndex.classIndex, classIndex);
+    }
+
+    private static Map<String, Set<String>> copy(final Map<String, Set<String>> index) {
+
+        final Map<String, Set<String>> result = new HashMap<String, Set<String>>();
+
+        for (Map.Entry<String, Set<String>> entry : index.entrySet()) {
+            result.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<String>(entry.getValue())));
+        }
+
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static void merge(final Map<String, Set<String>> source, final Map<String, Set<String>> target) {
+
+        for (Map.Entry<String, Set<String>> entry : source.entrySet()) {
+            Set<String> values = target.get(entry.getKey());
+
+            if (values == null) {
+                values = new HashSet<String>();
+                target.put(entry.getKey(), values);
+            }
+
+            values.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * The immutable annotation indexes of a single archive.
+     */
+    static final class ArchiveIndex {
+
+        private final Map<String, Set<String>> annotationIndex;
+        private final Map<String, Set<String>> implementsIndex;
+        private final Map<String, Set<String>> classIndex;
+
+        private ArchiveIndex(final Map<String, Set<String>> annotationIndex, final Map<String, Set<String>> implementsIndex, final Map<String, Set<String>> classIndex) {
+            this.annotationIndex = annotationIndex;
+            this.implementsIndex = implementsIndex;
+            this.classIndex = classIndex;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+
+import java.io.*;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads a representation saved with <code>--format=json</code> or <code>--format=ndjson</code>.
+ */
+class JsonRepresentationReader {
+
+    // Saved representations may have been written by a later version with more properties.
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private static final TypeReference<List<FlatResource>> RESOURCES = new TypeReference<List<FlatResource>>() { };
+
+    Set<FlatResource> read(final File file) throws IOException {
+
+        final BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), Runner.OUTPUT_CHARSET));
+
+        try {
+            in.mark(1);
+            int first = in.read();
+            while ((first >= 0) && Character.isWhitespace(first)) {
+                in.mark(1);
+                first = in.read();
+            }
+            in.reset();
+
+            if (first == '[') {
+                final List<FlatResource> resources = MAPPER.readValue(in, RESOURCES);
+                return new LinkedHashSet<FlatResource>(resources);
+            }
+
+            final Set<FlatResource> result = new LinkedHashSet<FlatResource>();
+
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.trim().length() > 0) {
+                    result.add(MAPPER.readValue(line, FlatResource.class));
+                }
+            }
+
+            return result;
+
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Writes a representation as JSON - either as a single array of resources or as newline-delimited JSON with one resource
+ * per line, which tools can consume line by line.
+ */
+class JsonRepresentationWriter implements RepresentationWriter {
+
+    // Leave flushing and closing to the caller so that everything goes through a single buffer.
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+
+    private final boolean newlineDelimited;
+
+    /**
+     * Constructor.
+     *
+     * @param newlineDelimited
+     *      Whether to write one resource per line rather than a single array.
+     */
+    JsonRepresentationWriter(final boolean newlineDelimited) {
+        this.newlineDelimited = newlineDelimited;
+    }
+
+    @Override
+    public void write(final Set<FlatResource> representation, final Writer out) throws IOException {
+
+        if (!newlineDelimited) {
+            MAPPER.writeValue(out, representation);
+            out.write('\n');
+            return;
+        }
+
+        for (FlatResource resource : representation) {
+            MAPPER.writeValue(out, resource);
+            out.write('\n');
+        }
+    }
+}
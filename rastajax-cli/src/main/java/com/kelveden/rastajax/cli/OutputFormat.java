@@ -0,0 +1,99 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.representation.flat.BinaryRepresentationWriter;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+
+import java.io.*;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * The formats that the CLI can write representations in.
+ */
+enum OutputFormat {
+
+    TEXT("txt"),
+    JSON("json"),
+    NDJSON("ndjson"),
+    BINARY("rjxb");
+
+    static final String OPTION = "--format=";
+
+    private final String fileExtension;
+
+    OutputFormat(final String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+
+    /**
+     * Parses the value of a <code>--format=</code> option.
+     */
+    static OutputFormat fromOption(final String arg) throws CliExecutionException {
+
+        final String name = arg.substring(OPTION.length());
+
+        try {
+            return valueOf(name.toUpperCase(Locale.ENGLISH));
+
+        } catch (final IllegalArgumentException e) {
+            throw new CliExecutionException("Unknown format '" + name + "' - must be one of json, ndjson, text or binary.", e);
+        }
+    }
+
+    String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Writes a representation in this format and flushes - but does not close - the stream.
+     *
+     * @param ansi
+     *      Whether text may be coloured with ANSI escape codes.
+     */
+    void write(final Set<FlatResource> representation, final OutputStream out, final boolean ansi) throws IOException {
+
+        if (this == BINARY) {
+            final OutputStream bufferedOut = new BufferedOutputStream(out, Runner.OUTPUT_BUFFER_SIZE);
+
+            BinaryRepresentationWriter.write(representation, bufferedOut);
+            bufferedOut.flush();
+            return;
+        }
+
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, Runner.OUTPUT_CHARSET), Runner.OUTPUT_BUFFER_SIZE);
+
+        createWriter(ansi).write(representation, writer);
+        writer.flush();
+    }
+
+    /**
+     * @param ansi
+     *      Whether text may be coloured with ANSI escape codes.
+     */
+    private RepresentationWriter createWriter(final boolean ansi) {
+
+        switch (this) {
+            case JSON:
+                return new JsonRepresentationWriter(false);
+            case NDJSON:
+                return new JsonRepresentationWriter(true);
+            default:
+                return new TextRepresentationWriter(ansi);
+        }
+    }
+}
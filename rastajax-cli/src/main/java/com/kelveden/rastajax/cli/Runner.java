@@ -15,177 +15,218 @@
  */
 package com.kelveden.rastajax.cli;
 
-import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
 import com.kelveden.rastajax.core.RestDescriber;
 import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
 import com.kelveden.rastajax.representation.flat.FlatResource;
-import com.kelveden.rastajax.representation.flat.FlatResourceMethod;
-import com.kelveden.rastajax.representation.flat.FlatResourceMethodParameter;
-import net.lingala.zip4j.core.ZipFile;
-import net.lingala.zip4j.exception.ZipException;
+import com.kelveden.rastajax.representation.flat.RouteConflict;
+import com.kelveden.rastajax.representation.flat.RouteConflictDetector;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.filefilter.TrueFileFilter;
-import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.*;
 import java.util.*;
 
 public class Runner {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(Runner.class);
 
-    private static final String SUB_TEXT_PADDING = "    ";
-    private static final String SUB_SUB_TEXT_PADDING = "       - ";
+    static final String DEFAULT_PACKAGES = "com,org,net";
+    static final String OUTPUT_CHARSET = "UTF-8";
+    static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
 
-    private static final String ANSI_RESET = "\u001B[0m";
-    private static final String ANSI_RED = "\u001B[31m";
-    private static final String ANSI_GREEN = "\u001B[32m";
-    private static final String ANSI_BLUE = "\u001B[34m";
-    private static final String ANSI_CYAN = "\u001B[36m";
+    private static final String BATCH_COMMAND = "batch";
+    private static final String DAEMON_COMMAND = "daemon";
+    private static final String CLIENT_COMMAND = "client";
+    private static final String DIFF_COMMAND = "diff";
+
+    static final String CLASS_FILES_ONLY_OPTION = "--class-files-only";
+    static final String CONFLICTS_OPTION = "--conflicts";
 
     public static void main(String[] args) throws CliExecutionException {
 
         if (args.length == 0) {
-            System.out.println("Usage: rastajax <war file> [<comma-separated packages]");
+            System.out.println("Usage: rastajax [--format=json|ndjson|text|binary] [" + CLASS_FILES_ONLY_OPTION + "] [" + CONFLICTS_OPTION + "] <war file> [<comma-separated packages>]");
+            System.out.println("       rastajax " + Watcher.OPTION + "[=<poll interval ms>] <war file or directory> [<comma-separated packages>]");
+            System.out.println("       rastajax " + BATCH_COMMAND + " " + BatchRunner.USAGE);
+            System.out.println("       rastajax " + DAEMON_COMMAND + " " + DaemonServer.USAGE);
+            System.out.println("       rastajax " + CLIENT_COMMAND + " " + DaemonClient.USAGE);
+            System.out.println("       rastajax " + DIFF_COMMAND + " " + DiffRunner.USAGE);
             return;
         }
 
-        final File warFile = args.length > 0 ? new File(args[0]) : findWar();
-        final String packages = args.length > 1 ? args[1] : "com,org,net";
-
-        LOGGER.info("Loading war from " + warFile.getAbsolutePath());
+        if (BATCH_COMMAND.equals(args[0])) {
+            new BatchRunner().run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        final File workingDirectory = ensureWorkingDirectory();
-        extractWarFile(warFile, workingDirectory);
+        if (DAEMON_COMMAND.equals(args[0])) {
+            new DaemonServer().run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        final List<URL> urls = getClasspathURLs(workingDirectory);
+        if (CLIENT_COMMAND.equals(args[0])) {
+            new DaemonClient().run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        final Set<FlatResource> representation = loadRepresentation(urls, packages);
+        if (DIFF_COMMAND.equals(args[0])) {
+            new DiffRunner().run(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        for (FlatResource f : representation) {
-            printInfo("");
-            printInfo(ANSI_GREEN + f.getUriTemplate() + ANSI_RESET);
-            for (FlatResourceMethod m : f.getResourceMethods()) {
-                writeResourceMethod(m);
+        OutputFormat format = OutputFormat.TEXT;
+        long watchInterval = 0;
+        boolean classFilesOnly = false;
+        boolean conflicts = false;
+        final List<String> arguments = new ArrayList<String>();
+
+        for (String arg : args) {
+            if (arg.startsWith(OutputFormat.OPTION)) {
+                format = OutputFormat.fromOption(arg);
+            } else if (arg.startsWith(Watcher.OPTION)) {
+                watchInterval = Watcher.intervalFromOption(arg);
+            } else if (CLASS_FILES_ONLY_OPTION.equals(arg)) {
+                classFilesOnly = true;
+            } else if (CONFLICTS_OPTION.equals(arg)) {
+                conflicts = true;
+            } else {
+                arguments.add(arg);
             }
         }
-    }
 
-    private static Set<FlatResource> loadRepresentation(List<URL> urls, String packages) {
+        final File warFile = arguments.size() > 0 ? new File(arguments.get(0)) : findWar();
+        final String packages = arguments.size() > 1 ? arguments.get(1) : DEFAULT_PACKAGES;
 
-        final ClassLoader classLoader = new URLClassLoader(urls.toArray(new URL[] {}), Runner.class.getClassLoader());
-
-        final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(
-                classLoader,
-                packages.split(",")).allowInterfaceInheritance();
+        LOGGER.info("Loading war from " + warFile.getAbsolutePath());
 
-        return RestDescriber.describeApplication(
-                scanner.scan(),
-                new FlatRepresentationBuilder());
-    }
+        if (watchInterval > 0) {
+            watch(warFile, packages, watchInterval, format);
+            return;
+        }
 
-    private static List<URL> getClasspathURLs(File workingDirectory) throws CliExecutionException {
+        final Set<FlatResource> representation = loadRepresentation(warFile, packages, null, classFilesOnly);
 
-        final File classesFolder = new File(workingDirectory, "WEB-INF/classes");
-        final File libFolder = new File(workingDirectory, "WEB-INF/lib");
+        if (conflicts) {
+            writeRouteConflicts(representation);
+            return;
+        }
 
-        final List<URL> urls = new ArrayList<URL>();
+        // Colour only makes sense on a terminal - not when piped to a file or another tool.
         try {
-            urls.add(classesFolder.toURI().toURL());
+            format.write(representation, System.out, System.console() != null);
 
-        } catch (final MalformedURLException e) {
-            throw new CliExecutionException("Could not get the URL for '" + classesFolder.getAbsolutePath() + "'.", e);
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not write representation.", e);
         }
+    }
 
-        for (File file : FileUtils.listFiles(libFolder, TrueFileFilter.INSTANCE, TrueFileFilter.INSTANCE)) {
-            try {
-                urls.add(file.toURI().toURL());
+    private static void writeRouteConflicts(final Set<FlatResource> representation) throws CliExecutionException {
 
-            } catch (final MalformedURLException e) {
-                throw new CliExecutionException("Could not get the URL for '" + file.getAbsolutePath() + "'.", e);
-            }
-        }
+        final List<RouteConflict> conflicts = new RouteConflictDetector().detect(representation);
 
-        return urls;
-    }
-
-    private static void extractWarFile(File warFile, File workingDirectory) throws CliExecutionException {
         try {
-            ZipFile zipFile = new ZipFile(warFile);
-            zipFile.extractAll(workingDirectory.getAbsolutePath());
+            final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, OUTPUT_CHARSET), OUTPUT_BUFFER_SIZE);
+
+            for (RouteConflict conflict : conflicts) {
+                out.write(conflict.toString());
+                out.write('\n');
+            }
 
-        } catch (final ZipException e) {
-            throw new CliExecutionException("Could not extract WAR file.", e);
+            out.flush();
+
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not write route conflicts.", e);
         }
+
+        LOGGER.info("Found " + conflicts.size() + " route conflicts.");
     }
 
-    private static File ensureWorkingDirectory() throws CliExecutionException {
+    private static void watch(final File warFile, final String packages, final long interval, final OutputFormat format) throws CliExecutionException {
 
-        final File tempFolder = new File(FileUtils.getTempDirectory(), "rastajax-explode");
+        // Changes are written as prefixed blocks of text which only make sense in the text format.
+        if (format != OutputFormat.TEXT) {
+            throw new CliExecutionException("Watch mode only supports the text format.");
+        }
 
         try {
-            FileUtils.forceMkdir(tempFolder);
-            FileUtils.cleanDirectory(tempFolder);
+            final Writer out = new BufferedWriter(new OutputStreamWriter(System.out, OUTPUT_CHARSET), OUTPUT_BUFFER_SIZE);
+
+            new Watcher(warFile, packages, interval, System.console() != null).run(out);
 
         } catch (final IOException e) {
-            throw new CliExecutionException("Failed to ensure presence of working folder.", e);
+            throw new CliExecutionException("Could not write representation.", e);
         }
+    }
 
-        return tempFolder;
+    /**
+     * Describes a WAR - reading it in place - and closes it again.
+     *
+     * @param warFile
+     *      The WAR.
+     * @param packages
+     *      The comma-separated resource packages.
+     * @param archiveIndexCache
+     *      The cache of the annotation indexes of archives shared with other WARs or null to scan every archive.
+     */
+    static Set<FlatResource> loadRepresentation(final File warFile, final String packages, final ArchiveIndexCache archiveIndexCache) throws CliExecutionException {
+        return loadRepresentation(warFile, packages, archiveIndexCache, false);
     }
 
-    private static File findWar() {
-        final Collection<File> wars = FileUtils.listFiles(new File(System.getProperty("user.dir")), new String[] { "war" }, true);
+    /**
+     * @param classFilesOnly
+     *      Whether to describe the application from its class files alone - without defining any of its classes.
+     */
+    static Set<FlatResource> loadRepresentation(final File warFile, final String packages, final ArchiveIndexCache archiveIndexCache,
+                                                final boolean classFilesOnly) throws CliExecutionException {
 
-        LOGGER.info("Found the following wars: " + wars.toString());
+        final WarArchive war;
+        try {
+            war = new WarArchive(warFile);
 
-        if (wars.size() > 0) {
-            return wars.iterator().next();
-        } else {
-            return null;
+        } catch (final IOException e) {
+            throw new CliExecutionException("Could not read WAR file '" + warFile + "'.", e);
         }
-    }
-
-    private static void writeResourceMethod(FlatResourceMethod resourceMethod) {
 
-        printInfo(SUB_TEXT_PADDING + ANSI_CYAN + resourceMethod.getRequestMethodDesignator() + ANSI_RESET + " [" + resourceMethod.getResourceClass() + "]");
+        final WarClassLoader classLoader = new WarClassLoader(war, Runner.class.getClassLoader());
 
-        printInfo(SUB_SUB_TEXT_PADDING + ANSI_RED + resourceMethod.getName() + ANSI_RESET + "(" + parametersToString(resourceMethod) + ")");
-        printInfo(mediaTypesToString(ANSI_CYAN + "Produces: " + ANSI_RESET, resourceMethod.getProduces()));
-        printInfo(mediaTypesToString(ANSI_BLUE + "Consumes: " + ANSI_RESET, resourceMethod.getConsumes()));
-    }
+        try {
+            final WarRootResourceScanner scanner = new WarRootResourceScanner(
+                    war,
+                    classLoader,
+                    packages.split(",")).allowInterfaceInheritance().withArchiveIndexCache(archiveIndexCache);
+
+            if (classFilesOnly) {
+                return RestDescriber.describeApplicationFromClassFiles(
+                        scanner.scanClassNames(),
+                        classLoader,
+                        new FlatRepresentationBuilder(),
+                        null);
+            }
 
-    private static String parametersToString(final FlatResourceMethod method) {
+            return RestDescriber.describeApplication(
+                    scanner.scan(),
+                    new FlatRepresentationBuilder());
 
-        final List<String> parameterNames = new ArrayList<String>();
+        } finally {
+            try {
+                classLoader.close();
 
-        for (Map.Entry<String, List<FlatResourceMethodParameter>> parameterEntry : method.getParameters().entrySet()) {
-            for (FlatResourceMethodParameter parameter : parameterEntry.getValue()) {
-                parameterNames.add(ANSI_CYAN + parameter.getType() + ANSI_RESET + " " + parameter.getName());
+            } catch (final IOException e) {
+                LOGGER.warn("Could not close WAR file '" + warFile + "'.", e);
             }
         }
-
-        return StringUtils.join(parameterNames.toArray(new String[parameterNames.size()]), ", ");
     }
 
-    private static String mediaTypesToString(final String header, final List<String> mediaTypes) {
+    private static File findWar() {
+        final Collection<File> wars = FileUtils.listFiles(new File(System.getProperty("user.dir")), new String[] { "war" }, true);
 
-        if (mediaTypes.size() == 0) {
-            return null;
-        } else {
-            return SUB_SUB_TEXT_PADDING + header + StringUtils.join(mediaTypes.toArray(new String[mediaTypes.size()]), ", ");
-        }
-    }
+        LOGGER.info("Found the following wars: " + wars.toString());
 
-    private static void printInfo(final String info) {
-        if (info != null) {
-            System.out.println(info);
+        if (wars.size() > 0) {
+            return wars.iterator().next();
+        } else {
+            return null;
         }
     }
 }
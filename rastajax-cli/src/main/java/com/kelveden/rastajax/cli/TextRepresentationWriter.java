@@ -0,0 +1,115 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethod;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethodParameter;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a representation as indented text - optionally coloured with ANSI escape codes.
+ */
+class TextRepresentationWriter implements RepresentationWriter {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    static final String SUB_TEXT_PADDING = "    ";
+    static final String SUB_SUB_TEXT_PADDING = "       - ";
+
+    private static final String ANSI_RESET = "\u001B[0m";
+    private static final String ANSI_RED = "\u001B[31m";
+    private static final String ANSI_GREEN = "\u001B[32m";
+    private static final String ANSI_BLUE = "\u001B[34m";
+    private static final String ANSI_CYAN = "\u001B[36m";
+
+    private final String reset;
+    private final String red;
+    private final String green;
+    private final String blue;
+    private final String cyan;
+
+    /**
+     * Constructor.
+     *
+     * @param ansi
+     *      Whether to colour the text with ANSI escape codes.
+     */
+    TextRepresentationWriter(final boolean ansi) {
+        this.reset = ansi ? ANSI_RESET : "";
+        this.red = ansi ? ANSI_RED : "";
+        this.green = ansi ? ANSI_GREEN : "";
+        this.blue = ansi ? ANSI_BLUE : "";
+        this.cyan = ansi ? ANSI_CYAN : "";
+    }
+
+    @Override
+    public void write(final Set<FlatResource> representation, final Writer out) throws IOException {
+
+        for (FlatResource f : representation) {
+            printInfo(out, "");
+            printInfo(out, green + f.getUriTemplate() + reset);
+            for (FlatResourceMethod m : f.getResourceMethods()) {
+                writeResourceMethod(out, m);
+            }
+        }
+    }
+
+    private void writeResourceMethod(final Writer out, final FlatResourceMethod resourceMethod) throws IOException {
+
+        printInfo(out, SUB_TEXT_PADDING + cyan + resourceMethod.getRequestMethodDesignator() + reset + " [" + resourceMethod.getResourceClass() + "]");
+
+        printInfo(out, SUB_SUB_TEXT_PADDING + red + resourceMethod.getName() + reset + "(" + parametersToString(resourceMethod) + ")");
+        printInfo(out, mediaTypesToString(cyan + "Produces: " + reset, resourceMethod.getProduces()));
+        printInfo(out, mediaTypesToString(blue + "Consumes: " + reset, resourceMethod.getConsumes()));
+    }
+
+    private String parametersToString(final FlatResourceMethod method) {
+
+        final List<String> parameterNames = new ArrayList<String>();
+
+        for (Map.Entry<String, List<FlatResourceMethodParameter>> parameterEntry : method.getParameters().entrySet()) {
+            for (FlatResourceMethodParameter parameter : parameterEntry.getValue()) {
+                parameterNames.add(cyan + parameter.getType() + reset + " " + parameter.getName());
+            }
+        }
+
+        return StringUtils.join(parameterNames.toArray(new String[parameterNames.size()]), ", ");
+    }
+
+    private String mediaTypesToString(final String header, final List<String> mediaTypes) {
+
+        if (mediaTypes.size() == 0) {
+            return null;
+        } else {
+            return SUB_SUB_TEXT_PADDING + header + StringUtils.join(mediaTypes.toArray(new String[mediaTypes.size()]), ", ");
+        }
+    }
+
+    private void printInfo(final Writer out, final String info) throws IOException {
+        if (info != null) {
+            out.write(info);
+            out.write(LINE_SEPARATOR);
+        }
+    }
+}
@@ -0,0 +1,677 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * A WAR file or exploded WAR directory read in place: the classes in <code>WEB-INF/classes</code> are read straight from
+ * the WAR or directory and each jar in <code>WEB-INF/lib</code> is held in memory - still compressed - with an index of
+ * its entries from its central directory. Entries are only inflated when they are read, and nothing is written to disk.
+ * <p>
+ * Resources are addressed with URLs of the form <code>rastajax-war:/&lt;archive&gt;!/&lt;entry&gt;</code> - where the
+ * archive is <code>WEB-INF/classes</code> or the path of a jar - which can be opened for as long as the WAR is open.
+ * Instances are safe for concurrent use.
+ */
+final class WarArchive {
+
+    static final String CLASSES_DIRECTORY = "WEB-INF/classes";
+    static final String LIB_DIRECTORY = "WEB-INF/lib/";
+
+    private static final String PROTOCOL = "rastajax-war";
+    private static final String ENTRY_SEPARATOR = "!/";
+    private static final String CONTENT_HASH_ALGORITHM = "SHA-1";
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_HEADER_LENGTH = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_LENGTH = 30;
+    private static final int MAXIMUM_COMMENT_LENGTH = 0xFFFF;
+    private static final int MAXIMUM_PRESIZED_ENTRY_LENGTH = 1 << 20;
+
+    private final File file;
+    private final ZipFile zipFile;  // Null for an exploded WAR.
+    private final List<Archive> archives;
+    private final Map<String, Archive> archivesByName = new HashMap<String, Archive>();
+    private final URLStreamHandler urlStreamHandler = new ArchiveUrlStreamHandler();
+
+    /**
+     * Constructor.
+     *
+     * @param file
+     *      The WAR file or exploded WAR directory.
+     * @throws IOException
+     *      If the WAR or one of the jars in it cannot be read.
+     */
+    WarArchive(final File file) throws IOException {
+        this(file, null);
+    }
+
+    /**
+     * Constructor for re-reading a WAR that has changed.
+     *
+     * @param file
+     *      The WAR file or exploded WAR directory.
+     * @param previous
+     *      The archive as previously read or null. For an exploded WAR, the jars of the previous archive are reused if
+     *      their files have not changed since.
+     * @throws IOException
+     *      If the WAR or one of the jars in it cannot be read.
+     */
+    WarArchive(final File file, final WarArchive previous) throws IOException {
+
+        this.file = file;
+
+        if (file.isDirectory()) {
+            this.zipFile = null;
+            this.archives = Collections.unmodifiableList(indexDirectory(previous));
+
+        } else {
+            this.zipFile = new ZipFile(file);
+
+            boolean indexed = false;
+            try {
+                this.archives = Collections.unmodifiableList(index());
+                indexed = true;
+
+            } finally {
+                if (!indexed) {
+                    closeQuietly(zipFile);
+                }
+            }
+        }
+
+        for (Archive archive : archives) {
+            archivesByName.put(archive.getName(), archive);
+        }
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * The archives in the WAR - <code>WEB-INF/classes</code> followed by the jars in <code>WEB-INF/lib</code> in name
+     * order.
+     */
+    List<Archive> getArchives() {
+        return archives;
+    }
+
+    /**
+     * The jars in <code>WEB-INF/lib</code> in name order.
+     */
+    List<Archive> getLibraryArchives() {
+        return archives.subList(1, archives.size());
+    }
+
+    /**
+     * The URL of an entry in an archive - or of the archive itself for an empty entry name.
+     */
+    URL getUrl(final Archive archive, final String entryName) {
+
+        try {
+            return new URL(PROTOCOL, null, -1, "/" + archive.getName() + ENTRY_SEPARATOR + entryName, urlStreamHandler);
+
+        } catch (final MalformedURLException e) {
+            throw new IllegalStateException("Could not create URL for '" + entryName + "' in '" + archive.getName() + "'.", e);
+        }
+    }
+
+    void close() throws IOException {
+
+        if (zipFile != null) {
+            zipFile.close();
+        }
+    }
+
+    private static void closeQuietly(final ZipFile zipFile) {
+
+        try {
+            zipFile.close();
+        } catch (final IOException e) {
+            // Already failing.
+        }
+    }
+
+    private List<Archive> index() throws IOException {
+
+        final Map<String, ZipEntry> classesEntries = new HashMap<String, ZipEntry>();
+        final SortedMap<String, ZipEntry> jarEntries = new TreeMap<String, ZipEntry>();
+
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            final String name = entry.getName();
+
+            if (entry.isDirectory()) {
+                continue;
+            }
+
+            if (name.startsWith(CLASSES_DIRECTORY + "/")) {
+                classesEntries.put(name.substring(CLASSES_DIRECTORY.length() + 1), entry);
+
+            } else if (name.startsWith(LIB_DIRECTORY) && name.endsWith(".jar") && (name.indexOf('/', LIB_DIRECTORY.length()) < 0)) {
+                jarEntries.put(name, entry);
+            }
+        }
+
+        final List<Archive> result = new ArrayList<Archive>();
+        result.add(new ClassesDirectory(classesEntries));
+
+        for (ZipEntry jarEntry : jarEntries.values()) {
+            final InputStream jarStream = zipFile.getInputStream(jarEntry);
+
+            try {
+                result.add(new NestedJar(jarEntry.getName(), IOUtils.toByteArray(jarStream), NestedJar.UNKNOWN));
+            } finally {
+                jarStream.close();
+            }
+        }
+
+        return result;
+    }
+
+    private List<Archive> indexDirectory(final WarArchive previous) throws IOException {
+
+        final Map<String, File> classFiles = new HashMap<String, File>();
+        final File classesDirectory = new File(file, CLASSES_DIRECTORY);
+
+        if (classesDirectory.isDirectory()) {
+            listFiles(classesDirectory, "", classFiles);
+        }
+
+        final List<Archive> result = new ArrayList<Archive>();
+        result.add(new ExplodedClassesDirectory(classFiles));
+
+        final File[] jarFiles = new File(file, LIB_DIRECTORY).listFiles();
+
+        if (jarFiles != null) {
+            Arrays.sort(jarFiles);
+
+            for (File jarFile : jarFiles) {
+                if (jarFile.isFile() && jarFile.getName().endsWith(".jar")) {
+                    final String name = LIB_DIRECTORY + jarFile.getName();
+                    final Archive previousJar = previous == null ? null : previous.archivesByName.get(name);
+
+                    if ((previousJar instanceof NestedJar) && ((NestedJar) previousJar).isReadFrom(jarFile)) {
+                        result.add(previousJar);
+                    } else {
+                        result.add(new NestedJar(name, FileUtils.readFileToByteArray(jarFile), jarFile.lastModified()));
+                    }
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private static void listFiles(final File directory, final String prefix, final Map<String, File> result) {
+
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        for (File child : files) {
+            if (child.isDirectory()) {
+                listFiles(child, prefix + child.getName() + "/", result);
+            } else {
+                result.put(prefix + child.getName(), child);
+            }
+        }
+    }
+
+    /**
+     * A set of entries in the WAR that are read as a unit - i.e. <code>WEB-INF/classes</code> or a jar.
+     */
+    abstract static class Archive {
+
+        private final String name;
+
+        Archive(final String name) {
+            this.name = name;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        /**
+         * The names of the files in the archive relative to its root; e.g. <code>com/example/Resource.class</code>.
+         */
+        abstract Collection<String> getEntryNames();
+
+        abstract boolean contains(String entryName);
+
+        /**
+         * The uncompressed size of an entry or -1 if not known.
+         */
+        abstract long getSize(String entryName);
+
+        /**
+         * @throws FileNotFoundException
+         *      If the archive does not contain the entry.
+         */
+        abstract InputStream open(String entryName) throws IOException;
+
+        /**
+         * A hash of the content of the archive that identifies it across WARs - or null if it has no such identity.
+         */
+        String getContentHash() {
+            return null;
+        }
+
+        /**
+         * Whether the archive contains anything in a package - given as a path; e.g. <code>com/example</code>.
+         */
+        boolean containsPackage(final String packagePath) {
+
+            final String prefix = packagePath + "/";
+
+            for (String entryName : getEntryNames()) {
+                if (entryName.startsWith(prefix)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Reads an entry whole - into an array of its declared size if that is known and small enough to trust, as a
+         * corrupt archive could declare any size.
+         */
+        byte[] read(final String entryName) throws IOException {
+
+            final InputStream input = open(entryName);
+
+            try {
+                final long size = getSize(entryName);
+
+                if ((size < 0) || (size > MAXIMUM_PRESIZED_ENTRY_LENGTH)) {
+                    return IOUtils.toByteArray(input);
+                }
+
+                final byte[] result = new byte[(int) size];
+                IOUtils.readFully(input, result);
+
+                return result;
+
+            } finally {
+                input.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * <code>WEB-INF/classes</code>, read straight from the WAR.
+     */
+    private final class ClassesDirectory extends Archive {
+
+        private final Map<String, ZipEntry> entries;
+
+        ClassesDirectory(final Map<String, ZipEntry> entries) {
+            super(CLASSES_DIRECTORY);
+            this.entries = entries;
+        }
+
+        @Override
+        Collection<String> getEntryNames() {
+            return entries.keySet();
+        }
+
+        @Override
+        boolean contains(final String entryName) {
+            return entries.containsKey(entryName);
+        }
+
+        @Override
+        long getSize(final String entryName) {
+
+            final ZipEntry entry = entries.get(entryName);
+
+            return entry == null ? -1 : entry.getSize();
+        }
+
+        @Override
+        InputStream open(final String entryName) throws IOException {
+
+            final ZipEntry entry = entries.get(entryName);
+
+            if (entry == null) {
+                throw new FileNotFoundException(entryName + " in " + getName());
+            }
+
+            return zipFile.getInputStream(entry);
+        }
+    }
+
+    /**
+     * <code>WEB-INF/classes</code> of an exploded WAR, read from disk.
+     */
+    private static final class ExplodedClassesDirectory extends Archive {
+
+        private final Map<String, File> files;
+
+        ExplodedClassesDirectory(final Map<String, File> files) {
+            super(CLASSES_DIRECTORY);
+            this.files = files;
+        }
+
+        @Override
+        Collection<String> getEntryNames() {
+            return files.keySet();
+        }
+
+        @Override
+        boolean contains(final String entryName) {
+            return files.containsKey(entryName);
+        }
+
+        @Override
+        long getSize(final String entryName) {
+
+            final File entry = files.get(entryName);
+
+            return entry == null ? -1 : entry.length();
+        }
+
+        @Override
+        InputStream open(final String entryName) throws IOException {
+
+            final File entry = files.get(entryName);
+
+            if (entry == null) {
+                throw new FileNotFoundException(entryName + " in " + getName());
+            }
+
+            return new BufferedInputStream(new FileInputStream(entry));
+        }
+    }
+
+    /**
+     * A jar in <code>WEB-INF/lib</code>, held in memory as it is in the WAR and indexed from its central directory.
+     */
+    private static final class NestedJar extends Archive {
+
+        static final long UNKNOWN = -1;
+
+        private final byte[] bytes;
+        private final long lastModified;
+        private final Map<String, NestedEntry> entries;
+        private volatile String contentHash;
+
+        NestedJar(final String name, final byte[] bytes, final long lastModified) throws IOException {
+            super(name);
+            this.bytes = bytes;
+            this.lastModified = lastModified;
+            this.entries = readCentralDirectory();
+        }
+
+        /**
+         * Whether this jar was read from the specified file as it is now - as far as its size and modification time tell.
+         */
+        boolean isReadFrom(final File jarFile) {
+            return (lastModified != UNKNOWN) && (lastModified == jarFile.lastModified()) && (bytes.length == jarFile.length());
+        }
+
+        @Override
+        Collection<String> getEntryNames() {
+            return entries.keySet();
+        }
+
+        @Override
+        boolean contains(final String entryName) {
+            return entries.containsKey(entryName);
+        }
+
+        @Override
+        long getSize(final String entryName) {
+
+            final NestedEntry entry = entries.get(entryName);
+
+            return entry == null ? -1 : entry.size;
+        }
+
+        @Override
+        String getContentHash() {
+
+            if (contentHash == null) {
+                try {
+                    final StringBuilder hash = new StringBuilder();
+
+                    for (byte hashByte : MessageDigest.getInstance(CONTENT_HASH_ALGORITHM).digest(bytes)) {
+                        hash.append(Character.forDigit((hashByte >> 4) & 0xF, 16)).append(Character.forDigit(hashByte & 0xF, 16));
+                    }
+
+                    contentHash = hash.toString();
+
+                } catch (final NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(CONTENT_HASH_ALGORITHM + " is not available.", e);
+                }
+            }
+
+            return contentHash;
+        }
+
+        @Override
+        InputStream open(final String entryName) throws IOException {
+
+            final NestedEntry entry = entries.get(entryName);
+
+            if (entry == null) {
+                throw new FileNotFoundException(entryName + " in " + getName());
+            }
+
+            if (readInt(entry.localHeaderOffset) != LOCAL_HEADER_SIGNATURE) {
+                throw new ZipException("Entry '" + entryName + "' in '" + getName() + "' has no local header.");
+            }
+
+            // The lengths of the name and extra field in the local header can differ from those in the central directory.
+            final int dataOffset = entry.localHeaderOffset + LOCAL_HEADER_LENGTH + readShort(entry.localHeaderOffset + 26) + readShort(entry.localHeaderOffset + 28);
+
+            checkRange(dataOffset, entry.compressedSize);
+
+            switch (entry.method) {
+                case ZipEntry.STORED:
+                    return new ByteArrayInputStream(bytes, dataOffset, (int) entry.compressedSize);
+
+                case ZipEntry.DEFLATED:
+                    // The inflater needs a byte past the end of the compressed data when there is no zlib wrapper - so
+                    // offer it everything to the end of the jar; it stops at the end of the entry regardless.
+                    return new EntryInputStream(new ByteArrayInputStream(bytes, dataOffset, bytes.length - dataOffset));
+
+                default:
+                    throw new ZipException("Entry '" + entryName + "' in '" + getName() + "' uses unsupported compression method " + entry.method + ".");
+            }
+        }
+
+        private Map<String, NestedEntry> readCentralDirectory() throws IOException {
+
+            int endOfCentralDirectory = -1;
+
+            final int lowestOffset = Math.max(0, bytes.length - END_OF_CENTRAL_DIRECTORY_LENGTH - MAXIMUM_COMMENT_LENGTH);
+            for (int offset = bytes.length - END_OF_CENTRAL_DIRECTORY_LENGTH; offset >= lowestOffset; offset--) {
+                if (readInt(offset) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    endOfCentralDirectory = offset;
+                    break;
+                }
+            }
+
+            if (endOfCentralDirectory < 0) {
+                throw new ZipException("'" + getName() + "' is not a jar file.");
+            }
+
+            final int entryCount = readShort(endOfCentralDirectory + 10);
+            final long centralDirectoryOffset = readUnsignedInt(endOfCentralDirectory + 16);
+
+            if ((entryCount == 0xFFFF) || (centralDirectoryOffset == 0xFFFFFFFFL)) {
+                throw new ZipException("'" + getName() + "' is a ZIP64 file, which is not supported.");
+            }
+
+            if (centralDirectoryOffset > endOfCentralDirectory) {
+                throw new ZipException("'" + getName() + "' is truncated or corrupt.");
+            }
+
+            final Map<String, NestedEntry> result = new LinkedHashMap<String, NestedEntry>();
+
+            int offset = (int) centralDirectoryOffset;
+            for (int i = 0; i < entryCount; i++) {
+                if (readInt(offset) != CENTRAL_DIRECTORY_HEADER_SIGNATURE) {
+                    throw new ZipException("The central directory of '" + getName() + "' is corrupt.");
+                }
+
+                final int nameLength = readShort(offset + 28);
+                checkRange(offset + CENTRAL_DIRECTORY_HEADER_LENGTH, nameLength);
+
+                final String entryName = new String(bytes, offset + CENTRAL_DIRECTORY_HEADER_LENGTH, nameLength, "UTF-8");
+
+                if (!entryName.endsWith("/")) {
+                    final long localHeaderOffset = readUnsignedInt(offset + 42);
+                    checkRange(localHeaderOffset, LOCAL_HEADER_LENGTH);
+
+                    result.put(entryName, new NestedEntry(
+                            readShort(offset + 10),
+                            readUnsignedInt(offset + 20),
+                            readUnsignedInt(offset + 24),
+                            (int) localHeaderOffset));
+                }
+
+                offset += CENTRAL_DIRECTORY_HEADER_LENGTH + nameLength + readShort(offset + 30) + readShort(offset + 32);
+            }
+
+            return result;
+        }
+
+        /**
+         * @throws ZipException
+         *      If the range is not within the jar - which is truncated or corrupt if an offset or length read from it
+         *      points outside it.
+         */
+        private void checkRange(final long offset, final long length) throws ZipException {
+
+            if ((offset < 0) || (length < 0) || (offset + length > bytes.length)) {
+                throw new ZipException("'" + getName() + "' is truncated or corrupt.");
+            }
+        }
+
+        private int readShort(final int offset) throws ZipException {
+
+            checkRange(offset, 2);
+
+            return (bytes[offset] & 0xFF) | ((bytes[offset + 1] & 0xFF) << 8);
+        }
+
+        private int readInt(final int offset) throws ZipException {
+            return readShort(offset) | (readShort(offset + 2) << 16);
+        }
+
+        private long readUnsignedInt(final int offset) throws ZipException {
+            return readInt(offset) & 0xFFFFFFFFL;
+        }
+    }
+
+    private static final class NestedEntry {
+
+        private final int method;
+        private final long compressedSize;
+        private final long size;
+        private final int localHeaderOffset;
+
+        NestedEntry(final int method, final long compressedSize, final long size, final int localHeaderOffset) {
+            this.method = method;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+    }
+
+    /**
+     * Inflates a deflated entry - and releases its inflater on closing, which {@link InflaterInputStream} only does for
+     * inflaters that it creates itself.
+     */
+    private static final class EntryInputStream extends InflaterInputStream {
+
+        EntryInputStream(final InputStream input) {
+            super(input, new Inflater(true));
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            inf.end();
+        }
+    }
+
+    private final class ArchiveUrlStreamHandler extends URLStreamHandler {
+
+        @Override
+        protected URLConnection openConnection(final URL url) throws IOException {
+
+            final String path = url.getPath();
+            final int separator = path.indexOf(ENTRY_SEPARATOR);
+
+            final Archive archive = separator < 0 ? null : archivesByName.get(path.substring(1, separator));
+
+            if (archive == null) {
+                throw new FileNotFoundException(url.toString());
+            }
+
+            final String entryName = path.substring(separator + ENTRY_SEPARATOR.length());
+
+            return new URLConnection(url) {
+                @Override
+                public void connect() {
+                    connected = true;
+                }
+
+                @Override
+                public InputStream getInputStream() throws IOException {
+                    return archive.open(entryName);
+                }
+
+                @Override
+                public int getContentLength() {
+                    return (int) archive.getSize(entryName);
+                }
+            };
+        }
+    }
+}
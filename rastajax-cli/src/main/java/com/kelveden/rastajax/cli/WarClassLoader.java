@@ -0,0 +1,120 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * {@link ClassLoader} for the classes and resources of a {@link WarArchive} - looked up in <code>WEB-INF/classes</code>
+ * and then in the jars in <code>WEB-INF/lib</code>, after the parent class loader as usual. Closing it closes the WAR;
+ * classes already loaded remain usable but no more can be loaded.
+ */
+final class WarClassLoader extends ClassLoader implements Closeable {
+
+    private final WarArchive war;
+    private final List<WarArchive.Archive> archives;
+
+    WarClassLoader(final WarArchive war, final ClassLoader parent) {
+        this(war, war.getArchives(), parent);
+    }
+
+    /**
+     * Constructor for a class loader of only some of the archives of a WAR - e.g. of the library jars so that it can be
+     * kept for as long as they do not change.
+     */
+    WarClassLoader(final WarArchive war, final List<WarArchive.Archive> archives, final ClassLoader parent) {
+        super(parent);
+        this.war = war;
+        this.archives = archives;
+    }
+
+    @Override
+    protected Class<?> findClass(final String name) throws ClassNotFoundException {
+
+        final byte[] classFile;
+        try {
+            classFile = read(name.replace('.', '/') + ".class");
+
+        } catch (final IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+
+        if (classFile == null) {
+            throw new ClassNotFoundException(name);
+        }
+
+        definePackageOf(name);
+
+        return defineClass(name, classFile, 0, classFile.length);
+    }
+
+    @Override
+    protected URL findResource(final String name) {
+
+        for (WarArchive.Archive archive : archives) {
+            if (archive.contains(name)) {
+                return war.getUrl(archive, name);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    protected Enumeration<URL> findResources(final String name) {
+
+        final List<URL> result = new ArrayList<URL>();
+
+        for (WarArchive.Archive archive : archives) {
+            if (archive.contains(name)) {
+                result.add(war.getUrl(archive, name));
+            }
+        }
+
+        return Collections.enumeration(result);
+    }
+
+    @Override
+    public void close() throws IOException {
+        war.close();
+    }
+
+    private byte[] read(final String entryName) throws IOException {
+
+        for (WarArchive.Archive archive : archives) {
+            if (archive.contains(entryName)) {
+                return archive.read(entryName);
+            }
+        }
+
+        return null;
+    }
+
+    private void definePackageOf(final String className) {
+
+        final int lastDot = className.lastIndexOf('.');
+
+        if ((lastDot > 0) && (getPackage(className.substring(0, lastDot)) == null)) {
+            definePackage(className.substring(0, lastDot), null, null, null, null, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.core.DescriptionListener;
+import com.kelveden.rastajax.core.DescriptionListeners;
+import com.kelveden.rastajax.core.ResourceScanningException;
+import com.kelveden.rastajax.core.RootResourceScanner;
+import org.scannotation.AnnotationDB;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.Path;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.Callable;
+
+/**
+ * {@link RootResourceScanner} that scans the archives of a {@link WarArchive} in place. Does the same as
+ * {@link com.kelveden.rastajax.core.ClassLoaderRootResourceScanner} over a class loader of the WAR - i.e. scans every
+ * class in each archive that contains any of the resource packages - but reads the class files from the WAR rather
+ * than from URLs on disk.
+ */
+final class WarRootResourceScanner implements RootResourceScanner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarRootResourceScanner.class);
+
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private final WarArchive war;
+    private final ClassLoader classLoader;
+    private final List<String> resourcePackagePaths = new ArrayList<String>();
+
+    private boolean scanInterfaces;
+    private ArchiveIndexCache archiveIndexCache;
+
+    /**
+     * Constructor.
+     *
+     * @param war
+     *      The WAR.
+     * @param classLoader
+     *      The class loader to load the root resource classes with - normally a {@link WarClassLoader} of the WAR.
+     * @param resourcePackages
+     *      The resource package(s) that contain the JAX-RS classes.
+     */
+    WarRootResourceScanner(final WarArchive war, final ClassLoader classLoader, final String... resourcePackages) {
+
+        this.war = war;
+        this.classLoader = classLoader;
+
+        for (String resourcePackage : resourcePackages) {
+            resourcePackagePaths.add(resourcePackage.trim().replace('.', '/'));
+        }
+    }
+
+    /**
+     * Honours class-level JAX-RS annotations on interfaces - as
+     * {@link com.kelveden.rastajax.core.ClassLoaderRootResourceScanner#allowInterfaceInheritance()}.
+     */
+    WarRootResourceScanner allowInterfaceInheritance() {
+        this.scanInterfaces = true;
+
+        return this;
+    }
+
+    /**
+     * Reuses the annotation indexes of archives with the same content - e.g. the same library jar in another WAR - from
+     * the specified cache rather than scanning them again.
+     */
+    WarRootResourceScanner withArchiveIndexCache(final ArchiveIndexCache archiveIndexCache) {
+        this.archiveIndexCache = archiveIndexCache;
+
+        return this;
+    }
+
+    @Override
+    public Set<Class<?>> scan() {
+
+        final Set<Class<?>> results = new HashSet<Class<?>>();
+
+        for (String className : scanClassNames()) {
+            try {
+                final Class<?> loadedClass = classLoader.loadClass(className);
+                final int classModifiers = loadedClass.getModifiers();
+
+                if (!Modifier.isAbstract(classModifiers) && !Modifier.isInterface(classModifiers)) {
+                    results.add(loadedClass);
+                }
+
+            } catch (final ClassNotFoundException e) {
+                throw new ResourceScanningException(e);
+            }
+        }
+
+        LOGGER.debug("Scanned {} root resource classes from {}: {}.", new Object[] { results.size(), war.getFile(), results });
+
+        return results;
+    }
+
+    /**
+     * Does the same as {@link #scan()} but without loading any classes.
+     *
+     * @return
+     *      The names of the candidate root resource classes - which may include abstract classes and interfaces.
+     */
+    Set<String> scanClassNames() {
+
+        final IndexingAnnotationDB annotationDb = new IndexingAnnotationDB();
+
+        try {
+            for (WarArchive.Archive archive : war.getArchives()) {
+                if (containsResourcePackage(archive)) {
+                    annotationDb.merge(indexArchive(archive));
+                }
+            }
+
+            if (scanInterfaces) {
+                annotationDb.crossReferenceImplementedInterfaces();
+            }
+
+        } catch (final IOException e) {
+            throw new ResourceScanningException(e);
+
+        } catch (final AnnotationDB.CrossReferenceException e) {
+            LOGGER.debug("Some of the interfaces referenced in the scanned classes could not be cross-referenced. " +
+                    "This isn't a problem as long as it doesn't include actual REST resource classes. The list of unresolved interfaces: {}", e.getUnresolved());
+        }
+
+        final Set<String> classesAnnotatedWithPath = annotationDb.getAnnotationIndex().get(Path.class.getName());
+
+        return classesAnnotatedWithPath == null ? new HashSet<String>() : classesAnnotatedWithPath;
+    }
+
+    private boolean containsResourcePackage(final WarArchive.Archive archive) {
+
+        for (String resourcePackagePath : resourcePackagePaths) {
+            if (archive.containsPackage(resourcePackagePath)) {
+                LOGGER.debug("Archive {} will be scanned for package {}.", archive, resourcePackagePath);
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private IndexingAnnotationDB.ArchiveIndex indexArchive(final WarArchive.Archive archive) throws IOException {
+
+        final String contentHash = archiveIndexCache == null ? null : archive.getContentHash();
+
+        if (contentHash == null) {
+            return scanArchive(archive);
+        }
+
+        try {
+            return archiveIndexCache.get(contentHash, new Callable<IndexingAnnotationDB.ArchiveIndex>() {
+                @Override
+                public IndexingAnnotationDB.ArchiveIndex call() throws IOException {
+                    return scanArchive(archive);
+                }
+            });
+
+        } catch (final IOException e) {
+            throw e;
+
+        } catch (final RuntimeException e) {
+            throw e;
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceScanningException("Interrupted waiting for " + archive + " to be scanned.", e);
+
+        } catch (final Exception e) {
+            throw new ResourceScanningException("Could not scan " + archive + ".", e);
+        }
+    }
+
+    private IndexingAnnotationDB.ArchiveIndex scanArchive(final WarArchive.Archive archive) throws IOException {
+
+        final IndexingAnnotationDB annotationDb = new IndexingAnnotationDB();
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.archiveScanStarted(war.getUrl(archive, ""));
+
+        int classesInspected = 0;
+        long bytesRead = 0;
+
+        try {
+            for (String entryName : archive.getEntryNames()) {
+                if (!entryName.endsWith(CLASS_FILE_SUFFIX) || isIgnored(annotationDb, entryName)) {
+                    continue;
+                }
+
+                final InputStream classFile = archive.open(entryName);
+                try {
+                    annotationDb.scanClass(classFile);
+                } finally {
+                    classFile.close();
+                }
+
+                classesInspected++;
+                bytesRead += archive.getSize(entryName);
+            }
+
+        } finally {
+            listener.archiveScanFinished(listenerContext, war.getUrl(archive, ""), classesInspected, bytesRead);
+        }
+
+        return annotationDb.toArchiveIndex();
+    }
+
+    private static boolean isIgnored(final AnnotationDB annotationDb, final String entryName) {
+
+        final String className = entryName.replace('/', '.');
+
+        for (String ignoredPackage : annotationDb.getIgnoredPackages()) {
+            if (className.startsWith(ignoredPackage + ".")) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
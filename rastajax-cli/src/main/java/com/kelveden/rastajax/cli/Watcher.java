@@ -0,0 +1,342 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Watches a WAR file or exploded WAR directory and re-describes it whenever it changes, writing only the resources that
+ * were added, removed or changed since the previous description.
+ * <p>
+ * The WAR is polled rather than watched with file system events so that this works on Java 6 and on file systems without
+ * change notification. A change is only acted on once the WAR has stayed the same for a whole poll interval so that a
+ * build still writing it is not read half-way through. Library jars whose content is unchanged are neither re-read (for
+ * an exploded WAR) nor re-scanned, and their class loader is reused; only <code>WEB-INF/classes</code> gets a fresh class
+ * loader each time. That class loader delegates to the library class loader first, so a library class that refers to a
+ * class in <code>WEB-INF/classes</code> cannot be resolved in watch mode.
+ */
+class Watcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Watcher.class);
+
+    static final String OPTION = "--watch";
+    static final long DEFAULT_INTERVAL = 1000;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final String ADDED = "+ ";
+    private static final String REMOVED = "- ";
+    private static final String CHANGED = "~ ";
+
+    private final File warFile;
+    private final String packages;
+    private final long interval;
+    private final TextRepresentationWriter writer;
+    private final ArchiveIndexCache archiveIndexCache = new ArchiveIndexCache();
+
+    private WarArchive war;
+    private WarClassLoader libraryClassLoader;
+    private List<String> libraryContentHashes;
+    private Map<String, String> resourcesByUriTemplate = new LinkedHashMap<String, String>();
+
+    /**
+     * Constructor.
+     *
+     * @param warFile
+     *      The WAR file or exploded WAR directory.
+     * @param packages
+     *      The comma-separated resource packages.
+     * @param interval
+     *      The poll interval in milliseconds.
+     * @param ansi
+     *      Whether to colour the output with ANSI escape codes.
+     */
+    Watcher(final File warFile, final String packages, final long interval, final boolean ansi) {
+        this.warFile = warFile;
+        this.packages = packages;
+        this.interval = interval;
+        this.writer = new TextRepresentationWriter(ansi);
+    }
+
+    /**
+     * Parses the poll interval from a <code>--watch</code> or <code>--watch=&lt;milliseconds&gt;</code> option.
+     */
+    static long intervalFromOption(final String option) throws CliExecutionException {
+
+        if (OPTION.equals(option)) {
+            return DEFAULT_INTERVAL;
+        }
+
+        try {
+            final long result = Long.parseLong(option.substring(OPTION.length() + 1));
+
+            if (result > 0) {
+                return result;
+            }
+
+        } catch (final NumberFormatException e) {
+            // Fall through.
+        }
+
+        throw new CliExecutionException("Invalid poll interval in '" + option + "'.");
+    }
+
+    /**
+     * Describes the WAR and then watches it until the process is stopped.
+     */
+    void run(final Writer out) throws IOException {
+
+        String describedStamp = stamp();
+        describe(out);
+
+        String lastStamp = describedStamp;
+
+        while (true) {
+            try {
+                Thread.sleep(interval);
+
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            final String currentStamp = stamp();
+
+            if (!currentStamp.equals(describedStamp) && currentStamp.equals(lastStamp)) {
+                describe(out);
+                describedStamp = currentStamp;
+            }
+
+            lastStamp = currentStamp;
+        }
+    }
+
+    private void describe(final Writer out) throws IOException {
+
+        final long start = System.currentTimeMillis();
+
+        final Set<FlatResource> representation;
+        try {
+            representation = loadRepresentation();
+
+        } catch (final Exception e) {
+            LOGGER.error("Could not describe " + warFile + " - waiting for the next change.", e);
+            return;
+
+        } catch (final LinkageError e) {
+            // E.g. a class referring to one in a jar that has just been removed.
+            LOGGER.error("Could not describe " + warFile + " - waiting for the next change.", e);
+            return;
+        }
+
+        final Map<String, String> previous = resourcesByUriTemplate;
+        final Map<String, String> current = render(representation);
+
+        int added = 0;
+        int changed = 0;
+
+        for (Map.Entry<String, String> resource : current.entrySet()) {
+            final String previousResource = previous.remove(resource.getKey());
+
+            if (previousResource == null) {
+                writePrefixed(out, ADDED, resource.getValue());
+                added++;
+
+            } else if (!previousResource.equals(resource.getValue())) {
+                writePrefixed(out, CHANGED, resource.getValue());
+                changed++;
+            }
+        }
+
+        for (String removedResource : previous.values()) {
+            writePrefixed(out, REMOVED, removedResource);
+        }
+
+        out.write(LINE_SEPARATOR);
+        out.write(String.format("%d added, %d removed, %d changed of %d resources in %dms.",
+                added, previous.size(), changed, current.size(), System.currentTimeMillis() - start));
+        out.write(LINE_SEPARATOR);
+        out.flush();
+
+        resourcesByUriTemplate = current;
+    }
+
+    private Set<FlatResource> loadRepresentation() throws IOException {
+
+        final WarArchive previousWar = war;
+        final WarArchive currentWar = new WarArchive(warFile, previousWar);
+
+        final List<String> contentHashes = new ArrayList<String>();
+        for (WarArchive.Archive archive : currentWar.getLibraryArchives()) {
+            contentHashes.add(archive.getName() + "@" + archive.getContentHash());
+        }
+
+        if ((libraryClassLoader == null) || !contentHashes.equals(libraryContentHashes)) {
+            LOGGER.debug("Libraries of {} have changed - creating a new library class loader.", warFile);
+
+            libraryClassLoader = new WarClassLoader(currentWar, currentWar.getLibraryArchives(), Runner.class.getClassLoader());
+            libraryContentHashes = contentHashes;
+        }
+
+        war = currentWar;
+
+        if (previousWar != null) {
+            // The library class loader may still refer to jars of the previous WAR but they are held in memory.
+            previousWar.close();
+        }
+
+        final WarClassLoader classesClassLoader = new WarClassLoader(
+                currentWar,
+                Collections.singletonList(currentWar.getArchives().get(0)),
+                libraryClassLoader);
+
+        final WarRootResourceScanner scanner = new WarRootResourceScanner(
+                currentWar,
+                classesClassLoader,
+                packages.split(",")).allowInterfaceInheritance().withArchiveIndexCache(archiveIndexCache);
+
+        return RestDescriber.describeApplication(
+                scanner.scan(),
+                new FlatRepresentationBuilder());
+    }
+
+    private Map<String, String> render(final Set<FlatResource> representation) throws IOException {
+
+        final Map<String, StringWriter> renderedByUriTemplate = new LinkedHashMap<String, StringWriter>();
+
+        for (FlatResource resource : representation) {
+            StringWriter rendered = renderedByUriTemplate.get(resource.getUriTemplate());
+            if (rendered == null) {
+                rendered = new StringWriter();
+                renderedByUriTemplate.put(resource.getUriTemplate(), rendered);
+            }
+
+            writer.write(Collections.singleton(resource), rendered);
+        }
+
+        final Map<String, String> result = new LinkedHashMap<String, String>();
+
+        for (Map.Entry<String, StringWriter> rendered : renderedByUriTemplate.entrySet()) {
+            result.put(rendered.getKey(), normalise(rendered.getValue().toString()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Sorts the resource methods of a rendered resource. Resource methods from different classes at the same URI template
+     * come in no particular order from one description to the next so they must be sorted to compare like with like.
+     */
+    private static String normalise(final String rendered) throws IOException {
+
+        final Set<String> headings = new LinkedHashSet<String>();
+        final List<String> resourceMethods = new ArrayList<String>();
+
+        final BufferedReader lines = new BufferedReader(new StringReader(rendered));
+        StringBuilder resourceMethod = null;
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.startsWith(TextRepresentationWriter.SUB_SUB_TEXT_PADDING) && (resourceMethod != null)) {
+                resourceMethod.append(line).append(LINE_SEPARATOR);
+
+            } else {
+                if (resourceMethod != null) {
+                    resourceMethods.add(resourceMethod.toString());
+                    resourceMethod = null;
+                }
+
+                if (line.startsWith(TextRepresentationWriter.SUB_TEXT_PADDING)) {
+                    resourceMethod = new StringBuilder(line).append(LINE_SEPARATOR);
+                } else {
+                    headings.add(line);
+                }
+            }
+        }
+
+        if (resourceMethod != null) {
+            resourceMethods.add(resourceMethod.toString());
+        }
+
+        Collections.sort(resourceMethods);
+
+        final StringBuilder result = new StringBuilder();
+
+        for (String heading : headings) {
+            result.append(heading).append(LINE_SEPARATOR);
+        }
+        for (String sortedResourceMethod : resourceMethods) {
+            result.append(sortedResourceMethod);
+        }
+
+        return result.toString();
+    }
+
+    private static void writePrefixed(final Writer out, final String prefix, final String text) throws IOException {
+
+        final BufferedReader lines = new BufferedReader(new StringReader(text));
+
+        for (String line = lines.readLine(); line != null; line = lines.readLine()) {
+            if (line.length() > 0) {
+                out.write(prefix);
+                out.write(line);
+                out.write(LINE_SEPARATOR);
+            }
+        }
+    }
+
+    /**
+     * A cheap fingerprint of the state of the WAR on disk - the size and modification time of the WAR file or of every
+     * file under the exploded WAR directory.
+     */
+    private String stamp() {
+
+        if (!warFile.isDirectory()) {
+            return warFile.length() + ":" + warFile.lastModified();
+        }
+
+        final long[] stamp = new long[] { 0, 0 };
+        stamp(warFile, stamp);
+
+        return stamp[0] + ":" + stamp[1];
+    }
+
+    private static void stamp(final File directory, final long[] stamp) {
+
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files);
+
+        for (File file : files) {
+            if (file.isDirectory()) {
+                stamp(file, stamp);
+            } else {
+                stamp[0]++;
+                stamp[1] = ((stamp[1] * 31 + file.getPath().hashCode()) * 31 + file.length()) * 31 + file.lastModified();
+            }
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds WARs and jars for tests - each entry either {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+ */
+final class ArchiveBuilder {
+
+    private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    private final int method;
+    private String comment;
+
+    ArchiveBuilder(final int method) {
+        this.method = method;
+    }
+
+    ArchiveBuilder with(final String entryName, final byte[] content) {
+        entries.put(entryName, content);
+        return this;
+    }
+
+    ArchiveBuilder with(final String entryName, final String content) throws UnsupportedEncodingException {
+        return with(entryName, content.getBytes("UTF-8"));
+    }
+
+    /**
+     * Adds the class file of a test class under the specified prefix; e.g. <code>WEB-INF/classes/</code>.
+     */
+    ArchiveBuilder withClass(final String prefix, final Class<?> clazz) throws IOException {
+
+        final String entryName = clazz.getName().replace('.', '/') + ".class";
+        final InputStream input = clazz.getClassLoader().getResourceAsStream(entryName);
+
+        try {
+            return with(prefix + entryName, IOUtils.toByteArray(input));
+        } finally {
+            input.close();
+        }
+    }
+
+    ArchiveBuilder withComment(final String comment) {
+        this.comment = comment;
+        return this;
+    }
+
+    byte[] toByteArray() throws IOException {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ZipOutputStream output = new ZipOutputStream(bytes);
+
+        try {
+            output.setMethod(method);
+
+            if (comment != null) {
+                output.setComment(comment);
+            }
+
+            for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+                output.putNextEntry(createEntry(entry.getKey(), entry.getValue()));
+                output.write(entry.getValue());
+                output.closeEntry();
+            }
+
+        } finally {
+            output.close();
+        }
+
+        return bytes.toByteArray();
+    }
+
+    File writeTo(final File file) throws IOException {
+
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            output.write(toByteArray());
+        } finally {
+            output.close();
+        }
+
+        return file;
+    }
+
+    private ZipEntry createEntry(final String name, final byte[] content) {
+
+        final ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(method);
+
+        if (method == ZipEntry.STORED) {
+            final CRC32 crc = new CRC32();
+            crc.update(content);
+
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+
+        return entry;
+    }
+}
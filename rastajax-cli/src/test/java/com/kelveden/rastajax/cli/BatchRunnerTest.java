@@ -0,0 +1,167 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.cli.war.GadgetResource;
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BatchRunnerTest {
+
+    private static final String PACKAGES_ARGUMENT = "--packages=" + WidgetResource.class.getPackage().getName();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File outputDirectory;
+
+    @Before
+    public void setUp() {
+        outputDirectory = new File(folder.getRoot(), "output");
+    }
+
+    @Test
+    public void eachWarIsDescribedToItsOwnFile() throws Exception {
+
+        // Given
+        final File widgets = createWar("widgets.war", WidgetResource.class);
+        final File gadgets = createWar("gadgets.war", GadgetResource.class);
+
+        // When
+        new BatchRunner().run(arguments("--format=json", widgets.getPath(), gadgets.getPath()));
+
+        // Then
+        assertThat(outputDirectory.list(), arrayContainingInAnyOrder("widgets.json", "gadgets.json"));
+        assertThat(uriTemplatesOf(new File(outputDirectory, "widgets.json")), contains("/widgets"));
+        assertThat(uriTemplatesOf(new File(outputDirectory, "gadgets.json")), contains("/gadgets"));
+    }
+
+    @Test
+    public void warsOfTheSameNameAreDescribedToNumberedFiles() throws Exception {
+
+        // Given
+        final File first = createWar("first/app.war", WidgetResource.class);
+        final File second = createWar("second/app.war", GadgetResource.class);
+
+        // When
+        new BatchRunner().run(arguments("--threads=1", first.getPath(), second.getPath()));
+
+        // Then
+        assertThat(outputDirectory.list(), arrayContainingInAnyOrder("app.txt", "app-2.txt"));
+    }
+
+    @Test
+    public void failingWarIsReportedWithoutStoppingTheOthers() throws Exception {
+
+        // Given
+        final File widgets = createWar("widgets.war", WidgetResource.class);
+        final File broken = folder.newFile("broken.war");
+        final File gadgets = createWar("gadgets.war", GadgetResource.class);
+
+        // When
+        try {
+            new BatchRunner().run(arguments("--format=json", widgets.getPath(), broken.getPath(), gadgets.getPath()));
+
+            throw new AssertionError("Expected a CliExecutionException.");
+
+        } catch (final CliExecutionException e) {
+            // Then
+            assertThat(e.getMessage(), containsString("Could not describe 1 of 3 WARs"));
+            assertThat(e.getMessage(), containsString(broken.getPath()));
+        }
+
+        assertThat(uriTemplatesOf(new File(outputDirectory, "widgets.json")), contains("/widgets"));
+        assertThat(uriTemplatesOf(new File(outputDirectory, "gadgets.json")), contains("/gadgets"));
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void noWarsAreRejected() throws Exception {
+
+        new BatchRunner().run(arguments());
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void unknownOptionIsRejected() throws Exception {
+
+        new BatchRunner().run(arguments("--unknown", createWar("app.war", WidgetResource.class).getPath()));
+    }
+
+    @Test
+    public void threadCountMustBeAPositiveNumber() throws Exception {
+
+        final String warPath = createWar("app.war", WidgetResource.class).getPath();
+
+        for (String threads : Arrays.asList("--threads=none", "--threads=0")) {
+            try {
+                new BatchRunner().run(arguments(threads, warPath));
+
+                throw new AssertionError("Expected a CliExecutionException for " + threads + ".");
+
+            } catch (final CliExecutionException e) {
+                assertThat(e.getMessage(), containsString("Thread count"));
+            }
+        }
+
+        assertThat(outputDirectory.exists(), is(false));
+    }
+
+    private String[] arguments(final String... arguments) {
+
+        final List<String> result = new ArrayList<String>();
+        result.add(PACKAGES_ARGUMENT);
+        result.add("--output=" + outputDirectory.getPath());
+        result.addAll(Arrays.asList(arguments));
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    private File createWar(final String path, final Class<?> resourceClass) throws IOException {
+
+        final File warFile = new File(folder.getRoot(), path);
+        warFile.getParentFile().mkdirs();
+
+        return new ArchiveBuilder(ZipEntry.DEFLATED)
+                .withClass(WarArchive.CLASSES_DIRECTORY + "/", resourceClass)
+                .writeTo(warFile);
+    }
+
+    private static List<String> uriTemplatesOf(final File jsonFile) throws IOException {
+
+        final Set<FlatResource> representation = new JsonRepresentationReader().read(jsonFile);
+
+        final List<String> result = new ArrayList<String>();
+        for (FlatResource resource : representation) {
+            result.add(resource.getUriTemplate());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DaemonServerTest {
+
+    private static final long START_TIMEOUT_MILLIS = 10000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File tokenDirectory;
+    private Thread daemon;
+    private int port;
+
+    @Before
+    public void startDaemon() throws Exception {
+
+        tokenDirectory = new File(folder.getRoot(), ".rastajax");
+
+        daemon = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new DaemonServer(tokenDirectory).run(new String[] { DaemonServer.PORT_OPTION + "0" });
+                } catch (final CliExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        daemon.setDaemon(true);
+        daemon.start();
+
+        port = waitForTokenFile();
+    }
+
+    @After
+    public void stopDaemon() throws Exception {
+
+        if (daemon.isAlive()) {
+            send(DaemonToken.read(tokenDirectory, port) + " " + DaemonServer.SHUTDOWN);
+            daemon.join(START_TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    public void requestWithTheTokenIsAnswered() throws IOException {
+
+        // Given
+        final String token = DaemonToken.read(tokenDirectory, port);
+
+        // When
+        final BufferedReader response = send(token + " " + DaemonServer.PING);
+
+        // Then
+        assertThat(response.readLine(), is(DaemonServer.OK + " 0"));
+    }
+
+    @Test
+    public void requestWithoutATokenIsRejectedAndTheConnectionClosed() throws IOException {
+
+        // When
+        final BufferedReader response = send(DaemonServer.PING);
+
+        // Then
+        assertThat(response.readLine(), startsWith(DaemonServer.ERROR + " "));
+        assertThat(response.readLine(), is(nullValue()));
+    }
+
+    @Test
+    public void requestWithTheWrongTokenIsRejected() throws IOException {
+
+        // Given
+        final String token = DaemonToken.read(tokenDirectory, port);
+        final String wrongToken = (token.charAt(0) == '0' ? "1" : "0") + token.substring(1);
+
+        // When
+        final BufferedReader response = send(wrongToken + " " + DaemonServer.SHUTDOWN);
+
+        // Then
+        assertThat(response.readLine(), startsWith(DaemonServer.ERROR + " "));
+        assertThat(daemon.isAlive(), is(true));
+    }
+
+    @Test
+    public void overlongRequestIsRejectedAndTheConnectionClosed() throws IOException {
+
+        // Given
+        final char[] request = new char[DaemonServer.MAXIMUM_REQUEST_LENGTH + 1];
+        Arrays.fill(request, 'x');
+
+        // When
+        final Socket socket = connect();
+        final Writer out = new OutputStreamWriter(socket.getOutputStream(), DaemonServer.CHARSET);
+        out.write(request);
+        out.flush();
+
+        // Then
+        final BufferedReader response = new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonServer.CHARSET));
+        assertThat(response.readLine(), startsWith(DaemonServer.ERROR + " "));
+        assertThat(response.readLine(), is(nullValue()));
+    }
+
+    @Test
+    public void requestLineIsReadUpToTheMaximumLength() throws IOException {
+
+        final char[] request = new char[DaemonServer.MAXIMUM_REQUEST_LENGTH];
+        Arrays.fill(request, 'x');
+
+        final Reader in = new StringReader(new String(request) + "\nPING\nlast");
+
+        assertThat(DaemonServer.readRequestLine(in), is(new String(request)));
+        assertThat(DaemonServer.readRequestLine(in), is("PING"));
+        assertThat(DaemonServer.readRequestLine(in), is("last"));
+        assertThat(DaemonServer.readRequestLine(in), is(nullValue()));
+    }
+
+    @Test
+    public void connectionsBeyondTheMaximumAreRejected() throws IOException {
+
+        // Given
+        final String token = DaemonToken.read(tokenDirectory, port);
+        final List<BufferedReader> connections = new ArrayList<BufferedReader>();
+
+        for (int i = 0; i < DaemonServer.MAXIMUM_CONNECTIONS; i++) {
+            final BufferedReader connection = send(token + " " + DaemonServer.PING);
+            assertThat(connection.readLine(), is(DaemonServer.OK + " 0"));
+            connections.add(connection);
+        }
+
+        // When
+        final Socket socket = connect();
+
+        // Then
+        final BufferedReader response = new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonServer.CHARSET));
+        assertThat(response.readLine(), startsWith(DaemonServer.ERROR + " "));
+        assertThat(response.readLine(), is(nullValue()));
+
+        for (BufferedReader connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void clientShutsTheDaemonDownAndTheTokenFileIsDeleted() throws Exception {
+
+        // When
+        new DaemonClient(tokenDirectory).run(new String[] { DaemonServer.PORT_OPTION + port, "--shutdown" });
+        daemon.join(START_TIMEOUT_MILLIS);
+
+        // Then
+        assertThat(daemon.isAlive(), is(false));
+        assertThat(DaemonToken.fileFor(tokenDirectory, port).exists(), is(false));
+    }
+
+    private int waitForTokenFile() throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+
+        while (System.currentTimeMillis() < deadline) {
+            final File[] tokenFiles = tokenDirectory.listFiles();
+
+            if ((tokenFiles != null) && (tokenFiles.length == 1) && (tokenFiles[0].length() > 0)) {
+                final String name = tokenFiles[0].getName();
+                return Integer.parseInt(name.substring("daemon-".length(), name.indexOf(".token")));
+            }
+
+            Thread.sleep(10);
+        }
+
+        throw new IllegalStateException("The daemon did not start.");
+    }
+
+    private BufferedReader send(final String request) throws IOException {
+
+        final Socket socket = connect();
+
+        final Writer out = new OutputStreamWriter(socket.getOutputStream(), DaemonServer.CHARSET);
+        out.write(request + "\n");
+        out.flush();
+
+        return new BufferedReader(new InputStreamReader(socket.getInputStream(), DaemonServer.CHARSET));
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket(InetAddress.getByName("127.0.0.1"), port);
+    }
+}
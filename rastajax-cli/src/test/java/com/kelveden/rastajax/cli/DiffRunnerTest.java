@@ -0,0 +1,190 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.cli.war.GadgetResource;
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DiffRunnerTest {
+
+    private static final String PACKAGES_ARGUMENT = "--packages=" + WidgetResource.class.getPackage().getName();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private PrintStream originalOut;
+
+    private File widgets;
+    private File widgetsAndGadgets;
+
+    @Before
+    public void setUp() throws IOException {
+
+        originalOut = System.out;
+        System.setOut(new PrintStream(out, true, Runner.OUTPUT_CHARSET));
+
+        widgets = save("widgets.json", OutputFormat.JSON, WidgetResource.class);
+        widgetsAndGadgets = save("widgets-and-gadgets.rjxb", OutputFormat.BINARY, WidgetResource.class, GadgetResource.class);
+    }
+
+    @After
+    public void tearDown() {
+        System.setOut(originalOut);
+    }
+
+    @Test
+    public void changesBetweenSavedRepresentationsAreListed() throws Exception {
+
+        // When
+        new DiffRunner().run(new String[] { widgetsAndGadgets.getPath(), widgets.getPath() });
+
+        // Then
+        assertThat(output(), containsString("ENDPOINT_REMOVED GET '/gadgets' [breaking]"));
+    }
+
+    @Test
+    public void changesBetweenWarsAreListed() throws Exception {
+
+        // Given
+        final File before = createWar("before.war", WidgetResource.class);
+        final File after = createWar("after.war", WidgetResource.class, GadgetResource.class);
+
+        // When
+        new DiffRunner().run(new String[] { PACKAGES_ARGUMENT, before.getPath(), after.getPath() });
+
+        // Then
+        assertThat(output(), containsString("ENDPOINT_ADDED GET '/gadgets'"));
+        assertThat(output(), not(containsString("[breaking]")));
+    }
+
+    @Test
+    public void breakingChangesFailTheCommandWhenAskedTo() throws Exception {
+
+        try {
+            new DiffRunner().run(new String[] { "--fail-on-breaking", widgetsAndGadgets.getPath(), widgets.getPath() });
+
+            throw new AssertionError("Expected a CliExecutionException.");
+
+        } catch (final CliExecutionException e) {
+            assertThat(e.getMessage(), containsString("1 breaking API changes"));
+        }
+
+        assertThat(output(), containsString("ENDPOINT_REMOVED"));
+    }
+
+    @Test
+    public void breakingChangesDoNotFailTheCommandUnlessAskedTo() throws Exception {
+
+        new DiffRunner().run(new String[] { widgetsAndGadgets.getPath(), widgets.getPath() });
+    }
+
+    @Test
+    public void nonBreakingChangesDoNotFailTheCommand() throws Exception {
+
+        // When
+        new DiffRunner().run(new String[] { "--fail-on-breaking", widgets.getPath(), widgetsAndGadgets.getPath() });
+
+        // Then
+        assertThat(output(), containsString("ENDPOINT_ADDED"));
+    }
+
+    @Test
+    public void onlyBreakingChangesAreListedWhenAskedTo() throws Exception {
+
+        // When
+        new DiffRunner().run(new String[] { "--breaking-only", widgets.getPath(), widgetsAndGadgets.getPath() });
+
+        // Then
+        assertThat(output(), not(containsString("ENDPOINT_ADDED")));
+    }
+
+    @Test
+    public void exactlyTwoInputsAreRequired() throws Exception {
+
+        for (String[] args : Arrays.asList(new String[0], new String[] { widgets.getPath() }, new String[] { widgets.getPath(), widgets.getPath(), widgets.getPath() })) {
+            try {
+                new DiffRunner().run(args);
+
+                throw new AssertionError("Expected a CliExecutionException for " + Arrays.asList(args) + ".");
+
+            } catch (final CliExecutionException e) {
+                assertThat(e.getMessage(), containsString("Exactly two"));
+            }
+        }
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void unknownOptionIsRejected() throws Exception {
+
+        new DiffRunner().run(new String[] { "--unknown", widgets.getPath(), widgetsAndGadgets.getPath() });
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void unreadableSavedRepresentationIsReported() throws Exception {
+
+        final File corrupt = folder.newFile("corrupt.rjxb");
+
+        new DiffRunner().run(new String[] { corrupt.getPath(), widgets.getPath() });
+    }
+
+    private String output() throws UnsupportedEncodingException {
+        return new String(out.toByteArray(), Runner.OUTPUT_CHARSET);
+    }
+
+    private File save(final String name, final OutputFormat format, final Class<?>... resourceClasses) throws IOException {
+
+        final Set<FlatResource> representation = RestDescriber.describeApplication(
+                new LinkedHashSet<Class<?>>(Arrays.asList(resourceClasses)), new FlatRepresentationBuilder());
+
+        final File file = folder.newFile(name);
+        final OutputStream fileOut = new FileOutputStream(file);
+        try {
+            format.write(representation, fileOut, false);
+        } finally {
+            fileOut.close();
+        }
+
+        return file;
+    }
+
+    private File createWar(final String name, final Class<?>... resourceClasses) throws IOException {
+
+        final ArchiveBuilder war = new ArchiveBuilder(ZipEntry.DEFLATED);
+        for (Class<?> resourceClass : resourceClasses) {
+            war.withClass(WarArchive.CLASSES_DIRECTORY + "/", resourceClass);
+        }
+
+        return war.writeTo(folder.newFile(name));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.cli.war.GadgetResource;
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JsonRepresentationWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void newlineDelimitedJsonHasOneResourcePerLine() throws IOException {
+
+        // Given
+        final Set<FlatResource> representation = representation();
+
+        // When
+        final String[] lines = write(representation, true).split("\n", -1);
+
+        // Then
+        assertThat(lines.length, is(representation.size() + 1));
+        assertThat(lines[lines.length - 1], is(""));
+    }
+
+    @Test
+    public void eachLineOfNewlineDelimitedJsonParsesOnItsOwn() throws IOException {
+
+        // Given
+        final Set<FlatResource> representation = representation();
+
+        // When
+        final String[] lines = write(representation, true).split("\n");
+
+        // Then
+        final List<FlatResource> parsed = new ArrayList<FlatResource>();
+        for (String line : lines) {
+            parsed.add(MAPPER.readValue(line, FlatResource.class));
+        }
+
+        assertThat(parsed, is((List<FlatResource>) new ArrayList<FlatResource>(representation)));
+    }
+
+    @Test
+    public void newlineDelimitedJsonHasNoSeparatorAfterTheLastResource() throws IOException {
+
+        // When
+        final String output = write(representation(), true);
+
+        // Then
+        assertThat(output, endsWith("}\n"));
+        assertThat(output, not(containsString("\n\n")));
+        assertThat(output, not(containsString("},")));
+        assertThat(output, not(startsWith("[")));
+    }
+
+    @Test
+    public void emptyRepresentationIsWrittenAsNoLines() throws IOException {
+
+        assertThat(write(Collections.<FlatResource>emptySet(), true), is(""));
+    }
+
+    @Test
+    public void jsonIsASingleArrayOfResources() throws IOException {
+
+        // Given
+        final Set<FlatResource> representation = representation();
+
+        // When
+        final String output = write(representation, false);
+
+        // Then
+        assertThat(output, endsWith("]\n"));
+        assertThat(Arrays.asList(MAPPER.readValue(output, FlatResource[].class)), is((List<FlatResource>) new ArrayList<FlatResource>(representation)));
+    }
+
+    private static String write(final Set<FlatResource> representation, final boolean newlineDelimited) throws IOException {
+
+        final StringWriter out = new StringWriter();
+        new JsonRepresentationWriter(newlineDelimited).write(representation, out);
+
+        return out.toString();
+    }
+
+    static Set<FlatResource> representation() {
+        return RestDescriber.describeApplication(new LinkedHashSet<Class<?>>(Arrays.asList(WidgetResource.class, GadgetResource.class)), new FlatRepresentationBuilder());
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class OutputFormatTest {
+
+    @Test
+    public void formatIsParsedFromOptionRegardlessOfCase() throws CliExecutionException {
+
+        assertThat(OutputFormat.fromOption("--format=ndjson"), is(OutputFormat.NDJSON));
+        assertThat(OutputFormat.fromOption("--format=JSON"), is(OutputFormat.JSON));
+        assertThat(OutputFormat.NDJSON.getFileExtension(), is("ndjson"));
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void unknownFormatIsRejected() throws CliExecutionException {
+
+        OutputFormat.fromOption("--format=yaml");
+    }
+
+    @Test
+    public void ndjsonIsWrittenAsOneUtf8ResourcePerLine() throws IOException {
+
+        // Given
+        final Set<FlatResource> representation = JsonRepresentationWriterTest.representation();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        OutputFormat.NDJSON.write(representation, out, true);
+
+        // Then
+        final String output = new String(out.toByteArray(), Runner.OUTPUT_CHARSET);
+        final List<FlatResource> parsed = new ArrayList<FlatResource>();
+
+        for (String line : output.split("\n")) {
+            parsed.add(new ObjectMapper().readValue(line, FlatResource.class));
+        }
+
+        assertThat(parsed, is((List<FlatResource>) new ArrayList<FlatResource>(representation)));
+        assertThat(output, endsWith("}\n"));
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.cli.war.GadgetResource;
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RunnerTest {
+
+    private static final String PACKAGES = WidgetResource.class.getPackage().getName();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void resourcesInClassesAndNestedJarsOfWarAreDescribed() throws Exception {
+
+        // Given
+        final File warFile = createWar();
+
+        // When
+        final Set<FlatResource> representation = Runner.loadRepresentation(warFile, PACKAGES, null);
+
+        // Then
+        assertThat(uriTemplatesOf(representation), containsInAnyOrder("/widgets", "/gadgets"));
+    }
+
+    @Test
+    public void resourcesOfWarAreDescribedFromClassFilesAlone() throws Exception {
+
+        // Given
+        final File warFile = createWar();
+
+        // When
+        final Set<FlatResource> representation = Runner.loadRepresentation(warFile, PACKAGES, null, true);
+
+        // Then
+        assertThat(representation, is(Runner.loadRepresentation(warFile, PACKAGES, null)));
+    }
+
+    @Test
+    public void resourcesOutsideThePackagesAreNotDescribed() throws Exception {
+
+        // Given
+        final File warFile = createWar();
+
+        // When
+        final Set<FlatResource> representation = Runner.loadRepresentation(warFile, "com.example", null);
+
+        // Then
+        assertThat(representation, is(empty()));
+    }
+
+    @Test(expected = CliExecutionException.class)
+    public void warThatCannotBeReadIsReported() throws Exception {
+
+        // Given
+        final File warFile = folder.newFile("app.war");
+
+        // When
+        Runner.loadRepresentation(warFile, PACKAGES, null);
+    }
+
+    private File createWar() throws IOException {
+
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED)
+                .withClass("", GadgetResource.class)
+                .toByteArray();
+
+        return new ArchiveBuilder(ZipEntry.STORED)
+                .withClass(WarArchive.CLASSES_DIRECTORY + "/", WidgetResource.class)
+                .with(WarArchive.LIB_DIRECTORY + "gadgets.jar", jar)
+                .writeTo(folder.newFile("app.war"));
+    }
+
+    private static List<String> uriTemplatesOf(final Set<FlatResource> representation) {
+
+        final List<String> result = new ArrayList<String>();
+        for (FlatResource resource : representation) {
+            result.add(resource.getUriTemplate());
+        }
+
+        return result;
+    }
+}
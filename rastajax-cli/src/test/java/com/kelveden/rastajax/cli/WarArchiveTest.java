@@ -0,0 +1,320 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class WarArchiveTest {
+
+    private static final String JAR_NAME = WarArchive.LIB_DIRECTORY + "library.jar";
+    private static final String ENTRY_NAME = "com/example/widgets.txt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private WarArchive war;
+
+    @After
+    public void tearDown() throws IOException {
+
+        if (war != null) {
+            war.close();
+        }
+    }
+
+    @Test
+    public void storedEntryInNestedJarIsReadAsWritten() throws IOException {
+
+        // Given
+        final String content = someContent();
+        final byte[] jar = new ArchiveBuilder(ZipEntry.STORED).with(ENTRY_NAME, content).toByteArray();
+
+        // When
+        war = new WarArchive(warContaining(jar));
+
+        // Then
+        final WarArchive.Archive archive = war.getLibraryArchives().get(0);
+
+        assertThat(archive.getSize(ENTRY_NAME), is((long) content.length()));
+        assertThat(new String(archive.read(ENTRY_NAME), "UTF-8"), is(content));
+    }
+
+    @Test
+    public void deflatedEntryInNestedJarIsReadAsWritten() throws IOException {
+
+        // Given
+        final String content = someContent();
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED).with(ENTRY_NAME, content).toByteArray();
+
+        // When
+        war = new WarArchive(warContaining(jar));
+
+        // Then
+        final WarArchive.Archive archive = war.getLibraryArchives().get(0);
+
+        assertThat(jar.length, lessThan(content.length()));
+        assertThat(archive.getSize(ENTRY_NAME), is((long) content.length()));
+        assertThat(new String(archive.read(ENTRY_NAME), "UTF-8"), is(content));
+    }
+
+    @Test
+    public void entriesInNestedJarCanBeReadThroughTheirUrls() throws IOException {
+
+        // Given
+        final String content = someContent();
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED).with(ENTRY_NAME, content).with("other.txt", "other").toByteArray();
+
+        war = new WarArchive(warContaining(jar));
+        final WarArchive.Archive archive = war.getLibraryArchives().get(0);
+
+        // When
+        final InputStream input = war.getUrl(archive, ENTRY_NAME).openStream();
+
+        // Then
+        try {
+            assertThat(IOUtils.toString(input, "UTF-8"), is(content));
+        } finally {
+            input.close();
+        }
+    }
+
+    @Test
+    public void nestedJarWithACommentIsRead() throws IOException {
+
+        // Given
+        final StringBuilder comment = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            comment.append("comment ");
+        }
+
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED).with(ENTRY_NAME, "widgets").withComment(comment.toString()).toByteArray();
+
+        // When
+        war = new WarArchive(warContaining(jar));
+
+        // Then
+        final WarArchive.Archive archive = war.getLibraryArchives().get(0);
+
+        assertThat(archive.getEntryNames(), contains(ENTRY_NAME));
+        assertThat(new String(archive.read(ENTRY_NAME), "UTF-8"), is("widgets"));
+    }
+
+    @Test
+    public void zip64NestedJarIsRejected() throws IOException {
+
+        // Given
+        final byte[] jar = new ArchiveBuilder(ZipEntry.STORED).with(ENTRY_NAME, "widgets").toByteArray();
+
+        // A ZIP64 jar marks the entry counts of its end of central directory record as held in the ZIP64 record instead.
+        final int endOfCentralDirectory = jar.length - 22;
+        for (int i = 8; i < 12; i++) {
+            jar[endOfCentralDirectory + i] = (byte) 0xFF;
+        }
+
+        final File warFile = warContaining(jar);
+
+        // When
+        try {
+            war = new WarArchive(warFile);
+
+            throw new AssertionError("Expected a ZipException.");
+
+        } catch (final ZipException e) {
+            // Then
+            assertThat(e.getMessage(), containsString("ZIP64"));
+        }
+    }
+
+    @Test
+    public void nestedFileThatIsNotAJarIsRejected() throws IOException {
+
+        // Given
+        final File warFile = warContaining("not a jar".getBytes("UTF-8"));
+
+        // When
+        try {
+            war = new WarArchive(warFile);
+
+            throw new AssertionError("Expected a ZipException.");
+
+        } catch (final ZipException e) {
+            // Then
+            assertThat(e.getMessage(), containsString("not a jar file"));
+        }
+    }
+
+    @Test
+    public void truncatedNestedJarIsRejected() throws IOException {
+
+        // Given
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED).with(ENTRY_NAME, someContent()).toByteArray();
+
+        // Only the end of central directory record is left - pointing at a central directory that is no longer there.
+        final byte[] truncated = new byte[22];
+        System.arraycopy(jar, jar.length - truncated.length, truncated, 0, truncated.length);
+
+        final File warFile = warContaining(truncated);
+
+        // When
+        try {
+            war = new WarArchive(warFile);
+
+            throw new AssertionError("Expected a ZipException.");
+
+        } catch (final ZipException e) {
+            // Then
+            assertThat(e.getMessage(), containsString("truncated or corrupt"));
+        }
+    }
+
+    @Test
+    public void nestedJarWithALocalHeaderOffsetOutsideItIsRejected() throws IOException {
+
+        // Given
+        final byte[] jar = new ArchiveBuilder(ZipEntry.STORED).with(ENTRY_NAME, "widgets").toByteArray();
+        writeInt(jar, centralDirectoryOffsetOf(jar) + 42, jar.length);
+
+        final File warFile = warContaining(jar);
+
+        // When
+        try {
+            war = new WarArchive(warFile);
+
+            throw new AssertionError("Expected a ZipException.");
+
+        } catch (final ZipException e) {
+            // Then
+            assertThat(e.getMessage(), containsString("truncated or corrupt"));
+        }
+    }
+
+    @Test
+    public void entryDeclaringAHugeSizeIsReadAsWritten() throws IOException {
+
+        // Given
+        final byte[] jar = new ArchiveBuilder(ZipEntry.STORED).with(ENTRY_NAME, "widgets").toByteArray();
+        writeInt(jar, centralDirectoryOffsetOf(jar) + 24, Integer.MAX_VALUE);
+
+        // When
+        war = new WarArchive(warContaining(jar));
+
+        // Then
+        final WarArchive.Archive archive = war.getLibraryArchives().get(0);
+
+        assertThat(archive.getSize(ENTRY_NAME), is((long) Integer.MAX_VALUE));
+        assertThat(new String(archive.read(ENTRY_NAME), "UTF-8"), is("widgets"));
+    }
+
+    @Test
+    public void classesComeFirstFollowedByJarsInNameOrder() throws IOException {
+
+        // Given
+        final byte[] jar = new ArchiveBuilder(ZipEntry.DEFLATED).with(ENTRY_NAME, "widgets").toByteArray();
+
+        final File warFile = new ArchiveBuilder(ZipEntry.DEFLATED)
+                .with(WarArchive.LIB_DIRECTORY + "b.jar", jar)
+                .with(WarArchive.LIB_DIRECTORY + "a.jar", jar)
+                .with(WarArchive.LIB_DIRECTORY + "nested/c.jar", jar)
+                .with(WarArchive.LIB_DIRECTORY + "readme.txt", "not a jar")
+                .with(WarArchive.CLASSES_DIRECTORY + "/" + ENTRY_NAME, "classes")
+                .writeTo(folder.newFile("app.war"));
+
+        // When
+        war = new WarArchive(warFile);
+
+        // Then
+        assertThat(namesOf(war.getArchives()), contains(
+                WarArchive.CLASSES_DIRECTORY, WarArchive.LIB_DIRECTORY + "a.jar", WarArchive.LIB_DIRECTORY + "b.jar"));
+        assertThat(new String(war.getArchives().get(0).read(ENTRY_NAME), "UTF-8"), is("classes"));
+    }
+
+    @Test
+    public void explodedWarIsReadLikeTheWarFile() throws IOException {
+
+        // Given
+        final File directory = folder.newFolder("app");
+        final File classFile = new File(directory, WarArchive.CLASSES_DIRECTORY + "/" + ENTRY_NAME);
+        final File jarFile = new File(directory, JAR_NAME);
+
+        classFile.getParentFile().mkdirs();
+        jarFile.getParentFile().mkdirs();
+
+        new ArchiveBuilder(ZipEntry.STORED).with(ENTRY_NAME, "widgets").writeTo(jarFile);
+        FileUtils.writeStringToFile(classFile, "classes", "UTF-8");
+
+        // When
+        war = new WarArchive(directory);
+
+        // Then
+        assertThat(namesOf(war.getArchives()), contains(WarArchive.CLASSES_DIRECTORY, JAR_NAME));
+        assertThat(new String(war.getArchives().get(0).read(ENTRY_NAME), "UTF-8"), is("classes"));
+        assertThat(new String(war.getArchives().get(1).read(ENTRY_NAME), "UTF-8"), is("widgets"));
+    }
+
+    private File warContaining(final byte[] jar) throws IOException {
+        return new ArchiveBuilder(ZipEntry.DEFLATED).with(JAR_NAME, jar).writeTo(folder.newFile("app.war"));
+    }
+
+    private static int centralDirectoryOffsetOf(final byte[] jar) {
+
+        final int offset = jar.length - 22 + 16;
+
+        return (jar[offset] & 0xFF) | ((jar[offset + 1] & 0xFF) << 8) | ((jar[offset + 2] & 0xFF) << 16) | ((jar[offset + 3] & 0xFF) << 24);
+    }
+
+    private static void writeInt(final byte[] jar, final int offset, final int value) {
+
+        for (int i = 0; i < 4; i++) {
+            jar[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private static String someContent() {
+
+        final StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            content.append("widget ").append(i).append('\n');
+        }
+
+        return content.toString();
+    }
+
+    private static List<String> namesOf(final List<WarArchive.Archive> archives) {
+
+        final List<String> result = new ArrayList<String>();
+        for (WarArchive.Archive archive : archives) {
+            result.add(archive.getName());
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import com.kelveden.rastajax.core.DescriptionListener;
+import com.kelveden.rastajax.core.DescriptionListeners;
+import com.kelveden.rastajax.core.ResourceScanningException;
+import com.kelveden.rastajax.core.raw.ResourceClass;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.lang.reflect.Member;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class WarRootResourceScannerTest {
+
+    private static final String CLASSES_PREFIX = WarArchive.CLASSES_DIRECTORY + "/";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RecordingListener listener = new RecordingListener();
+    private WarArchive war;
+
+    @After
+    public void tearDown() throws IOException {
+
+        DescriptionListeners.unregister(listener);
+
+        if (war != null) {
+            war.close();
+        }
+    }
+
+    @Test
+    public void resourceClassesAreScannedFromTheWar() throws IOException {
+
+        // Given
+        war = new WarArchive(new ArchiveBuilder(ZipEntry.DEFLATED)
+                .withClass(CLASSES_PREFIX, WidgetResource.class)
+                .writeTo(folder.newFile("app.war")));
+
+        DescriptionListeners.register(listener);
+
+        // When
+        final WarRootResourceScanner scanner = new WarRootResourceScanner(war, getClass().getClassLoader(), WidgetResource.class.getPackage().getName());
+
+        // Then
+        assertThat(scanner.scanClassNames(), contains(WidgetResource.class.getName()));
+        assertThat(listener.notifications, contains("archiveScanStarted", "archiveScanFinished 1"));
+    }
+
+    @Test
+    public void archiveScanIsReportedFinishedEvenIfItFails() throws IOException {
+
+        // Given
+        war = new WarArchive(new ArchiveBuilder(ZipEntry.DEFLATED)
+                .withClass(CLASSES_PREFIX, WidgetResource.class)
+                .with(CLASSES_PREFIX + "com/kelveden/rastajax/cli/war/Corrupt.class", "not a class file")
+                .writeTo(folder.newFile("app.war")));
+
+        DescriptionListeners.register(listener);
+
+        final WarRootResourceScanner scanner = new WarRootResourceScanner(war, getClass().getClassLoader(), WidgetResource.class.getPackage().getName());
+
+        // When
+        try {
+            scanner.scanClassNames();
+
+            throw new AssertionError("Expected a ResourceScanningException.");
+
+        } catch (final ResourceScanningException e) {
+            // Then
+            assertThat(listener.notifications, hasSize(2));
+            assertThat(listener.notifications.get(1), startsWith("archiveScanFinished"));
+        }
+    }
+
+    private static final class RecordingListener implements DescriptionListener {
+
+        private final List<String> notifications = new ArrayList<String>();
+
+        @Override
+        public Object archiveScanStarted(final URL archive) {
+            notifications.add("archiveScanStarted");
+            return null;
+        }
+
+        @Override
+        public void archiveScanFinished(final Object context, final URL archive, final int classesInspected, final long bytesRead) {
+            notifications.add("archiveScanFinished " + classesInspected);
+        }
+
+        @Override
+        public Object resourceClassLoadStarted(final Class<?> candidateClass) {
+            return null;
+        }
+
+        @Override
+        public void resourceClassLoadFinished(final Object context, final Class<?> candidateClass, final ResourceClass resourceClass) {
+        }
+
+        @Override
+        public Object annotationScrapeStarted(final Class<?> clazz, final Member member, final int parameterIndex) {
+            return null;
+        }
+
+        @Override
+        public void annotationScrapeFinished(final Object context, final Class<?> clazz, final Member member, final int parameterIndex, final int annotationCount) {
+        }
+
+        @Override
+        public Object representationBuildStarted(final Class<?> builderClass, final int rootResourceCount) {
+            return null;
+        }
+
+        @Override
+        public void representationBuildFinished(final Object context, final Class<?> builderClass, final int resourceCount, final int endpointCount) {
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.cli;
+
+import com.kelveden.rastajax.cli.war.GadgetResource;
+import com.kelveden.rastajax.cli.war.WidgetResource;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class WatcherTest {
+
+    private static final String PACKAGES = WidgetResource.class.getPackage().getName();
+    private static final long INTERVAL = 20;
+    private static final long TIMEOUT_MILLIS = 10000;
+    private static final String SUMMARY = " resources in ";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final StringWriter out = new StringWriter();
+    private File warDirectory;
+    private Thread watcher;
+
+    @Before
+    public void setUp() throws IOException {
+
+        warDirectory = folder.newFolder("app");
+        writeClass(WidgetResource.class);
+    }
+
+    @After
+    public void stopWatcher() throws InterruptedException {
+
+        if (watcher != null) {
+            watcher.interrupt();
+            watcher.join(TIMEOUT_MILLIS);
+        }
+    }
+
+    @Test
+    public void warIsDescribedWhenTheWatchStarts() throws Exception {
+
+        // When
+        startWatcher();
+
+        // Then
+        waitForDescriptions(1);
+
+        assertThat(out.toString(), containsString("+ /widgets"));
+        assertThat(out.toString(), containsString("1 added, 0 removed, 0 changed of 1" + SUMMARY));
+    }
+
+    @Test
+    public void warIsDescribedAgainWhenItChanges() throws Exception {
+
+        // Given
+        startWatcher();
+        waitForDescriptions(1);
+
+        // When
+        writeClass(GadgetResource.class);
+
+        // Then
+        waitForDescriptions(2);
+
+        assertThat(out.toString(), containsString("+ /gadgets"));
+        assertThat(out.toString(), containsString("1 added, 0 removed, 0 changed of 2" + SUMMARY));
+    }
+
+    @Test
+    public void warIsNotDescribedAgainUntilItChanges() throws Exception {
+
+        // Given
+        startWatcher();
+        waitForDescriptions(1);
+
+        // When
+        Thread.sleep(INTERVAL * 10);
+
+        // Then
+        assertThat(descriptionCount(), is(1));
+    }
+
+    @Test
+    public void watchCarriesOnAfterADescriptionFails() throws Exception {
+
+        // Given
+        startWatcher();
+        waitForDescriptions(1);
+
+        final File corruptClassFile = new File(warDirectory, WarArchive.CLASSES_DIRECTORY + "/" + PACKAGES.replace('.', '/') + "/Corrupt.class");
+        FileUtils.writeStringToFile(corruptClassFile, "not a class file", "UTF-8");
+
+        // Stamped, then stable for a poll and described - and failed - by the time two more polls have passed.
+        Thread.sleep(INTERVAL * 10);
+
+        // When
+        FileUtils.forceDelete(corruptClassFile);
+        writeClass(GadgetResource.class);
+
+        // Then
+        waitForDescriptions(2);
+
+        assertThat(watcher.isAlive(), is(true));
+        assertThat(out.toString(), containsString("+ /gadgets"));
+    }
+
+    private void startWatcher() {
+
+        watcher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    new Watcher(warDirectory, PACKAGES, INTERVAL, false).run(out);
+                } catch (final IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void waitForDescriptions(final int count) throws InterruptedException {
+
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+
+        while ((descriptionCount() < count) && (System.currentTimeMillis() < deadline)) {
+            Thread.sleep(INTERVAL);
+        }
+
+        assertThat(descriptionCount(), is(count));
+    }
+
+    private int descriptionCount() {
+
+        final String output = out.toString();
+
+        int result = 0;
+        for (int index = output.indexOf(SUMMARY); index >= 0; index = output.indexOf(SUMMARY, index + 1)) {
+            result++;
+        }
+
+        return result;
+    }
+
+    private void writeClass(final Class<?> clazz) throws IOException {
+
+        final String entryName = clazz.getName().replace('.', '/') + ".class";
+        final InputStream input = clazz.getClassLoader().getResourceAsStream(entryName);
+
+        try {
+            FileUtils.writeByteArrayToFile(new File(warDirectory, WarArchive.CLASSES_DIRECTORY + "/" + entryName), IOUtils.toByteArray(input));
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,536 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import com.kelveden.rastajax.core.raw.*;
+import javassist.bytecode.*;
+import javassist.bytecode.annotation.Annotation;
+import javassist.bytecode.annotation.ArrayMemberValue;
+import javassist.bytecode.annotation.MemberValue;
+import javassist.bytecode.annotation.StringMemberValue;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Does the same as {@link ResourceClassLoader} but from class files alone - so that no class of the application is ever
+ * defined and classes with missing dependencies can still be described. JAX-RS annotations are inherited from
+ * super-types in the same way as by {@link JaxRsAnnotationScraper}, and types are represented by name.
+ * <p>
+ * Bridge and synthetic methods are ignored. A sub-resource locator that returns a class that is still being loaded - i.e.
+ * a cycle of locators - or whose class file cannot be found has no sub-resource. Loading is not reported to
+ * {@link DescriptionListener}s as they are passed classes. Instances cache the class files that they read and the
+ * resource classes that they load - so that a sub-resource class reached through many locators is loaded once - and are
+ * not thread-safe.
+ */
+class ClassFileResourceClassLoader {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassFileResourceClassLoader.class);
+    private static final int UNDERLINE_LENGTH = 60;
+
+    private static final String JAX_RS_PACKAGE = "javax.ws.rs";
+    private static final String OBJECT_CLASS_NAME = "java.lang.Object";
+    private static final String VALUE = "value";
+
+    private static final Map<String, Class<? extends java.lang.annotation.Annotation>> PARAMETER_TYPE_ANNOTATIONS_BY_NAME = new HashMap<String, Class<? extends java.lang.annotation.Annotation>>();
+
+    static {
+        for (Class<? extends java.lang.annotation.Annotation> annotationType : ResourceClassLoader.PARAMETER_TYPE_ANNOTATIONS) {
+            PARAMETER_TYPE_ANNOTATIONS_BY_NAME.put(annotationType.getName(), annotationType);
+        }
+    }
+
+    private final ClassLoader classFileLoader;
+    private final Map<String, ClassFile> classFiles = new HashMap<String, ClassFile>();
+    private final Map<String, String> requestMethodDesignatorsByAnnotationType = new HashMap<String, String>();
+    private final Map<String, ResourceClass> resourceClasses = new HashMap<String, ResourceClass>();
+    private final Set<String> classesLoading = new HashSet<String>();
+
+    /**
+     * Constructor.
+     *
+     * @param classFileLoader
+     *      The {@link ClassLoader} to read class files from as resources; it is never asked to load a class.
+     */
+    ClassFileResourceClassLoader(final ClassLoader classFileLoader) {
+        this.classFileLoader = classFileLoader;
+    }
+
+    /**
+     * Whether the class file of a class can be found and is of a concrete class - i.e. neither abstract nor an interface.
+     */
+    boolean isConcreteClass(final String className) {
+
+        final ClassFile classFile = readClassFile(className);
+
+        return (classFile != null) && !classFile.isAbstract() && !classFile.isInterface();
+    }
+
+    /**
+     * Loads a resource class from its class file.
+     *
+     * @return
+     *      The resource class or null if the class is not a resource class or its class file cannot be read.
+     */
+    public ResourceClass loadResourceClassFrom(final String candidateResourceClassName) {
+
+        if (resourceClasses.containsKey(candidateResourceClassName)) {
+            LOGGER.debug("Class {} has already been loaded.", candidateResourceClassName);
+            return resourceClasses.get(candidateResourceClassName);
+        }
+
+        final ClassFile classFile = readClassFile(candidateResourceClassName);
+
+        if (classFile == null) {
+            LOGGER.warn("Could not process candidate resource class {} as its class file could not be read.", candidateResourceClassName);
+            return null;
+        }
+
+        if (!classesLoading.add(candidateResourceClassName)) {
+            LOGGER.warn("Class {} is already being loaded - i.e. it is reached through a cycle of sub-resource locators - so will not be loaded again.", candidateResourceClassName);
+            return null;
+        }
+
+        final ResourceClass result;
+        try {
+            result = loadResourceClass(classFile);
+        } finally {
+            classesLoading.remove(candidateResourceClassName);
+        }
+
+        resourceClasses.put(candidateResourceClassName, result);
+
+        return result;
+    }
+
+    private ResourceClass loadResourceClass(final ClassFile classFile) {
+
+        LOGGER.debug(StringUtils.repeat("-", UNDERLINE_LENGTH));
+        LOGGER.debug("Attempting to load class file of {} as a JAX-RS resource class...", classFile.getName());
+        LOGGER.debug(StringUtils.repeat("-", UNDERLINE_LENGTH));
+
+        final Map<String, Annotation> resourceAnnotations = scrapeClassAnnotations(classFile);
+        LOGGER.debug("Found class annotations {}.", resourceAnnotations.keySet());
+
+        final String uriTemplate = stringValueOf(resourceAnnotations.get(Path.class.getName()));
+        final List<String> produces = stringArrayValueOf(resourceAnnotations.get(Produces.class.getName()));
+        final List<String> consumes = stringArrayValueOf(resourceAnnotations.get(Consumes.class.getName()));
+
+        LOGGER.debug("Finding resource methods...");
+
+        final List<ResourceClassMethod> methodsOnResource = loadMethods(classFile);
+        LOGGER.debug("Found {} resource methods.", methodsOnResource.size());
+
+        if (methodsOnResource.size() == 0) {
+            LOGGER.debug("Class is NOT a resource class.");
+
+            return null;
+        }
+
+        LOGGER.debug("Class is a resource class.");
+
+        final List<Parameter> fields = new ArrayList<Parameter>();
+        loadClassFields(classFile, fields, new HashSet<String>());
+        fields.addAll(loadClassProperties(classFile));
+
+        LOGGER.debug("Found {} fields and properties.", fields.size());
+
+        return ResourceClass.fromClassFile(classFile.getName(), uriTemplate, methodsOnResource, consumes, produces, fields);
+    }
+
+    /**
+     * Loads the public fields of a class and its super-types - as {@link Class#getFields()} finds them.
+     */
+    @SuppressWarnings("unchecked")
+    private void loadClassFields(final ClassFile classFile, final List<Parameter> fields, final Set<String> visited) {
+
+        if (!visited.add(classFile.getName())) {
+            return;
+        }
+
+        for (FieldInfo field : (List<FieldInfo>) classFile.getFields()) {
+            if (AccessFlag.isPublic(field.getAccessFlags())) {
+                final Parameter parameter = buildParameter(jaxRsAnnotationsOf(field.getAttribute(AnnotationsAttribute.visibleTag)), Descriptor.toClassName(field.getDescriptor()));
+
+                if (parameter != null) {
+                    LOGGER.debug(" |- Found {} field '{}' of type '{}'.", new Object[] { parameter.getJaxRsAnnotationType().getSimpleName(), parameter.getName(), parameter.getTypeName() });
+
+                    fields.add(parameter);
+                }
+            }
+        }
+
+        for (ClassFile superType : superTypesOf(classFile)) {
+            loadClassFields(superType, fields, visited);
+        }
+    }
+
+    private List<Parameter> loadClassProperties(final ClassFile classFile) {
+
+        final List<Parameter> properties = new ArrayList<Parameter>();
+
+        for (MethodInfo method : publicMethodsOf(classFile)) {
+            final Parameter parameter = buildParameter(scrapeMethodAnnotations(classFile, method.getName(), parameterDescriptorOf(method)), returnTypeNameOf(method));
+
+            if (parameter != null) {
+                LOGGER.debug(" |- Found {} property '{}' of type '{}'.", new Object[] { parameter.getJaxRsAnnotationType().getSimpleName(), parameter.getName(), parameter.getTypeName() });
+
+                properties.add(parameter);
+            }
+        }
+
+        return properties;
+    }
+
+    private List<ResourceClassMethod> loadMethods(final ClassFile classFile) {
+
+        final List<ResourceClassMethod> methodsOnResource = new ArrayList<ResourceClassMethod>();
+
+        for (MethodInfo method : publicMethodsOf(classFile)) {
+            final ResourceClassMethod methodOnResource = loadMethod(classFile, method);
+
+            if (methodOnResource != null) {
+                methodsOnResource.add(methodOnResource);
+            }
+        }
+
+        return methodsOnResource;
+    }
+
+    private ResourceClassMethod loadMethod(final ClassFile classFile, final MethodInfo method) {
+
+        final String logPrefix = " |-";
+
+        LOGGER.debug("{} Attempting to load method {} as a JAX-RS resource method...", logPrefix, method.getName());
+
+        final String parameterDescriptor = parameterDescriptorOf(method);
+        final Map<String, Annotation> methodAnnotations = scrapeMethodAnnotations(classFile, method.getName(), parameterDescriptor);
+        LOGGER.debug("{} Found method annotations {}.", logPrefix, methodAnnotations.keySet());
+
+        String requestMethodDesignator = null;
+        for (String annotationType : methodAnnotations.keySet()) {
+            final String designator = requestMethodDesignatorOf(annotationType);
+
+            if (designator != null) {
+                requestMethodDesignator = designator;
+            }
+        }
+
+        final String uriTemplate = stringValueOf(methodAnnotations.get(Path.class.getName()));
+
+        if ((uriTemplate == null) && (requestMethodDesignator == null)) {
+            LOGGER.debug("{} Method is NOT a resource method.", logPrefix);
+            return null;
+        }
+
+        LOGGER.debug("{} Method is a resource method with URI template '{}' and request method designator '{}'.", new Object[] { logPrefix, uriTemplate, requestMethodDesignator });
+
+        final List<String> produces = stringArrayValueOf(methodAnnotations.get(Produces.class.getName()));
+        final List<String> consumes = stringArrayValueOf(methodAnnotations.get(Consumes.class.getName()));
+        final List<Parameter> parameters = loadMethodParameters(classFile, method.getName(), parameterDescriptor);
+        final String returnTypeName = returnTypeNameOf(method);
+
+        if (requestMethodDesignator == null) {
+            final ResourceClass subResource = readClassFile(returnTypeName) == null ? null : loadResourceClassFrom(returnTypeName);
+
+            return new SubResourceLocator(method.getName(), uriTemplate, consumes, produces, parameters, subResource);
+
+        } else if (uriTemplate == null) {
+            return ResourceMethod.fromClassFile(method.getName(), requestMethodDesignator, consumes, produces, parameters, returnTypeName);
+
+        } else {
+            return SubResourceMethod.fromClassFile(method.getName(), uriTemplate, requestMethodDesignator, consumes, produces, parameters, returnTypeName);
+        }
+    }
+
+    private List<Parameter> loadMethodParameters(final ClassFile classFile, final String methodName, final String parameterDescriptor) {
+
+        final List<Parameter> parameters = new ArrayList<Parameter>();
+        final List<String> parameterTypeNames = typeNamesOf(parameterDescriptor);
+
+        for (int i = 0; i < parameterTypeNames.size(); i++) {
+            final Parameter parameter = buildParameter(scrapeParameterAnnotations(classFile, methodName, parameterDescriptor, i), parameterTypeNames.get(i));
+
+            if (parameter != null) {
+                LOGGER.debug(" |- Found {} parameter '{}' of type '{}'.", new Object[] { parameter.getJaxRsAnnotationType().getSimpleName(), parameter.getName(), parameter.getTypeName() });
+
+                parameters.add(parameter);
+            }
+        }
+
+        return parameters;
+    }
+
+    private Parameter buildParameter(final Map<String, Annotation> annotations, final String typeName) {
+
+        for (Annotation annotation : annotations.values()) {
+            final Class<? extends java.lang.annotation.Annotation> parameterAnnotationType = PARAMETER_TYPE_ANNOTATIONS_BY_NAME.get(annotation.getTypeName());
+            final String parameterName = stringValueOf(annotation);
+
+            if ((parameterAnnotationType != null) && (parameterName != null)) {
+                return Parameter.fromClassFile(parameterName, parameterAnnotationType, typeName);
+            }
+        }
+
+        return null;
+    }
+
+    private Map<String, Annotation> scrapeClassAnnotations(final ClassFile classFile) {
+
+        final Map<String, Annotation> result = jaxRsAnnotationsOf(classFile.getAttribute(AnnotationsAttribute.visibleTag));
+
+        if (result.size() == 0) {
+            for (ClassFile superType : superTypesOf(classFile)) {
+                result.putAll(scrapeClassAnnotations(superType));
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, Annotation> scrapeMethodAnnotations(final ClassFile classFile, final String methodName, final String parameterDescriptor) {
+
+        final MethodInfo method = findMethod(classFile, methodName, parameterDescriptor);
+
+        final Map<String, Annotation> result = method == null ? new HashMap<String, Annotation>() : jaxRsAnnotationsOf(method.getAttribute(AnnotationsAttribute.visibleTag));
+
+        if (result.size() == 0) {
+            for (ClassFile superType : superTypesOf(classFile)) {
+                result.putAll(scrapeMethodAnnotations(superType, methodName, parameterDescriptor));
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, Annotation> scrapeParameterAnnotations(final ClassFile classFile, final String methodName, final String parameterDescriptor, final int parameterIndex) {
+
+        final Map<String, Annotation> result = new HashMap<String, Annotation>();
+
+        final MethodInfo method = findMethod(classFile, methodName, parameterDescriptor);
+
+        if (method != null) {
+            final ParameterAnnotationsAttribute attribute = (ParameterAnnotationsAttribute) method.getAttribute(ParameterAnnotationsAttribute.visibleTag);
+
+            if (attribute != null) {
+                final Annotation[][] parameterAnnotations = attribute.getAnnotations();
+
+                if (parameterIndex < parameterAnnotations.length) {
+                    result.putAll(jaxRsAnnotationsOf(parameterAnnotations[parameterIndex]));
+                }
+            }
+        }
+
+        if (result.size() == 0) {
+            for (ClassFile superType : superTypesOf(classFile)) {
+                result.putAll(scrapeParameterAnnotations(superType, methodName, parameterDescriptor, parameterIndex));
+            }
+        }
+
+        return result;
+    }
+
+    private Map<String, Annotation> jaxRsAnnotationsOf(final AttributeInfo attribute) {
+        return jaxRsAnnotationsOf(attribute == null ? new Annotation[0] : ((AnnotationsAttribute) attribute).getAnnotations());
+    }
+
+    private Map<String, Annotation> jaxRsAnnotationsOf(final Annotation[] annotations) {
+
+        final Map<String, Annotation> result = new HashMap<String, Annotation>();
+
+        for (Annotation annotation : annotations) {
+            if (annotation.getTypeName().startsWith(JAX_RS_PACKAGE)) {
+                result.put(annotation.getTypeName(), annotation);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The request method designator of an annotation type - looked up on the JAX-RS annotation types available to
+     * Rastajax itself, which are not classes of the application.
+     */
+    private String requestMethodDesignatorOf(final String annotationType) {
+
+        if (requestMethodDesignatorsByAnnotationType.containsKey(annotationType)) {
+            return requestMethodDesignatorsByAnnotationType.get(annotationType);
+        }
+
+        String result = null;
+        try {
+            final HttpMethod httpMethod = Class.forName(annotationType, false, HttpMethod.class.getClassLoader()).getAnnotation(HttpMethod.class);
+            result = httpMethod == null ? null : httpMethod.value();
+
+        } catch (final ClassNotFoundException e) {
+            LOGGER.debug("Annotation type {} is not available so is not a request method designator.", annotationType);
+        }
+
+        requestMethodDesignatorsByAnnotationType.put(annotationType, result);
+
+        return result;
+    }
+
+    private List<ClassFile> superTypesOf(final ClassFile classFile) {
+
+        final List<ClassFile> result = new ArrayList<ClassFile>();
+
+        for (String implementedInterface : classFile.getInterfaces()) {
+            final ClassFile interfaceFile = readClassFile(implementedInterface);
+            if (interfaceFile != null) {
+                result.add(interfaceFile);
+            }
+        }
+
+        final String superClass = classFile.getSuperclass();
+        if ((superClass != null) && !OBJECT_CLASS_NAME.equals(classFile.getName()) && !classFile.isInterface()) {
+            final ClassFile superClassFile = readClassFile(superClass);
+            if (superClassFile != null) {
+                result.add(superClassFile);
+            }
+        }
+
+        return result;
+    }
+
+    private ClassFile readClassFile(final String className) {
+
+        if (classFiles.containsKey(className)) {
+            return classFiles.get(className);
+        }
+
+        ClassFile result = null;
+
+        final InputStream in = classFileLoader.getResourceAsStream(className.replace('.', '/') + ".class");
+
+        if (in != null) {
+            try {
+                try {
+                    result = new ClassFile(new DataInputStream(in));
+                } finally {
+                    in.close();
+                }
+
+            } catch (final IOException e) {
+                LOGGER.warn("Could not read class file of " + className + ".", e);
+            }
+        }
+
+        classFiles.put(className, result);
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<MethodInfo> publicMethodsOf(final ClassFile classFile) {
+
+        final List<MethodInfo> result = new ArrayList<MethodInfo>();
+
+        for (MethodInfo method : (List<MethodInfo>) classFile.getMethods()) {
+            final int accessFlags = method.getAccessFlags();
+
+            if (AccessFlag.isPublic(accessFlags) && ((accessFlags & (AccessFlag.BRIDGE | AccessFlag.SYNTHETIC)) == 0) && !method.getName().startsWith("<")) {
+                result.add(method);
+            }
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static MethodInfo findMethod(final ClassFile classFile, final String methodName, final String parameterDescriptor) {
+
+        for (MethodInfo method : (List<MethodInfo>) classFile.getMethods()) {
+            if (method.getName().equals(methodName) && method.getDescriptor().startsWith(parameterDescriptor)) {
+                return method;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * The parameter types part of the descriptor of a method - e.g. <code>(ILjava/lang/String;)</code> - which identifies
+     * the method along with its name regardless of covariant return types.
+     */
+    private static String parameterDescriptorOf(final MethodInfo method) {
+        return method.getDescriptor().substring(0, method.getDescriptor().indexOf(')') + 1);
+    }
+
+    private static String returnTypeNameOf(final MethodInfo method) {
+        return Descriptor.toClassName(method.getDescriptor().substring(method.getDescriptor().indexOf(')') + 1));
+    }
+
+    private static List<String> typeNamesOf(final String parameterDescriptor) {
+
+        final List<String> result = new ArrayList<String>();
+
+        int start = 1;
+        int i = start;
+        while (i < parameterDescriptor.length() - 1) {
+            final char c = parameterDescriptor.charAt(i);
+
+            if (c == '[') {
+                i++;
+                continue;
+            }
+
+            if (c == 'L') {
+                i = parameterDescriptor.indexOf(';', i);
+            }
+
+            result.add(Descriptor.toClassName(parameterDescriptor.substring(start, i + 1)));
+
+            i++;
+            start = i;
+        }
+
+        return result;
+    }
+
+    private static String stringValueOf(final Annotation annotation) {
+
+        final MemberValue value = annotation == null ? null : annotation.getMemberValue(VALUE);
+
+        return value instanceof StringMemberValue ? ((StringMemberValue) value).getValue() : null;
+    }
+
+    private static List<String> stringArrayValueOf(final Annotation annotation) {
+
+        final List<String> result = new ArrayList<String>();
+
+        final MemberValue value = annotation == null ? null : annotation.getMemberValue(VALUE);
+
+        if (value instanceof ArrayMemberValue) {
+            for (MemberValue element : ((ArrayMemberValue) value).getValue()) {
+                if (element instanceof StringMemberValue) {
+                    result.add(((StringMemberValue) element).getValue());
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -17,11 +17,16 @@ package com.kelveden.rastajax.core;
 
 import org.scannotation.AnnotationDB;
 import org.scannotation.ClasspathUrlFinder;
+import org.scannotation.archiveiterator.Filter;
+import org.scannotation.archiveiterator.IteratorFactory;
+import org.scannotation.archiveiterator.StreamIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.ws.rs.Path;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Modifier;
 import java.net.URL;
 import java.util.*;
@@ -38,6 +43,7 @@ public class ClassLoaderRootResourceScanner implements RootResourceScanner {
     private final ClassLoader classLoader;
 
     private boolean scanInterfaces;
+    private DescriptionStatistics statistics;
 
     /**
      * Constructor.
@@ -74,15 +80,74 @@ public class ClassLoaderRootResourceScanner implements RootResourceScanner {
         return this;
     }
 
+    /**
+     * Specifies that this {@link ClassLoaderRootResourceScanner} will record the time taken to scan, the archives
+     * opened, the bytes read and the classes inspected and pruned in the specified statistics.
+     */
+    public ClassLoaderRootResourceScanner withStatistics(final DescriptionStatistics statistics) {
+        this.statistics = statistics;
+
+        return this;
+    }
+
     @Override
     public Set<Class<?>> scan() {
+
+        final long start = System.nanoTime();
+
+        final Set<Class<?>> results = new HashSet<Class<?>>();
+
+        for (String className : findClassesAnnotatedWithPath()) {
+            try {
+                final Class<?> loadedClass = classLoader.loadClass(className);
+                final int classModifiers = loadedClass.getModifiers();
+
+                if (!Modifier.isAbstract(classModifiers) && !Modifier.isInterface(classModifiers)) {
+                    results.add(classLoader.loadClass(className));
+                }
+
+            } catch (final ClassNotFoundException e) {
+                throw new ResourceScanningException(e);
+            }
+        }
+
+        LOGGER.debug("Scanned {} root resource classes: {}.", results.size(), results.toString());
+
+        if (statistics != null) {
+            statistics.recordPhase(DescriptionStatistics.Phase.SCAN, System.nanoTime() - start);
+        }
+
+        return results;
+    }
+
+    /**
+     * Does the same as {@link #scan()} but without loading any classes - e.g. for
+     * {@link RestDescriber#describeApplicationFromClassFiles}.
+     *
+     * @return
+     *      The names of the candidate root resource classes - which may include abstract classes and interfaces.
+     */
+    public Set<String> scanClassNames() {
+
+        final long start = System.nanoTime();
+
+        final Set<String> results = findClassesAnnotatedWithPath();
+
+        if (statistics != null) {
+            statistics.recordPhase(DescriptionStatistics.Phase.SCAN, System.nanoTime() - start);
+        }
+
+        return results;
+    }
+
+    private Set<String> findClassesAnnotatedWithPath() {
         // This is a bit of short-cut really as it only checks for the presence of a URI template annotation on the class -
         // the JAX-RS specification also requires the class to have at least one method annotated with a request method designator
         // and/or URI template. However, given that the scenario where a class has the URI template but no REST methods is both unlikely
         // and absurd, we can take that risk. The worst that will happen is that we do a little extra processing in the {@link ResourceClassLoader}
         // - the class won't loaded for representation anyway due to having no REST methods.
 
-        final Set<Class<?>> results = new HashSet<Class<?>>();
+        int classesInspected = 0;
 
         final AnnotationDB annotationDb = new AnnotationDB();
         annotationDb.setScanClassAnnotations(true);
@@ -91,7 +156,9 @@ public class ClassLoaderRootResourceScanner implements RootResourceScanner {
         annotationDb.setScanFieldAnnotations(false);
 
         try {
-            annotationDb.scanArchives(scanUrls.toArray(new URL[scanUrls.size()]));
+            for (URL scanUrl : scanUrls) {
+                classesInspected += scanArchive(annotationDb, scanUrl);
+            }
 
             if (scanInterfaces) {
                 annotationDb.crossReferenceImplementedInterfaces();
@@ -112,22 +179,124 @@ public class ClassLoaderRootResourceScanner implements RootResourceScanner {
 
         LOGGER.debug("Found {} classes annotated with @Path: {}.", classesAnnotatedWithPath.size(), classesAnnotatedWithPath.toString());
 
-        for (String className : classesAnnotatedWithPath) {
-            try {
-                final Class<?> loadedClass = classLoader.loadClass(className);
-                final int classModifiers = loadedClass.getModifiers();
+        if (statistics != null) {
+            statistics.recordClassesPruned(Math.max(0, classesInspected - classesAnnotatedWithPath.size()));
+        }
 
-                if (!Modifier.isAbstract(classModifiers) && !Modifier.isInterface(classModifiers)) {
-                    results.add(classLoader.loadClass(className));
+        return classesAnnotatedWithPath;
+    }
+
+    /**
+     * Does the same as {@link AnnotationDB#scanArchives} for a single archive but counts the class files and bytes
+     * read on the way.
+     *
+     * @return
+     *      The number of class files inspected.
+     */
+    private int scanArchive(final AnnotationDB annotationDb, final URL archiveUrl) throws IOException {
+
+        final Filter classFileFilter = new Filter() {
+            @Override
+            public boolean accepts(final String fileName) {
+
+                if (!fileName.endsWith(".class")) {
+                    return false;
                 }
 
-            } catch (final ClassNotFoundException e) {
-                throw new ResourceScanningException(e);
+                final String className = (fileName.startsWith("/") ? fileName.substring(1) : fileName).replace('/', '.');
+
+                for (String ignoredPackage : annotationDb.getIgnoredPackages()) {
+                    if (className.startsWith(ignoredPackage + ".")) {
+                        return false;
+                    }
+                }
+
+                return true;
             }
+        };
+
+        final long start = System.nanoTime();
+
+        final StreamIterator classFiles = IteratorFactory.create(archiveUrl, classFileFilter);
+
+        if (statistics != null) {
+            statistics.recordArchiveOpened();
         }
 
-        LOGGER.debug("Scanned {} root resource classes: {}.", results.size(), results.toString());
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.archiveScanStarted(archiveUrl);
 
-        return results;
+        int result = 0;
+        long bytesRead = 0;
+
+        try {
+            InputStream classFile;
+            while ((classFile = classFiles.next()) != null) {
+                final CountingInputStream countingClassFile = new CountingInputStream(classFile);
+
+                try {
+                    annotationDb.scanClass(countingClassFile);
+                } finally {
+                    countingClassFile.close();
+                }
+
+                if (statistics != null) {
+                    statistics.recordClassInspected(countingClassFile.count);
+                }
+
+                result++;
+                bytesRead += countingClassFile.count;
+            }
+
+        } finally {
+            listener.archiveScanFinished(listenerContext, archiveUrl, result, bytesRead);
+            classFiles.close();
+        }
+
+        if (statistics != null) {
+            statistics.recordArchiveScanned(archiveUrl.toString(), bytesRead, System.nanoTime() - start);
+        }
+
+        return result;
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(final InputStream input) {
+            super(input);
+        }
+
+        @Override
+        public int read() throws IOException {
+
+            final int result = super.read();
+            if (result >= 0) {
+                count++;
+            }
+
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+
+            final int result = super.read(buffer, offset, length);
+            if (result > 0) {
+                count += result;
+            }
+
+            return result;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+
+            final long result = super.skip(n);
+            count += result;
+
+            return result;
+        }
     }
 }
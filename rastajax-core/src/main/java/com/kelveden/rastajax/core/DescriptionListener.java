@@ -0,0 +1,82 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import com.kelveden.rastajax.core.raw.ResourceClass;
+
+import java.lang.reflect.Member;
+import java.net.URL;
+
+/**
+ * Listener for the units of work done while describing a REST application - e.g. for recording them with a profiler.
+ * Listeners are found with {@link java.util.ServiceLoader} or registered with {@link DescriptionListeners#register}.
+ * <p>
+ * Each unit of work is reported by a <code>...Started</code> method when it begins and by the matching
+ * <code>...Finished</code> method when it completes successfully - or, for an archive scan, however it ends; whatever the
+ * former returns is passed back to the latter. Units of work nest - e.g. the scraping of annotations is reported within the loading of a resource class - and
+ * may be reported from several threads at once. Implementations must be fast and must not throw.
+ */
+public interface DescriptionListener {
+
+    /**
+     * An archive - a jar or class directory - is about to be scanned for root resource classes.
+     */
+    Object archiveScanStarted(URL archive);
+
+    /**
+     * Reported even if the scan fails - with the classes inspected up to then.
+     */
+    void archiveScanFinished(Object context, URL archive, int classesInspected, long bytesRead);
+
+    /**
+     * A class is about to be loaded as a resource class; sub-resource classes are reported within the loading of the class
+     * with the sub-resource locator.
+     */
+    Object resourceClassLoadStarted(Class<?> candidateClass);
+
+    /**
+     * @param resourceClass
+     *      The resource class loaded or null if the class turned out not to be a resource class.
+     */
+    void resourceClassLoadFinished(Object context, Class<?> candidateClass, ResourceClass resourceClass);
+
+    /**
+     * The JAX-RS annotations of an element of a class are about to be scraped - including those inherited from super-types.
+     *
+     * @param clazz
+     *      The class.
+     * @param member
+     *      The method or field or null if the annotations of the class itself are scraped.
+     * @param parameterIndex
+     *      The index of the method parameter or -1 if the annotations of a parameter are not being scraped.
+     */
+    Object annotationScrapeStarted(Class<?> clazz, Member member, int parameterIndex);
+
+    void annotationScrapeFinished(Object context, Class<?> clazz, Member member, int parameterIndex, int annotationCount);
+
+    /**
+     * A {@link RepresentationBuilder} is about to build a representation.
+     */
+    Object representationBuildStarted(Class<?> builderClass, int rootResourceCount);
+
+    /**
+     * @param resourceCount
+     *      The number of resources in the representation - as the builder defines them.
+     * @param endpointCount
+     *      The number of resource methods in the representation.
+     */
+    void representationBuildFinished(Object context, Class<?> builderClass, int resourceCount, int endpointCount);
+}
@@ -0,0 +1,224 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import com.kelveden.rastajax.core.raw.ResourceClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Member;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * The registry of {@link DescriptionListener}s. Listeners declared in
+ * <code>META-INF/services/com.kelveden.rastajax.core.DescriptionListener</code> on the class path of Rastajax are
+ * registered when this class is initialised. With no listeners registered, reporting a unit of work costs a call to an
+ * empty method.
+ */
+public final class DescriptionListeners {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescriptionListeners.class);
+
+    private static final DescriptionListener NO_LISTENER = new NoListener();
+
+    private static final List<DescriptionListener> LISTENERS = new ArrayList<DescriptionListener>();
+
+    private static volatile DescriptionListener listener = NO_LISTENER;
+
+    static {
+        try {
+            final Iterator<DescriptionListener> serviceListeners = ServiceLoader.load(DescriptionListener.class, DescriptionListener.class.getClassLoader()).iterator();
+
+            while (serviceListeners.hasNext()) {
+                register(serviceListeners.next());
+            }
+
+        } catch (final ServiceConfigurationError e) {
+            LOGGER.warn("Could not load description listeners.", e);
+        }
+    }
+
+    private DescriptionListeners() {
+    }
+
+    /**
+     * The listener to report units of work to - which notifies all registered listeners.
+     */
+    public static DescriptionListener get() {
+        return listener;
+    }
+
+    public static synchronized void register(final DescriptionListener listenerToRegister) {
+
+        LISTENERS.add(listenerToRegister);
+        update();
+
+        LOGGER.info("Registered description listener {}.", listenerToRegister.getClass().getName());
+    }
+
+    public static synchronized void unregister(final DescriptionListener listenerToUnregister) {
+
+        LISTENERS.remove(listenerToUnregister);
+        update();
+    }
+
+    private static void update() {
+
+        if (LISTENERS.isEmpty()) {
+            listener = NO_LISTENER;
+        } else if (LISTENERS.size() == 1) {
+            listener = LISTENERS.get(0);
+        } else {
+            listener = new CompositeListener(LISTENERS.toArray(new DescriptionListener[LISTENERS.size()]));
+        }
+    }
+
+    private static final class NoListener implements DescriptionListener {
+
+        @Override
+        public Object archiveScanStarted(final URL archive) {
+            return null;
+        }
+
+        @Override
+        public void archiveScanFinished(final Object context, final URL archive, final int classesInspected, final long bytesRead) {
+        }
+
+        @Override
+        public Object resourceClassLoadStarted(final Class<?> candidateClass) {
+            return null;
+        }
+
+        @Override
+        public void resourceClassLoadFinished(final Object context, final Class<?> candidateClass, final ResourceClass resourceClass) {
+        }
+
+        @Override
+        public Object annotationScrapeStarted(final Class<?> clazz, final Member member, final int parameterIndex) {
+            return null;
+        }
+
+        @Override
+        public void annotationScrapeFinished(final Object context, final Class<?> clazz, final Member member, final int parameterIndex, final int annotationCount) {
+        }
+
+        @Override
+        public Object representationBuildStarted(final Class<?> builderClass, final int rootResourceCount) {
+            return null;
+        }
+
+        @Override
+        public void representationBuildFinished(final Object context, final Class<?> builderClass, final int resourceCount, final int endpointCount) {
+        }
+    }
+
+    /**
+     * Notifies several listeners, passing each of them back its own context.
+     */
+    private static final class CompositeListener implements DescriptionListener {
+
+        private final DescriptionListener[] listeners;
+
+        CompositeListener(final DescriptionListener[] listeners) {
+            this.listeners = listeners;
+        }
+
+        @Override
+        public Object archiveScanStarted(final URL archive) {
+
+            final Object[] contexts = new Object[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                contexts[i] = listeners[i].archiveScanStarted(archive);
+            }
+
+            return contexts;
+        }
+
+        @Override
+        public void archiveScanFinished(final Object context, final URL archive, final int classesInspected, final long bytesRead) {
+
+            final Object[] contexts = (Object[]) context;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].archiveScanFinished(contexts[i], archive, classesInspected, bytesRead);
+            }
+        }
+
+        @Override
+        public Object resourceClassLoadStarted(final Class<?> candidateClass) {
+
+            final Object[] contexts = new Object[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                contexts[i] = listeners[i].resourceClassLoadStarted(candidateClass);
+            }
+
+            return contexts;
+        }
+
+        @Override
+        public void resourceClassLoadFinished(final Object context, final Class<?> candidateClass, final ResourceClass resourceClass) {
+
+            final Object[] contexts = (Object[]) context;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].resourceClassLoadFinished(contexts[i], candidateClass, resourceClass);
+            }
+        }
+
+        @Override
+        public Object annotationScrapeStarted(final Class<?> clazz, final Member member, final int parameterIndex) {
+
+            final Object[] contexts = new Object[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                contexts[i] = listeners[i].annotationScrapeStarted(clazz, member, parameterIndex);
+            }
+
+            return contexts;
+        }
+
+        @Override
+        public void annotationScrapeFinished(final Object context, final Class<?> clazz, final Member member, final int parameterIndex, final int annotationCount) {
+
+            final Object[] contexts = (Object[]) context;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].annotationScrapeFinished(contexts[i], clazz, member, parameterIndex, annotationCount);
+            }
+        }
+
+        @Override
+        public Object representationBuildStarted(final Class<?> builderClass, final int rootResourceCount) {
+
+            final Object[] contexts = new Object[listeners.length];
+            for (int i = 0; i < listeners.length; i++) {
+                contexts[i] = listeners[i].representationBuildStarted(builderClass, rootResourceCount);
+            }
+
+            return contexts;
+        }
+
+        @Override
+        public void representationBuildFinished(final Object context, final Class<?> builderClass, final int resourceCount, final int endpointCount) {
+
+            final Object[] contexts = (Object[]) context;
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].representationBuildFinished(contexts[i], builderClass, resourceCount, endpointCount);
+            }
+        }
+    }
+}
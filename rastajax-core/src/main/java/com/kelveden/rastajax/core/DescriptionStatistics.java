@@ -0,0 +1,410 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statistics gathered while describing a REST application - for finding out which phase, archive or resource class is
+ * making it slow. Pass an instance to {@link ClassLoaderRootResourceScanner#withStatistics},
+ * {@link RestDescriber#describeApplication(Iterable, RepresentationBuilder, DescriptionStatistics)} and, if it supports
+ * them, the {@link RepresentationBuilder}; each records what it did into it. The same instance can be used for several
+ * descriptions in which case the figures accumulate.
+ * <p>
+ * Instances are safe for concurrent use.
+ */
+public final class DescriptionStatistics {
+
+    /**
+     * The phases of describing an application.
+     */
+    public enum Phase {
+
+        /**
+         * Scanning archives for root resource classes.
+         */
+        SCAN,
+
+        /**
+         * Loading the raw model from the root resource classes.
+         */
+        LOAD,
+
+        /**
+         * Building the representation from the raw model.
+         */
+        BUILD
+    }
+
+    private static final int DEFAULT_SLOWEST_CLASSES_KEPT = 10;
+    private static final int SLOWEST_ARCHIVES_SHOWN = 10;
+
+    private static final Comparator<ClassTiming> FASTEST_FIRST = new Comparator<ClassTiming>() {
+        @Override
+        public int compare(final ClassTiming timing1, final ClassTiming timing2) {
+            return timing1.nanos < timing2.nanos ? -1 : (timing1.nanos == timing2.nanos ? 0 : 1);
+        }
+    };
+
+    private static final Comparator<ArchiveTiming> ARCHIVE_FASTEST_FIRST = new Comparator<ArchiveTiming>() {
+        @Override
+        public int compare(final ArchiveTiming timing1, final ArchiveTiming timing2) {
+            return timing1.nanos < timing2.nanos ? -1 : (timing1.nanos == timing2.nanos ? 0 : 1);
+        }
+    };
+
+    private final Map<Phase, Long> phaseNanos = new EnumMap<Phase, Long>(Phase.class);
+    private final Map<String, long[]> cacheHitsAndMisses = new TreeMap<String, long[]>();
+    private final Map<String, ArchiveTiming> archives = new LinkedHashMap<String, ArchiveTiming>();
+    private final PriorityQueue<ClassTiming> slowestClasses = new PriorityQueue<ClassTiming>(DEFAULT_SLOWEST_CLASSES_KEPT + 1, FASTEST_FIRST);
+    private final int slowestClassesKept;
+
+    private long archivesOpened;
+    private long bytesRead;
+    private long classesInspected;
+    private long classesPruned;
+    private long resourcesLoaded;
+    private long methodsFound;
+    private long locatorsOmitted;
+    private long resourcesTruncated;
+
+    /**
+     * Constructor for statistics that keep the ten slowest classes to introspect.
+     */
+    public DescriptionStatistics() {
+        this(DEFAULT_SLOWEST_CLASSES_KEPT);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param slowestClassesKept
+     *      The number of the slowest classes to introspect to keep.
+     */
+    public DescriptionStatistics(final int slowestClassesKept) {
+
+        if (slowestClassesKept < 0) {
+            throw new IllegalArgumentException("The number of slowest classes kept must not be negative.");
+        }
+
+        this.slowestClassesKept = slowestClassesKept;
+    }
+
+    public synchronized void recordPhase(final Phase phase, final long nanos) {
+        phaseNanos.put(phase, getPhaseTime(phase, TimeUnit.NANOSECONDS) + nanos);
+    }
+
+    public synchronized void recordArchiveOpened() {
+        archivesOpened++;
+    }
+
+    public synchronized void recordClassInspected(final long classFileBytes) {
+        classesInspected++;
+        bytesRead += classFileBytes;
+    }
+
+    /**
+     * Records the time taken to scan an archive and the bytes of class files read from it - accumulating with any earlier
+     * scans of the same archive.
+     */
+    public synchronized void recordArchiveScanned(final String archiveUrl, final long classFileBytes, final long nanos) {
+
+        final ArchiveTiming previous = archives.get(archiveUrl);
+
+        archives.put(archiveUrl, previous == null
+                ? new ArchiveTiming(archiveUrl, classFileBytes, nanos)
+                : new ArchiveTiming(archiveUrl, previous.bytesRead + classFileBytes, previous.nanos + nanos));
+    }
+
+    public synchronized void recordClassesPruned(final long count) {
+        classesPruned += count;
+    }
+
+    public synchronized void recordResourceLoaded(final int methodCount) {
+        resourcesLoaded++;
+        methodsFound += methodCount;
+    }
+
+    /**
+     * Records a sub-resource locator left out of the representation - because its sub-resource class could not be found or
+     * it is beyond the maximum locator depth.
+     */
+    public synchronized void recordLocatorOmitted() {
+        locatorsOmitted++;
+    }
+
+    /**
+     * Records a resource class whose representation was cut short by the maximum number of resource methods.
+     */
+    public synchronized void recordResourceTruncated() {
+        resourcesTruncated++;
+    }
+
+    /**
+     * Records the time taken to introspect a class - including any sub-resource classes reached from it.
+     */
+    public synchronized void recordClassIntrospected(final String className, final long nanos) {
+
+        if (slowestClassesKept == 0) {
+            return;
+        }
+
+        slowestClasses.add(new ClassTiming(className, nanos));
+
+        if (slowestClasses.size() > slowestClassesKept) {
+            slowestClasses.poll();
+        }
+    }
+
+    public synchronized void recordCacheHit(final String cacheName) {
+        cacheCountersFor(cacheName)[0]++;
+    }
+
+    public synchronized void recordCacheMiss(final String cacheName) {
+        cacheCountersFor(cacheName)[1]++;
+    }
+
+    public synchronized long getPhaseTime(final Phase phase, final TimeUnit unit) {
+
+        final Long nanos = phaseNanos.get(phase);
+
+        return nanos == null ? 0 : unit.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * The number of archives - jars or class directories - scanned.
+     */
+    public synchronized long getArchivesOpened() {
+        return archivesOpened;
+    }
+
+    /**
+     * The number of bytes of class files read while scanning.
+     */
+    public synchronized long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * The number of class files inspected while scanning.
+     */
+    public synchronized long getClassesInspected() {
+        return classesInspected;
+    }
+
+    /**
+     * The number of inspected classes that were ruled out as root resource classes without being loaded.
+     */
+    public synchronized long getClassesPruned() {
+        return classesPruned;
+    }
+
+    /**
+     * The number of resource classes loaded into the raw model - including sub-resource classes, each counted once however
+     * many locators return it.
+     */
+    public synchronized long getResourcesLoaded() {
+        return resourcesLoaded;
+    }
+
+    /**
+     * The number of resource methods, sub-resource methods and sub-resource locators found on the loaded resource
+     * classes.
+     */
+    public synchronized long getMethodsFound() {
+        return methodsFound;
+    }
+
+    /**
+     * The number of sub-resource locators left out of the representation.
+     */
+    public synchronized long getLocatorsOmitted() {
+        return locatorsOmitted;
+    }
+
+    /**
+     * The number of resource classes whose representation was cut short by the maximum number of resource methods.
+     */
+    public synchronized long getResourcesTruncated() {
+        return resourcesTruncated;
+    }
+
+    /**
+     * Whether the representation covers every endpoint of the application - i.e. no sub-resource locators were left out
+     * and no resource classes were cut short.
+     */
+    public synchronized boolean isRepresentationComplete() {
+        return (locatorsOmitted == 0) && (resourcesTruncated == 0);
+    }
+
+    /**
+     * The slowest classes to introspect, slowest first.
+     */
+    public synchronized List<ClassTiming> getSlowestClasses() {
+
+        final List<ClassTiming> result = new ArrayList<ClassTiming>(slowestClasses);
+        Collections.sort(result, Collections.reverseOrder(FASTEST_FIRST));
+
+        return result;
+    }
+
+    /**
+     * The time taken to scan each archive and the bytes read from it, slowest first.
+     */
+    public synchronized List<ArchiveTiming> getArchives() {
+
+        final List<ArchiveTiming> result = new ArrayList<ArchiveTiming>(archives.values());
+        Collections.sort(result, Collections.reverseOrder(ARCHIVE_FASTEST_FIRST));
+
+        return result;
+    }
+
+    /**
+     * The names of the caches that hits or misses have been recorded for.
+     */
+    public synchronized Set<String> getCacheNames() {
+        return new TreeSet<String>(cacheHitsAndMisses.keySet());
+    }
+
+    public synchronized long getCacheHits(final String cacheName) {
+        final long[] counters = cacheHitsAndMisses.get(cacheName);
+        return counters == null ? 0 : counters[0];
+    }
+
+    public synchronized long getCacheMisses(final String cacheName) {
+        final long[] counters = cacheHitsAndMisses.get(cacheName);
+        return counters == null ? 0 : counters[1];
+    }
+
+    /**
+     * The proportion of lookups in the specified cache that were hits - or zero if there were none.
+     */
+    public synchronized double getCacheHitRate(final String cacheName) {
+
+        final long lookups = getCacheHits(cacheName) + getCacheMisses(cacheName);
+
+        return lookups == 0 ? 0 : (double) getCacheHits(cacheName) / lookups;
+    }
+
+    @Override
+    public synchronized String toString() {
+
+        final StringBuilder result = new StringBuilder();
+
+        for (Phase phase : Phase.values()) {
+            result.append(phase).append(": ").append(getPhaseTime(phase, TimeUnit.MILLISECONDS)).append("ms; ");
+        }
+
+        result.append(archivesOpened).append(" archives opened; ")
+                .append(bytesRead).append(" bytes read; ")
+                .append(classesInspected).append(" classes inspected; ")
+                .append(classesPruned).append(" classes pruned; ")
+                .append(resourcesLoaded).append(" resources loaded; ")
+                .append(methodsFound).append(" methods found; ")
+                .append(locatorsOmitted).append(" locators omitted; ")
+                .append(resourcesTruncated).append(" resources truncated");
+
+        for (String cacheName : cacheHitsAndMisses.keySet()) {
+            result.append("; ").append(cacheName).append(" cache hit rate ")
+                    .append(String.format(Locale.ENGLISH, "%.1f", getCacheHitRate(cacheName) * 100)).append('%');
+        }
+
+        final List<ArchiveTiming> slowestArchives = getArchives();
+        if (!slowestArchives.isEmpty()) {
+            result.append("; slowest archives: ").append(slowestArchives.subList(0, Math.min(slowestArchives.size(), SLOWEST_ARCHIVES_SHOWN)));
+        }
+
+        final List<ClassTiming> slowest = getSlowestClasses();
+        if (!slowest.isEmpty()) {
+            result.append("; slowest classes: ").append(slowest);
+        }
+
+        return result.toString();
+    }
+
+    private long[] cacheCountersFor(final String cacheName) {
+
+        long[] result = cacheHitsAndMisses.get(cacheName);
+
+        if (result == null) {
+            result = new long[2];
+            cacheHitsAndMisses.put(cacheName, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * The time taken to introspect a class.
+     */
+    public static final class ClassTiming {
+
+        private final String className;
+        private final long nanos;
+
+        ClassTiming(final String className, final long nanos) {
+            this.className = className;
+            this.nanos = nanos;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public long getTime(final TimeUnit unit) {
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return className + " (" + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms)";
+        }
+    }
+
+    /**
+     * The time taken to scan an archive and the bytes of class files read from it.
+     */
+    public static final class ArchiveTiming {
+
+        private final String archiveUrl;
+        private final long bytesRead;
+        private final long nanos;
+
+        ArchiveTiming(final String archiveUrl, final long bytesRead, final long nanos) {
+            this.archiveUrl = archiveUrl;
+            this.bytesRead = bytesRead;
+            this.nanos = nanos;
+        }
+
+        public String getArchiveUrl() {
+            return archiveUrl;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        public long getTime(final TimeUnit unit) {
+            return unit.convert(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public String toString() {
+            return archiveUrl + " (" + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms, " + bytesRead + " bytes)";
+        }
+    }
+}
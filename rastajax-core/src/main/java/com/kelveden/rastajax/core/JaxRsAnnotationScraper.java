@@ -29,6 +29,8 @@ import java.util.Set;
  */
 final class JaxRsAnnotationScraper {
 
+    private static final int NO_PARAMETER = -1;
+
     private JaxRsAnnotationScraper() {
     }
 
@@ -40,7 +42,15 @@ final class JaxRsAnnotationScraper {
      * @return The {@link java.lang.annotation.Annotation}s as a {@link java.util.Set}.
      */
     public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz) {
-        return new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz).values());
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.annotationScrapeStarted(clazz, null, NO_PARAMETER);
+
+        final Set<Annotation> result = new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz).values());
+
+        listener.annotationScrapeFinished(listenerContext, clazz, null, NO_PARAMETER, result.size());
+
+        return result;
     }
 
     /**
@@ -53,7 +63,15 @@ final class JaxRsAnnotationScraper {
      * @return The {@link java.lang.annotation.Annotation}s as a {@link java.util.Set}.
      */
     public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz, final Method method) {
-        return new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz, method).values());
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.annotationScrapeStarted(clazz, method, NO_PARAMETER);
+
+        final Set<Annotation> result = new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz, method).values());
+
+        listener.annotationScrapeFinished(listenerContext, clazz, method, NO_PARAMETER, result.size());
+
+        return result;
     }
 
     /**
@@ -68,7 +86,15 @@ final class JaxRsAnnotationScraper {
      * @return The {@link java.lang.annotation.Annotation}s as a {@link java.util.Set}.
      */
     public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz, final Method method, final int parameterIndex) {
-        return new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz, method, parameterIndex).values());
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.annotationScrapeStarted(clazz, method, parameterIndex);
+
+        final Set<Annotation> result = new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(clazz, method, parameterIndex).values());
+
+        listener.annotationScrapeFinished(listenerContext, clazz, method, parameterIndex, result.size());
+
+        return result;
     }
 
     /**
@@ -80,7 +106,15 @@ final class JaxRsAnnotationScraper {
      * @return The {@link java.lang.annotation.Annotation}s as a {@link java.util.Set}.
      */
     public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Field field) {
-        return new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(field).values());
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.annotationScrapeStarted(field.getDeclaringClass(), field, NO_PARAMETER);
+
+        final Set<Annotation> result = new HashSet<Annotation>(scrapeUniqueJaxRsAnnotationsFrom(field).values());
+
+        listener.annotationScrapeFinished(listenerContext, field.getDeclaringClass(), field, NO_PARAMETER, result.size());
+
+        return result;
     }
 
     private static Map<String, Annotation> scrapeUniqueJaxRsAnnotationsFrom(final Class<?> clazz) {
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Set;
+
+/**
+ * Scrapes <a href="http://jsr311.java.net/">JAX-RS</a> {@link Annotation}s in the same way as when describing an
+ * application. For measuring scraping on its own - e.g. from benchmarks; applications are described through
+ * {@link RestDescriber}.
+ */
+public final class JaxRsAnnotations {
+
+    private JaxRsAnnotations() {
+    }
+
+    /**
+     * Scrapes the {@link Annotation}s from the supplied {@link Class} and any super-types of it.
+     */
+    public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz) {
+        return JaxRsAnnotationScraper.scrapeJaxRsAnnotationsFrom(clazz);
+    }
+
+    /**
+     * Scrapes the {@link Annotation}s from the supplied {@link Method} as declared on the specified {@link Class} or
+     * its super-types.
+     */
+    public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz, final Method method) {
+        return JaxRsAnnotationScraper.scrapeJaxRsAnnotationsFrom(clazz, method);
+    }
+
+    /**
+     * Scrapes the {@link Annotation}s from the specified parameter of the supplied {@link Method} as declared on the
+     * specified {@link Class} or its super-types.
+     */
+    public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Class<?> clazz, final Method method, final int parameterIndex) {
+        return JaxRsAnnotationScraper.scrapeJaxRsAnnotationsFrom(clazz, method, parameterIndex);
+    }
+
+    /**
+     * Scrapes the {@link Annotation}s relevant to a field or property from the supplied {@link Field}.
+     */
+    public static Set<Annotation> scrapeJaxRsAnnotationsFrom(final Field field) {
+        return JaxRsAnnotationScraper.scrapeJaxRsAnnotationsFrom(field);
+    }
+}
@@ -30,6 +30,11 @@ import java.util.*;
 
 /**
  * Uses the <a href="http://jsr311.java.net/">JSR311 JAX-RS</a> annotations as a basis for loading classes as JAX-RS resources.
+ * <p>
+ * Each class is loaded once per instance: a sub-resource class reached through many locators is the same
+ * {@link ResourceClass} each time, which is what lets the representation builder reuse the work done on it. A
+ * sub-resource locator that returns a class that is still being loaded - i.e. a cycle of locators - has no sub-resource.
+ * Instances are not thread-safe.
  */
 class ResourceClassLoader {
 
@@ -45,8 +50,40 @@ class ResourceClassLoader {
         add(CookieParam.class);
     } };
 
+    private final Map<Class<?>, ResourceClass> resourceClasses = new HashMap<Class<?>, ResourceClass>();
+    private final Set<Class<?>> classesLoading = new HashSet<Class<?>>();
+
     public ResourceClass loadResourceClassFrom(final Class<?> candidateResourceClass) {
 
+        if (resourceClasses.containsKey(candidateResourceClass)) {
+            LOGGER.debug("Class {} has already been loaded.", candidateResourceClass.getName());
+            return resourceClasses.get(candidateResourceClass);
+        }
+
+        if (!classesLoading.add(candidateResourceClass)) {
+            LOGGER.warn("Class {} is already being loaded - i.e. it is reached through a cycle of sub-resource locators - so will not be loaded again.", candidateResourceClass.getName());
+            return null;
+        }
+
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.resourceClassLoadStarted(candidateResourceClass);
+
+        final ResourceClass result;
+        try {
+            result = loadResourceClass(candidateResourceClass);
+        } finally {
+            classesLoading.remove(candidateResourceClass);
+        }
+
+        listener.resourceClassLoadFinished(listenerContext, candidateResourceClass, result);
+
+        resourceClasses.put(candidateResourceClass, result);
+
+        return result;
+    }
+
+    private ResourceClass loadResourceClass(final Class<?> candidateResourceClass) {
+
         LOGGER.debug(StringUtils.repeat("-", UNDERLINE_LENGTH));
         LOGGER.debug("Attempting to load class {} as a JAX-RS resource class...", candidateResourceClass.getName());
         LOGGER.debug(StringUtils.repeat("-", UNDERLINE_LENGTH));
@@ -16,11 +16,15 @@
 package com.kelveden.rastajax.core;
 
 import com.kelveden.rastajax.core.raw.ResourceClass;
+import com.kelveden.rastajax.core.raw.ResourceClassMethod;
+import com.kelveden.rastajax.core.raw.SubResourceLocator;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 /**
@@ -47,14 +51,62 @@ public final class RestDescriber {
      *      The representation.
      */
     public static <T> T describeApplication(final Iterable<Class<?>> rawResourceClasses, final RepresentationBuilder<?> representationBuilder) {
+        return describe(rawResourceClasses, representationBuilder, null);
+    }
 
-        logLoadingHeader();
+    /**
+     * Loads REST resources representing a single REST application and builds them as a single serializable representation
+     * - recording the time taken by each phase, the resources and methods loaded and the slowest classes to introspect.
+     *
+     * @param rawResourceClasses
+     *      The root resource classes to represent.
+     * @param representationBuilder
+     *      The {@link RepresentationBuilder} to use to build the representation.
+     * @param statistics
+     *      The statistics to record into.
+     * @param <T>
+     *      The type of the representation.
+     * @return
+     *      The representation.
+     */
+    public static <T> T describeApplication(final Iterable<Class<?>> rawResourceClasses, final RepresentationBuilder<?> representationBuilder,
+                                            final DescriptionStatistics statistics) {
 
-        final Set<ResourceClass> resourceClasses = loadResources(rawResourceClasses);
+        final T result = describe(rawResourceClasses, representationBuilder, statistics);
 
-        logCreatingRepresentationHeader();
+        LOGGER.debug("Described application: {}.", statistics);
+
+        return result;
+    }
+
+    /**
+     * Loads REST resources representing a single REST application from their class files alone - i.e. without defining any
+     * of the classes of the application - and builds them as a single serializable representation. Types are represented
+     * by name; see {@link com.kelveden.rastajax.core.raw.Parameter#getTypeName()}.
+     *
+     * @param resourceClassNames
+     *      The names of the root resource classes to represent - e.g. from
+     *      {@link ClassLoaderRootResourceScanner#scanClassNames()}. Abstract classes and interfaces are ignored.
+     * @param classFileLoader
+     *      The {@link ClassLoader} to read the class files of the application from as resources.
+     * @param representationBuilder
+     *      The {@link RepresentationBuilder} to use to build the representation.
+     * @param statistics
+     *      The statistics to record into or null.
+     * @param <T>
+     *      The type of the representation.
+     * @return
+     *      The representation.
+     */
+    public static <T> T describeApplicationFromClassFiles(final Iterable<String> resourceClassNames, final ClassLoader classFileLoader,
+                                                          final RepresentationBuilder<?> representationBuilder, final DescriptionStatistics statistics) {
 
-        return (T) representationBuilder.buildRepresentationFor(resourceClasses);
+        return describe(new ResourceClassesLoader() {
+            @Override
+            public Set<ResourceClass> load() {
+                return loadResourcesFromClassFiles(resourceClassNames, classFileLoader, statistics);
+            }
+        }, representationBuilder, statistics);
     }
 
     /**
@@ -82,6 +134,46 @@ public final class RestDescriber {
         return (T) representationBuilder.buildRepresentationFor(resourceClass);
     }
 
+    private static <T> T describe(final Iterable<Class<?>> rawResourceClasses, final RepresentationBuilder<?> representationBuilder,
+                                  final DescriptionStatistics statistics) {
+
+        return describe(new ResourceClassesLoader() {
+            @Override
+            public Set<ResourceClass> load() {
+                return loadResources(rawResourceClasses, statistics);
+            }
+        }, representationBuilder, statistics);
+    }
+
+    /**
+     * Loads the raw model and builds the representation from it - recording the time taken by each into the statistics, if
+     * any.
+     */
+    private static <T> T describe(final ResourceClassesLoader resourceClassesLoader, final RepresentationBuilder<?> representationBuilder,
+                                  final DescriptionStatistics statistics) {
+
+        logLoadingHeader();
+
+        long start = System.nanoTime();
+
+        final Set<ResourceClass> resourceClasses = resourceClassesLoader.load();
+
+        if (statistics != null) {
+            statistics.recordPhase(DescriptionStatistics.Phase.LOAD, System.nanoTime() - start);
+            start = System.nanoTime();
+        }
+
+        logCreatingRepresentationHeader();
+
+        final T result = (T) representationBuilder.buildRepresentationFor(resourceClasses);
+
+        if (statistics != null) {
+            statistics.recordPhase(DescriptionStatistics.Phase.BUILD, System.nanoTime() - start);
+        }
+
+        return result;
+    }
+
     private static void logCreatingRepresentationHeader() {
         LOGGER.info(StringUtils.repeat("=", UNDERLINE_LENGTH));
         LOGGER.info("Creating representation...");
@@ -94,15 +186,23 @@ public final class RestDescriber {
         LOGGER.info(StringUtils.repeat("=", UNDERLINE_LENGTH));
     }
 
-    private static Set<ResourceClass> loadResources(final Iterable<Class<?>> classes) {
+    private static Set<ResourceClass> loadResources(final Iterable<Class<?>> classes, final DescriptionStatistics statistics) {
 
         final Set<ResourceClass> results = new HashSet<ResourceClass>();
+        final Set<ResourceClass> recorded = Collections.newSetFromMap(new IdentityHashMap<ResourceClass, Boolean>());
 
         final ResourceClassLoader loader = new ResourceClassLoader();
 
         for (Class<?> clazz : classes) {
+            final long start = System.nanoTime();
+
             final ResourceClass resource = loader.loadResourceClassFrom(clazz);
 
+            if (statistics != null) {
+                statistics.recordClassIntrospected(clazz.getName(), System.nanoTime() - start);
+                recordLoaded(resource, statistics, recorded);
+            }
+
             if (resource != null) {
                 results.add(resource);
             }
@@ -110,4 +210,61 @@ public final class RestDescriber {
 
         return results;
     }
+
+    private static Set<ResourceClass> loadResourcesFromClassFiles(final Iterable<String> classNames, final ClassLoader classFileLoader,
+                                                                  final DescriptionStatistics statistics) {
+
+        final Set<ResourceClass> results = new HashSet<ResourceClass>();
+        final Set<ResourceClass> recorded = Collections.newSetFromMap(new IdentityHashMap<ResourceClass, Boolean>());
+
+        final ClassFileResourceClassLoader loader = new ClassFileResourceClassLoader(classFileLoader);
+
+        for (String className : classNames) {
+            if (!loader.isConcreteClass(className)) {
+                continue;
+            }
+
+            final long start = System.nanoTime();
+
+            final ResourceClass resource = loader.loadResourceClassFrom(className);
+
+            if (statistics != null) {
+                statistics.recordClassIntrospected(className, System.nanoTime() - start);
+                recordLoaded(resource, statistics, recorded);
+            }
+
+            if (resource != null) {
+                results.add(resource);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Records a resource class and the sub-resource classes reached from it - each once per description, since
+     * sub-resource classes are loaded once and shared between the locators that return them.
+     */
+    private static void recordLoaded(final ResourceClass resource, final DescriptionStatistics statistics, final Set<ResourceClass> visited) {
+
+        if ((resource == null) || !visited.add(resource)) {
+            return;
+        }
+
+        statistics.recordResourceLoaded(resource.getMethods().size());
+
+        for (ResourceClassMethod method : resource.getMethods()) {
+            if (method instanceof SubResourceLocator) {
+                recordLoaded(((SubResourceLocator) method).getSubResource(), statistics, visited);
+            }
+        }
+    }
+
+    /**
+     * Loads the raw model of an application one way or another.
+     */
+    private interface ResourceClassesLoader {
+
+        Set<ResourceClass> load();
+    }
 }
@@ -30,6 +30,7 @@ public final class Parameter {
 
     private final String name;
     private final Class<?> type;
+    private final String typeName;
     private final Class<? extends Annotation> jaxRsAnnotationType;
 
     /**
@@ -45,17 +46,70 @@ public final class Parameter {
     public Parameter(final String name, final Class<? extends Annotation> jaxRsAnnotationType, final Class<?> type) {
         this.name = name;
         this.type = type;
+        this.typeName = type == null ? null : typeNameOf(type);
         this.jaxRsAnnotationType = jaxRsAnnotationType;
     }
 
+    private Parameter(final String name, final Class<? extends Annotation> jaxRsAnnotationType, final String typeName) {
+        this.name = name;
+        this.type = null;
+        this.typeName = typeName;
+        this.jaxRsAnnotationType = jaxRsAnnotationType;
+    }
+
+    /**
+     * Creates a parameter read from a class file - i.e. without the Java type having been loaded.
+     *
+     * @param name
+     *      The name of the parameter - i.e. how it is referred to in the JAX-RS annotation.
+     * @param jaxRsAnnotationType
+     *      The type of the JAX-RS annotation used to identify this parameter.
+     * @param typeName
+     *      The name of the Java type of the parameter - as returned by {@link #getTypeName()}.
+     */
+    public static Parameter fromClassFile(final String name, final Class<? extends Annotation> jaxRsAnnotationType, final String typeName) {
+        return new Parameter(name, jaxRsAnnotationType, typeName);
+    }
+
+    /**
+     * The name of a Java type as returned by {@link #getTypeName()}.
+     */
+    public static String typeNameOf(final Class<?> type) {
+        return type.isArray() ? typeNameOf(type.getComponentType()) + "[]" : type.getName();
+    }
+
+    /**
+     * The simple name of a Java type from its name as returned by {@link #getTypeName()} - the same as
+     * {@link Class#getSimpleName()} for all but local and anonymous classes.
+     */
+    public static String simpleTypeNameOf(final String typeName) {
+        return typeName.substring(Math.max(typeName.lastIndexOf('.'), typeName.lastIndexOf('$')) + 1);
+    }
+
     public String getName() {
         return name;
     }
 
-    public Class<?>  getType() {
+    /**
+     * The Java type of the parameter or null if the parameter was read from a class file.
+     */
+    public Class<?> getType() {
         return type;
     }
 
+    /**
+     * The fully-qualified name of the Java type of the parameter - with nested classes named as by {@link Class#getName()}
+     * and arrays named as in source code; e.g. <code>int</code>, <code>java.lang.String[]</code> or
+     * <code>com.example.Outer$Inner</code>.
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public String getTypeSimpleName() {
+        return simpleTypeNameOf(typeName);
+    }
+
     public Class<? extends Annotation> getJaxRsAnnotationType() {
         return jaxRsAnnotationType;
     }
@@ -15,15 +15,20 @@
  */
 package com.kelveden.rastajax.core.raw;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents the raw data from a <a href="http://jsr311.java.net/">JAX-RS</a>  resource.
+ * <p>
+ * Instances - along with their methods, parameters and sub-resources - are immutable: every field is final and the lists
+ * passed in are copied. A resource class can therefore be cached and then read by many threads without synchronization.
  */
 public final class ResourceClass {
 
     private final Class<?> rawClass;
+    private final String className;
     private final String uriTemplate;
     private final List<ResourceClassMethod> methods;
     private final List<String> consumes;
@@ -31,17 +36,25 @@ public final class ResourceClass {
     private final List<Parameter> fields;
 
     public ResourceClass(final Class<?> rawClass, final String uriTemplate, final List<ResourceClassMethod> methods, final List<String> consumes, final List<String> produces, final List<Parameter> fields) {
+        this(rawClass, rawClass.getName(), uriTemplate, methods, consumes, produces, fields);
+    }
+
+    private ResourceClass(final Class<?> rawClass, final String className, final String uriTemplate, final List<ResourceClassMethod> methods, final List<String> consumes, final List<String> produces, final List<Parameter> fields) {
         this.rawClass = rawClass;
+        this.className = className;
         this.uriTemplate = uriTemplate;
 
-        for (ResourceClassMethod method : methods) {
-            method.setResourceClass(this);
-        }
+        this.methods = Collections.unmodifiableList(new ArrayList<ResourceClassMethod>(methods));
+        this.consumes = Collections.unmodifiableList(new ArrayList<String>(consumes));
+        this.produces = Collections.unmodifiableList(new ArrayList<String>(produces));
+        this.fields = Collections.unmodifiableList(new ArrayList<Parameter>(fields));
+    }
 
-        this.methods = Collections.unmodifiableList(methods);
-        this.consumes = Collections.unmodifiableList(consumes);
-        this.produces = Collections.unmodifiableList(produces);
-        this.fields = Collections.unmodifiableList(fields);
+    /**
+     * Creates a resource class read from a class file - i.e. without the class having been loaded.
+     */
+    public static ResourceClass fromClassFile(final String className, final String uriTemplate, final List<ResourceClassMethod> methods, final List<String> consumes, final List<String> produces, final List<Parameter> fields) {
+        return new ResourceClass(null, className, uriTemplate, methods, consumes, produces, fields);
     }
 
     public String getUriTemplate() {
@@ -64,10 +77,20 @@ public final class ResourceClass {
         return (uriTemplate != null) && (methods.size() > 0) ;
     }
 
+    /**
+     * The class or null if the resource class was read from a class file.
+     */
     public Class<?> getRawClass() {
         return rawClass;
     }
 
+    /**
+     * The fully-qualified name of the class - as returned by {@link Class#getName()}.
+     */
+    public String getClassName() {
+        return className;
+    }
+
     public List<Parameter> getFields() {
         return fields;
     }
@@ -15,11 +15,15 @@
  */
 package com.kelveden.rastajax.core.raw;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 /**
  * Represents a <a href="http://jsr311.java.net/">JAX-RS</a>  resource method, sub-resource method or sub-resource locator on a {@link ResourceClass}.
+ * <p>
+ * Instances are immutable. A method does not refer back to the resource class that declares it so the same method can
+ * appear on several resource classes.
  */
 public abstract class ResourceClassMethod {
 
@@ -27,13 +31,12 @@ public abstract class ResourceClassMethod {
     private final List<String> consumes;
     private final List<String> produces;
     private final List<Parameter> parameters;
-    private ResourceClass resourceClass;
 
     protected ResourceClassMethod(final String name, final List<String> consumes, final List<String> produces, final List<Parameter> parameters) {
         this.name = name;
-        this.consumes = Collections.unmodifiableList(consumes);
-        this.produces = Collections.unmodifiableList(produces);
-        this.parameters = Collections.unmodifiableList(parameters);
+        this.consumes = Collections.unmodifiableList(new ArrayList<String>(consumes));
+        this.produces = Collections.unmodifiableList(new ArrayList<String>(produces));
+        this.parameters = Collections.unmodifiableList(new ArrayList<Parameter>(parameters));
     }
 
     public String getName() {
@@ -51,12 +54,4 @@ public abstract class ResourceClassMethod {
     public List<Parameter> getParameters() {
         return parameters;
     }
-
-    public ResourceClass getResourceClass() {
-        return resourceClass;
-    }
-
-    void setResourceClass(final ResourceClass resourceClass) {
-        this.resourceClass = resourceClass;
-    }
 }
@@ -24,19 +24,46 @@ public final class ResourceMethod extends ResourceClassMethod {
 
     private final String requestMethodDesignator;
     private final Class<?> returnType;
+    private final String returnTypeName;
 
     public ResourceMethod(final String name, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final Class<?> returnType) {
         super(name, consumes, produces, parameters);
 
         this.requestMethodDesignator = requestMethodDesignator;
         this.returnType = returnType;
+        this.returnTypeName = returnType == null ? null : Parameter.typeNameOf(returnType);
+    }
+
+    private ResourceMethod(final String name, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final String returnTypeName) {
+        super(name, consumes, produces, parameters);
+
+        this.requestMethodDesignator = requestMethodDesignator;
+        this.returnType = null;
+        this.returnTypeName = returnTypeName;
+    }
+
+    /**
+     * Creates a resource method read from a class file - i.e. without its return type having been loaded.
+     */
+    public static ResourceMethod fromClassFile(final String name, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final String returnTypeName) {
+        return new ResourceMethod(name, requestMethodDesignator, consumes, produces, parameters, returnTypeName);
     }
 
     public String getRequestMethodDesignator() {
         return requestMethodDesignator;
     }
 
+    /**
+     * The return type or null if the method was read from a class file.
+     */
     public Class<?> getReturnType() {
         return returnType;
     }
+
+    /**
+     * The name of the return type - as returned by {@link Parameter#getTypeName()}.
+     */
+    public String getReturnTypeName() {
+        return returnTypeName;
+    }
 }
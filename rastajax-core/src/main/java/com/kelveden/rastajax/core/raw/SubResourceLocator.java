@@ -20,7 +20,7 @@ import java.util.List;
 /**
  * {@link ResourceClassMethod} representing a <a href="http://jsr311.java.net/">JAX-RS</a>  sub-resource locator.
  */
-public class SubResourceLocator extends ResourceClassMethod {
+public final class SubResourceLocator extends ResourceClassMethod {
 
     private final String uriTemplate;
     private final ResourceClass subResource;
@@ -25,6 +25,7 @@ public final class SubResourceMethod extends ResourceClassMethod {
     private final String uriTemplate;
     private final String requestMethodDesignator;
     private final Class<?> returnType;
+    private final String returnTypeName;
 
     public SubResourceMethod(final String name, final String uriTemplate, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final Class<?> returnType) {
         super(name, consumes, produces, parameters);
@@ -32,6 +33,23 @@ public final class SubResourceMethod extends ResourceClassMethod {
         this.uriTemplate = uriTemplate;
         this.requestMethodDesignator = requestMethodDesignator;
         this.returnType = returnType;
+        this.returnTypeName = returnType == null ? null : Parameter.typeNameOf(returnType);
+    }
+
+    private SubResourceMethod(final String name, final String uriTemplate, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final String returnTypeName) {
+        super(name, consumes, produces, parameters);
+
+        this.uriTemplate = uriTemplate;
+        this.requestMethodDesignator = requestMethodDesignator;
+        this.returnType = null;
+        this.returnTypeName = returnTypeName;
+    }
+
+    /**
+     * Creates a sub-resource method read from a class file - i.e. without its return type having been loaded.
+     */
+    public static SubResourceMethod fromClassFile(final String name, final String uriTemplate, final String requestMethodDesignator, final List<String> consumes, final List<String> produces, final List<Parameter> parameters, final String returnTypeName) {
+        return new SubResourceMethod(name, uriTemplate, requestMethodDesignator, consumes, produces, parameters, returnTypeName);
     }
 
     public String getUriTemplate() {
@@ -42,7 +60,17 @@ public final class SubResourceMethod extends ResourceClassMethod {
         return requestMethodDesignator;
     }
 
+    /**
+     * The return type or null if the method was read from a class file.
+     */
     public Class<?> getReturnType() {
         return returnType;
     }
+
+    /**
+     * The name of the return type - as returned by {@link Parameter#getTypeName()}.
+     */
+    public String getReturnTypeName() {
+        return returnTypeName;
+    }
 }
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import com.kelveden.rastajax.core.raw.*;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.QueryParam;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class ClassFileResourceClassLoaderTest {
+
+    private DynamicClassCompiler compiler = null;
+    private File workingFolder;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Before
+    public void before() throws IOException {
+        workingFolder = tempFolder.newFolder();
+        compiler = new DynamicClassCompiler(workingFolder);
+    }
+
+    @Test
+    public void resourceClassIsLoadedAsFromTheClass() throws IOException {
+
+        // Given
+        final String subResourceSource =
+                "import javax.ws.rs.*;" +
+                        "public class SubResourceClass {" +
+                        "@GET @Produces({\"text/plain\", \"text/html\"}) public String get(@HeaderParam(\"h\") long h) { return null; }" +
+                        "}";
+
+        final String source =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"orders\") @Consumes(\"application/json\") " +
+                        "public class someClass {" +
+                        "@QueryParam(\"field\") public String field;" +
+                        "@GET public String[] list(@QueryParam(\"q\") String q, @PathParam(\"p\") int[] p, String body) { return null; }" +
+                        "@POST @Path(\"{id}\") @Produces(\"application/json\") public void update(@FormParam(\"f\") java.util.List<String> f) {}" +
+                        "@Path(\"sub\") public SubResourceClass locate(@MatrixParam(\"m\") Integer m) { return null; }" +
+                        "public void notAResourceMethod() {}" +
+                        "}";
+
+        final Class<?> compiledClass = compiler.compileFromSource(subResourceSource, source);
+
+        // When
+        final ResourceClass fromClass = new ResourceClassLoader().loadResourceClassFrom(compiledClass);
+        final ResourceClass fromClassFile = new ClassFileResourceClassLoader(classFilesOnlyLoader()).loadResourceClassFrom(compiledClass.getName());
+
+        // Then
+        assertThat(fromClassFile.getRawClass(), nullValue());
+        assertThat(describe(fromClassFile), is(describe(fromClass)));
+        assertThat(describe(fromClassFile), containsString("list GET [] [] [QueryParam q java.lang.String, PathParam p int[]] java.lang.String[]"));
+    }
+
+    @Test
+    public void annotationsAreInheritedFromSuperTypes() throws IOException {
+
+        // Given
+        final String interfaceSource =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"things\") public interface SomeInterface {" +
+                        "@GET String get(@QueryParam(\"q\") String q);" +
+                        "}";
+
+        final String superClassSource =
+                "import javax.ws.rs.*;" +
+                        "public abstract class SomeSuperClass {" +
+                        "@DELETE public void delete() {}" +
+                        "}";
+
+        final String source =
+                "public class someClass extends SomeSuperClass implements SomeInterface {" +
+                        "public String get(String q) { return null; }" +
+                        "public void delete() {}" +
+                        "}";
+
+        final Class<?> compiledClass = compiler.compileFromSource(interfaceSource, superClassSource, source);
+
+        // When
+        final ResourceClass fromClassFile = new ClassFileResourceClassLoader(classFilesOnlyLoader()).loadResourceClassFrom(compiledClass.getName());
+
+        // Then
+        assertThat(fromClassFile.getUriTemplate(), is("things"));
+        assertThat(describe(fromClassFile), is(describe(new ResourceClassLoader().loadResourceClassFrom(compiledClass))));
+    }
+
+    @Test
+    public void resourceClassWithMissingDependencyIsLoaded() throws IOException {
+
+        // Given
+        final String dependencySource =
+                "public class Dependency {" +
+                        "public static Dependency valueOf(String value) { return null; }" +
+                        "}";
+
+        final String source =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"orders\") public class someClass {" +
+                        "@GET public String get(@QueryParam(\"d\") Dependency d) { return null; }" +
+                        "}";
+
+        compiler.compileFromSource(dependencySource, source);
+
+        assertThat(new File(workingFolder, "Dependency.class").delete(), is(true));
+
+        // When
+        final ResourceClass fromClassFile = new ClassFileResourceClassLoader(classFilesOnlyLoader()).loadResourceClassFrom("someClass");
+
+        // Then
+        assertThat(fromClassFile.getMethods(), hasSize(1));
+        assertThat(fromClassFile.getMethods().get(0).getParameters().get(0).getTypeName(), is("Dependency"));
+    }
+
+    @Test
+    public void cycleOfSubResourceLocatorsIsBroken() throws IOException {
+
+        // Given
+        final String source =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"nodes\") public class someClass {" +
+                        "@GET public String get() { return null; }" +
+                        "@Path(\"child\") public someClass child() { return null; }" +
+                        "}";
+
+        compiler.compileFromSource(source);
+
+        // When
+        final ResourceClass fromClassFile = new ClassFileResourceClassLoader(classFilesOnlyLoader()).loadResourceClassFrom("someClass");
+
+        // Then
+        assertThat(fromClassFile.getMethods(), hasSize(2));
+        assertThat(describe(fromClassFile), containsString("child child [] [] [] null"));
+    }
+
+    @Test
+    public void classWithoutClassFileIsNotLoaded() throws IOException {
+
+        final ClassFileResourceClassLoader loader = new ClassFileResourceClassLoader(classFilesOnlyLoader());
+
+        assertThat(loader.loadResourceClassFrom("NoSuchClass"), nullValue());
+        assertThat(loader.isConcreteClass("NoSuchClass"), is(false));
+    }
+
+    @Test
+    public void parameterTypesAreNamedAsInSource() {
+
+        assertThat(new Parameter("p", QueryParam.class, String[][].class).getTypeName(), is("java.lang.String[][]"));
+        assertThat(new Parameter("p", HeaderParam.class, Map.Entry.class).getTypeSimpleName(), is("Entry"));
+        assertThat(Parameter.fromClassFile("p", HeaderParam.class, "long[]").getTypeSimpleName(), is("long[]"));
+    }
+
+    /**
+     * A class loader of the compiled class files that fails if any of them is loaded as a class.
+     */
+    private ClassLoader classFilesOnlyLoader() throws IOException {
+
+        return new URLClassLoader(new URL[] { workingFolder.toURI().toURL() }, getClass().getClassLoader()) {
+            @Override
+            protected Class<?> findClass(final String name) throws ClassNotFoundException {
+                throw new AssertionError("Class " + name + " was loaded.");
+            }
+        };
+    }
+
+    private static String describe(final ResourceClass resourceClass) {
+
+        if (resourceClass == null) {
+            return "null";
+        }
+
+        final List<String> methods = new ArrayList<String>();
+
+        for (ResourceClassMethod method : resourceClass.getMethods()) {
+            final StringBuilder description = new StringBuilder(method.getName());
+
+            if (method instanceof ResourceMethod) {
+                description.append(' ').append(((ResourceMethod) method).getRequestMethodDesignator());
+            } else if (method instanceof SubResourceMethod) {
+                description.append(' ').append(((SubResourceMethod) method).getUriTemplate()).append(' ').append(((SubResourceMethod) method).getRequestMethodDesignator());
+            } else {
+                description.append(' ').append(((SubResourceLocator) method).getUriTemplate());
+            }
+
+            description.append(' ').append(method.getConsumes()).append(' ').append(method.getProduces()).append(' ').append(describe(method.getParameters()));
+
+            if (method instanceof ResourceMethod) {
+                description.append(' ').append(((ResourceMethod) method).getReturnTypeName());
+            } else if (method instanceof SubResourceMethod) {
+                description.append(' ').append(((SubResourceMethod) method).getReturnTypeName());
+            } else {
+                description.append(' ').append(describe(((SubResourceLocator) method).getSubResource()));
+            }
+
+            methods.add(description.toString());
+        }
+
+        Collections.sort(methods);
+
+        return resourceClass.getClassName() + " " + resourceClass.getUriTemplate() + " " + resourceClass.getConsumes() + " " + resourceClass.getProduces()
+                + " " + describe(resourceClass.getFields()) + " " + methods;
+    }
+
+    private static String describe(final List<Parameter> parameters) {
+
+        final List<String> result = new ArrayList<String>();
+
+        for (Parameter parameter : parameters) {
+            result.add(parameter.getJaxRsAnnotationType().getSimpleName() + " " + parameter.getName() + " " + parameter.getTypeName());
+        }
+
+        return result.toString();
+    }
+}
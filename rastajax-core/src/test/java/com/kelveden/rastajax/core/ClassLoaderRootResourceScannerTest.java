@@ -16,6 +16,9 @@
 package com.kelveden.rastajax.core;
 
 import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import com.kelveden.rastajax.corpus.Corpus;
+import com.kelveden.rastajax.corpus.CorpusGenerator;
+import com.kelveden.rastajax.corpus.CorpusSpecification;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -26,6 +29,8 @@ import java.util.Set;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 
 
@@ -67,6 +72,30 @@ public class ClassLoaderRootResourceScannerTest {
         assertThat(results.size(), is(3));
     }
 
+    @Test
+    public void allRootResourceClassesInPackageSpreadOverManyJarsAreScanned() throws IOException {
+
+        // Given
+        final Corpus corpus = CorpusGenerator.generate(new CorpusSpecification()
+                .withRootResources(500)
+                .withLocatorDepth(2)
+                .withInterfaceHierarchyDepth(3)
+                .withJars(10)
+                .withFillerClassesPerArchive(200));
+
+        try {
+            // When
+            final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(corpus.getClassLoader(), corpus.getPackageName());
+            final Set<Class<?>> results = scanner.scan();
+
+            // Then
+            assertThat(results.size(), is(500));
+
+        } finally {
+            corpus.delete();
+        }
+    }
+
     @Test
     public void allRootResourceClassesInMultiplePackagesAreScanned() throws IOException {
 
@@ -102,6 +131,30 @@ public class ClassLoaderRootResourceScannerTest {
         assertThat(results.iterator().next().getSimpleName(), is("RootResourceClass"));
     }
 
+    @Test
+    public void scanIsRecordedInStatistics() throws IOException {
+
+        // Given
+        final String source1 = "package package1; import javax.ws.rs.*; @Path(\"some/path1\") public class RootResourceClass { }";
+        final String source2 = "package package1; public class NotARootResourceClass { }";
+        final String source3 = "package package1; public class AnotherNonRootResourceClass { }";
+
+        compiler.compileFromSource(source1, source2, source3);
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+
+        // When
+        new ClassLoaderRootResourceScanner(compiler.getClassLoader(), "package1").withStatistics(statistics).scan();
+
+        // Then
+        assertThat(statistics.getArchivesOpened(), is(1L));
+        assertThat(statistics.getClassesInspected(), is(3L));
+        assertThat(statistics.getClassesPruned(), is(2L));
+        assertThat(statistics.getBytesRead(), greaterThan(0L));
+        assertThat(statistics.getArchives(), hasSize(1));
+        assertThat(statistics.getArchives().get(0).getBytesRead(), is(statistics.getBytesRead()));
+    }
+
     @Test
     public void rootResourceAnnotatedAtInterfaceLevelIsNotScanned() throws IOException {
 
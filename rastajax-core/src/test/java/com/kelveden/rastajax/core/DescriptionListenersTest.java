@@ -0,0 +1,174 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import com.kelveden.rastajax.core.raw.ResourceClass;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.QueryParam;
+import java.lang.reflect.Member;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DescriptionListenersTest {
+
+    private final List<DescriptionListener> registered = new ArrayList<DescriptionListener>();
+
+    @After
+    public void unregisterListeners() {
+
+        for (DescriptionListener listener : registered) {
+            DescriptionListeners.unregister(listener);
+        }
+    }
+
+    @Test
+    public void registeredListenerIsNotifiedOfResourceClassLoadWithItsOwnContext() {
+
+        // Given
+        final RecordingListener listener = register(new RecordingListener("first"));
+
+        // When
+        new ResourceClassLoader().loadResourceClassFrom(DummyResource.class);
+
+        // Then
+        assertThat(listener.notifications, hasItem("resourceClassLoadStarted " + DummyResource.class.getName()));
+        assertThat(listener.notifications, hasItem("resourceClassLoadFinished first " + DummyResource.class.getName() + " resource"));
+    }
+
+    @Test
+    public void registeredListenerIsNotifiedOfAnnotationScrapesWithinResourceClassLoad() {
+
+        // Given
+        final RecordingListener listener = register(new RecordingListener("first"));
+
+        // When
+        new ResourceClassLoader().loadResourceClassFrom(DummyResource.class);
+
+        // Then
+        assertThat(listener.notifications.get(0), is("resourceClassLoadStarted " + DummyResource.class.getName()));
+        assertThat(listener.notifications, hasItem("annotationScrapeFinished first " + DummyResource.class.getName() + " null -1 1"));
+        assertThat(listener.notifications, hasItem("annotationScrapeFinished first " + DummyResource.class.getName() + " get 0 1"));
+        assertThat(listener.notifications.get(listener.notifications.size() - 1), startsWith("resourceClassLoadFinished"));
+    }
+
+    @Test
+    public void everyRegisteredListenerIsNotifiedWithItsOwnContext() {
+
+        // Given
+        final RecordingListener first = register(new RecordingListener("first"));
+        final RecordingListener second = register(new RecordingListener("second"));
+
+        // When
+        new ResourceClassLoader().loadResourceClassFrom(String.class);
+
+        // Then
+        assertThat(first.notifications, hasItem("resourceClassLoadFinished first " + String.class.getName() + " not a resource"));
+        assertThat(second.notifications, hasItem("resourceClassLoadFinished second " + String.class.getName() + " not a resource"));
+    }
+
+    @Test
+    public void unregisteredListenerIsNotNotified() {
+
+        // Given
+        final RecordingListener listener = register(new RecordingListener("first"));
+        DescriptionListeners.unregister(listener);
+
+        // When
+        new ResourceClassLoader().loadResourceClassFrom(DummyResource.class);
+
+        // Then
+        assertThat(listener.notifications, empty());
+    }
+
+    private <T extends DescriptionListener> T register(final T listener) {
+
+        DescriptionListeners.register(listener);
+        registered.add(listener);
+
+        return listener;
+    }
+
+    @Path("dummy")
+    public static final class DummyResource {
+
+        @GET
+        public String get(@QueryParam("q") final String q) {
+            return q;
+        }
+    }
+
+    private static final class RecordingListener implements DescriptionListener {
+
+        private final String context;
+        private final List<String> notifications = new ArrayList<String>();
+
+        RecordingListener(final String context) {
+            this.context = context;
+        }
+
+        @Override
+        public Object archiveScanStarted(final URL archive) {
+            notifications.add("archiveScanStarted " + archive);
+            return context;
+        }
+
+        @Override
+        public void archiveScanFinished(final Object context, final URL archive, final int classesInspected, final long bytesRead) {
+            notifications.add("archiveScanFinished " + context + " " + archive + " " + classesInspected + " " + bytesRead);
+        }
+
+        @Override
+        public Object resourceClassLoadStarted(final Class<?> candidateClass) {
+            notifications.add("resourceClassLoadStarted " + candidateClass.getName());
+            return context;
+        }
+
+        @Override
+        public void resourceClassLoadFinished(final Object context, final Class<?> candidateClass, final ResourceClass resourceClass) {
+            notifications.add("resourceClassLoadFinished " + context + " " + candidateClass.getName() + (resourceClass == null ? " not a resource" : " resource"));
+        }
+
+        @Override
+        public Object annotationScrapeStarted(final Class<?> clazz, final Member member, final int parameterIndex) {
+            notifications.add("annotationScrapeStarted " + clazz.getName());
+            return context;
+        }
+
+        @Override
+        public void annotationScrapeFinished(final Object context, final Class<?> clazz, final Member member, final int parameterIndex, final int annotationCount) {
+            notifications.add("annotationScrapeFinished " + context + " " + clazz.getName() + " " + (member == null ? null : member.getName()) + " " + parameterIndex + " " + annotationCount);
+        }
+
+        @Override
+        public Object representationBuildStarted(final Class<?> builderClass, final int rootResourceCount) {
+            notifications.add("representationBuildStarted " + builderClass.getName());
+            return context;
+        }
+
+        @Override
+        public void representationBuildFinished(final Object context, final Class<?> builderClass, final int resourceCount, final int endpointCount) {
+            notifications.add("representationBuildFinished " + context);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DescriptionStatisticsTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void phaseTimesAccumulate() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+
+        statistics.recordPhase(DescriptionStatistics.Phase.LOAD, TimeUnit.MILLISECONDS.toNanos(3));
+        statistics.recordPhase(DescriptionStatistics.Phase.LOAD, TimeUnit.MILLISECONDS.toNanos(4));
+
+        assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.LOAD, TimeUnit.MILLISECONDS), is(7L));
+        assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.SCAN, TimeUnit.MILLISECONDS), is(0L));
+    }
+
+    @Test
+    public void onlyTheSlowestClassesAreKeptSlowestFirst() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics(2);
+
+        statistics.recordClassIntrospected("Fast", 1);
+        statistics.recordClassIntrospected("Slowest", 30);
+        statistics.recordClassIntrospected("Medium", 10);
+        statistics.recordClassIntrospected("Slow", 20);
+
+        assertThat(statistics.getSlowestClasses(), hasSize(2));
+        assertThat(statistics.getSlowestClasses().get(0).getClassName(), is("Slowest"));
+        assertThat(statistics.getSlowestClasses().get(1).getClassName(), is("Slow"));
+    }
+
+    @Test
+    public void archivesAreListedSlowestFirstWithRepeatedScansAccumulated() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+
+        statistics.recordArchiveScanned("file:/fast.jar", 100, 1);
+        statistics.recordArchiveScanned("file:/slow.jar", 200, 20);
+        statistics.recordArchiveScanned("file:/fast.jar", 100, 30);
+
+        assertThat(statistics.getArchives(), hasSize(2));
+        assertThat(statistics.getArchives().get(0).getArchiveUrl(), is("file:/fast.jar"));
+        assertThat(statistics.getArchives().get(0).getBytesRead(), is(200L));
+        assertThat(statistics.getArchives().get(0).getTime(TimeUnit.NANOSECONDS), is(31L));
+        assertThat(statistics.getArchives().get(1).getArchiveUrl(), is("file:/slow.jar"));
+    }
+
+    @Test
+    public void cacheHitRateIsProportionOfLookupsThatHit() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+
+        statistics.recordCacheMiss("cache");
+        statistics.recordCacheHit("cache");
+        statistics.recordCacheHit("cache");
+        statistics.recordCacheHit("cache");
+
+        assertThat(statistics.getCacheNames(), contains("cache"));
+        assertThat(statistics.getCacheHits("cache"), is(3L));
+        assertThat(statistics.getCacheMisses("cache"), is(1L));
+        assertThat(statistics.getCacheHitRate("cache"), is(0.75));
+    }
+
+    @Test
+    public void cacheHitRateIsZeroForCacheWithNoLookups() {
+        assertThat(new DescriptionStatistics().getCacheHitRate("cache"), is(0.0));
+    }
+
+    @Test
+    public void resourcesAndMethodsAreCounted() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+
+        statistics.recordResourceLoaded(3);
+        statistics.recordResourceLoaded(2);
+
+        assertThat(statistics.getResourcesLoaded(), is(2L));
+        assertThat(statistics.getMethodsFound(), is(5L));
+    }
+
+    @Test
+    public void negativeNumberOfSlowestClassesIsRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        new DescriptionStatistics(-1);
+    }
+}
@@ -63,6 +63,63 @@ public class ResourceClassLoaderTest {
         MatcherAssert.assertThat(resource, notNullValue());
     }
 
+    @Test
+    public void subResourceClassReachedThroughManyLocatorsIsLoadedOnce() {
+
+        // Given
+        final String subResourceSource =
+                "import javax.ws.rs.*;" +
+                        "public class SubResourceClass {" +
+                        "@GET public Object doSomething() { return null; }" +
+                        "}";
+
+        final String source =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"root\") public class someClass {" +
+                        "@Path(\"a\") public SubResourceClass a() { return null; }" +
+                        "@Path(\"b\") public SubResourceClass b() { return null; }" +
+                        "}";
+
+        final Class<?> compiledClass = compiler.compileFromSource(subResourceSource, source);
+
+        // When
+        final ResourceClassLoader loader = new ResourceClassLoader();
+        final ResourceClass resource = loader.loadResourceClassFrom(compiledClass);
+
+        // Then
+        final ResourceClass subResource = ((SubResourceLocator) resource.getMethods().get(0)).getSubResource();
+
+        assertThat(subResource, notNullValue());
+        assertThat(((SubResourceLocator) resource.getMethods().get(1)).getSubResource(), sameInstance(subResource));
+        assertThat(loader.loadResourceClassFrom(compiledClass), sameInstance(resource));
+    }
+
+    @Test
+    public void cycleOfSubResourceLocatorsIsBroken() {
+
+        // Given
+        final String source =
+                "import javax.ws.rs.*;" +
+                        "@Path(\"nodes\") public class someClass {" +
+                        "@GET public String get() { return null; }" +
+                        "@Path(\"child\") public someClass child() { return null; }" +
+                        "}";
+
+        final Class<?> compiledClass = compiler.compileFromSource(source);
+
+        // When
+        final ResourceClass resource = new ResourceClassLoader().loadResourceClassFrom(compiledClass);
+
+        // Then
+        assertThat(resource.getMethods(), hasSize(2));
+
+        for (Object method : resource.getMethods()) {
+            if (method instanceof SubResourceLocator) {
+                assertThat(((SubResourceLocator) method).getSubResource(), nullValue());
+            }
+        }
+    }
+
     @Test
     public void classWithMethodDecoratedWithPathIsResource() {
 
@@ -66,11 +66,37 @@ public class ResourceClassTest {
     }
 
     @Test
-    public void methodsAreAssignedResourceClass() {
+    public void methodsAreCopied() {
 
-        final ResourceClass resource = new ResourceClass(DUMMY_RESOURCE_CLASS, DUMMY_PATH, Arrays.asList(dummyMethod()), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+        final List<ResourceClassMethod> methods = new ArrayList<ResourceClassMethod>(Arrays.asList(dummyMethod()));
+        final ResourceClass resource = new ResourceClass(DUMMY_RESOURCE_CLASS, DUMMY_PATH, methods, DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
 
-        assertThat(resource.getMethods().get(0).getResourceClass(), sameInstance(resource));
+        methods.add(dummyMethod());
+
+        assertThat(resource.getMethods(), hasSize(1));
+    }
+
+    @Test
+    public void methodCanBeSharedBetweenResourceClasses() {
+
+        final ResourceClassMethod method = dummyMethod();
+
+        final ResourceClass resource1 = new ResourceClass(DUMMY_RESOURCE_CLASS, DUMMY_PATH, Arrays.asList(method), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+        final ResourceClass resource2 = new ResourceClass(Integer.class, "otherpath", Arrays.asList(method), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+
+        assertThat(resource1.getMethods().get(0), sameInstance(method));
+        assertThat(resource2.getMethods().get(0), sameInstance(method));
+    }
+
+    @Test
+    public void fieldsAreCopied() {
+
+        final List<Parameter> fields = new ArrayList<Parameter>(Arrays.asList(dummyParameter()));
+        final ResourceClass resource = new ResourceClass(DUMMY_RESOURCE_CLASS, DUMMY_PATH, DUMMY_METHODs, DUMMY_CONSUMES, DUMMY_PRODUCES, fields);
+
+        fields.clear();
+
+        assertThat(resource.getFields(), hasSize(1));
     }
 
     @Test
@@ -0,0 +1,146 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.corpus;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A synthetic JAX-RS application generated by {@link CorpusGenerator}: a set of jars - or a single class directory - on
+ * disk.
+ */
+public final class Corpus {
+
+    private final CorpusSpecification specification;
+    private final File directory;
+    private final List<File> archives;
+    private ClassLoader classLoader;
+
+    Corpus(final CorpusSpecification specification, final File directory, final List<File> archives) {
+        this.specification = specification;
+        this.directory = directory;
+        this.archives = Collections.unmodifiableList(archives);
+    }
+
+    public CorpusSpecification getSpecification() {
+        return specification;
+    }
+
+    /**
+     * The directory containing the jars or the class directory.
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * The jars or the class directory - i.e. the classpath of the application.
+     */
+    public List<File> getArchives() {
+        return archives;
+    }
+
+    public String getPackageName() {
+        return specification.getPackageName();
+    }
+
+    /**
+     * The fully-qualified names of the root resource classes in the order that they were generated.
+     */
+    public List<String> getRootResourceClassNames() {
+
+        final List<String> result = new ArrayList<String>();
+
+        for (int i = 0; i < specification.getRootResourceCount(); i++) {
+            result.add(specification.getPackageName() + "." + CorpusGenerator.rootResourceClassName(i));
+        }
+
+        return result;
+    }
+
+    /**
+     * A class loader for the application. JAX-RS classes are delegated to the class loader that loaded this class so that
+     * the annotations of the generated classes are the ones on the caller's classpath. The same class loader is returned
+     * on each call.
+     */
+    public synchronized ClassLoader getClassLoader() {
+
+        if (classLoader == null) {
+            final URL[] urls = new URL[archives.size()];
+
+            try {
+                for (int i = 0; i < urls.length; i++) {
+                    urls[i] = archives.get(i).toURI().toURL();
+                }
+            } catch (final MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+
+            classLoader = new URLClassLoader(urls, Corpus.class.getClassLoader());
+        }
+
+        return classLoader;
+    }
+
+    /**
+     * Loads the root resource classes from {@link #getClassLoader()}.
+     */
+    public List<Class<?>> loadRootResourceClasses() {
+
+        final List<Class<?>> result = new ArrayList<Class<?>>();
+
+        try {
+            for (String className : getRootResourceClassNames()) {
+                result.add(getClassLoader().loadClass(className));
+            }
+        } catch (final ClassNotFoundException e) {
+            throw new IllegalStateException("Generated class is missing from the corpus.", e);
+        }
+
+        return result;
+    }
+
+    /**
+     * Deletes the generated files.
+     */
+    public void delete() {
+        delete(directory);
+    }
+
+    private static void delete(final File file) {
+
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Corpus of " + specification + " in " + directory;
+    }
+}
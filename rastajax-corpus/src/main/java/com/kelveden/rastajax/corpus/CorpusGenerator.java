@@ -0,0 +1,393 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.corpus;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import javax.ws.rs.Path;
+import java.io.*;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * Generates synthetic JAX-RS applications of a given {@link CorpusSpecification shape} for scale testing and benchmarking.
+ * The application is generated as source, compiled with the system Java compiler - so a JDK rather than a JRE is needed -
+ * and then packaged into jars if any were asked for.
+ */
+public final class CorpusGenerator {
+
+    private static final String SOURCE_DIRECTORY = "src";
+    private static final String CLASSES_DIRECTORY = "classes";
+    private static final String CLASS_FILE_EXTENSION = ".class";
+
+    private CorpusGenerator() {
+    }
+
+    /**
+     * Generates an application in a new temporary directory.
+     */
+    public static Corpus generate(final CorpusSpecification specification) throws IOException {
+
+        final File directory = File.createTempFile("rastajax-corpus", "");
+        if (!directory.delete()) {
+            throw new IOException("Could not create directory " + directory + ".");
+        }
+
+        return generate(specification, directory);
+    }
+
+    /**
+     * Generates an application in the specified directory, which is created if it does not exist.
+     */
+    public static Corpus generate(final CorpusSpecification specification, final File directory) throws IOException {
+
+        final File sourceDirectory = new File(directory, SOURCE_DIRECTORY);
+        final File classesDirectory = new File(directory, CLASSES_DIRECTORY);
+
+        mkdirs(classesDirectory);
+
+        final List<File> sourceFiles = new Sources(specification, sourceDirectory).write();
+
+        compile(classesDirectory, sourceFiles);
+        delete(sourceDirectory);
+
+        final List<File> archives = new ArrayList<File>();
+
+        if (specification.getJarCount() == 0) {
+            archives.add(classesDirectory);
+
+        } else {
+            final File packageDirectory = new File(classesDirectory, toPath(specification.getPackageName()));
+
+            for (int archive = 0; archive < specification.getJarCount(); archive++) {
+                final File jar = new File(directory, "corpus-" + archive + ".jar");
+                writeJar(jar, specification, packageDirectory, archive);
+                archives.add(jar);
+            }
+
+            delete(classesDirectory);
+        }
+
+        return new Corpus(specification, directory, archives);
+    }
+
+    static String rootResourceClassName(final int index) {
+        return "Resource" + index;
+    }
+
+    static String subResourceClassName(final int level) {
+        return "SubResource" + level;
+    }
+
+    static String fillerClassName(final int archive, final int index) {
+        return "Filler" + archive + "x" + index;
+    }
+
+    static String interfaceName(final int level, final char side) {
+        return level == 0 ? "Api0" : "Api" + level + side;
+    }
+
+    /**
+     * The archive that a generated class goes in: the shared sub-resource classes and interfaces go in the first archive
+     * and the root resources are dealt out across all of them.
+     */
+    static int archiveOf(final String simpleClassName, final CorpusSpecification specification) {
+
+        if (simpleClassName.startsWith("Resource")) {
+            return Integer.parseInt(simpleClassName.substring("Resource".length())) % specification.getArchiveCount();
+
+        } else if (simpleClassName.startsWith("Filler")) {
+            return Integer.parseInt(simpleClassName.substring("Filler".length(), simpleClassName.indexOf('x')));
+
+        } else {
+            return 0;
+        }
+    }
+
+    private static void writeJar(final File jar, final CorpusSpecification specification, final File packageDirectory, final int archive) throws IOException {
+
+        final Manifest manifest = new Manifest();
+        manifest.getMainAttributes().putValue("Manifest-Version", "1.0");
+
+        final JarOutputStream output = new JarOutputStream(new BufferedOutputStream(new FileOutputStream(jar)), manifest);
+
+        try {
+            // Directory entries are needed for the package to be found by ClassLoader.getResources.
+            final String packagePath = toPath(specification.getPackageName()).replace(File.separatorChar, '/');
+
+            int slash = packagePath.indexOf('/');
+            while (slash >= 0) {
+                output.putNextEntry(new JarEntry(packagePath.substring(0, slash + 1)));
+                output.closeEntry();
+                slash = packagePath.indexOf('/', slash + 1);
+            }
+            output.putNextEntry(new JarEntry(packagePath + "/"));
+            output.closeEntry();
+
+            final File[] classFiles = packageDirectory.listFiles();
+            Arrays.sort(classFiles);
+
+            for (File classFile : classFiles) {
+                final String simpleClassName = classFile.getName().substring(0, classFile.getName().length() - CLASS_FILE_EXTENSION.length());
+
+                if (archiveOf(simpleClassName.split("\\$")[0], specification) == archive) {
+                    output.putNextEntry(new JarEntry(packagePath + "/" + classFile.getName()));
+                    copy(classFile, output);
+                    output.closeEntry();
+                }
+            }
+
+        } finally {
+            output.close();
+        }
+    }
+
+    private static void copy(final File file, final OutputStream output) throws IOException {
+
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) >= 0) {
+                output.write(buffer, 0, read);
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static void compile(final File outputDirectory, final List<File> sourceFiles) throws IOException {
+
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new IllegalStateException("No Java compiler is available - generate corpora on a JDK rather than a JRE.");
+        }
+
+        final StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+
+        try {
+            final List<String> options = Arrays.asList("-d", outputDirectory.getAbsolutePath(), "-classpath", jaxRsClasspath(), "-proc:none", "-nowarn");
+
+            if (!compiler.getTask(null, fileManager, null, options, null, fileManager.getJavaFileObjectsFromFiles(sourceFiles)).call()) {
+                throw new IllegalStateException("Failed to compile the generated corpus.");
+            }
+
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private static String jaxRsClasspath() throws IOException {
+
+        try {
+            return new File(Path.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getAbsolutePath();
+        } catch (final URISyntaxException e) {
+            throw new IOException("Could not locate the JAX-RS API: " + e.getMessage());
+        }
+    }
+
+    private static String toPath(final String packageName) {
+        return packageName.replace('.', File.separatorChar);
+    }
+
+    private static void mkdirs(final File directory) throws IOException {
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory + ".");
+        }
+    }
+
+    private static void delete(final File file) {
+
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+
+        if (!file.delete()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Writes the source files of an application.
+     */
+    private static final class Sources {
+
+        private final CorpusSpecification specification;
+        private final File packageDirectory;
+        private final List<File> files = new ArrayList<File>();
+
+        Sources(final CorpusSpecification specification, final File sourceDirectory) {
+            this.specification = specification;
+            this.packageDirectory = new File(sourceDirectory, toPath(specification.getPackageName()));
+        }
+
+        List<File> write() throws IOException {
+
+            mkdirs(packageDirectory);
+
+            for (int level = 0; level <= specification.getInterfaceHierarchyDepth() && specification.getInterfaceHierarchyDepth() > 0; level++) {
+                writeInterface(level, 'A');
+                if (level > 0) {
+                    writeInterface(level, 'B');
+                }
+            }
+
+            for (int level = 1; level <= specification.getLocatorDepth(); level++) {
+                writeSubResource(level);
+            }
+
+            for (int i = 0; i < specification.getRootResourceCount(); i++) {
+                writeRootResource(i);
+            }
+
+            for (int archive = 0; archive < specification.getArchiveCount(); archive++) {
+                for (int i = 0; i < specification.getFillerClassesPerArchive(); i++) {
+                    writeFiller(archive, i);
+                }
+            }
+
+            return files;
+        }
+
+        private void writeInterface(final int level, final char side) throws IOException {
+
+            final String name = interfaceName(level, side);
+            final StringBuilder source = header().append("public interface ").append(name);
+
+            if (level == 1) {
+                source.append(" extends ").append(interfaceName(0, side));
+            } else if (level > 1) {
+                source.append(" extends ").append(interfaceName(level - 1, 'A')).append(", ").append(interfaceName(level - 1, 'B'));
+            }
+
+            final String methodName = methodNameOf(name);
+
+            source.append(" {\n")
+                    .append("    @GET @Path(\"").append(methodName).append("\") @Produces(\"text/plain\") String ").append(methodName).append("();\n")
+                    .append("}\n");
+
+            write(name, source);
+        }
+
+        private void writeSubResource(final int level) throws IOException {
+
+            final String name = subResourceClassName(level);
+            final StringBuilder source = header()
+                    .append("@Produces(\"application/json\")\n")
+                    .append("public class ").append(name).append(" {\n")
+                    .append("    @GET public String get() { return null; }\n")
+                    .append("    @GET @Path(\"{id").append(level).append("}\") public String item(@PathParam(\"id").append(level).append("\") String id) { return null; }\n");
+
+            if (level < specification.getLocatorDepth()) {
+                for (int child = 0; child < specification.getLocatorFanOut(); child++) {
+                    source.append("    @Path(\"child").append(child).append("\") public ").append(subResourceClassName(level + 1))
+                            .append(" child").append(child).append("() { return null; }\n");
+                }
+            }
+
+            write(name, source.append("}\n"));
+        }
+
+        private void writeRootResource(final int index) throws IOException {
+
+            final String name = rootResourceClassName(index);
+            final int interfaceHierarchyDepth = specification.getInterfaceHierarchyDepth();
+
+            final StringBuilder source = header()
+                    .append("@Path(\"resource").append(index).append("\")\n")
+                    .append("@Produces(\"application/json, application/xml\")\n")
+                    .append("public class ").append(name);
+
+            if (interfaceHierarchyDepth > 0) {
+                source.append(" implements ").append(interfaceName(interfaceHierarchyDepth, 'A')).append(", ").append(interfaceName(interfaceHierarchyDepth, 'B'));
+            }
+
+            source.append(" {\n")
+                    .append("    @HeaderParam(\"X-Tenant\") private String tenant;\n")
+                    .append("    @GET public String list(@QueryParam(\"limit\") int limit, @QueryParam(\"offset\") int offset) { return null; }\n")
+                    .append("    @GET @Path(\"{id}\") public String get(@PathParam(\"id\") long id) { return null; }\n")
+                    .append("    @POST @Consumes(\"application/json\") public String create(String body) { return null; }\n")
+                    .append("    @DELETE @Path(\"{id}\") public void delete(@PathParam(\"id\") long id) { }\n");
+
+            if (specification.getLocatorDepth() > 0) {
+                for (int child = 0; child < specification.getLocatorFanOut(); child++) {
+                    source.append("    @Path(\"{id}/child").append(child).append("\") public ").append(subResourceClassName(1))
+                            .append(" child").append(child).append("(@PathParam(\"id\") long id) { return null; }\n");
+                }
+            }
+
+            for (int level = 0; level <= interfaceHierarchyDepth && interfaceHierarchyDepth > 0; level++) {
+                source.append("    public String ").append(methodNameOf(interfaceName(level, 'A'))).append("() { return null; }\n");
+                if (level > 0) {
+                    source.append("    public String ").append(methodNameOf(interfaceName(level, 'B'))).append("() { return null; }\n");
+                }
+            }
+
+            write(name, source.append("}\n"));
+        }
+
+        private void writeFiller(final int archive, final int index) throws IOException {
+
+            final String name = fillerClassName(archive, index);
+            final StringBuilder source = header()
+                    .append("public class ").append(name).append(" implements java.io.Serializable {\n")
+                    .append("    private long id;\n")
+                    .append("    private String name;\n")
+                    .append("    public long getId() { return id; }\n")
+                    .append("    public String getName() { return name; }\n")
+                    // No string concatenation as newer compilers turn it into invokedynamic, which older bytecode readers reject.
+                    .append("    @Override public String toString() { return new StringBuilder(name).append(\" (\").append(id).append(')').toString(); }\n")
+                    .append("}\n");
+
+            write(name, source);
+        }
+
+        private StringBuilder header() {
+            return new StringBuilder("package ").append(specification.getPackageName()).append(";\n")
+                    .append("import javax.ws.rs.*;\n");
+        }
+
+        private static String methodNameOf(final String interfaceName) {
+            return interfaceName.toLowerCase(Locale.ENGLISH);
+        }
+
+        private void write(final String className, final CharSequence source) throws IOException {
+
+            final File file = new File(packageDirectory, className + ".java");
+            final Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+
+            try {
+                writer.append(source);
+            } finally {
+                writer.close();
+            }
+
+            files.add(file);
+        }
+    }
+}
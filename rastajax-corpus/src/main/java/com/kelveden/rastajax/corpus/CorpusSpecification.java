@@ -0,0 +1,160 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.corpus;
+
+/**
+ * The shape of a synthetic JAX-RS application to be generated by {@link CorpusGenerator}.
+ * <p>
+ * Every root resource has four resource methods of its own. On top of that:
+ * <ul>
+ *     <li>with a locator depth greater than zero, each root resource has {@link #getLocatorFanOut() fan-out} sub-resource
+ *     locators to a chain of sub-resource classes shared by all root resources - each of which has two resource methods
+ *     and, above the deepest level, fan-out sub-resource locators to the next level down;</li>
+ *     <li>with an interface hierarchy depth greater than zero, each root resource implements the top of a diamond-shaped
+ *     hierarchy of annotated interfaces - one interface at the bottom and two at each level above it, each extending both
+ *     interfaces of the level below - and so inherits a resource method from every interface in it.</li>
+ * </ul>
+ * The classes are spread over a number of jars - or written to a single class directory if there are none - each of
+ * which also gets a number of plain, non-resource filler classes.
+ */
+public final class CorpusSpecification {
+
+    private int rootResourceCount = 100;
+    private int locatorDepth;
+    private int locatorFanOut = 1;
+    private int interfaceHierarchyDepth;
+    private int jarCount;
+    private int fillerClassesPerArchive;
+    private String packageName = "com.kelveden.rastajax.corpus.generated";
+
+    public CorpusSpecification withRootResources(final int rootResourceCount) {
+        this.rootResourceCount = atLeast(0, rootResourceCount, "root resource count");
+        return this;
+    }
+
+    public CorpusSpecification withLocatorDepth(final int locatorDepth) {
+        this.locatorDepth = atLeast(0, locatorDepth, "locator depth");
+        return this;
+    }
+
+    public CorpusSpecification withLocatorFanOut(final int locatorFanOut) {
+        this.locatorFanOut = atLeast(1, locatorFanOut, "locator fan-out");
+        return this;
+    }
+
+    public CorpusSpecification withInterfaceHierarchyDepth(final int interfaceHierarchyDepth) {
+        this.interfaceHierarchyDepth = atLeast(0, interfaceHierarchyDepth, "interface hierarchy depth");
+        return this;
+    }
+
+    /**
+     * Sets the number of jars to spread the classes over. Zero - the default - writes them to a single class directory
+     * instead.
+     */
+    public CorpusSpecification withJars(final int jarCount) {
+        this.jarCount = atLeast(0, jarCount, "jar count");
+        return this;
+    }
+
+    /**
+     * Sets the number of filler classes in each jar - or in the class directory if there are no jars.
+     */
+    public CorpusSpecification withFillerClassesPerArchive(final int fillerClassesPerArchive) {
+        this.fillerClassesPerArchive = atLeast(0, fillerClassesPerArchive, "filler class count");
+        return this;
+    }
+
+    public CorpusSpecification withPackageName(final String packageName) {
+        this.packageName = packageName;
+        return this;
+    }
+
+    public int getRootResourceCount() {
+        return rootResourceCount;
+    }
+
+    public int getLocatorDepth() {
+        return locatorDepth;
+    }
+
+    public int getLocatorFanOut() {
+        return locatorFanOut;
+    }
+
+    public int getInterfaceHierarchyDepth() {
+        return interfaceHierarchyDepth;
+    }
+
+    public int getJarCount() {
+        return jarCount;
+    }
+
+    /**
+     * The number of archives that the classes are spread over - i.e. the number of jars or, if there are none, the one
+     * class directory.
+     */
+    public int getArchiveCount() {
+        return Math.max(jarCount, 1);
+    }
+
+    public int getFillerClassesPerArchive() {
+        return fillerClassesPerArchive;
+    }
+
+    public String getPackageName() {
+        return packageName;
+    }
+
+    /**
+     * The number of resource methods reachable from each root resource - i.e. the number of endpoints that each root
+     * resource contributes once sub-resource locators are followed.
+     */
+    public long getEndpointsPerRootResource() {
+
+        long endpointsPerSubResource = 0;
+        for (int level = locatorDepth; level >= 1; level--) {
+            endpointsPerSubResource = 2 + (level < locatorDepth ? locatorFanOut * endpointsPerSubResource : 0);
+        }
+
+        final long inherited = interfaceHierarchyDepth > 0 ? 1 + 2 * interfaceHierarchyDepth : 0;
+
+        return 4 + inherited + (locatorDepth > 0 ? locatorFanOut * endpointsPerSubResource : 0);
+    }
+
+    /**
+     * The total number of classes generated, including interfaces and filler classes.
+     */
+    public int getClassCount() {
+        return rootResourceCount + locatorDepth + (interfaceHierarchyDepth > 0 ? 1 + 2 * interfaceHierarchyDepth : 0)
+                + getArchiveCount() * fillerClassesPerArchive;
+    }
+
+    @Override
+    public String toString() {
+        return rootResourceCount + " root resources, locator depth " + locatorDepth + ", locator fan-out " + locatorFanOut
+                + ", interface hierarchy depth " + interfaceHierarchyDepth + ", " + jarCount + " jars, "
+                + fillerClassesPerArchive + " filler classes per archive";
+    }
+
+    private static int atLeast(final int minimum, final int value, final String description) {
+
+        if (value < minimum) {
+            throw new IllegalArgumentException("The " + description + " must be at least " + minimum + ".");
+        }
+
+        return value;
+    }
+}
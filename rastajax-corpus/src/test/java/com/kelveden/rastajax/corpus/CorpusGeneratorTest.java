@@ -0,0 +1,134 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.corpus;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import javax.ws.rs.Path;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class CorpusGeneratorTest {
+
+    private Corpus corpus;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @After
+    public void after() {
+        if (corpus != null) {
+            corpus.delete();
+        }
+    }
+
+    @Test
+    public void classesAreWrittenToASingleClassDirectoryIfThereAreNoJars() throws IOException {
+
+        corpus = CorpusGenerator.generate(new CorpusSpecification().withRootResources(3).withFillerClassesPerArchive(2));
+
+        assertThat(corpus.getArchives().size(), is(1));
+        assertThat(corpus.getArchives().get(0).isDirectory(), is(true));
+
+        final File packageDirectory = new File(corpus.getArchives().get(0), corpus.getPackageName().replace('.', File.separatorChar));
+        assertThat(Arrays.asList(packageDirectory.list()), containsInAnyOrder("Resource0.class", "Resource1.class", "Resource2.class", "Filler0x0.class", "Filler0x1.class"));
+    }
+
+    @Test
+    public void rootResourcesAreDealtOutAcrossJarsWithSharedClassesInTheFirst() throws IOException {
+
+        corpus = CorpusGenerator.generate(new CorpusSpecification()
+                .withRootResources(5)
+                .withLocatorDepth(2)
+                .withInterfaceHierarchyDepth(1)
+                .withJars(2)
+                .withFillerClassesPerArchive(1));
+
+        assertThat(corpus.getArchives().size(), is(2));
+        assertThat(classNamesIn(corpus.getArchives().get(0)), containsInAnyOrder(
+                "Resource0", "Resource2", "Resource4", "SubResource1", "SubResource2", "Api0", "Api1A", "Api1B", "Filler0x0"));
+        assertThat(classNamesIn(corpus.getArchives().get(1)), containsInAnyOrder("Resource1", "Resource3", "Filler1x0"));
+        assertThat(corpus.getSpecification().getClassCount(), is(12));
+    }
+
+    @Test
+    public void rootResourceClassesCanBeLoaded() throws IOException {
+
+        corpus = CorpusGenerator.generate(new CorpusSpecification().withRootResources(4).withInterfaceHierarchyDepth(2).withJars(3));
+
+        final List<Class<?>> rootResourceClasses = corpus.loadRootResourceClasses();
+
+        assertThat(rootResourceClasses.size(), is(4));
+        for (Class<?> rootResourceClass : rootResourceClasses) {
+            assertThat(rootResourceClass.getAnnotation(Path.class), notNullValue());
+            assertThat(rootResourceClass.getInterfaces().length, is(2));
+        }
+    }
+
+    @Test
+    public void endpointsPerRootResourceAccountForLocatorsAndInheritedMethods() {
+
+        assertThat(new CorpusSpecification().getEndpointsPerRootResource(), is(4L));
+        assertThat(new CorpusSpecification().withInterfaceHierarchyDepth(3).getEndpointsPerRootResource(), is(4L + 7L));
+        assertThat(new CorpusSpecification().withLocatorDepth(1).withLocatorFanOut(3).getEndpointsPerRootResource(), is(4L + 3 * 2L));
+        assertThat(new CorpusSpecification().withLocatorDepth(3).withLocatorFanOut(2).getEndpointsPerRootResource(), is(4L + 2 * (2 + 2 * (2 + 2 * 2L))));
+    }
+
+    @Test
+    public void negativeCountsAreRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        new CorpusSpecification().withLocatorDepth(-1);
+    }
+
+    @Test
+    public void locatorFanOutMustBeAtLeastOne() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        new CorpusSpecification().withLocatorFanOut(0);
+    }
+
+    private static Set<String> classNamesIn(final File jar) throws IOException {
+
+        final Set<String> result = new HashSet<String>();
+        final JarFile jarFile = new JarFile(jar);
+
+        try {
+            final Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+                final String name = entries.nextElement().getName();
+                if (name.endsWith(".class")) {
+                    result.add(name.substring(name.lastIndexOf('/') + 1, name.length() - ".class".length()));
+                }
+            }
+        } finally {
+            jarFile.close();
+        }
+
+        return result;
+    }
+}
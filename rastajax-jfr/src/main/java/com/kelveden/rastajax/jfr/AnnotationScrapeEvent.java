@@ -0,0 +1,50 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The scraping of the JAX-RS annotations of a class or of one of its methods, fields or method parameters. There are
+ * many of these so they are best recorded with a threshold.
+ */
+@Name("com.kelveden.rastajax.AnnotationScrape")
+@Label("Annotation Scrape")
+@Description("Scraping of the JAX-RS annotations of a class, method, field or method parameter and of its super-types")
+@Category("Rastajax")
+@Enabled(false)
+@StackTrace(false)
+class AnnotationScrapeEvent extends jdk.jfr.Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Member")
+    @Description("The method or field; null for the class itself")
+    String member;
+
+    @Label("Parameter Index")
+    @Description("The index of the method parameter; -1 if not a parameter")
+    int parameterIndex;
+
+    @Label("Annotations")
+    int annotationCount;
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The scan of a jar or class directory for root resource classes.
+ */
+@Name("com.kelveden.rastajax.ArchiveScan")
+@Label("Archive Scan")
+@Description("Scan of a jar or class directory for root resource classes")
+@Category("Rastajax")
+@Enabled(false)
+@StackTrace(false)
+class ArchiveScanEvent extends jdk.jfr.Event {
+
+    @Label("Archive")
+    String archive;
+
+    @Label("Classes Inspected")
+    int classesInspected;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+}
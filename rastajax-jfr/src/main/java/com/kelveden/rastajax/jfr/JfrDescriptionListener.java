@@ -0,0 +1,162 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import com.kelveden.rastajax.core.DescriptionListener;
+import com.kelveden.rastajax.core.raw.ResourceClass;
+
+import java.lang.reflect.Member;
+import java.net.URL;
+
+/**
+ * {@link DescriptionListener} that records the units of work as Java Flight Recorder events. Registered through
+ * <code>META-INF/services</code> so that having this module on the class path is enough.
+ * <p>
+ * All the events are disabled by default; enable them in a recording settings file or with, e.g.,
+ * <code>-XX:StartFlightRecording:settings=rastajax.jfc</code>. While an event is disabled, reporting a unit of work costs next to nothing.
+ */
+public final class JfrDescriptionListener implements DescriptionListener {
+
+    @Override
+    public Object archiveScanStarted(final URL archive) {
+
+        final ArchiveScanEvent event = new ArchiveScanEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void archiveScanFinished(final Object context, final URL archive, final int classesInspected, final long bytesRead) {
+
+        if (context == null) {
+            return;
+        }
+
+        final ArchiveScanEvent event = (ArchiveScanEvent) context;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.archive = archive.toString();
+            event.classesInspected = classesInspected;
+            event.bytesRead = bytesRead;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object resourceClassLoadStarted(final Class<?> candidateClass) {
+
+        final ResourceClassLoadEvent event = new ResourceClassLoadEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void resourceClassLoadFinished(final Object context, final Class<?> candidateClass, final ResourceClass resourceClass) {
+
+        if (context == null) {
+            return;
+        }
+
+        final ResourceClassLoadEvent event = (ResourceClassLoadEvent) context;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.className = candidateClass.getName();
+            event.resourceClass = resourceClass != null;
+            event.resourceMethodCount = resourceClass == null ? 0 : resourceClass.getMethods().size();
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object annotationScrapeStarted(final Class<?> clazz, final Member member, final int parameterIndex) {
+
+        final AnnotationScrapeEvent event = new AnnotationScrapeEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void annotationScrapeFinished(final Object context, final Class<?> clazz, final Member member, final int parameterIndex, final int annotationCount) {
+
+        if (context == null) {
+            return;
+        }
+
+        final AnnotationScrapeEvent event = (AnnotationScrapeEvent) context;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.className = clazz.getName();
+            event.member = member == null ? null : member.getName();
+            event.parameterIndex = parameterIndex;
+            event.annotationCount = annotationCount;
+            event.commit();
+        }
+    }
+
+    @Override
+    public Object representationBuildStarted(final Class<?> builderClass, final int rootResourceCount) {
+
+        final RepresentationBuildEvent event = new RepresentationBuildEvent();
+
+        if (!event.isEnabled()) {
+            return null;
+        }
+
+        event.rootResourceCount = rootResourceCount;
+        event.begin();
+
+        return event;
+    }
+
+    @Override
+    public void representationBuildFinished(final Object context, final Class<?> builderClass, final int resourceCount, final int endpointCount) {
+
+        if (context == null) {
+            return;
+        }
+
+        final RepresentationBuildEvent event = (RepresentationBuildEvent) context;
+        event.end();
+
+        if (event.shouldCommit()) {
+            event.builder = builderClass.getName();
+            event.resourceCount = resourceCount;
+            event.endpointCount = endpointCount;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The building of a representation from loaded resource classes.
+ */
+@Name("com.kelveden.rastajax.RepresentationBuild")
+@Label("Representation Build")
+@Description("Building of a representation of a REST application from its loaded resource classes")
+@Category("Rastajax")
+@Enabled(false)
+@StackTrace(false)
+class RepresentationBuildEvent extends jdk.jfr.Event {
+
+    @Label("Builder")
+    String builder;
+
+    @Label("Root Resources")
+    int rootResourceCount;
+
+    @Label("Resources")
+    int resourceCount;
+
+    @Label("Endpoints")
+    int endpointCount;
+}
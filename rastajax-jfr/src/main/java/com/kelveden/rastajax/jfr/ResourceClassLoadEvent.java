@@ -0,0 +1,46 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The loading of a class as a resource class - including the loading of any sub-resource classes that it locates.
+ */
+@Name("com.kelveden.rastajax.ResourceClassLoad")
+@Label("Resource Class Load")
+@Description("Loading of a class as a JAX-RS resource class, including the sub-resource classes that it locates")
+@Category("Rastajax")
+@Enabled(false)
+@StackTrace(false)
+class ResourceClassLoadEvent extends jdk.jfr.Event {
+
+    @Label("Class Name")
+    String className;
+
+    @Label("Resource Class")
+    @Description("Whether the class turned out to be a resource class")
+    boolean resourceClass;
+
+    @Label("Resource Methods")
+    @Description("The number of resource methods and sub-resource locators on the class")
+    int resourceMethodCount;
+}
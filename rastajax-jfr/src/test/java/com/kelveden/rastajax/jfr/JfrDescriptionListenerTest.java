@@ -0,0 +1,164 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.jfr;
+
+import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import com.kelveden.rastajax.core.DescriptionListeners;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.corpus.Corpus;
+import com.kelveden.rastajax.corpus.CorpusGenerator;
+import com.kelveden.rastajax.corpus.CorpusSpecification;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class JfrDescriptionListenerTest {
+
+    private static Corpus corpus;
+
+    @BeforeClass
+    public static void generateCorpus() throws IOException {
+
+        corpus = CorpusGenerator.generate(new CorpusSpecification()
+                .withRootResources(10)
+                .withLocatorDepth(1)
+                .withJars(2));
+    }
+
+    @AfterClass
+    public static void deleteCorpus() {
+        corpus.delete();
+    }
+
+    @Test
+    public void listenerIsRegisteredFromTheClassPath() throws IOException {
+
+        // When
+        final Object context = DescriptionListeners.get().archiveScanStarted(corpus.getArchives().get(0).toURI().toURL());
+
+        // Then
+        assertThat(DescriptionListeners.get(), instanceOf(JfrDescriptionListener.class));
+        assertThat(context, nullValue());
+    }
+
+    @Test
+    public void nothingIsRecordedWhileEventsAreDisabled() throws IOException {
+
+        // Given
+        final JfrDescriptionListener listener = new JfrDescriptionListener();
+
+        // When
+        final Object archiveScanContext = listener.archiveScanStarted(corpus.getArchives().get(0).toURI().toURL());
+        final Object resourceClassLoadContext = listener.resourceClassLoadStarted(String.class);
+        final Object annotationScrapeContext = listener.annotationScrapeStarted(String.class, null, -1);
+        final Object representationBuildContext = listener.representationBuildStarted(FlatRepresentationBuilder.class, 0);
+
+        // Then
+        assertThat(archiveScanContext, nullValue());
+        assertThat(resourceClassLoadContext, nullValue());
+        assertThat(annotationScrapeContext, nullValue());
+        assertThat(representationBuildContext, nullValue());
+    }
+
+    @Test
+    public void unitsOfWorkAreRecordedAsEventsWhenEnabled() throws IOException {
+
+        // Given
+        final List<RecordedEvent> events;
+        final Set<FlatResource> representation;
+
+        final Recording recording = new Recording();
+        try {
+            recording.enable(ArchiveScanEvent.class);
+            recording.enable(ResourceClassLoadEvent.class);
+            recording.enable(AnnotationScrapeEvent.class);
+            recording.enable(RepresentationBuildEvent.class);
+            recording.start();
+
+            // When
+            final Set<Class<?>> rootResourceClasses = new ClassLoaderRootResourceScanner(corpus.getClassLoader(), corpus.getPackageName()).scan();
+            representation = RestDescriber.describeApplication(rootResourceClasses, new FlatRepresentationBuilder());
+
+            recording.stop();
+
+            final File dump = File.createTempFile("rastajax", ".jfr");
+            try {
+                recording.dump(dump.toPath());
+                events = RecordingFile.readAllEvents(dump.toPath());
+            } finally {
+                dump.delete();
+            }
+
+        } finally {
+            recording.close();
+        }
+
+        // Then
+        final List<RecordedEvent> archiveScans = eventsNamed(events, "com.kelveden.rastajax.ArchiveScan");
+        assertThat(archiveScans, hasSize(corpus.getArchives().size()));
+
+        int classesInspected = 0;
+        for (RecordedEvent archiveScan : archiveScans) {
+            assertThat(archiveScan.getString("archive"), containsString(corpus.getDirectory().getName()));
+            assertThat(archiveScan.getLong("bytesRead"), greaterThan(0L));
+            classesInspected += archiveScan.getInt("classesInspected");
+        }
+        assertThat(classesInspected, is(corpus.getSpecification().getClassCount()));
+
+        final List<RecordedEvent> resourceClassLoads = eventsNamed(events, "com.kelveden.rastajax.ResourceClassLoad");
+        assertThat(resourceClassLoads.size(), greaterThanOrEqualTo(10));
+        for (RecordedEvent resourceClassLoad : resourceClassLoads) {
+            assertThat(resourceClassLoad.getString("className"), startsWith(corpus.getPackageName()));
+        }
+
+        final List<RecordedEvent> annotationScrapes = eventsNamed(events, "com.kelveden.rastajax.AnnotationScrape");
+        assertThat(annotationScrapes.size(), greaterThan(resourceClassLoads.size()));
+
+        final List<RecordedEvent> representationBuilds = eventsNamed(events, "com.kelveden.rastajax.RepresentationBuild");
+        assertThat(representationBuilds, hasSize(1));
+        assertThat(representationBuilds.get(0).getString("builder"), is(FlatRepresentationBuilder.class.getName()));
+        assertThat(representationBuilds.get(0).getInt("rootResourceCount"), is(10));
+        assertThat(representationBuilds.get(0).getInt("resourceCount"), is(representation.size()));
+        assertThat((long) representationBuilds.get(0).getInt("endpointCount"), is(10 * corpus.getSpecification().getEndpointsPerRootResource()));
+    }
+
+    private static List<RecordedEvent> eventsNamed(final List<RecordedEvent> events, final String name) {
+
+        final List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals(name)) {
+                result.add(event);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.maven;
+
+import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.DescriptionSnapshot;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes the REST application in the compiled classes of the project and saves the representation as a
+ * {@link DescriptionSnapshot} alongside them, so that it is packaged into the artifact and can be loaded at runtime
+ * rather than scanned.
+ *
+ * @goal snapshot
+ * @phase process-classes
+ * @requiresDependencyResolution runtime
+ * @threadSafe
+ */
+public class SnapshotMojo extends AbstractMojo {
+
+    /**
+     * The comma-separated API packages to scan.
+     *
+     * @parameter expression="${rastajax.packages}"
+     * @required
+     */
+    private String packages;
+
+    /**
+     * The directory containing the compiled classes - and that the snapshot is saved to.
+     *
+     * @parameter default-value="${project.build.outputDirectory}"
+     * @required
+     */
+    private File classesDirectory;
+
+    /**
+     * The runtime classpath of the project.
+     *
+     * @parameter default-value="${project.runtimeClasspathElements}"
+     * @required
+     * @readonly
+     */
+    private List<String> classpathElements;
+
+    /**
+     * Whether to skip saving the snapshot.
+     *
+     * @parameter expression="${rastajax.snapshot.skip}" default-value="false"
+     */
+    private boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+
+        if (skip) {
+            getLog().info("Skipping Rastajax description snapshot.");
+            return;
+        }
+
+        if (!classesDirectory.isDirectory()) {
+            getLog().info("No classes to describe in " + classesDirectory + ".");
+            return;
+        }
+
+        final long start = System.currentTimeMillis();
+        final String[] apiPackages = packages.split(",");
+
+        // The JAX-RS annotations must be loaded by the plugin's class loader - not the project's - so that Rastajax
+        // recognises them; which a parent-first class loader ensures.
+        final URLClassLoader classLoader = new URLClassLoader(toUrls(classpathElements), getClass().getClassLoader());
+
+        try {
+            final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(classLoader, apiPackages).allowInterfaceInheritance();
+
+            final Set<FlatResource> representation = RestDescriber.describeApplication(scanner.scan(), new FlatRepresentationBuilder());
+
+            DescriptionSnapshot.write(representation, apiPackages, classLoader, classesDirectory);
+
+            getLog().info("Saved Rastajax description snapshot of " + representation.size() + " resources in " + (System.currentTimeMillis() - start) + "ms.");
+
+        } catch (final IOException e) {
+            throw new MojoExecutionException("Could not save Rastajax description snapshot.", e);
+        }
+    }
+
+    private static URL[] toUrls(final List<String> classpathElements) throws MojoExecutionException {
+
+        final URL[] result = new URL[classpathElements.size()];
+
+        for (int i = 0; i < result.length; i++) {
+            try {
+                result[i] = new File(classpathElements.get(i)).toURI().toURL();
+
+            } catch (final MalformedURLException e) {
+                throw new MojoExecutionException("Invalid classpath element '" + classpathElements.get(i) + "'.", e);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+/**
+ * A single difference between the APIs described by two representations - see {@link RepresentationDiffer}.
+ */
+public final class ApiChange {
+
+    /**
+     * The kinds of change.
+     */
+    public enum Type {
+
+        /**
+         * A resource method that was not there before. Never breaking.
+         */
+        ENDPOINT_ADDED,
+
+        /**
+         * A resource method that is no longer there. Always breaking.
+         */
+        ENDPOINT_REMOVED,
+
+        /**
+         * A parameter that was not there before. Never breaking as JAX-RS parameters are optional.
+         */
+        PARAMETER_ADDED,
+
+        /**
+         * A parameter that is no longer there. Breaking - as clients sending it will now have it silently ignored - except
+         * for path parameters, which only disappear when renamed as the URI template is otherwise unchanged.
+         */
+        PARAMETER_REMOVED,
+
+        /**
+         * A parameter with a different Java type, which may reject values that used to be accepted. Always breaking.
+         */
+        PARAMETER_TYPE_CHANGED,
+
+        /**
+         * A media type that a resource method now consumes. Never breaking.
+         */
+        CONSUMES_ADDED,
+
+        /**
+         * A media type that a resource method no longer consumes. Breaking unless the media type is still included in a
+         * media range that the resource method consumes.
+         */
+        CONSUMES_REMOVED,
+
+        /**
+         * A media type that a resource method now produces. Never breaking.
+         */
+        PRODUCES_ADDED,
+
+        /**
+         * A media type that a resource method no longer produces. Breaking unless the media type is still included in a
+         * media range that the resource method produces.
+         */
+        PRODUCES_REMOVED
+    }
+
+    private final Type type;
+    private final String uriTemplate;
+    private final String requestMethodDesignator;
+    private final String subject;
+    private final String before;
+    private final String after;
+    private final boolean breaking;
+
+    ApiChange(final Type type, final String uriTemplate, final String requestMethodDesignator, final String subject, final String before, final String after, final boolean breaking) {
+        this.type = type;
+        this.uriTemplate = uriTemplate;
+        this.requestMethodDesignator = requestMethodDesignator;
+        this.subject = subject;
+        this.before = before;
+        this.after = after;
+        this.breaking = breaking;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * The URI template of the resource - as it is after the change, unless the endpoint was removed.
+     */
+    public String getUriTemplate() {
+        return uriTemplate;
+    }
+
+    /**
+     * The request method designator of the resource method or null for a sub-resource locator.
+     */
+    public String getRequestMethodDesignator() {
+        return requestMethodDesignator;
+    }
+
+    /**
+     * What changed: the parameter type and name (e.g. <code>queryParam limit</code>) for a parameter change; the media
+     * type for a media type change; or null for an endpoint change.
+     */
+    public String getSubject() {
+        return subject;
+    }
+
+    /**
+     * The value before the change - e.g. the Java type of a parameter - or null if there was none.
+     */
+    public String getBefore() {
+        return before;
+    }
+
+    /**
+     * The value after the change or null if there is none.
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * Whether existing clients may be broken by the change.
+     */
+    public boolean isBreaking() {
+        return breaking;
+    }
+
+    @Override
+    public String toString() {
+
+        final StringBuilder result = new StringBuilder(type.name()).append(' ').append(requestMethodDesignator).append(" '").append(uriTemplate).append('\'');
+
+        if (subject != null) {
+            result.append(": ").append(subject);
+        }
+
+        if ((before != null) && (after != null)) {
+            result.append(" (").append(before).append(" -> ").append(after).append(')');
+        }
+
+        if (breaking) {
+            result.append(" [breaking]");
+        }
+
+        return result.toString();
+    }
+}
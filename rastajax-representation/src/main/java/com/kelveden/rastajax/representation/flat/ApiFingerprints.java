@@ -0,0 +1,141 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.*;
+
+/**
+ * {@link Fingerprint}s of the parts of a representation that make up its API - i.e. excluding the names of the Java
+ * classes and methods that implement it - so that two representations can be compared without comparing every detail.
+ */
+final class ApiFingerprints {
+
+    private ApiFingerprints() {
+    }
+
+    /**
+     * The URI template in a form in which templates that match the same paths are equal - i.e. with the names of template
+     * variables removed but any regular expressions kept - and without leading or trailing slashes.
+     */
+    static String canonicalUriTemplate(final String uriTemplate) {
+
+        final StringBuilder result = new StringBuilder(uriTemplate.length());
+
+        int depth = 0;
+        boolean inName = false;
+
+        for (int i = 0; i < uriTemplate.length(); i++) {
+            final char c = uriTemplate.charAt(i);
+
+            if (c == '{') {
+                depth++;
+                if (depth == 1) {
+                    inName = true;
+                    result.append(c);
+                    continue;
+                }
+            } else if (c == '}') {
+                depth--;
+                inName = false;
+            } else if ((c == ':') && (depth == 1)) {
+                inName = false;
+            }
+
+            if (!inName) {
+                result.append(c);
+            }
+        }
+
+        int start = 0;
+        int end = result.length();
+        while ((start < end) && (result.charAt(start) == '/')) {
+            start++;
+        }
+        while ((end > start) && (result.charAt(end - 1) == '/')) {
+            end--;
+        }
+
+        return result.substring(start, end);
+    }
+
+    /**
+     * The media types of a <code>@Consumes</code> or <code>@Produces</code> in canonical form and sorted; no media types
+     * at all means any media type.
+     */
+    static SortedSet<String> canonicalMediaTypes(final List<String> mediaTypes) {
+
+        final SortedSet<String> result = new TreeSet<String>();
+
+        for (String mediaTypeList : mediaTypes) {
+            for (String mediaType : MediaType.splitList(mediaTypeList)) {
+                try {
+                    result.add(MediaType.valueOf(mediaType).toString());
+
+                } catch (final IllegalArgumentException e) {
+                    result.add(mediaType);
+                }
+            }
+        }
+
+        if (result.isEmpty()) {
+            result.add(MediaType.ANY.toString());
+        }
+
+        return result;
+    }
+
+    /**
+     * The parameters of a resource method as the Java types of the parameters keyed by parameter type and name; e.g.
+     * <code>queryParam limit</code> to <code>int</code>.
+     */
+    static SortedMap<String, String> canonicalParameters(final FlatResourceMethod resourceMethod) {
+
+        final SortedMap<String, String> result = new TreeMap<String, String>();
+
+        for (Map.Entry<String, List<FlatResourceMethodParameter>> parameters : resourceMethod.getParameters().entrySet()) {
+            for (FlatResourceMethodParameter parameter : parameters.getValue()) {
+                result.put(parameters.getKey() + " " + parameter.getName(), parameter.getType());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The fingerprint of the API of a resource method - its request method designator, parameters and media types. The
+     * fingerprints of the resource methods of a resource can be combined with a {@link Fingerprint.Combiner}.
+     */
+    static Fingerprint of(final FlatResourceMethod resourceMethod) {
+
+        final Fingerprint.Hasher result = new Fingerprint.Hasher().add(resourceMethod.getRequestMethodDesignator());
+
+        for (Map.Entry<String, String> parameter : canonicalParameters(resourceMethod).entrySet()) {
+            result.add(parameter.getKey()).add(parameter.getValue());
+        }
+
+        result.add("consumes");
+        for (String mediaType : canonicalMediaTypes(resourceMethod.getConsumes())) {
+            result.add(mediaType);
+        }
+
+        result.add("produces");
+        for (String mediaType : canonicalMediaTypes(resourceMethod.getProduces())) {
+            result.add(mediaType);
+        }
+
+        return result.toFingerprint();
+    }
+}
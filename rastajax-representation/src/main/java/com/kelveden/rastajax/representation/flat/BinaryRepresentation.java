@@ -0,0 +1,60 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+/**
+ * Constants of the compact binary encoding of a representation written by {@link BinaryRepresentationWriter} and read by
+ * {@link BinaryRepresentationReader}.
+ * <p>
+ * The encoding starts with the bytes <code>RJXB</code> and a format version and is followed by the resources, one after
+ * another, and a terminating zero. All integers are unsigned varints - seven bits per byte, least significant first -
+ * and every string is a reference into a string table that is built up as the stream is written: a reference of
+ * {@link #NEW_STRING} is followed by the length and UTF-8 bytes of a string that is added to the table; {@link #NULL_STRING}
+ * stands for null; and any other reference <code>r</code> is the string at index <code>r - 2</code> of the table. URI
+ * templates are stored as their path segments and resource class names as package and simple name, so that the many
+ * values that they share are only stored once. A resource is:
+ * <pre>
+ * segment count + 1, segment...
+ * resource method count, resource method...
+ * </pre>
+ * and a resource method is:
+ * <pre>
+ * name, request method designator, class package, class simple name,
+ * parameter type count, (parameter type, parameter count, (parameter name, parameter Java type)...)...,
+ * consumes count, consumes..., produces count, produces...
+ * </pre>
+ */
+final class BinaryRepresentation {
+
+    /**
+     * The media type of the encoding.
+     */
+    static final String MEDIA_TYPE = "application/vnd.rastajax+binary";
+
+    static final byte[] MAGIC = { 'R', 'J', 'X', 'B' };
+    static final int FORMAT_VERSION = 1;
+
+    static final int END_OF_RESOURCES = 0;
+
+    static final int NEW_STRING = 0;
+    static final int NULL_STRING = 1;
+    static final int FIRST_STRING_INDEX = 2;
+
+    static final String UTF_8 = "UTF-8";
+
+    private BinaryRepresentation() {
+    }
+}
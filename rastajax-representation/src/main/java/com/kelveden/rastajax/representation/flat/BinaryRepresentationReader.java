@@ -0,0 +1,254 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Reads a representation written by {@link BinaryRepresentationWriter} - one resource at a time, so that a large
+ * representation can be processed without holding all of it. Instances are not thread-safe.
+ */
+public final class BinaryRepresentationReader {
+
+    private static final int MAXIMUM_COUNT = 1 << 24;
+    private static final int MAXIMUM_PRESIZED_COUNT = 64;
+    private static final int MAXIMUM_PRESIZED_STRING_LENGTH = 1024;
+
+    private final InputStream in;
+    private final List<String> stringTable = new ArrayList<String>();
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * Constructor.
+     *
+     * @param in
+     *      The stream to read from - ideally buffered as the encoding is read a few bytes at a time. It is not closed.
+     */
+    public BinaryRepresentationReader(final InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a whole representation.
+     *
+     * @return
+     *      The resources in the order that they were written.
+     * @throws IOException
+     *      If the stream cannot be read or is not a binary representation.
+     */
+    public static Set<FlatResource> readAll(final InputStream in) throws IOException {
+
+        final BinaryRepresentationReader reader = new BinaryRepresentationReader(in);
+        final Set<FlatResource> result = new LinkedHashSet<FlatResource>();
+
+        for (FlatResource resource = reader.read(); resource != null; resource = reader.read()) {
+            result.add(resource);
+        }
+
+        return result;
+    }
+
+    /**
+     * Reads the next resource.
+     *
+     * @return
+     *      The resource or null if there are no more.
+     * @throws IOException
+     *      If the stream cannot be read or is not a binary representation.
+     */
+    public FlatResource read() throws IOException {
+
+        if (finished) {
+            return null;
+        }
+
+        start();
+
+        final int segmentCount = readCount();
+
+        if (segmentCount == BinaryRepresentation.END_OF_RESOURCES) {
+            finished = true;
+            return null;
+        }
+
+        final StringBuilder uriTemplate = new StringBuilder();
+        for (int i = 0; i < segmentCount - 1; i++) {
+            if (i > 0) {
+                uriTemplate.append('/');
+            }
+            uriTemplate.append(readString());
+        }
+
+        final int resourceMethodCount = readCount();
+        final List<FlatResourceMethod> resourceMethods = new ArrayList<FlatResourceMethod>(initialCapacity(resourceMethodCount));
+
+        for (int i = 0; i < resourceMethodCount; i++) {
+            resourceMethods.add(readResourceMethod());
+        }
+
+        return new FlatResource(uriTemplate.toString(), resourceMethods);
+    }
+
+    private void start() throws IOException {
+
+        if (started) {
+            return;
+        }
+
+        for (byte expected : BinaryRepresentation.MAGIC) {
+            if (in.read() != expected) {
+                throw new IOException("Not a binary representation.");
+            }
+        }
+
+        final int formatVersion = readVarint();
+        if (formatVersion != BinaryRepresentation.FORMAT_VERSION) {
+            throw new IOException("Unsupported binary representation format version " + formatVersion + ".");
+        }
+
+        started = true;
+    }
+
+    private FlatResourceMethod readResourceMethod() throws IOException {
+
+        final String name = readString();
+        final String requestMethodDesignator = readString();
+
+        final String resourceClassPackage = readString();
+        final String resourceClassSimpleName = readString();
+        final String resourceClass = resourceClassPackage == null ? resourceClassSimpleName : resourceClassPackage + "." + resourceClassSimpleName;
+
+        final int parameterTypeCount = readCount();
+        final Map<String, List<FlatResourceMethodParameter>> parametersByType = new LinkedHashMap<String, List<FlatResourceMethodParameter>>();
+
+        for (int i = 0; i < parameterTypeCount; i++) {
+            final String parameterType = readString();
+            final int parameterCount = readCount();
+            final List<FlatResourceMethodParameter> parameters = new ArrayList<FlatResourceMethodParameter>(initialCapacity(parameterCount));
+
+            for (int j = 0; j < parameterCount; j++) {
+                parameters.add(new FlatResourceMethodParameter(readString(), readString()));
+            }
+
+            parametersByType.put(parameterType, parameters);
+        }
+
+        final List<String> consumes = readStrings();
+        final List<String> produces = readStrings();
+
+        return new FlatResourceMethod(name, requestMethodDesignator, parametersByType, consumes, produces, resourceClass);
+    }
+
+    private List<String> readStrings() throws IOException {
+
+        final int count = readCount();
+        final List<String> result = new ArrayList<String>(initialCapacity(count));
+
+        for (int i = 0; i < count; i++) {
+            result.add(readString());
+        }
+
+        return result;
+    }
+
+    private String readString() throws IOException {
+
+        final int reference = readVarint();
+
+        if (reference == BinaryRepresentation.NULL_STRING) {
+            return null;
+        }
+
+        if (reference != BinaryRepresentation.NEW_STRING) {
+            final int index = reference - BinaryRepresentation.FIRST_STRING_INDEX;
+
+            if ((index < 0) || (index >= stringTable.size())) {
+                throw new IOException("Binary representation refers to undefined string " + index + ".");
+            }
+
+            return stringTable.get(index);
+        }
+
+        final int length = readCount();
+        byte[] bytes = new byte[Math.min(length, MAXIMUM_PRESIZED_STRING_LENGTH)];
+
+        int offset = 0;
+        while (offset < length) {
+            if (offset == bytes.length) {
+                bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * bytes.length));
+            }
+
+            final int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) {
+                throw new EOFException("Binary representation ends part way through a string.");
+            }
+            offset += read;
+        }
+
+        final String result = new String(bytes, BinaryRepresentation.UTF_8);
+        stringTable.add(result);
+
+        return result;
+    }
+
+    /**
+     * The capacity to create a list for a count with - no more than a few elements, as each element takes at least a byte
+     * of the stream and a corrupt count should cost no more than the bytes that are actually there. Strings are likewise
+     * read into an array that grows as their bytes arrive.
+     */
+    private static int initialCapacity(final int count) {
+        return Math.min(count, MAXIMUM_PRESIZED_COUNT);
+    }
+
+    /**
+     * Reads a count - guarding against allocating huge arrays for a corrupt stream.
+     */
+    private int readCount() throws IOException {
+
+        final int result = readVarint();
+
+        if ((result < 0) || (result > MAXIMUM_COUNT)) {
+            throw new IOException("Binary representation has an implausible count of " + result + ".");
+        }
+
+        return result;
+    }
+
+    private int readVarint() throws IOException {
+
+        int result = 0;
+
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.read();
+
+            if (b < 0) {
+                throw new EOFException("Binary representation ends unexpectedly.");
+            }
+
+            result |= (b & 0x7f) << shift;
+
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IOException("Binary representation has a malformed varint.");
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes a representation in a compact binary encoding - see {@link BinaryRepresentationReader} for reading it back.
+ * Each distinct string is only written once and referred to by index from then on, so the encoding is typically a
+ * fraction of the size of the JSON and much cheaper to parse.
+ * <p>
+ * Resources are written as they are given so the writer can stream a representation of any size; call {@link #finish()}
+ * after the last one. Instances are not thread-safe.
+ */
+public final class BinaryRepresentationWriter {
+
+    /**
+     * The media type of the encoding.
+     */
+    public static final String MEDIA_TYPE = BinaryRepresentation.MEDIA_TYPE;
+
+    private final OutputStream out;
+    private final Map<String, Integer> stringTable = new HashMap<String, Integer>();
+    private boolean started;
+
+    /**
+     * Constructor.
+     *
+     * @param out
+     *      The stream to write to - ideally buffered as the encoding is written a few bytes at a time. It is neither
+     *      flushed nor closed.
+     */
+    public BinaryRepresentationWriter(final OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a whole representation.
+     */
+    public static void write(final Set<FlatResource> representation, final OutputStream out) throws IOException {
+
+        final BinaryRepresentationWriter writer = new BinaryRepresentationWriter(out);
+
+        for (FlatResource resource : representation) {
+            writer.write(resource);
+        }
+
+        writer.finish();
+    }
+
+    /**
+     * Writes the next resource.
+     */
+    public void write(final FlatResource resource) throws IOException {
+
+        start();
+
+        final String[] segments = resource.getUriTemplate().split("/", -1);
+
+        writeVarint(segments.length + 1);
+        for (String segment : segments) {
+            writeString(segment);
+        }
+
+        writeVarint(resource.getResourceMethods().size());
+        for (FlatResourceMethod resourceMethod : resource.getResourceMethods()) {
+            write(resourceMethod);
+        }
+    }
+
+    /**
+     * Ends the representation - after which nothing more can be written.
+     */
+    public void finish() throws IOException {
+        start();
+        writeVarint(BinaryRepresentation.END_OF_RESOURCES);
+    }
+
+    private void start() throws IOException {
+
+        if (!started) {
+            out.write(BinaryRepresentation.MAGIC);
+            writeVarint(BinaryRepresentation.FORMAT_VERSION);
+            started = true;
+        }
+    }
+
+    private void write(final FlatResourceMethod resourceMethod) throws IOException {
+
+        writeString(resourceMethod.getName());
+        writeString(resourceMethod.getRequestMethodDesignator());
+
+        final String resourceClass = resourceMethod.getResourceClass();
+        final int lastDot = resourceClass == null ? -1 : resourceClass.lastIndexOf('.');
+
+        writeString(lastDot < 0 ? null : resourceClass.substring(0, lastDot));
+        writeString(lastDot < 0 ? resourceClass : resourceClass.substring(lastDot + 1));
+
+        writeVarint(resourceMethod.getParameters().size());
+        for (Map.Entry<String, List<FlatResourceMethodParameter>> parameters : resourceMethod.getParameters().entrySet()) {
+            writeString(parameters.getKey());
+            writeVarint(parameters.getValue().size());
+
+            for (FlatResourceMethodParameter parameter : parameters.getValue()) {
+                writeString(parameter.getName());
+                writeString(parameter.getType());
+            }
+        }
+
+        writeStrings(resourceMethod.getConsumes());
+        writeStrings(resourceMethod.getProduces());
+    }
+
+    private void writeStrings(final List<String> values) throws IOException {
+
+        writeVarint(values.size());
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+    private void writeString(final String value) throws IOException {
+
+        if (value == null) {
+            writeVarint(BinaryRepresentation.NULL_STRING);
+            return;
+        }
+
+        final Integer index = stringTable.get(value);
+
+        if (index != null) {
+            writeVarint(index + BinaryRepresentation.FIRST_STRING_INDEX);
+            return;
+        }
+
+        stringTable.put(value, stringTable.size());
+
+        final byte[] bytes = value.getBytes(BinaryRepresentation.UTF_8);
+
+        writeVarint(BinaryRepresentation.NEW_STRING);
+        writeVarint(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarint(final int value) throws IOException {
+
+        int remaining = value;
+
+        while ((remaining & ~0x7f) != 0) {
+            out.write((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+
+        out.write(remaining);
+    }
+}
@@ -0,0 +1,390 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.CRC32;
+
+/**
+ * A representation saved at build time - e.g. by the Rastajax Maven plugin - so that it can be loaded at runtime rather
+ * than scanned and built again by reflection.
+ * <p>
+ * A snapshot is two resources under <code>META-INF/rastajax/</code> on the classpath: the representation in the encoding
+ * of {@link BinaryRepresentationWriter} and a properties file holding the API packages that were scanned, a stamp - the
+ * length and CRC-32 - of the class file of every resource class in the representation and a combined stamp of every
+ * class file in the API packages and their sub-packages. A snapshot is stale, and ignored, if it was taken for other
+ * packages or if any of those class files has been added, removed or changed since - so new resource classes, and
+ * changes to superclasses and sub-resource classes in the API packages, are detected too. Classes outside the API
+ * packages other than the resource classes themselves - e.g. superclasses in libraries - are not stamped, so snapshots
+ * should be taken by the same build that compiles the classes.
+ * <p>
+ * Class files are listed from the directories and jars of the class loader itself - not those of its parents, such as the
+ * JDK or a container - so that an application is stamped by its own classpath; a snapshot is ignored if the API packages
+ * are on anything other than directories and jars.
+ */
+public final class DescriptionSnapshot {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DescriptionSnapshot.class);
+
+    /**
+     * The location of the representation on the classpath.
+     */
+    public static final String REPRESENTATION_LOCATION = "META-INF/rastajax/description.rjxb";
+
+    /**
+     * The location of the properties describing the snapshot on the classpath.
+     */
+    public static final String PROPERTIES_LOCATION = "META-INF/rastajax/description.properties";
+
+    private static final String PACKAGES_PROPERTY = "packages";
+    private static final String PACKAGES_STAMP_PROPERTY = "packages.stamp";
+    private static final String CLASS_STAMP_PROPERTY_PREFIX = "class.";
+    private static final String CLASS_FILE_SUFFIX = ".class";
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private DescriptionSnapshot() {
+    }
+
+    /**
+     * Saves a snapshot of a representation.
+     *
+     * @param representation
+     *      The representation.
+     * @param apiPackages
+     *      The API packages that were scanned to build the representation.
+     * @param classLoader
+     *      The {@link ClassLoader} that the resource classes were loaded from.
+     * @param directory
+     *      The root of the classpath entry to save the snapshot to - e.g. <code>target/classes</code>.
+     * @throws IOException
+     *      If a class file cannot be read or listed, or the snapshot cannot be written.
+     */
+    public static void write(final Set<FlatResource> representation, final String[] apiPackages, final ClassLoader classLoader, final File directory) throws IOException {
+
+        final Properties properties = new Properties();
+        properties.setProperty(PACKAGES_PROPERTY, canonicalPackages(apiPackages));
+        properties.setProperty(PACKAGES_STAMP_PROPERTY, packagesStampOf(apiPackages, classLoader));
+
+        for (String resourceClass : resourceClassesOf(representation)) {
+            final String stamp = stampOf(resourceClass, classLoader);
+
+            if (stamp == null) {
+                throw new IOException("Could not find the class file of resource class '" + resourceClass + "'.");
+            }
+
+            properties.setProperty(CLASS_STAMP_PROPERTY_PREFIX + resourceClass, stamp);
+        }
+
+        final File representationFile = new File(directory, REPRESENTATION_LOCATION);
+        final File propertiesFile = new File(directory, PROPERTIES_LOCATION);
+
+        if (!representationFile.getParentFile().isDirectory() && !representationFile.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory '" + representationFile.getParentFile() + "'.");
+        }
+
+        final OutputStream representationOut = new BufferedOutputStream(new FileOutputStream(representationFile), BUFFER_SIZE);
+        try {
+            BinaryRepresentationWriter.write(representation, representationOut);
+        } finally {
+            representationOut.close();
+        }
+
+        final OutputStream propertiesOut = new FileOutputStream(propertiesFile);
+        try {
+            properties.store(propertiesOut, "Rastajax description snapshot");
+        } finally {
+            propertiesOut.close();
+        }
+
+        LOGGER.debug("Saved snapshot of {} resources to {}.", representation.size(), directory);
+    }
+
+    /**
+     * Loads the snapshot on the classpath if it is up to date.
+     *
+     * @param classLoader
+     *      The {@link ClassLoader} to load the snapshot and the resource classes from.
+     * @param apiPackages
+     *      The API packages that the representation is wanted for.
+     * @return
+     *      The representation or null if there is no snapshot, it cannot be read or it is stale.
+     */
+    public static Set<FlatResource> load(final ClassLoader classLoader, final String[] apiPackages) {
+
+        final long start = System.nanoTime();
+
+        final URL propertiesUrl = classLoader.getResource(PROPERTIES_LOCATION);
+        final URL representationUrl = classLoader.getResource(REPRESENTATION_LOCATION);
+
+        if ((propertiesUrl == null) || (representationUrl == null)) {
+            LOGGER.debug("There is no description snapshot on the classpath.");
+            return null;
+        }
+
+        try {
+            final Properties properties = new Properties();
+
+            final InputStream propertiesIn = propertiesUrl.openStream();
+            try {
+                properties.load(propertiesIn);
+            } finally {
+                propertiesIn.close();
+            }
+
+            if (!canonicalPackages(apiPackages).equals(properties.getProperty(PACKAGES_PROPERTY))) {
+                LOGGER.info("Ignoring the description snapshot at {} as it was taken for packages '{}'.", representationUrl, properties.getProperty(PACKAGES_PROPERTY));
+                return null;
+            }
+
+            if (!packagesStampOf(apiPackages, classLoader).equals(properties.getProperty(PACKAGES_STAMP_PROPERTY))) {
+                LOGGER.info("Ignoring the description snapshot at {} as classes in the API packages have changed since it was taken.", representationUrl);
+                return null;
+            }
+
+            final Set<FlatResource> result;
+
+            final InputStream representationIn = new BufferedInputStream(representationUrl.openStream(), BUFFER_SIZE);
+            try {
+                result = BinaryRepresentationReader.readAll(representationIn);
+            } finally {
+                representationIn.close();
+            }
+
+            for (String resourceClass : resourceClassesOf(result)) {
+                final String stamp = stampOf(resourceClass, classLoader);
+
+                if ((stamp == null) || !stamp.equals(properties.getProperty(CLASS_STAMP_PROPERTY_PREFIX + resourceClass))) {
+                    LOGGER.info("Ignoring the description snapshot at {} as resource class '{}' has changed since it was taken.", representationUrl, resourceClass);
+                    return null;
+                }
+            }
+
+            LOGGER.debug("Loaded snapshot of {} resources from {} in {}ms.", new Object[] { result.size(), representationUrl, (System.nanoTime() - start) / 1000000 });
+
+            return result;
+
+        } catch (final IOException e) {
+            LOGGER.warn("Could not read the description snapshot at " + representationUrl + ".", e);
+            return null;
+        }
+    }
+
+    private static SortedSet<String> packagesOf(final String[] apiPackages) {
+
+        final SortedSet<String> result = new TreeSet<String>();
+        for (String apiPackage : apiPackages) {
+            if (apiPackage.trim().length() > 0) {
+                result.add(apiPackage.trim());
+            }
+        }
+
+        return result;
+    }
+
+    private static String canonicalPackages(final String[] apiPackages) {
+
+        final StringBuilder result = new StringBuilder();
+        for (String apiPackage : packagesOf(apiPackages)) {
+            if (result.length() > 0) {
+                result.append(',');
+            }
+            result.append(apiPackage);
+        }
+
+        return result.toString();
+    }
+
+    private static SortedSet<String> resourceClassesOf(final Set<FlatResource> representation) {
+
+        final SortedSet<String> result = new TreeSet<String>();
+
+        for (FlatResource resource : representation) {
+            for (FlatResourceMethod resourceMethod : resource.getResourceMethods()) {
+                result.add(resourceMethod.getResourceClass());
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * The number of class files in the API packages and their sub-packages and a fingerprint of their names and
+     * {@link #stampOf(InputStream) stamps}, from the {@link #ownResources(ClassLoader, String) own classpath entries} of
+     * the class loader. Where a class file is in more than one classpath entry, only the first counts.
+     */
+    private static String packagesStampOf(final String[] apiPackages, final ClassLoader classLoader) throws IOException {
+
+        final SortedMap<String, String> stamps = new TreeMap<String, String>();
+
+        for (String apiPackage : packagesOf(apiPackages)) {
+            final String packagePath = apiPackage.replace('.', '/') + "/";
+            for (URL packageUrl : ownResources(classLoader, packagePath)) {
+                if ("file".equals(packageUrl.getProtocol())) {
+                    stampDirectory(toFile(packageUrl), packagePath, stamps);
+
+                } else if ("jar".equals(packageUrl.getProtocol())) {
+                    stampJar(packageUrl, packagePath, stamps);
+
+                } else {
+                    throw new IOException("Cannot list the class files at '" + packageUrl + "'.");
+                }
+            }
+        }
+
+        final Fingerprint.Hasher result = new Fingerprint.Hasher();
+        for (Map.Entry<String, String> stamp : stamps.entrySet()) {
+            result.add(stamp.getKey()).add(stamp.getValue());
+        }
+
+        return stamps.size() + "-" + result.toFingerprint();
+    }
+
+    /**
+     * The resources of a class loader on its own classpath entries, in search order - i.e. excluding any found through its
+     * parents.
+     */
+    private static List<URL> ownResources(final ClassLoader classLoader, final String name) throws IOException {
+
+        if (classLoader instanceof URLClassLoader) {
+            return Collections.list(((URLClassLoader) classLoader).findResources(name));
+        }
+
+        final List<URL> result = Collections.list(classLoader.getResources(name));
+
+        if (classLoader.getParent() != null) {
+            result.removeAll(Collections.list(classLoader.getParent().getResources(name)));
+        }
+
+        return result;
+    }
+
+    private static void stampDirectory(final File directory, final String path, final SortedMap<String, String> stamps) throws IOException {
+
+        final File[] files = directory.listFiles();
+
+        if (files == null) {
+            throw new IOException("Could not list directory '" + directory + "'.");
+        }
+
+        for (File file : files) {
+            final String name = path + file.getName();
+
+            if (file.isDirectory()) {
+                stampDirectory(file, name + "/", stamps);
+
+            } else if (name.endsWith(CLASS_FILE_SUFFIX) && !stamps.containsKey(name)) {
+                final InputStream in = new FileInputStream(file);
+                try {
+                    stamps.put(name, stampOf(in));
+                } finally {
+                    in.close();
+                }
+            }
+        }
+    }
+
+    private static void stampJar(final URL packageUrl, final String path, final SortedMap<String, String> stamps) throws IOException {
+
+        final URLConnection connection = packageUrl.openConnection();
+
+        if (!(connection instanceof JarURLConnection)) {
+            throw new IOException("Cannot list the class files at '" + packageUrl + "'.");
+        }
+
+        // Not cached so that the jar is read afresh and can be closed again.
+        connection.setUseCaches(false);
+
+        final JarFile jar = ((JarURLConnection) connection).getJarFile();
+        try {
+            final Enumeration<JarEntry> entries = jar.entries();
+
+            while (entries.hasMoreElements()) {
+                final JarEntry entry = entries.nextElement();
+                final String name = entry.getName();
+
+                if (name.startsWith(path) && name.endsWith(CLASS_FILE_SUFFIX) && !stamps.containsKey(name)) {
+                    final InputStream in = jar.getInputStream(entry);
+                    try {
+                        stamps.put(name, stampOf(in));
+                    } finally {
+                        in.close();
+                    }
+                }
+            }
+
+        } finally {
+            jar.close();
+        }
+    }
+
+    private static File toFile(final URL url) throws IOException {
+
+        try {
+            return new File(url.toURI());
+
+        } catch (final URISyntaxException e) {
+            throw new IOException("Invalid class path URL '" + url + "'.", e);
+        }
+    }
+
+    /**
+     * The length and CRC-32 of the class file of a class or null if there is no such class file.
+     */
+    private static String stampOf(final String className, final ClassLoader classLoader) throws IOException {
+
+        final URL classFile = classLoader.getResource(className.replace('.', '/') + CLASS_FILE_SUFFIX);
+
+        if (classFile == null) {
+            return null;
+        }
+
+        final InputStream in = classFile.openStream();
+        try {
+            return stampOf(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * The length and CRC-32 of the content of a class file.
+     */
+    private static String stampOf(final InputStream in) throws IOException {
+
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long length = 0;
+
+        for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+            crc.update(buffer, 0, read);
+            length += read;
+        }
+
+        return length + "-" + Long.toHexString(crc.getValue());
+    }
+}
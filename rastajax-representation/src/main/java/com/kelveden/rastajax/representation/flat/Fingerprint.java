@@ -0,0 +1,180 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * A 128-bit fingerprint of the content of a representation or a part of it. Fingerprints are canonical - they do not
+ * depend on the order of resources, resource methods, parameters or media types - and stable across JVMs and versions of
+ * Rastajax that produce the same representation, so they can be used as ETags, cache keys or to detect changes without
+ * comparing whole representations.
+ * <p>
+ * The fingerprint of each resource method, resource and parameter is computed once when it is built; the fingerprint of
+ * a whole representation is then just a sum of those of its resources - see {@link #of(Collection)}.
+ */
+public final class Fingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long SECOND_OFFSET_BASIS = 0x84222325cbf29ce4L;
+    private static final long GOLDEN_RATIO = 0x9e3779b97f4a7c15L;
+
+    private static final char SEPARATOR = '\u0000';
+
+    private final long high;
+    private final long low;
+
+    Fingerprint(final long high, final long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * The fingerprint of a whole representation.
+     *
+     * @param resources
+     *      The resources of the representation.
+     */
+    public static Fingerprint of(final Collection<FlatResource> resources) {
+
+        final Combiner result = new Combiner();
+
+        for (FlatResource resource : resources) {
+            result.add(resource.getFingerprint());
+        }
+
+        return result.toFingerprint();
+    }
+
+    /**
+     * The high 64 bits.
+     */
+    public long getHigh() {
+        return high;
+    }
+
+    /**
+     * The low 64 bits - which can be used as a 64-bit fingerprint in their own right.
+     */
+    public long getLow() {
+        return low;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof Fingerprint)) {
+            return false;
+        }
+
+        final Fingerprint fingerprint = (Fingerprint) other;
+
+        return (high == fingerprint.high) && (low == fingerprint.low);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (low ^ (low >>> 32));
+    }
+
+    /**
+     * The fingerprint as 32 hexadecimal digits.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.ENGLISH, "%016x%016x", high, low);
+    }
+
+    private static long mix(final long value) {
+
+        long result = value;
+
+        result ^= result >>> 33;
+        result *= 0xff51afd7ed558ccdL;
+        result ^= result >>> 33;
+        result *= 0xc4ceb9fe1a85ec53L;
+        result ^= result >>> 33;
+
+        return result;
+    }
+
+    /**
+     * Hashes an ordered sequence of values into a fingerprint.
+     */
+    static final class Hasher {
+
+        private long high = SECOND_OFFSET_BASIS;
+        private long low = FNV_OFFSET_BASIS;
+
+        Hasher add(final String value) {
+
+            if (value != null) {
+                for (int i = 0; i < value.length(); i++) {
+                    addCharacter(value.charAt(i));
+                }
+            }
+
+            addCharacter(SEPARATOR);
+
+            return this;
+        }
+
+        Hasher add(final Fingerprint fingerprint) {
+
+            low = (low ^ fingerprint.low) * FNV_PRIME;
+            high = Long.rotateLeft(high ^ fingerprint.high, 31) * GOLDEN_RATIO;
+
+            return this;
+        }
+
+        Fingerprint toFingerprint() {
+            return new Fingerprint(mix(high), mix(low));
+        }
+
+        private void addCharacter(final char c) {
+            low = (low ^ c) * FNV_PRIME;
+            high = Long.rotateLeft(high ^ c, 31) * GOLDEN_RATIO;
+        }
+    }
+
+    /**
+     * Combines fingerprints regardless of their order. Mixing each fingerprint before adding them up keeps the result
+     * independent of order without letting equal fingerprints cancel each other out.
+     */
+    static final class Combiner {
+
+        private long high;
+        private long low;
+
+        Combiner add(final Fingerprint fingerprint) {
+
+            high += mix(fingerprint.high ^ GOLDEN_RATIO);
+            low += mix(fingerprint.low);
+
+            return this;
+        }
+
+        Fingerprint toFingerprint() {
+            return new Fingerprint(high, low);
+        }
+    }
+}
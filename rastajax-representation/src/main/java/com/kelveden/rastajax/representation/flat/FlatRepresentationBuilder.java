@@ -16,12 +16,16 @@
 package com.kelveden.rastajax.representation.flat;
 
 import com.kelveden.rastajax.core.raw.*;
+import com.kelveden.rastajax.core.DescriptionListener;
+import com.kelveden.rastajax.core.DescriptionListeners;
+import com.kelveden.rastajax.core.DescriptionStatistics;
 import com.kelveden.rastajax.core.RepresentationBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * {@link com.kelveden.rastajax.core.RepresentationBuilder} that generates a representation where sub-resources are denormalised into a flat
@@ -38,10 +42,129 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
         }
     };
 
+    /**
+     * The name under which hits and misses of the cache of sub-resource classes already flattened during a build are
+     * recorded in {@link DescriptionStatistics}.
+     */
+    public static final String FLATTENED_SUB_RESOURCE_CACHE = "flattened sub-resource";
+
+    private static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private int maximumLocatorDepth = UNLIMITED;
+    private int maximumEndpointsPerRootResource = UNLIMITED;
+    private boolean parallel;
+    private boolean detectRouteConflicts;
+    private ExecutorService executor;
+    private DescriptionStatistics statistics;
+
+    /**
+     * Builds the representations of root resources in parallel - on a pool with a thread per available processor that
+     * exists for the duration of each build. The representation is identical to that built sequentially.
+     */
+    public FlatRepresentationBuilder inParallel() {
+
+        this.parallel = true;
+        this.executor = null;
+
+        LOGGER.info("Representations of root resources will be built in parallel.");
+
+        return this;
+    }
+
+    /**
+     * Builds the representations of root resources in parallel on the specified executor. The representation is identical
+     * to that built sequentially.
+     *
+     * @param executor
+     *      The executor. It is not shut down by the builder.
+     */
+    public FlatRepresentationBuilder inParallel(final ExecutorService executor) {
+
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must not be null.");
+        }
+
+        this.parallel = true;
+        this.executor = executor;
+
+        LOGGER.info("Representations of root resources will be built in parallel on the supplied executor.");
+
+        return this;
+    }
+
+    /**
+     * Limits how deeply chains of sub-resource locators are followed. Sub-resource locators beyond the limit are left out
+     * of the representation.
+     *
+     * @param maximumLocatorDepth
+     *      The maximum number of sub-resource locators followed from a root resource; 0 to ignore sub-resource locators
+     *      altogether.
+     */
+    public FlatRepresentationBuilder withMaximumLocatorDepth(final int maximumLocatorDepth) {
+
+        if (maximumLocatorDepth < 0) {
+            throw new IllegalArgumentException("Maximum locator depth must not be negative.");
+        }
+
+        this.maximumLocatorDepth = maximumLocatorDepth;
+
+        LOGGER.info("Sub-resource locators will be followed to a maximum depth of {}.", maximumLocatorDepth);
+
+        return this;
+    }
+
+    /**
+     * Limits the number of resource methods in the representation of each root resource - including those reached through
+     * sub-resource locators. Resource methods beyond the limit are left out of the representation.
+     *
+     * @param maximumEndpointsPerRootResource
+     *      The maximum number of resource methods.
+     */
+    public FlatRepresentationBuilder withMaximumEndpointsPerRootResource(final int maximumEndpointsPerRootResource) {
+
+        if (maximumEndpointsPerRootResource < 1) {
+            throw new IllegalArgumentException("Maximum endpoints per root resource must be at least 1.");
+        }
+
+        this.maximumEndpointsPerRootResource = maximumEndpointsPerRootResource;
+
+        LOGGER.info("Representations of root resources will be limited to {} resource methods.", maximumEndpointsPerRootResource);
+
+        return this;
+    }
+
+    /**
+     * Logs the {@link RouteConflict}s in each representation built - duplicate and ambiguous routes as warnings and
+     * shadowed routes at debug level. Finding them walks every URI template so it is left off unless asked for.
+     */
+    public FlatRepresentationBuilder withRouteConflictDetection() {
+
+        this.detectRouteConflicts = true;
+
+        LOGGER.info("Route conflicts will be logged.");
+
+        return this;
+    }
+
+    /**
+     * Records the hit rate of the {@link #FLATTENED_SUB_RESOURCE_CACHE cache of flattened sub-resource classes} in the
+     * specified statistics.
+     */
+    public FlatRepresentationBuilder withStatistics(final DescriptionStatistics statistics) {
+
+        this.statistics = statistics;
+
+        return this;
+    }
+
     @Override
     public Set<FlatResource> buildRepresentationFor(final ResourceClass resourceClass) {
+        return mergeResourcesWithSameUriTemplate(buildRepresentationFor(resourceClass, new FlatteningContext()));
+    }
 
-        final TreeSet<FlatResource> result = new TreeSet<FlatResource>(RESOURCE_COMPARATOR);
+    private List<FlatResource> buildRepresentationFor(final ResourceClass resourceClass, final FlatteningContext context) {
+
+        final List<FlatResource> result = new ArrayList<FlatResource>();
 
         LOGGER.debug(StringUtils.repeat("-", UNDERLINE_LENGTH));
         LOGGER.debug("Building representation for resource with URI template {}...", resourceClass.getUriTemplate());
@@ -52,7 +175,7 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
             LOGGER.debug("This resource is a root resource.");
             LOGGER.debug("Analyzing methods...");
 
-            final MultiValuedMap<String, ResourceClassMethod> resourceClassMethodsByPath = groupResourceClassMethodsByUriTemplate(resourceClass, " |-");
+            final MultiValuedMap<String, ContainedMethod> resourceClassMethodsByPath = groupResourceClassMethodsByUriTemplate(resourceClass, maximumLocatorDepth, context, " |-");
 
             final List<FlatResource> methodsAsResources = representResourceClassMethods(resourceClass, resourceClassMethodsByPath);
             result.addAll(methodsAsResources);
@@ -69,23 +192,160 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
     @Override
     public Set<FlatResource> buildRepresentationFor(final Set<ResourceClass> resourceClasses) {
 
-        final TreeSet<FlatResource> result = new TreeSet<FlatResource>(RESOURCE_COMPARATOR);
+        final DescriptionListener listener = DescriptionListeners.get();
+        final Object listenerContext = listener.representationBuildStarted(FlatRepresentationBuilder.class, resourceClasses.size());
+
+        final FlatteningContext context = new FlatteningContext();
+        final List<FlatResource> resources;
 
-        for (ResourceClass rawResource : resourceClasses) {
-            result.addAll(buildRepresentationFor(rawResource));
+        if (parallel) {
+            resources = buildRepresentationsInParallelFor(resourceClasses, context);
+
+        } else {
+            resources = new ArrayList<FlatResource>();
+
+            for (ResourceClass rawResource : resourceClasses) {
+                resources.addAll(buildRepresentationFor(rawResource, context));
+            }
+        }
+
+        final Set<FlatResource> result = mergeResourcesWithSameUriTemplate(resources);
+
+        if (detectRouteConflicts) {
+            logRouteConflicts(result);
         }
 
         LOGGER.info("Representation completed with {} resources.", result.size());
 
+        int endpointCount = 0;
+        for (FlatResource resource : result) {
+            endpointCount += resource.getResourceMethods().size();
+        }
+
+        listener.representationBuildFinished(listenerContext, FlatRepresentationBuilder.class, result.size(), endpointCount);
+
+        return result;
+    }
+
+    /**
+     * Builds the representation of each root resource as a separate task. The results are gathered in the iteration order
+     * of the specified resource classes - just as when building sequentially - so that the merged representation is the same.
+     */
+    private List<FlatResource> buildRepresentationsInParallelFor(final Set<ResourceClass> resourceClasses, final FlatteningContext context) {
+
+        final ExecutorService executorToUse = executor != null ? executor : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+        try {
+            final List<Future<List<FlatResource>>> futures = new ArrayList<Future<List<FlatResource>>>();
+
+            for (final ResourceClass rawResource : resourceClasses) {
+                futures.add(executorToUse.submit(new Callable<List<FlatResource>>() {
+                    @Override
+                    public List<FlatResource> call() {
+                        return buildRepresentationFor(rawResource, context);
+                    }
+                }));
+            }
+
+            final List<FlatResource> result = new ArrayList<FlatResource>();
+
+            for (Future<List<FlatResource>> future : futures) {
+                result.addAll(getResultOf(future));
+            }
+
+            return result;
+
+        } finally {
+            if (executorToUse != executor) {
+                executorToUse.shutdownNow();
+            }
+        }
+    }
+
+    private static <T> T getResultOf(final Future<T> future) {
+
+        try {
+            return future.get();
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while building representation.", e);
+
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            } else if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+
+            throw new IllegalStateException("Failed to build representation.", e.getCause());
+        }
+    }
+
+    /**
+     * Merges resources whose URI templates are the same - e.g. from different root resource classes - into a single
+     * resource with the resource methods of all of them, in the order given.
+     */
+    private Set<FlatResource> mergeResourcesWithSameUriTemplate(final List<FlatResource> resources) {
+
+        final Map<String, List<FlatResource>> resourcesByUriTemplate = new TreeMap<String, List<FlatResource>>();
+
+        for (FlatResource resource : resources) {
+            List<FlatResource> resourcesWithUriTemplate = resourcesByUriTemplate.get(resource.getUriTemplate());
+
+            if (resourcesWithUriTemplate == null) {
+                resourcesWithUriTemplate = new ArrayList<FlatResource>(1);
+                resourcesByUriTemplate.put(resource.getUriTemplate(), resourcesWithUriTemplate);
+            }
+
+            resourcesWithUriTemplate.add(resource);
+        }
+
+        final TreeSet<FlatResource> result = new TreeSet<FlatResource>(RESOURCE_COMPARATOR);
+
+        for (Map.Entry<String, List<FlatResource>> entry : resourcesByUriTemplate.entrySet()) {
+            final List<FlatResource> resourcesWithUriTemplate = entry.getValue();
+
+            if (resourcesWithUriTemplate.size() == 1) {
+                result.add(resourcesWithUriTemplate.get(0));
+
+            } else {
+                final List<FlatResourceMethod> resourceMethods = new ArrayList<FlatResourceMethod>();
+                for (FlatResource resource : resourcesWithUriTemplate) {
+                    resourceMethods.addAll(resource.getResourceMethods());
+                }
+
+                LOGGER.debug("Merged {} resources with URI template '{}'.", resourcesWithUriTemplate.size(), entry.getKey());
+
+                result.add(new FlatResource(entry.getKey(), resourceMethods));
+            }
+        }
+
         return result;
     }
 
-    private MultiValuedMap<String, ResourceClassMethod> groupResourceClassMethodsByUriTemplate(final ResourceClass resourceClass, final String logPrefix) {
+    private void logRouteConflicts(final Set<FlatResource> resources) {
 
-        final MultiValuedMap<String, ResourceClassMethod> resourceClassMethodsByUriTemplate = new MultiValuedMap<String, ResourceClassMethod>();
+        for (RouteConflict conflict : new RouteConflictDetector().detect(resources)) {
+            if (conflict.getType() == RouteConflict.Type.SHADOWED) {
+                LOGGER.debug("Route conflict: {}", conflict);
+            } else {
+                LOGGER.warn("Route conflict: {}", conflict);
+            }
+        }
+    }
+
+    private MultiValuedMap<String, ContainedMethod> groupResourceClassMethodsByUriTemplate(final ResourceClass resourceClass, final int remainingLocatorDepth, final FlatteningContext context, final String logPrefix) {
+
+        final MultiValuedMap<String, ContainedMethod> resourceClassMethodsByUriTemplate = new MultiValuedMap<String, ContainedMethod>();
 
         for (ResourceClassMethod resourceClassMethod : resourceClass.getMethods()) {
 
+            if (resourceClassMethodsByUriTemplate.valueCount() >= maximumEndpointsPerRootResource) {
+                logEndpointLimitReached(resourceClass);
+                break;
+            }
+
             final String uriTemplate = buildResourceMethodUriTemplateFrom(resourceClass, resourceClassMethod);
 
             LOGGER.debug("{} Found method '{}'.", logPrefix, resourceClassMethod.getName());
@@ -95,14 +355,14 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
                 final SubResourceMethod subResourceMethod = (SubResourceMethod) resourceClassMethod;
                 LOGGER.debug("{} Method is a sub-resource method with URI template '{}' and request method designator '{}'.", logPrefix, subResourceMethod.getUriTemplate(), subResourceMethod.getRequestMethodDesignator());
 
-                resourceClassMethodsByUriTemplate.putSingleValue(uriTemplate, resourceClassMethod);
+                resourceClassMethodsByUriTemplate.putSingleValue(uriTemplate, new ContainedMethod(resourceClass, resourceClassMethod));
 
             } else if (resourceClassMethod instanceof ResourceMethod) {
 
                 final ResourceMethod resourceMethod = (ResourceMethod) resourceClassMethod;
                 LOGGER.debug("{} Method is a resource method with request method designator '{}'.", logPrefix, resourceMethod.getRequestMethodDesignator());
 
-                resourceClassMethodsByUriTemplate.putSingleValue(uriTemplate, resourceClassMethod);
+                resourceClassMethodsByUriTemplate.putSingleValue(uriTemplate, new ContainedMethod(resourceClass, resourceClassMethod));
 
             } else if (resourceClassMethod instanceof SubResourceLocator) {
 
@@ -111,16 +371,25 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
 
                 final ResourceClass subResource = subResourceLocator.getSubResource();
 
-                if (subResource != null) {
-                    LOGGER.debug("{} Analyzing methods on the class '{}' indicated by the sub-resource locator.", logPrefix, subResource.getRawClass());
+                if (remainingLocatorDepth == 0) {
+                    LOGGER.warn("Sub-resource locator '{}' on resource class '{}' is beyond the maximum locator depth of {} - it will not be represented.",
+                            new Object[] { subResourceLocator.getName(), resourceClass.getClassName(), maximumLocatorDepth });
+                    recordLocatorOmitted();
+
+                } else if (subResource != null) {
+                    LOGGER.debug("{} Analyzing methods on the class '{}' indicated by the sub-resource locator.", logPrefix, subResource.getClassName());
 
-                    final MultiValuedMap<String, ResourceClassMethod> subResourceClassMethodsByUriTemplate = getSubResourceLocatorMethodsAsResourceMethods(subResource, uriTemplate, logPrefix);
-                    resourceClassMethodsByUriTemplate.mergeIn(subResourceClassMethodsByUriTemplate);
+                    final MultiValuedMap<String, ContainedMethod> subResourceClassMethodsByUriTemplate = getSubResourceLocatorMethodsAsResourceMethods(subResource, uriTemplate, remainingLocatorDepth - 1, context, logPrefix);
+                    if (resourceClassMethodsByUriTemplate.mergeIn(subResourceClassMethodsByUriTemplate, maximumEndpointsPerRootResource)) {
+                        logEndpointLimitReached(resourceClass);
+                        break;
+                    }
 
                     LOGGER.debug("{} Finished analyzing sub-resource locator with URI template {}.", logPrefix, subResourceLocator.getUriTemplate());
 
                 } else {
                     LOGGER.debug("{} Could not find sub-resource class indicated by sub-resource locator.", logPrefix);
+                    recordLocatorOmitted();
                 }
             }
         }
@@ -128,18 +397,64 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
         return resourceClassMethodsByUriTemplate;
     }
 
-    private MultiValuedMap<String, ResourceClassMethod> getSubResourceLocatorMethodsAsResourceMethods(final ResourceClass subResourceLocatorSubResource, final String resourceClassUriTemplate, final String logPrefix) {
+    private void logEndpointLimitReached(final ResourceClass resourceClass) {
+
+        LOGGER.warn("Resource class '{}' has more than the maximum of {} resource methods - the remainder will not be represented.", resourceClass.getClassName(), maximumEndpointsPerRootResource);
 
-        final MultiValuedMap<String, ResourceClassMethod> subResourceUriTemplateToMethodsMap = groupResourceClassMethodsByUriTemplate(subResourceLocatorSubResource, logPrefix + "--");
+        if (statistics != null) {
+            statistics.recordResourceTruncated();
+        }
+    }
 
-        final MultiValuedMap<String, ResourceClassMethod> result = new MultiValuedMap<String, ResourceClassMethod>();
+    private void recordLocatorOmitted() {
 
-        for (Map.Entry<String, List<ResourceClassMethod>> entry : subResourceUriTemplateToMethodsMap.entrySet()) {
+        if (statistics != null) {
+            statistics.recordLocatorOmitted();
+        }
+    }
+
+    private MultiValuedMap<String, ContainedMethod> getSubResourceLocatorMethodsAsResourceMethods(final ResourceClass subResourceLocatorSubResource, final String resourceClassUriTemplate, final int remainingLocatorDepth, final FlatteningContext context, final String logPrefix) {
+
+        final MultiValuedMap<String, ContainedMethod> subResourceUriTemplateToMethodsMap = groupSubResourceClassMethodsByUriTemplate(subResourceLocatorSubResource, remainingLocatorDepth, context, logPrefix + "--");
+
+        final MultiValuedMap<String, ContainedMethod> result = new MultiValuedMap<String, ContainedMethod>();
+
+        for (Map.Entry<String, List<ContainedMethod>> entry : subResourceUriTemplateToMethodsMap.entrySet()) {
             final String methodUriTemplate = entry.getKey();
             final String fullUriTemplate = resourceClassUriTemplate + (methodUriTemplate == null ? "" : "/" + methodUriTemplate);
 
-            final List<ResourceClassMethod> resourceClassMethods = entry.getValue();
-            result.get(fullUriTemplate).addAll(resourceClassMethods);
+            result.putValues(fullUriTemplate, entry.getValue());
+        }
+
+        return result;
+    }
+
+    /**
+     * Groups the methods of a sub-resource class by URI template - relative to the sub-resource locator. Sub-resource
+     * classes are typically reached through many locators so the result is memoized for the duration of the build and
+     * only the (cheap) prefixing with the URI template of each locator is repeated.
+     */
+    private MultiValuedMap<String, ContainedMethod> groupSubResourceClassMethodsByUriTemplate(final ResourceClass subResource, final int remainingLocatorDepth, final FlatteningContext context, final String logPrefix) {
+
+        // Where the locator depth limit can't be reached below this class, the result does not depend on the remaining depth.
+        final int effectiveLocatorDepth = remainingLocatorDepth >= context.getLocatorHeightOf(subResource) ? UNLIMITED : remainingLocatorDepth;
+
+        MultiValuedMap<String, ContainedMethod> result = context.getMemoizedGrouping(subResource, effectiveLocatorDepth);
+
+        if (result == null) {
+            result = groupResourceClassMethodsByUriTemplate(subResource, remainingLocatorDepth, context, logPrefix);
+            context.memoizeGrouping(subResource, effectiveLocatorDepth, result);
+
+            if (statistics != null) {
+                statistics.recordCacheMiss(FLATTENED_SUB_RESOURCE_CACHE);
+            }
+
+        } else {
+            LOGGER.debug("{} Reusing the methods already analyzed on the class '{}'.", logPrefix, subResource.getClassName());
+
+            if (statistics != null) {
+                statistics.recordCacheHit(FLATTENED_SUB_RESOURCE_CACHE);
+            }
         }
 
         return result;
@@ -186,22 +501,22 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
         for (Parameter resourceClassMethodParameter : resourceClassMethodParameters) {
             final String parameterType = toCamelCase(resourceClassMethodParameter.getJaxRsAnnotationType().getSimpleName());
 
-            parameters.putSingleValue(parameterType, new FlatResourceMethodParameter(resourceClassMethodParameter.getName(), resourceClassMethodParameter.getType().getSimpleName()));
+            parameters.putSingleValue(parameterType, new FlatResourceMethodParameter(resourceClassMethodParameter.getName(), resourceClassMethodParameter.getTypeSimpleName()));
         }
 
         return parameters;
     }
 
-    private List<FlatResource> representResourceClassMethods(final ResourceClass resourceClass, final MultiValuedMap<String, ResourceClassMethod> resourceClassMethodsByUriTemplate) {
+    private List<FlatResource> representResourceClassMethods(final ResourceClass resourceClass, final MultiValuedMap<String, ContainedMethod> resourceClassMethodsByUriTemplate) {
 
         final List<FlatResource> result = new ArrayList<FlatResource>();
 
-        for (Map.Entry<String, List<ResourceClassMethod>> subResourceMethodsGroupedByPath : resourceClassMethodsByUriTemplate.entrySet()) {
+        for (Map.Entry<String, List<ContainedMethod>> subResourceMethodsGroupedByPath : resourceClassMethodsByUriTemplate.entrySet()) {
             final String uriTemplate = subResourceMethodsGroupedByPath.getKey();
 
             final List<FlatResourceMethod> flatResourceMethods = new ArrayList<FlatResourceMethod>();
-            for (ResourceClassMethod rawMethod : subResourceMethodsGroupedByPath.getValue()) {
-                flatResourceMethods.add(representResourceClassMethod(resourceClass, rawMethod.getResourceClass(), rawMethod));
+            for (ContainedMethod rawMethod : subResourceMethodsGroupedByPath.getValue()) {
+                flatResourceMethods.add(representResourceClassMethod(resourceClass, rawMethod.resourceClass, rawMethod.method));
             }
 
             result.add(representResource(uriTemplate, flatResourceMethods));
@@ -224,7 +539,7 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
 
         final String requestMethodDesignator = representRequestMethodDesignator(resourceClassMethod);
 
-        return new FlatResourceMethod(resourceClassMethod.getName(), requestMethodDesignator, parameters, consumes, produces, resourceClassContainingMethod.getRawClass().getName());
+        return new FlatResourceMethod(resourceClassMethod.getName(), requestMethodDesignator, parameters, consumes, produces, resourceClassContainingMethod.getClassName());
     }
 
     private FlatResource representResource(final String uriTemplate, final List<FlatResourceMethod> resourceMethods) {
@@ -238,11 +553,14 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
 
     private List<String> representMediaTypeListForMethod(final List<String> methodLevelMediaTypes, final List<String> classLevelMediaTypes) {
 
-        if (methodLevelMediaTypes.isEmpty()) {
-            return classLevelMediaTypes;
-        } else {
-            return methodLevelMediaTypes;
+        final List<String> declaredMediaTypes = methodLevelMediaTypes.isEmpty() ? classLevelMediaTypes : methodLevelMediaTypes;
+
+        final List<String> result = new ArrayList<String>();
+        for (String mediaTypes : declaredMediaTypes) {
+            result.addAll(MediaType.splitList(mediaTypes));
         }
+
+        return result;
     }
 
     private String cleanupUriTemplate(final String uriTemplate) {
@@ -253,23 +571,128 @@ public class FlatRepresentationBuilder implements RepresentationBuilder<Set<Flat
         return string.substring(0, 1).toLowerCase(Locale.getDefault()) + string.substring(1);
     }
 
+    /**
+     * State shared across the root resources of a single build of a representation. Access is synchronized as root
+     * resources may be built in parallel; memoized groupings may occasionally be computed twice but are always equal.
+     */
+    private static final class FlatteningContext {
+
+        private final Map<ResourceClass, Integer> locatorHeights = new IdentityHashMap<ResourceClass, Integer>();
+        private final Set<ResourceClass> locatorHeightsInProgress = Collections.newSetFromMap(new IdentityHashMap<ResourceClass, Boolean>());
+        private final Map<ResourceClass, Map<Integer, MultiValuedMap<String, ContainedMethod>>> groupings = new IdentityHashMap<ResourceClass, Map<Integer, MultiValuedMap<String, ContainedMethod>>>();
+
+        /**
+         * The length of the longest chain of sub-resource locators starting at the specified class - or
+         * {@link #UNLIMITED} if the chain is a cycle.
+         */
+        synchronized int getLocatorHeightOf(final ResourceClass resourceClass) {
+
+            final Integer memoized = locatorHeights.get(resourceClass);
+            if (memoized != null) {
+                return memoized;
+            }
+
+            if (!locatorHeightsInProgress.add(resourceClass)) {
+                return UNLIMITED;
+            }
+
+            int result = 0;
+            for (ResourceClassMethod method : resourceClass.getMethods()) {
+                if (method instanceof SubResourceLocator) {
+                    final ResourceClass subResource = ((SubResourceLocator) method).getSubResource();
+                    final int subResourceHeight = subResource == null ? 0 : getLocatorHeightOf(subResource);
+
+                    result = subResourceHeight == UNLIMITED ? UNLIMITED : Math.max(result, 1 + subResourceHeight);
+                }
+
+                if (result == UNLIMITED) {
+                    break;
+                }
+            }
+
+            locatorHeightsInProgress.remove(resourceClass);
+            locatorHeights.put(resourceClass, result);
+
+            return result;
+        }
+
+        synchronized MultiValuedMap<String, ContainedMethod> getMemoizedGrouping(final ResourceClass resourceClass, final int locatorDepth) {
+
+            final Map<Integer, MultiValuedMap<String, ContainedMethod>> groupingsByDepth = groupings.get(resourceClass);
+
+            return groupingsByDepth == null ? null : groupingsByDepth.get(locatorDepth);
+        }
+
+        synchronized void memoizeGrouping(final ResourceClass resourceClass, final int locatorDepth, final MultiValuedMap<String, ContainedMethod> grouping) {
+
+            Map<Integer, MultiValuedMap<String, ContainedMethod>> groupingsByDepth = groupings.get(resourceClass);
+
+            if (groupingsByDepth == null) {
+                groupingsByDepth = new HashMap<Integer, MultiValuedMap<String, ContainedMethod>>();
+                groupings.put(resourceClass, groupingsByDepth);
+            }
+
+            groupingsByDepth.put(locatorDepth, grouping);
+        }
+    }
+
+    /**
+     * A resource class method along with the resource class that declares it - which, for a method reached through a
+     * sub-resource locator, is not the root resource class being represented.
+     */
+    private static final class ContainedMethod {
+
+        private final ResourceClass resourceClass;
+        private final ResourceClassMethod method;
+
+        ContainedMethod(final ResourceClass resourceClass, final ResourceClassMethod method) {
+            this.resourceClass = resourceClass;
+            this.method = method;
+        }
+    }
+
     private static class MultiValuedMap<K, V> extends HashMap<K, List<V>> {
 
         private static final long serialVersionUID = 1L;
 
+        private int valueCount;
+
         public void putSingleValue(final K key, final V value) {
             get(key).add(value);
+            valueCount++;
+        }
+
+        public void putValues(final K key, final List<V> values) {
+            get(key).addAll(values);
+            valueCount += values.size();
         }
 
-        public void mergeIn(final MultiValuedMap<K, V> input) {
+        /**
+         * Merges in the values of another map - up to a maximum total number of values.
+         *
+         * @return
+         *      Whether any values were left out.
+         */
+        public boolean mergeIn(final MultiValuedMap<K, V> input, final int maximumValueCount) {
 
             for (Map.Entry<K, List<V>> entry: input.entrySet()) {
                 final K key = entry.getKey();
                 final List<V> values = entry.getValue();
 
-                final List<V> listToAddTo = get(key);
-                listToAddTo.addAll(values);
+                final int remaining = maximumValueCount - valueCount;
+                if (values.size() > remaining) {
+                    putValues(key, values.subList(0, remaining));
+                    return true;
+                }
+
+                putValues(key, values);
             }
+
+            return false;
+        }
+
+        public int valueCount() {
+            return valueCount;
         }
 
         @Override
@@ -15,6 +15,12 @@
  */
 package com.kelveden.rastajax.representation.flat;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang.ObjectUtils;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
@@ -25,10 +31,26 @@ public final class FlatResource {
 
     private final String uriTemplate;
     private final List<FlatResourceMethod> resourceMethods;
+    private final Fingerprint fingerprint;
 
     FlatResource(final String uriTemplate, final List<FlatResourceMethod> resourceMethods) {
         this.uriTemplate = uriTemplate;
         this.resourceMethods = Collections.unmodifiableList(resourceMethods);
+
+        final Fingerprint.Combiner methodFingerprints = new Fingerprint.Combiner();
+        for (FlatResourceMethod resourceMethod : resourceMethods) {
+            methodFingerprints.add(resourceMethod.getFingerprint());
+        }
+
+        this.fingerprint = new Fingerprint.Hasher().add(uriTemplate).add(methodFingerprints.toFingerprint()).toFingerprint();
+    }
+
+    /**
+     * Reads a resource back from its JSON form - e.g. from a saved representation.
+     */
+    @JsonCreator
+    static FlatResource fromJson(@JsonProperty("uriTemplate") final String uriTemplate, @JsonProperty("resourceMethods") final List<FlatResourceMethod> resourceMethods) {
+        return new FlatResource(uriTemplate, resourceMethods == null ? new ArrayList<FlatResourceMethod>() : resourceMethods);
     }
 
     public String getUriTemplate() {
@@ -39,5 +61,33 @@ public final class FlatResource {
         return resourceMethods;
     }
 
+    /**
+     * The {@link Fingerprint} of the resource - covering its URI template and resource methods but not depending on the
+     * order of its resource methods.
+     */
+    @JsonIgnore
+    public Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
 
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof FlatResource)) {
+            return false;
+        }
+
+        final FlatResource resource = (FlatResource) other;
+
+        return fingerprint.equals(resource.fingerprint) && ObjectUtils.equals(uriTemplate, resource.uriTemplate) && UnorderedEquality.equalIgnoringOrder(resourceMethods, resource.resourceMethods);
+    }
+
+    @Override
+    public int hashCode() {
+        return fingerprint.hashCode();
+    }
 }
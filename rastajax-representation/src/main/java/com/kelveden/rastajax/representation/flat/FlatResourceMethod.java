@@ -15,11 +15,13 @@
  */
 package com.kelveden.rastajax.representation.flat;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang.ObjectUtils;
 
-import java.util.Collections;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * Represents the final "representable" version of a resource method on a <a href="http://jsr311.java.net/">JAX-RS</a> resource.
@@ -32,14 +34,51 @@ public final class FlatResourceMethod {
     private final List<String> produces;
     private final List<String> consumes;
     private final String resourceClass;
+    private final Fingerprint fingerprint;
 
     FlatResourceMethod(final String name, final String requestMethodDesignator, final Map<String, List<FlatResourceMethodParameter>> parametersByType, final List<String> consumes, final List<String> produces, final String resourceClass) {
         this.name = name;
         this.requestMethodDesignator = requestMethodDesignator;
-        this.parametersByType = Collections.unmodifiableMap(parametersByType);
+        this.parametersByType = copyOf(parametersByType);
         this.produces = Collections.unmodifiableList(produces);
         this.consumes = Collections.unmodifiableList(consumes);
         this.resourceClass = resourceClass;
+        this.fingerprint = fingerprint();
+    }
+
+    /**
+     * Reads a resource method back from its JSON form - in which empty parameters and media types are left out.
+     */
+    @JsonCreator
+    static FlatResourceMethod fromJson(@JsonProperty("name") final String name,
+                                       @JsonProperty("requestMethodDesignator") final String requestMethodDesignator,
+                                       @JsonProperty("parameters") final Map<String, List<FlatResourceMethodParameter>> parametersByType,
+                                       @JsonProperty("consumes") final List<String> consumes,
+                                       @JsonProperty("produces") final List<String> produces,
+                                       @JsonProperty("resourceClass") final String resourceClass) {
+
+        return new FlatResourceMethod(
+                name,
+                requestMethodDesignator,
+                parametersByType == null ? new LinkedHashMap<String, List<FlatResourceMethodParameter>>() : parametersByType,
+                consumes == null ? new ArrayList<String>() : consumes,
+                produces == null ? new ArrayList<String>() : produces,
+                resourceClass);
+    }
+
+    /**
+     * Copies parameters into a plain map - the builder hands over a map that inserts an empty list on every miss, which
+     * would change the shared representation when read.
+     */
+    private static Map<String, List<FlatResourceMethodParameter>> copyOf(final Map<String, List<FlatResourceMethodParameter>> parametersByType) {
+
+        final Map<String, List<FlatResourceMethodParameter>> result = new LinkedHashMap<String, List<FlatResourceMethodParameter>>();
+
+        for (Map.Entry<String, List<FlatResourceMethodParameter>> parameters : parametersByType.entrySet()) {
+            result.put(parameters.getKey(), Collections.unmodifiableList(new ArrayList<FlatResourceMethodParameter>(parameters.getValue())));
+        }
+
+        return Collections.unmodifiableMap(result);
     }
 
     public String getName() {
@@ -68,4 +107,67 @@ public final class FlatResourceMethod {
     public String getResourceClass() {
         return resourceClass;
     }
+
+    /**
+     * The {@link Fingerprint} of the resource method - covering everything about it but not depending on the order of its
+     * parameters or media types.
+     */
+    @JsonIgnore
+    public Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof FlatResourceMethod)) {
+            return false;
+        }
+
+        final FlatResourceMethod resourceMethod = (FlatResourceMethod) other;
+
+        return fingerprint.equals(resourceMethod.fingerprint)
+                && ObjectUtils.equals(name, resourceMethod.name)
+                && ObjectUtils.equals(requestMethodDesignator, resourceMethod.requestMethodDesignator)
+                && ObjectUtils.equals(resourceClass, resourceMethod.resourceClass)
+                && UnorderedEquality.equalIgnoringOrder(parametersByType, resourceMethod.parametersByType)
+                && UnorderedEquality.equalMediaTypes(consumes, resourceMethod.consumes)
+                && UnorderedEquality.equalMediaTypes(produces, resourceMethod.produces);
+    }
+
+    @Override
+    public int hashCode() {
+        return fingerprint.hashCode();
+    }
+
+    private Fingerprint fingerprint() {
+
+        final Fingerprint.Hasher result = new Fingerprint.Hasher().add(name).add(requestMethodDesignator).add(resourceClass);
+
+        for (String parameterType : new TreeSet<String>(parametersByType.keySet())) {
+            final Fingerprint.Combiner parameters = new Fingerprint.Combiner();
+
+            for (FlatResourceMethodParameter parameter : parametersByType.get(parameterType)) {
+                parameters.add(parameter.getFingerprint());
+            }
+
+            result.add(parameterType).add(parameters.toFingerprint());
+        }
+
+        result.add("consumes");
+        for (String mediaType : ApiFingerprints.canonicalMediaTypes(consumes)) {
+            result.add(mediaType);
+        }
+
+        result.add("produces");
+        for (String mediaType : ApiFingerprints.canonicalMediaTypes(produces)) {
+            result.add(mediaType);
+        }
+
+        return result.toFingerprint();
+    }
 }
@@ -15,6 +15,11 @@
  */
 package com.kelveden.rastajax.representation.flat;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang.ObjectUtils;
+
 /**
  * Represents the final "representable" version of a parameter on a resource method of a
  * <a href="http://jsr311.java.net/">JAX-RS</a> resource.
@@ -23,10 +28,13 @@ public final class FlatResourceMethodParameter {
 
     private final String name;
     private final String type;
+    private final Fingerprint fingerprint;
 
-    FlatResourceMethodParameter(final String name, final String type) {
+    @JsonCreator
+    FlatResourceMethodParameter(@JsonProperty("name") final String name, @JsonProperty("type") final String type) {
         this.name = name;
         this.type = type;
+        this.fingerprint = new Fingerprint.Hasher().add(name).add(type).toFingerprint();
     }
 
     public String getName() {
@@ -36,4 +44,33 @@ public final class FlatResourceMethodParameter {
     public String getType() {
         return type;
     }
+
+    /**
+     * The {@link Fingerprint} of the parameter.
+     */
+    @JsonIgnore
+    public Fingerprint getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof FlatResourceMethodParameter)) {
+            return false;
+        }
+
+        final FlatResourceMethodParameter parameter = (FlatResourceMethodParameter) other;
+
+        return fingerprint.equals(parameter.fingerprint) && ObjectUtils.equals(name, parameter.name) && ObjectUtils.equals(type, parameter.type);
+    }
+
+    @Override
+    public int hashCode() {
+        return fingerprint.hashCode();
+    }
 }
@@ -0,0 +1,91 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The result of resolving a request against a {@link FlatRouteIndex}: the {@link FlatResource} and {@link FlatResourceMethod}
+ * that would serve the request.
+ */
+public final class FlatRoute {
+
+    private final FlatResource resource;
+    private final FlatResourceMethod resourceMethod;
+    private final UriTemplate uriTemplate;
+    private final List<MediaType> consumes;
+    private final List<MediaType> produces;
+
+    FlatRoute(final FlatResource resource, final FlatResourceMethod resourceMethod, final UriTemplate uriTemplate) {
+        this.resource = resource;
+        this.resourceMethod = resourceMethod;
+        this.uriTemplate = uriTemplate;
+        this.consumes = parse(resourceMethod.getConsumes());
+        this.produces = parse(resourceMethod.getProduces());
+    }
+
+    public FlatResource getResource() {
+        return resource;
+    }
+
+    public FlatResourceMethod getResourceMethod() {
+        return resourceMethod;
+    }
+
+    public UriTemplate getUriTemplate() {
+        return uriTemplate;
+    }
+
+    /**
+     * The media types that the resource method consumes - empty if it consumes anything.
+     */
+    List<MediaType> getConsumes() {
+        return consumes;
+    }
+
+    /**
+     * The media types that the resource method produces - empty if it can produce anything.
+     */
+    List<MediaType> getProduces() {
+        return produces;
+    }
+
+    /**
+     * Parses the media types of a resource method, ignoring any that are malformed.
+     */
+    private static List<MediaType> parse(final List<String> mediaTypes) {
+
+        if (mediaTypes.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<MediaType> result = new ArrayList<MediaType>();
+
+        for (String mediaType : mediaTypes) {
+            for (String element : MediaType.splitList(mediaType)) {
+                try {
+                    result.add(MediaType.valueOf(element));
+                } catch (final IllegalArgumentException e) {
+                    // Ignore.
+                }
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+}
@@ -0,0 +1,544 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.regex.Matcher;
+
+/**
+ * Index for resolving a request - i.e. an HTTP method and a path - to the {@link FlatResource} and {@link FlatResourceMethod}
+ * that serve it.
+ * <p>
+ * URI templates are compiled into a trie of path segments with literal, template variable and regular expression edges.
+ * Where more than one template matches a path, the <a href="http://jsr311.java.net/">JAX-RS</a> precedence rules (see
+ * {@link UriTemplate#PRECEDENCE_COMPARATOR}) are applied to the full flattened templates; the request method is then
+ * matched against the winning resource only - just as a JAX-RS runtime would respond with a 405 rather than falling back
+ * to a less specific resource.
+ * <p>
+ * A resource may have several resource methods for the same request method that differ by the media types that they
+ * consume and produce; all of them are kept and {@link #lookup(String, String, String, String)} chooses between them as
+ * a JAX-RS runtime would, with the media type masks of {@link MediaTypeIndex}. A variable that can match across segments - e.g. <code>files/{path: .*}</code> - only matches
+ * an empty remainder if the path ends with a slash, just as {@link UriTemplate#matches(String)}.
+ * <p>
+ * Lookups do not allocate - parsed headers are cached - and instances are safe for concurrent use once constructed.
+ */
+public final class FlatRouteIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FlatRouteIndex.class);
+
+    private static final String HEAD = "HEAD";
+    private static final String GET = "GET";
+
+    private static final List<FlatRoute> NO_ROUTES = Collections.emptyList();
+
+    private final Node root = new Node();
+    private final MediaTypeHeaders headers = new MediaTypeHeaders();
+    private final List<FlatRoute> routes = new ArrayList<FlatRoute>();
+
+    /**
+     * Constructor.
+     *
+     * @param resources
+     *      The resources to index.
+     */
+    public FlatRouteIndex(final Set<FlatResource> resources) {
+
+        final List<IndexEntry> entries = new ArrayList<IndexEntry>();
+        for (FlatResource resource : resources) {
+            entries.add(new IndexEntry(resource, new UriTemplate(resource.getUriTemplate())));
+        }
+
+        Collections.sort(entries);
+
+        for (int rank = 0; rank < entries.size(); rank++) {
+            addToIndex(entries.get(rank), rank);
+        }
+
+        root.freeze();
+
+        LOGGER.debug("Indexed {} routes from {} resources.", routes.size(), entries.size());
+    }
+
+    /**
+     * Resolves a request to the first of the routes that can serve it - see {@link #lookupAll(String, String)}.
+     *
+     * @param requestMethodDesignator
+     *      The HTTP method of the request.
+     * @param path
+     *      The request path relative to the root of the JAX-RS application, excluding any query string.
+     * @return
+     *      The route or null if no resource matches the path or the matching resource does not support the HTTP method.
+     */
+    public FlatRoute lookup(final String requestMethodDesignator, final String path) {
+
+        final List<FlatRoute> candidates = lookupAll(requestMethodDesignator, path);
+
+        return candidates.isEmpty() ? null : candidates.get(0);
+    }
+
+    /**
+     * Resolves a request to the routes that can serve it - i.e. the resource methods for the HTTP method on the
+     * resource(s) whose URI template takes precedence for the path. <code>HEAD</code> requests fall back to the
+     * <code>GET</code> resource methods if there is no explicit <code>HEAD</code> resource method.
+     *
+     * @param requestMethodDesignator
+     *      The HTTP method of the request.
+     * @param path
+     *      The request path relative to the root of the JAX-RS application, excluding any query string.
+     * @return
+     *      The routes in JAX-RS precedence order of their URI templates and then in declaration order. Empty if no
+     *      resource matches the path or the matching resource does not support the HTTP method.
+     */
+    public List<FlatRoute> lookupAll(final String requestMethodDesignator, final String path) {
+
+        final Node node = matchPath(path);
+
+        if (node == null) {
+            return NO_ROUTES;
+        }
+
+        List<FlatRoute> candidates = node.routesByRequestMethodDesignator.get(requestMethodDesignator);
+
+        if ((candidates == null) && HEAD.equals(requestMethodDesignator)) {
+            candidates = node.routesByRequestMethodDesignator.get(GET);
+        }
+
+        return candidates == null ? NO_ROUTES : candidates;
+    }
+
+    /**
+     * Resolves a request to the route that serves it, choosing between resource methods for the same HTTP method by the
+     * media types that they consume and produce.
+     *
+     * @param requestMethodDesignator
+     *      The HTTP method of the request.
+     * @param path
+     *      The request path relative to the root of the JAX-RS application, excluding any query string.
+     * @param contentType
+     *      The <code>Content-Type</code> of the request or null if it has no entity.
+     * @param accept
+     *      The <code>Accept</code> header of the request or null if there is none.
+     * @return
+     *      Of the routes that consume the <code>Content-Type</code>, the one producing the media type most preferred by
+     *      the <code>Accept</code> header - or, failing that, the first of them. Null if there is no route for the path
+     *      and HTTP method, none of them consumes the <code>Content-Type</code> or the <code>Content-Type</code> is
+     *      malformed.
+     */
+    public FlatRoute lookup(final String requestMethodDesignator, final String path, final String contentType, final String accept) {
+
+        final Node node = matchPath(path);
+
+        if (node == null) {
+            return null;
+        }
+
+        MediaTypeIndex.Entry entry = node.mediaTypesByRequestMethodDesignator.get(requestMethodDesignator);
+
+        if ((entry == null) && HEAD.equals(requestMethodDesignator)) {
+            entry = node.mediaTypesByRequestMethodDesignator.get(GET);
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        final long[] candidates = MediaTypeIndex.candidatesFor(entry);
+
+        if (contentType != null) {
+            final MediaType parsedContentType = headers.parseContentType(contentType);
+
+            if (parsedContentType == null) {
+                return null;
+            }
+
+            entry.retainConsuming(candidates, parsedContentType);
+        }
+
+        final int firstConsuming = entry.first(candidates);
+
+        if (firstConsuming < 0) {
+            return null;
+        }
+
+        final int mostAcceptable = entry.takeMostAcceptable(candidates, headers.parseAcceptHeader(accept));
+
+        return entry.getRoutes().get(mostAcceptable < 0 ? firstConsuming : mostAcceptable);
+    }
+
+    /**
+     * The HTTP methods that the resource(s) whose URI template takes precedence for a path support.
+     *
+     * @param path
+     *      The request path relative to the root of the JAX-RS application, excluding any query string.
+     * @return
+     *      The request method designators in declaration order or null if no resource matches the path.
+     */
+    public Set<String> lookupRequestMethodDesignators(final String path) {
+
+        final Node node = matchPath(path);
+
+        return node == null ? null : node.requestMethodDesignators;
+    }
+
+    /**
+     * Resolves a path to the resource that serves it, regardless of HTTP method.
+     *
+     * @param path
+     *      The request path relative to the root of the JAX-RS application, excluding any query string.
+     * @return
+     *      The resource or null if no resource matches the path.
+     */
+    public FlatResource lookupResource(final String path) {
+
+        final Node node = matchPath(path);
+
+        return node == null ? null : node.resource;
+    }
+
+    /**
+     * All routes that can be resolved from this index, in JAX-RS precedence order.
+     */
+    public List<FlatRoute> getRoutes() {
+        return Collections.unmodifiableList(routes);
+    }
+
+    private void addToIndex(final IndexEntry entry, final int rank) {
+
+        Node node = root;
+
+        for (UriTemplate.Segment segment : entry.template.getSegments()) {
+            node = node.child(segment);
+        }
+
+        if (node.resource == null) {
+            node.resource = entry.resource;
+            node.rank = rank;
+        } else {
+            LOGGER.debug("URI template '{}' is equivalent to '{}' and will only be used for request methods the latter does not declare.",
+                    entry.template, node.resource.getUriTemplate());
+        }
+
+        for (FlatResourceMethod resourceMethod : entry.resource.getResourceMethods()) {
+            final String requestMethodDesignator = resourceMethod.getRequestMethodDesignator();
+
+            if (requestMethodDesignator == null) {
+                continue;
+            }
+
+            List<FlatRoute> candidates = node.routesByRequestMethodDesignator.get(requestMethodDesignator);
+            if (candidates == null) {
+                candidates = new ArrayList<FlatRoute>();
+                node.routesByRequestMethodDesignator.put(requestMethodDesignator, candidates);
+            }
+
+            final FlatRoute route = new FlatRoute(entry.resource, resourceMethod, entry.template);
+
+            candidates.add(route);
+            routes.add(route);
+        }
+    }
+
+    private Node matchPath(final String path) {
+
+        int end = path.length();
+        while ((end > 0) && (path.charAt(end - 1) == '/')) {
+            end--;
+        }
+
+        return match(root, path, 0, end, null);
+    }
+
+    private static Node match(final Node node, final String path, final int position, final int end, final Node bestSoFar) {
+
+        Node best = bestSoFar;
+
+        int start = position;
+        while ((start < end) && (path.charAt(start) == '/')) {
+            start++;
+        }
+
+        if (start >= end) {
+            if (node.isBetterThan(best)) {
+                best = node;
+            }
+
+            // As with UriTemplate, a variable matching across segments only matches an empty remainder after a slash.
+            return (position == 0) || (path.length() > end) ? matchTails(node, path, end, end, best) : best;
+        }
+
+        int segmentEnd = path.indexOf('/', start);
+        if ((segmentEnd < 0) || (segmentEnd > end)) {
+            segmentEnd = end;
+        }
+
+        final Node literalChild = node.literalChildren.get(path, start, segmentEnd);
+        if ((literalChild != null) && literalChild.canImprove(best)) {
+            best = match(literalChild, path, segmentEnd, end, best);
+        }
+
+        for (PatternEdge edge : node.patternEdges) {
+            if (edge.child.canImprove(best) && edge.matches(path, start, segmentEnd)) {
+                best = match(edge.child, path, segmentEnd, end, best);
+            }
+        }
+
+        if ((node.variableChild != null) && node.variableChild.canImprove(best)) {
+            best = match(node.variableChild, path, segmentEnd, end, best);
+        }
+
+        return matchTails(node, path, start, end, best);
+    }
+
+    private static Node matchTails(final Node node, final String path, final int start, final int end, final Node bestSoFar) {
+
+        Node best = bestSoFar;
+
+        for (PatternEdge edge : node.tailEdges) {
+            if (edge.child.isBetterThan(best) && edge.matches(path, start, end)) {
+                best = edge.child;
+            }
+        }
+
+        return best;
+    }
+
+    private static final class IndexEntry implements Comparable<IndexEntry> {
+
+        private final FlatResource resource;
+        private final UriTemplate template;
+
+        IndexEntry(final FlatResource resource, final UriTemplate template) {
+            this.resource = resource;
+            this.template = template;
+        }
+
+        @Override
+        public int compareTo(final IndexEntry other) {
+
+            final int precedence = UriTemplate.PRECEDENCE_COMPARATOR.compare(template, other.template);
+
+            return precedence != 0 ? precedence : template.getTemplate().compareTo(other.template.getTemplate());
+        }
+    }
+
+    private static final class Node {
+
+        private static final PatternEdge[] NO_EDGES = new PatternEdge[0];
+        private static final Comparator<PatternEdge> EDGE_COMPARATOR = new Comparator<PatternEdge>() {
+            @Override
+            public int compare(final PatternEdge edge1, final PatternEdge edge2) {
+                return edge1.child.minimumRank - edge2.child.minimumRank;
+            }
+        };
+
+        private final Map<String, Node> literalChildrenByKey = new HashMap<String, Node>();
+        private final Map<String, PatternEdge> patternEdgesByKey = new LinkedHashMap<String, PatternEdge>();
+        private final Map<String, PatternEdge> tailEdgesByKey = new LinkedHashMap<String, PatternEdge>();
+        private Map<String, List<FlatRoute>> routesByRequestMethodDesignator = new LinkedHashMap<String, List<FlatRoute>>();
+        private final Map<String, MediaTypeIndex.Entry> mediaTypesByRequestMethodDesignator = new HashMap<String, MediaTypeIndex.Entry>();
+        private Set<String> requestMethodDesignators;
+
+        private LiteralTable literalChildren;
+        private PatternEdge[] patternEdges = NO_EDGES;
+        private PatternEdge[] tailEdges = NO_EDGES;
+        private Node variableChild;
+
+        private FlatResource resource;
+        private int rank = Integer.MAX_VALUE;
+        private int minimumRank = Integer.MAX_VALUE;
+
+        Node child(final UriTemplate.Segment segment) {
+
+            switch (segment.getType()) {
+                case LITERAL:
+                    Node literalChild = literalChildrenByKey.get(segment.getKey());
+                    if (literalChild == null) {
+                        literalChild = new Node();
+                        literalChildrenByKey.put(segment.getKey(), literalChild);
+                    }
+                    return literalChild;
+
+                case VARIABLE:
+                    if (variableChild == null) {
+                        variableChild = new Node();
+                    }
+                    return variableChild;
+
+                case PATTERN:
+                    return edge(patternEdgesByKey, segment).child;
+
+                default:
+                    return edge(tailEdgesByKey, segment).child;
+            }
+        }
+
+        private PatternEdge edge(final Map<String, PatternEdge> edgesByKey, final UriTemplate.Segment segment) {
+
+            PatternEdge edge = edgesByKey.get(segment.getKey());
+            if (edge == null) {
+                edge = new PatternEdge(segment, new Node());
+                edgesByKey.put(segment.getKey(), edge);
+            }
+
+            return edge;
+        }
+
+        void freeze() {
+
+            minimumRank = rank;
+
+            final Map<String, List<FlatRoute>> frozenRoutes = new HashMap<String, List<FlatRoute>>();
+            for (Map.Entry<String, List<FlatRoute>> entry : routesByRequestMethodDesignator.entrySet()) {
+                frozenRoutes.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+                mediaTypesByRequestMethodDesignator.put(entry.getKey(), new MediaTypeIndex.Entry(entry.getValue()));
+            }
+
+            requestMethodDesignators = Collections.unmodifiableSet(new LinkedHashSet<String>(routesByRequestMethodDesignator.keySet()));
+            routesByRequestMethodDesignator = frozenRoutes;
+
+            for (Node literalChild : literalChildrenByKey.values()) {
+                literalChild.freeze();
+                minimumRank = Math.min(minimumRank, literalChild.minimumRank);
+            }
+
+            if (variableChild != null) {
+                variableChild.freeze();
+                minimumRank = Math.min(minimumRank, variableChild.minimumRank);
+            }
+
+            patternEdges = freezeEdges(patternEdgesByKey);
+            tailEdges = freezeEdges(tailEdgesByKey);
+
+            literalChildren = new LiteralTable(literalChildrenByKey);
+        }
+
+        private PatternEdge[] freezeEdges(final Map<String, PatternEdge> edgesByKey) {
+
+            if (edgesByKey.isEmpty()) {
+                return NO_EDGES;
+            }
+
+            final PatternEdge[] edges = edgesByKey.values().toArray(new PatternEdge[edgesByKey.size()]);
+
+            for (PatternEdge edge : edges) {
+                edge.child.freeze();
+                minimumRank = Math.min(minimumRank, edge.child.minimumRank);
+            }
+
+            Arrays.sort(edges, EDGE_COMPARATOR);
+
+            return edges;
+        }
+
+        boolean isBetterThan(final Node other) {
+            return (resource != null) && ((other == null) || (rank < other.rank));
+        }
+
+        boolean canImprove(final Node other) {
+            return (other == null) || (minimumRank < other.rank);
+        }
+    }
+
+    private static final class PatternEdge {
+
+        private final UriTemplate.Segment segment;
+        private final Node child;
+        private final ThreadLocal<Matcher> matchers;
+
+        PatternEdge(final UriTemplate.Segment segment, final Node child) {
+            this.segment = segment;
+            this.child = child;
+            this.matchers = new ThreadLocal<Matcher>() {
+                @Override
+                protected Matcher initialValue() {
+                    return segment.getPattern().matcher("");
+                }
+            };
+        }
+
+        boolean matches(final String path, final int start, final int end) {
+
+            final Matcher matcher = matchers.get();
+            matcher.reset(path);
+            matcher.region(start, end);
+
+            return matcher.matches();
+        }
+    }
+
+    /**
+     * Open-addressed hash table of literal segments that can be probed with a region of a path without creating a
+     * substring.
+     */
+    private static final class LiteralTable {
+
+        private final String[] keys;
+        private final Node[] values;
+        private final int mask;
+
+        LiteralTable(final Map<String, Node> nodesByLiteral) {
+
+            int capacity = 2;
+            while (capacity < nodesByLiteral.size() * 2) {
+                capacity <<= 1;
+            }
+
+            keys = new String[capacity];
+            values = new Node[capacity];
+            mask = capacity - 1;
+
+            for (Map.Entry<String, Node> entry : nodesByLiteral.entrySet()) {
+                int index = spread(entry.getKey().hashCode()) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+
+                keys[index] = entry.getKey();
+                values[index] = entry.getValue();
+            }
+        }
+
+        Node get(final String path, final int start, final int end) {
+
+            final int length = end - start;
+
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+
+            int index = spread(hash) & mask;
+            while (keys[index] != null) {
+                final String key = keys[index];
+
+                if ((key.length() == length) && key.regionMatches(0, path, start, length)) {
+                    return values[index];
+                }
+
+                index = (index + 1) & mask;
+            }
+
+            return null;
+        }
+
+        private static int spread(final int hash) {
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
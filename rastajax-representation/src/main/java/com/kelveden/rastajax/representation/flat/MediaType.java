@@ -0,0 +1,353 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.*;
+
+/**
+ * A parsed media type or media range - e.g. <code>text/html; charset=UTF-8</code> or <code>application/*; q=0.5</code> -
+ * as found in <code>@Produces</code>/<code>@Consumes</code> annotations and in <code>Content-Type</code> and
+ * <code>Accept</code> headers. Types, subtypes and parameter names are compared case-insensitively.
+ */
+public final class MediaType {
+
+    public static final String WILDCARD = "*";
+
+    /**
+     * The <code>*&#47;*</code> media range.
+     */
+    public static final MediaType ANY = new MediaType(WILDCARD, WILDCARD, Collections.<String, String>emptyMap(), MediaType.MAXIMUM_QUALITY);
+
+    /**
+     * Orders media ranges by preference: highest quality factor first, then most specific - i.e. concrete types before
+     * <code>type/*</code> before <code>*&#47;*</code> and, for equal types, most parameters first.
+     */
+    public static final Comparator<MediaType> PREFERENCE_COMPARATOR = new Comparator<MediaType>() {
+        @Override
+        public int compare(final MediaType mediaType1, final MediaType mediaType2) {
+
+            if (mediaType1.quality != mediaType2.quality) {
+                return mediaType2.quality - mediaType1.quality;
+            }
+
+            if (mediaType1.getSpecificity() != mediaType2.getSpecificity()) {
+                return mediaType2.getSpecificity() - mediaType1.getSpecificity();
+            }
+
+            return mediaType2.parameters.size() - mediaType1.parameters.size();
+        }
+    };
+
+    static final int MAXIMUM_QUALITY = 1000;
+
+    private static final String QUALITY_PARAMETER = "q";
+
+    private final String type;
+    private final String subtype;
+    private final Map<String, String> parameters;
+    private final int quality;
+
+    private MediaType(final String type, final String subtype, final Map<String, String> parameters, final int quality) {
+        this.type = type;
+        this.subtype = subtype;
+        this.parameters = parameters;
+        this.quality = quality;
+    }
+
+    /**
+     * Parses a single media type.
+     *
+     * @param mediaType
+     *      The media type; e.g. <code>text/html; charset=UTF-8</code>. A bare <code>*</code> is read as <code>*&#47;*</code>.
+     * @throws IllegalArgumentException
+     *      If the media type is malformed.
+     */
+    public static MediaType valueOf(final String mediaType) {
+
+        if (mediaType == null) {
+            throw new IllegalArgumentException("Media type must not be null.");
+        }
+
+        final List<String> tokens = split(mediaType, ';');
+        final String fullType = tokens.get(0).trim().toLowerCase(Locale.ENGLISH);
+
+        final String type;
+        final String subtype;
+
+        final int slash = fullType.indexOf('/');
+        if (slash < 0) {
+            if (!WILDCARD.equals(fullType)) {
+                throw new IllegalArgumentException("Media type '" + mediaType + "' has no subtype.");
+            }
+            type = WILDCARD;
+            subtype = WILDCARD;
+
+        } else {
+            type = fullType.substring(0, slash).trim();
+            subtype = fullType.substring(slash + 1).trim();
+        }
+
+        if ((type.length() == 0) || (subtype.length() == 0) || (WILDCARD.equals(type) && !WILDCARD.equals(subtype))) {
+            throw new IllegalArgumentException("Media type '" + mediaType + "' is malformed.");
+        }
+
+        final Map<String, String> parameters = new TreeMap<String, String>();
+        int quality = MAXIMUM_QUALITY;
+
+        for (int i = 1; i < tokens.size(); i++) {
+            final String token = tokens.get(i).trim();
+
+            if (token.length() == 0) {
+                continue;
+            }
+
+            final int equals = token.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Media type '" + mediaType + "' has a malformed parameter '" + token + "'.");
+            }
+
+            final String name = token.substring(0, equals).trim().toLowerCase(Locale.ENGLISH);
+            final String value = unquote(token.substring(equals + 1).trim());
+
+            if (QUALITY_PARAMETER.equals(name)) {
+                quality = parseQuality(value, mediaType);
+            } else {
+                parameters.put(name, value);
+            }
+        }
+
+        return new MediaType(type, subtype, Collections.unmodifiableMap(parameters), quality);
+    }
+
+    /**
+     * Parses a comma-separated list of media types - e.g. a multi-valued <code>@Produces</code> value or an
+     * <code>Accept</code> header. Empty elements are ignored.
+     *
+     * @throws IllegalArgumentException
+     *      If any of the media types is malformed.
+     */
+    public static List<MediaType> parseList(final String mediaTypes) {
+
+        final List<MediaType> result = new ArrayList<MediaType>();
+
+        if (mediaTypes == null) {
+            return result;
+        }
+
+        for (String mediaType : split(mediaTypes, ',')) {
+            if (mediaType.trim().length() > 0) {
+                result.add(valueOf(mediaType));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Parses an <code>Accept</code> header into its media ranges ordered by {@link #PREFERENCE_COMPARATOR}. Malformed
+     * media ranges are ignored and a missing or empty header is read as <code>*&#47;*</code>.
+     */
+    public static List<MediaType> parseAcceptHeader(final String accept) {
+
+        final List<MediaType> result = new ArrayList<MediaType>();
+
+        if (accept != null) {
+            for (String mediaRange : split(accept, ',')) {
+                if (mediaRange.trim().length() > 0) {
+                    try {
+                        result.add(valueOf(mediaRange));
+                    } catch (final IllegalArgumentException e) {
+                        // Ignore - as clients are free to send anything.
+                    }
+                }
+            }
+        }
+
+        if (result.isEmpty()) {
+            result.add(ANY);
+        }
+
+        Collections.sort(result, PREFERENCE_COMPARATOR);
+
+        return result;
+    }
+
+    /**
+     * Splits a comma-separated list of media types into its trimmed, non-empty elements without parsing them.
+     */
+    static List<String> splitList(final String mediaTypes) {
+
+        final List<String> result = new ArrayList<String>();
+
+        for (String mediaType : split(mediaTypes, ',')) {
+            if (mediaType.trim().length() > 0) {
+                result.add(mediaType.trim());
+            }
+        }
+
+        return result;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getSubtype() {
+        return subtype;
+    }
+
+    /**
+     * The parameters of the media type, excluding any quality factor.
+     */
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * The quality factor in thousandths - i.e. 1000 for <code>q=1</code> (the default) and 0 for "not acceptable".
+     */
+    public int getQuality() {
+        return quality;
+    }
+
+    public boolean isWildcardType() {
+        return WILDCARD.equals(type);
+    }
+
+    public boolean isWildcardSubtype() {
+        return WILDCARD.equals(subtype);
+    }
+
+    /**
+     * Whether this media range includes the specified media type; e.g. <code>text/*</code> includes <code>text/html</code>
+     * but not vice versa. Parameters are ignored.
+     */
+    public boolean includes(final MediaType other) {
+
+        if (isWildcardType()) {
+            return true;
+        }
+
+        if (!type.equals(other.type)) {
+            return false;
+        }
+
+        return isWildcardSubtype() || subtype.equals(other.subtype);
+    }
+
+    /**
+     * Whether either of this media type and the specified one includes the other. Parameters are ignored.
+     */
+    public boolean isCompatibleWith(final MediaType other) {
+        return includes(other) || other.includes(this);
+    }
+
+    int getSpecificity() {
+        if (isWildcardType()) {
+            return 0;
+        }
+        return isWildcardSubtype() ? 1 : 2;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+
+        if (this == other) {
+            return true;
+        }
+
+        if (!(other instanceof MediaType)) {
+            return false;
+        }
+
+        final MediaType mediaType = (MediaType) other;
+
+        return type.equals(mediaType.type) && subtype.equals(mediaType.subtype) && parameters.equals(mediaType.parameters) && (quality == mediaType.quality);
+    }
+
+    @Override
+    public int hashCode() {
+        return ((type.hashCode() * 31 + subtype.hashCode()) * 31 + parameters.hashCode()) * 31 + quality;
+    }
+
+    /**
+     * The media type in canonical form: lower case, parameters sorted by name and the quality factor omitted where it is
+     * the default.
+     */
+    @Override
+    public String toString() {
+
+        final StringBuilder result = new StringBuilder(type).append('/').append(subtype);
+
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            result.append(';').append(parameter.getKey()).append('=').append(parameter.getValue());
+        }
+
+        if (quality != MAXIMUM_QUALITY) {
+            result.append(";q=").append(quality / 1000).append('.').append(String.format(Locale.ENGLISH, "%03d", quality % 1000));
+        }
+
+        return result.toString();
+    }
+
+    private static int parseQuality(final String value, final String mediaType) {
+
+        try {
+            final double quality = Double.parseDouble(value);
+
+            if ((quality < 0) || (quality > 1)) {
+                throw new IllegalArgumentException("Media type '" + mediaType + "' has a quality factor outside of the range 0 to 1.");
+            }
+
+            return (int) Math.round(quality * MAXIMUM_QUALITY);
+
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException("Media type '" + mediaType + "' has a malformed quality factor.", e);
+        }
+    }
+
+    private static String unquote(final String value) {
+
+        if ((value.length() >= 2) && (value.charAt(0) == '"') && (value.charAt(value.length() - 1) == '"')) {
+            return value.substring(1, value.length() - 1);
+        }
+
+        return value;
+    }
+
+    private static List<String> split(final String value, final char separator) {
+
+        final List<String> result = new ArrayList<String>();
+
+        boolean quoted = false;
+        int start = 0;
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            if (c == '"') {
+                quoted = !quoted;
+            } else if ((c == separator) && !quoted) {
+                result.add(value.substring(start, i));
+                start = i + 1;
+            }
+        }
+
+        result.add(value.substring(start));
+
+        return result;
+    }
+}
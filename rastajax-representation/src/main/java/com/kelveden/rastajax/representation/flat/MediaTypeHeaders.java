@@ -0,0 +1,80 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of parsed <code>Accept</code> and <code>Content-Type</code> headers - as clients tend to send the same few values
+ * over and over. Safe for concurrent use.
+ */
+final class MediaTypeHeaders {
+
+    private static final int MAXIMUM_CACHED_HEADERS = 512;
+
+    private final ConcurrentMap<String, List<MediaType>> parsedAcceptHeaders = new ConcurrentHashMap<String, List<MediaType>>();
+    private final ConcurrentMap<String, MediaType> parsedContentTypes = new ConcurrentHashMap<String, MediaType>();
+
+    /**
+     * The parsed <code>Content-Type</code> or null if it is malformed.
+     */
+    MediaType parseContentType(final String contentType) {
+
+        MediaType result = parsedContentTypes.get(contentType);
+
+        if (result == null) {
+            try {
+                result = MediaType.valueOf(contentType);
+            } catch (final IllegalArgumentException e) {
+                return null;
+            }
+
+            cache(parsedContentTypes, contentType, result);
+        }
+
+        return result;
+    }
+
+    /**
+     * The unmodifiable result of {@link MediaType#parseAcceptHeader(String)}.
+     */
+    List<MediaType> parseAcceptHeader(final String accept) {
+
+        final String key = accept == null ? "" : accept;
+
+        List<MediaType> result = parsedAcceptHeaders.get(key);
+
+        if (result == null) {
+            result = Collections.unmodifiableList(MediaType.parseAcceptHeader(accept));
+            cache(parsedAcceptHeaders, key, result);
+        }
+
+        return result;
+    }
+
+    private static <V> void cache(final ConcurrentMap<String, V> cache, final String key, final V value) {
+
+        // Headers are client-controlled so bound the cache by simply starting again when it fills up.
+        if (cache.size() >= MAXIMUM_CACHED_HEADERS) {
+            cache.clear();
+        }
+
+        cache.putIfAbsent(key, value);
+    }
+}
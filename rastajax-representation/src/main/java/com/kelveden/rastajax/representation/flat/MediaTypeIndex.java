@@ -0,0 +1,432 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.*;
+
+/**
+ * Index for content negotiation: answers which resource methods at a URI template consume a given <code>Content-Type</code>
+ * and can produce a response for a given <code>Accept</code> header. {@link FlatRouteIndex} negotiates with the same
+ * {@link Entry entries}.
+ * <p>
+ * The <code>@Consumes</code> and <code>@Produces</code> media types of the methods of each resource are compiled into bit
+ * masks - with the methods declaring wildcards folded into the masks of the media types that they include - so that a
+ * lookup reads a single mask per media range rather than comparing media type lists. Declared media types are parsed as
+ * by {@link FlatRoute}, ignoring any that are malformed. Parsed <code>Accept</code> and <code>Content-Type</code> headers
+ * are cached and the candidate methods are tracked in an array reused by each thread, so a lookup only allocates the list
+ * that it returns.
+ * <p>
+ * Instances are safe for concurrent use once constructed.
+ */
+public final class MediaTypeIndex {
+
+    private static final ThreadLocal<long[]> CANDIDATES = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private final Map<String, Entry> entriesByUriTemplate = new HashMap<String, Entry>();
+    private final MediaTypeHeaders headers = new MediaTypeHeaders();
+
+    /**
+     * Constructor.
+     *
+     * @param resources
+     *      The resources to index.
+     */
+    public MediaTypeIndex(final Set<FlatResource> resources) {
+
+        for (FlatResource resource : resources) {
+            final UriTemplate uriTemplate = new UriTemplate(resource.getUriTemplate());
+            final List<FlatRoute> routes = new ArrayList<FlatRoute>();
+
+            for (FlatResourceMethod method : resource.getResourceMethods()) {
+                routes.add(new FlatRoute(resource, method, uriTemplate));
+            }
+
+            entriesByUriTemplate.put(resource.getUriTemplate(), new Entry(routes));
+        }
+    }
+
+    /**
+     * Finds the resource methods at a URI template that can serve a request.
+     *
+     * @param uriTemplate
+     *      The URI template of the resource as it appears in the representation.
+     * @param requestMethodDesignator
+     *      The HTTP method of the request or null to consider resource methods for all HTTP methods.
+     * @param contentType
+     *      The <code>Content-Type</code> of the request or null if the request has no entity.
+     * @param accept
+     *      The <code>Accept</code> header of the request or null if there is none - which accepts any media type.
+     * @return
+     *      The resource methods - ordered by the most preferred media range of the <code>Accept</code> header that
+     *      they can produce for and otherwise in declaration order. Empty if there are none; if there is no resource
+     *      with the URI template; or if the <code>Content-Type</code> is malformed.
+     */
+    public List<FlatResourceMethod> lookup(final String uriTemplate, final String requestMethodDesignator, final String contentType, final String accept) {
+
+        final Entry entry = entriesByUriTemplate.get(uriTemplate);
+
+        if (entry == null) {
+            return Collections.emptyList();
+        }
+
+        final long[] candidates = candidatesFor(entry);
+
+        if (requestMethodDesignator != null) {
+            final long[] mask = entry.byRequestMethodDesignator.get(requestMethodDesignator);
+
+            if (mask == null) {
+                return Collections.emptyList();
+            }
+
+            retain(candidates, mask, entry.words);
+        }
+
+        if (contentType != null) {
+            final MediaType parsedContentType = headers.parseContentType(contentType);
+
+            if (parsedContentType == null) {
+                return Collections.emptyList();
+            }
+
+            retain(candidates, entry.consumes.maskIncluding(parsedContentType), entry.words);
+        }
+
+        final List<MediaType> acceptedMediaRanges = headers.parseAcceptHeader(accept);
+        List<FlatResourceMethod> result = null;
+
+        int methodIndex;
+        while ((methodIndex = entry.takeMostAcceptable(candidates, acceptedMediaRanges)) >= 0) {
+            if (result == null) {
+                result = new ArrayList<FlatResourceMethod>();
+            }
+            result.add(entry.routes.get(methodIndex).getResourceMethod());
+        }
+
+        return result == null ? Collections.<FlatResourceMethod>emptyList() : result;
+    }
+
+    /**
+     * The array of this thread for tracking the candidate methods of an entry - initially all of them.
+     */
+    static long[] candidatesFor(final Entry entry) {
+
+        long[] candidates = CANDIDATES.get();
+
+        if (candidates.length < entry.words) {
+            candidates = new long[entry.words];
+            CANDIDATES.set(candidates);
+        }
+
+        System.arraycopy(entry.all, 0, candidates, 0, entry.words);
+
+        return candidates;
+    }
+
+    private static void retain(final long[] target, final long[] mask, final int words) {
+
+        for (int word = 0; word < words; word++) {
+            target[word] &= mask[word];
+        }
+    }
+
+    private static void set(final Map<String, long[]> masks, final String key, final int methodIndex, final int words) {
+
+        long[] mask = masks.get(key);
+
+        if (mask == null) {
+            mask = new long[words];
+            masks.put(key, mask);
+        }
+
+        mask[methodIndex >>> 6] |= 1L << methodIndex;
+    }
+
+    private static void or(final long[] target, final long[] mask) {
+
+        for (int word = 0; word < target.length; word++) {
+            target[word] |= mask[word];
+        }
+    }
+
+    /**
+     * The indexed media types of a list of routes - e.g. all the methods of a single resource.
+     */
+    static final class Entry {
+
+        private final List<FlatRoute> routes;
+        private final int words;
+        private final long[] all;
+        private final Map<String, long[]> byRequestMethodDesignator = new HashMap<String, long[]>();
+        private final MediaTypeMasks consumes;
+        private final MediaTypeMasks produces;
+
+        Entry(final List<FlatRoute> routes) {
+
+            this.routes = routes;
+            this.words = Math.max(1, (routes.size() + 63) >>> 6);
+            this.all = new long[words];
+            this.consumes = new MediaTypeMasks(words);
+            this.produces = new MediaTypeMasks(words);
+
+            for (int i = 0; i < routes.size(); i++) {
+                final FlatRoute route = routes.get(i);
+                final String requestMethodDesignator = route.getResourceMethod().getRequestMethodDesignator();
+
+                all[i >>> 6] |= 1L << i;
+
+                if (requestMethodDesignator != null) {
+                    set(byRequestMethodDesignator, requestMethodDesignator, i, words);
+                }
+
+                consumes.add(route.getConsumes(), i);
+                produces.add(route.getProduces(), i);
+            }
+
+            consumes.compile();
+            produces.compile();
+        }
+
+        List<FlatRoute> getRoutes() {
+            return routes;
+        }
+
+        /**
+         * Removes the candidates that do not consume the specified <code>Content-Type</code>.
+         */
+        void retainConsuming(final long[] candidates, final MediaType contentType) {
+            retain(candidates, consumes.maskIncluding(contentType), words);
+        }
+
+        /**
+         * The index of the first candidate or -1 if there are none.
+         */
+        int first(final long[] candidates) {
+
+            for (int word = 0; word < words; word++) {
+                if (candidates[word] != 0) {
+                    return (word << 6) + Long.numberOfTrailingZeros(candidates[word]);
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Takes the candidate that can produce for the most preferred media range of an <code>Accept</code> header - the
+         * first in declaration order of those producing for the same range - out of the candidates. Candidates that can
+         * produce for none of the media ranges are left in place.
+         *
+         * @return
+         *      The index of the candidate or -1 if there is none.
+         */
+        int takeMostAcceptable(final long[] candidates, final List<MediaType> acceptedMediaRanges) {
+
+            for (int i = 0; i < acceptedMediaRanges.size(); i++) {
+                final MediaType mediaRange = acceptedMediaRanges.get(i);
+
+                if (mediaRange.getQuality() == 0) {
+                    break;
+                }
+
+                final long[] mask = produces.maskCompatibleWith(mediaRange);
+
+                for (int word = 0; word < words; word++) {
+                    long hits = candidates[word] & mask[word];
+
+                    while (hits != 0) {
+                        final int bit = Long.numberOfTrailingZeros(hits);
+                        final int routeIndex = (word << 6) + bit;
+
+                        candidates[word] &= ~(1L << bit);
+
+                        if (!isNotAcceptable(routeIndex, acceptedMediaRanges)) {
+                            return routeIndex;
+                        }
+
+                        hits &= hits - 1;
+                    }
+                }
+            }
+
+            return -1;
+        }
+
+        /**
+         * Whether every media type that a method produces is explicitly excluded by a <code>q=0</code> media range of the
+         * <code>Accept</code> header.
+         */
+        private boolean isNotAcceptable(final int routeIndex, final List<MediaType> acceptedMediaRanges) {
+
+            final MediaType lastMediaRange = acceptedMediaRanges.get(acceptedMediaRanges.size() - 1);
+
+            if (lastMediaRange.getQuality() > 0) {
+                return false;
+            }
+
+            final List<MediaType> produced = routes.get(routeIndex).getProduces();
+
+            if (produced.isEmpty()) {
+                return getQualityOf(MediaType.ANY, acceptedMediaRanges) == 0;
+            }
+
+            for (int i = 0; i < produced.size(); i++) {
+                if (getQualityOf(produced.get(i), acceptedMediaRanges) > 0) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private static int getQualityOf(final MediaType produced, final List<MediaType> acceptedMediaRanges) {
+
+            // The quality of a media type is that of the most specific media range that it is compatible with.
+            MediaType mostSpecific = null;
+
+            for (int i = 0; i < acceptedMediaRanges.size(); i++) {
+                final MediaType mediaRange = acceptedMediaRanges.get(i);
+
+                if (mediaRange.isCompatibleWith(produced) && ((mostSpecific == null) || (mediaRange.getSpecificity() > mostSpecific.getSpecificity()))) {
+                    mostSpecific = mediaRange;
+                }
+            }
+
+            return mostSpecific == null ? 0 : mostSpecific.getQuality();
+        }
+    }
+
+    /**
+     * Bit masks of the methods of a resource by the media types that they declare. A method that declares no media types
+     * is treated as declaring <code>*&#47;*</code>. Once {@link #compile() compiled}, each mask also includes the methods
+     * declaring wildcards that match the same media types, so a lookup reads a single mask.
+     */
+    private static final class MediaTypeMasks {
+
+        private final int words;
+        private final Map<String, Map<String, long[]>> byConcreteType = new HashMap<String, Map<String, long[]>>();
+        private final Map<String, long[]> byType = new HashMap<String, long[]>();
+        private final Map<String, long[]> byTypeWildcard = new HashMap<String, long[]>();
+        private final long[] any;
+        private final long[] all;
+
+        MediaTypeMasks(final int words) {
+            this.words = words;
+            this.any = new long[words];
+            this.all = new long[words];
+        }
+
+        void add(final List<MediaType> mediaTypes, final int methodIndex) {
+
+            all[methodIndex >>> 6] |= 1L << methodIndex;
+
+            if (mediaTypes.isEmpty()) {
+                any[methodIndex >>> 6] |= 1L << methodIndex;
+            }
+
+            for (MediaType mediaType : mediaTypes) {
+                if (mediaType.isWildcardType()) {
+                    any[methodIndex >>> 6] |= 1L << methodIndex;
+
+                } else {
+                    set(byType, mediaType.getType(), methodIndex, words);
+
+                    if (mediaType.isWildcardSubtype()) {
+                        set(byTypeWildcard, mediaType.getType(), methodIndex, words);
+
+                    } else {
+                        Map<String, long[]> bySubtype = byConcreteType.get(mediaType.getType());
+
+                        if (bySubtype == null) {
+                            bySubtype = new HashMap<String, long[]>();
+                            byConcreteType.put(mediaType.getType(), bySubtype);
+                        }
+
+                        set(bySubtype, mediaType.getSubtype(), methodIndex, words);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Folds the masks of the methods declaring wildcards into the masks of the media types that the wildcards match.
+         * Called once all methods have been added.
+         */
+        void compile() {
+
+            for (Map.Entry<String, Map<String, long[]>> bySubtype : byConcreteType.entrySet()) {
+                final long[] typeWildcard = byTypeWildcard.get(bySubtype.getKey());
+
+                for (long[] mask : bySubtype.getValue().values()) {
+                    if (typeWildcard != null) {
+                        or(mask, typeWildcard);
+                    }
+                    or(mask, any);
+                }
+            }
+
+            for (long[] mask : byTypeWildcard.values()) {
+                or(mask, any);
+            }
+
+            for (long[] mask : byType.values()) {
+                or(mask, any);
+            }
+        }
+
+        /**
+         * The mask of the methods with a declared media type that includes the specified concrete media type.
+         */
+        long[] maskIncluding(final MediaType mediaType) {
+
+            final Map<String, long[]> bySubtype = byConcreteType.get(mediaType.getType());
+
+            if (bySubtype != null) {
+                final long[] mask = bySubtype.get(mediaType.getSubtype());
+
+                if (mask != null) {
+                    return mask;
+                }
+            }
+
+            final long[] typeWildcard = byTypeWildcard.get(mediaType.getType());
+
+            return typeWildcard != null ? typeWildcard : any;
+        }
+
+        /**
+         * The mask of the methods with a declared media type that is compatible with the specified media range.
+         */
+        long[] maskCompatibleWith(final MediaType mediaRange) {
+
+            if (mediaRange.isWildcardType()) {
+                return all;
+
+            } else if (mediaRange.isWildcardSubtype()) {
+                final long[] mask = byType.get(mediaRange.getType());
+
+                return mask != null ? mask : any;
+
+            } else {
+                return maskIncluding(mediaRange);
+            }
+        }
+    }
+}
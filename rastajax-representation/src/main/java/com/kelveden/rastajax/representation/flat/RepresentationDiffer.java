@@ -0,0 +1,374 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Finds the {@link ApiChange}s between two representations of an application - e.g. to fail a build or deployment that
+ * would break existing clients.
+ * <p>
+ * Resources are matched by URI template - ignoring the names of template variables - and resource methods by request
+ * method designator. Only the API is compared, so moving a resource method to another class or renaming its Java method
+ * is not a change. Resources whose {@link Fingerprint}s are unchanged are skipped straight away; the API of the rest is
+ * fingerprinted and only resources and resource methods whose API fingerprints differ are compared in detail. The cost is
+ * therefore linear in the size of the representations and small when little has changed.
+ */
+public final class RepresentationDiffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepresentationDiffer.class);
+
+    private static final String PATH_PARAMETER_TYPE = "pathParam";
+
+    private static final Comparator<ApiChange> CHANGE_COMPARATOR = new Comparator<ApiChange>() {
+        @Override
+        public int compare(final ApiChange change1, final ApiChange change2) {
+
+            int result = change1.getUriTemplate().compareTo(change2.getUriTemplate());
+
+            if (result == 0) {
+                result = String.valueOf(change1.getRequestMethodDesignator()).compareTo(String.valueOf(change2.getRequestMethodDesignator()));
+            }
+
+            if (result == 0) {
+                result = change1.getType().compareTo(change2.getType());
+            }
+
+            return result != 0 ? result : String.valueOf(change1.getSubject()).compareTo(String.valueOf(change2.getSubject()));
+        }
+    };
+
+    /**
+     * Finds the changes from one representation to another.
+     *
+     * @param before
+     *      The representation before the changes.
+     * @param after
+     *      The representation after the changes.
+     * @return
+     *      The changes, ordered by URI template.
+     */
+    public List<ApiChange> diff(final Set<FlatResource> before, final Set<FlatResource> after) {
+
+        final long start = System.nanoTime();
+
+        final Map<String, ResourceEntry> beforeEntries = index(before);
+        final Map<String, ResourceEntry> afterEntries = index(after);
+
+        final List<ApiChange> result = new ArrayList<ApiChange>();
+        int resourcesCompared = 0;
+
+        for (Map.Entry<String, ResourceEntry> afterEntry : afterEntries.entrySet()) {
+            final ResourceEntry beforeEntry = beforeEntries.remove(afterEntry.getKey());
+
+            if (beforeEntry == null) {
+                afterEntry.getValue().addEndpointChanges(ApiChange.Type.ENDPOINT_ADDED, false, result);
+
+            } else if (!beforeEntry.contentFingerprint.toFingerprint().equals(afterEntry.getValue().contentFingerprint.toFingerprint())
+                    && !beforeEntry.getApiFingerprint().equals(afterEntry.getValue().getApiFingerprint())) {
+                diff(beforeEntry, afterEntry.getValue(), result);
+                resourcesCompared++;
+            }
+        }
+
+        for (ResourceEntry beforeEntry : beforeEntries.values()) {
+            beforeEntry.addEndpointChanges(ApiChange.Type.ENDPOINT_REMOVED, true, result);
+        }
+
+        Collections.sort(result, CHANGE_COMPARATOR);
+
+        LOGGER.debug("Found {} API changes between {} and {} resources, comparing {} in detail, in {}ms.",
+                new Object[] { result.size(), before.size(), after.size(), resourcesCompared, (System.nanoTime() - start) / 1000000 });
+
+        return result;
+    }
+
+    private static Map<String, ResourceEntry> index(final Set<FlatResource> resources) {
+
+        final Map<String, ResourceEntry> result = new HashMap<String, ResourceEntry>();
+
+        for (FlatResource resource : resources) {
+            final String key = ApiFingerprints.canonicalUriTemplate(resource.getUriTemplate());
+
+            ResourceEntry entry = result.get(key);
+            if (entry == null) {
+                entry = new ResourceEntry(resource.getUriTemplate());
+                result.put(key, entry);
+            }
+
+            for (FlatResourceMethod resourceMethod : resource.getResourceMethods()) {
+                entry.add(resourceMethod);
+            }
+        }
+
+        return result;
+    }
+
+    private static void diff(final ResourceEntry before, final ResourceEntry after, final List<ApiChange> changes) {
+
+        final Map<String, List<MethodEntry>> beforeMethods = new HashMap<String, List<MethodEntry>>(before.methodsByRequestMethodDesignator);
+
+        for (Map.Entry<String, List<MethodEntry>> afterMethods : after.methodsByRequestMethodDesignator.entrySet()) {
+            final List<MethodEntry> beforeMethodsForDesignator = beforeMethods.remove(afterMethods.getKey());
+            final List<MethodEntry> unmatchedAfter = new ArrayList<MethodEntry>(afterMethods.getValue());
+            final List<MethodEntry> unmatchedBefore = beforeMethodsForDesignator == null ? new ArrayList<MethodEntry>() : new ArrayList<MethodEntry>(beforeMethodsForDesignator);
+
+            // Pair up identical resource methods first so that only genuinely different ones are compared in detail.
+            for (Iterator<MethodEntry> afterIterator = unmatchedAfter.iterator(); afterIterator.hasNext();) {
+                final MethodEntry afterMethod = afterIterator.next();
+
+                for (Iterator<MethodEntry> beforeIterator = unmatchedBefore.iterator(); beforeIterator.hasNext();) {
+                    if (beforeIterator.next().getApiFingerprint().equals(afterMethod.getApiFingerprint())) {
+                        beforeIterator.remove();
+                        afterIterator.remove();
+                        break;
+                    }
+                }
+            }
+
+            // Then pair each remaining resource method with the one sharing most of the media types it consumes and
+            // produces - e.g. so that a JSON and an XML overload are each compared with their own previous version.
+            for (Iterator<MethodEntry> afterIterator = unmatchedAfter.iterator(); afterIterator.hasNext();) {
+                final MethodEntry afterMethod = afterIterator.next();
+
+                MethodEntry bestBefore = null;
+                int bestOverlap = 0;
+
+                for (MethodEntry beforeMethod : unmatchedBefore) {
+                    final int overlap = afterMethod.countSharedMediaTypes(beforeMethod);
+
+                    if (overlap > bestOverlap) {
+                        bestBefore = beforeMethod;
+                        bestOverlap = overlap;
+                    }
+                }
+
+                if (bestBefore != null) {
+                    diff(after.uriTemplate, bestBefore.resourceMethod, afterMethod.resourceMethod, changes);
+                    unmatchedBefore.remove(bestBefore);
+                    afterIterator.remove();
+                }
+            }
+
+            // Whatever is left shares no media types at all so is paired in order.
+            final int paired = Math.min(unmatchedBefore.size(), unmatchedAfter.size());
+
+            for (int i = 0; i < paired; i++) {
+                diff(after.uriTemplate, unmatchedBefore.get(i).resourceMethod, unmatchedAfter.get(i).resourceMethod, changes);
+            }
+            for (int i = paired; i < unmatchedAfter.size(); i++) {
+                changes.add(endpointChange(ApiChange.Type.ENDPOINT_ADDED, after.uriTemplate, unmatchedAfter.get(i).resourceMethod, false));
+            }
+            for (int i = paired; i < unmatchedBefore.size(); i++) {
+                changes.add(endpointChange(ApiChange.Type.ENDPOINT_REMOVED, after.uriTemplate, unmatchedBefore.get(i).resourceMethod, true));
+            }
+        }
+
+        for (List<MethodEntry> removedMethods : beforeMethods.values()) {
+            for (MethodEntry removedMethod : removedMethods) {
+                changes.add(endpointChange(ApiChange.Type.ENDPOINT_REMOVED, after.uriTemplate, removedMethod.resourceMethod, true));
+            }
+        }
+    }
+
+    private static void diff(final String uriTemplate, final FlatResourceMethod before, final FlatResourceMethod after, final List<ApiChange> changes) {
+
+        final String requestMethodDesignator = after.getRequestMethodDesignator();
+
+        final SortedMap<String, String> beforeParameters = ApiFingerprints.canonicalParameters(before);
+        final SortedMap<String, String> afterParameters = ApiFingerprints.canonicalParameters(after);
+
+        for (Map.Entry<String, String> afterParameter : afterParameters.entrySet()) {
+            final String beforeType = beforeParameters.remove(afterParameter.getKey());
+
+            if (beforeType == null) {
+                changes.add(new ApiChange(ApiChange.Type.PARAMETER_ADDED, uriTemplate, requestMethodDesignator, afterParameter.getKey(), null, afterParameter.getValue(), false));
+
+            } else if (!beforeType.equals(afterParameter.getValue())) {
+                changes.add(new ApiChange(ApiChange.Type.PARAMETER_TYPE_CHANGED, uriTemplate, requestMethodDesignator, afterParameter.getKey(), beforeType, afterParameter.getValue(), true));
+            }
+        }
+
+        for (Map.Entry<String, String> removedParameter : beforeParameters.entrySet()) {
+            final boolean breaking = !removedParameter.getKey().startsWith(PATH_PARAMETER_TYPE + " ");
+
+            changes.add(new ApiChange(ApiChange.Type.PARAMETER_REMOVED, uriTemplate, requestMethodDesignator, removedParameter.getKey(), removedParameter.getValue(), null, breaking));
+        }
+
+        diffMediaTypes(ApiChange.Type.CONSUMES_ADDED, ApiChange.Type.CONSUMES_REMOVED, uriTemplate, requestMethodDesignator, before.getConsumes(), after.getConsumes(), changes);
+        diffMediaTypes(ApiChange.Type.PRODUCES_ADDED, ApiChange.Type.PRODUCES_REMOVED, uriTemplate, requestMethodDesignator, before.getProduces(), after.getProduces(), changes);
+    }
+
+    private static void diffMediaTypes(final ApiChange.Type addedType, final ApiChange.Type removedType, final String uriTemplate, final String requestMethodDesignator,
+                                       final List<String> before, final List<String> after, final List<ApiChange> changes) {
+
+        final SortedSet<String> beforeMediaTypes = ApiFingerprints.canonicalMediaTypes(before);
+        final SortedSet<String> afterMediaTypes = ApiFingerprints.canonicalMediaTypes(after);
+
+        for (String mediaType : afterMediaTypes) {
+            if (!beforeMediaTypes.contains(mediaType)) {
+                changes.add(new ApiChange(addedType, uriTemplate, requestMethodDesignator, mediaType, null, null, false));
+            }
+        }
+
+        for (String mediaType : beforeMediaTypes) {
+            if (!afterMediaTypes.contains(mediaType)) {
+                changes.add(new ApiChange(removedType, uriTemplate, requestMethodDesignator, mediaType, null, null, !isIncluded(mediaType, afterMediaTypes)));
+            }
+        }
+    }
+
+    private static boolean isIncluded(final String mediaType, final Set<String> mediaRanges) {
+
+        final MediaType parsedMediaType;
+        try {
+            parsedMediaType = MediaType.valueOf(mediaType);
+
+        } catch (final IllegalArgumentException e) {
+            return false;
+        }
+
+        for (String mediaRange : mediaRanges) {
+            try {
+                if (MediaType.valueOf(mediaRange).includes(parsedMediaType)) {
+                    return true;
+                }
+
+            } catch (final IllegalArgumentException e) {
+                // A malformed media range includes nothing.
+            }
+        }
+
+        return false;
+    }
+
+    private static ApiChange endpointChange(final ApiChange.Type type, final String uriTemplate, final FlatResourceMethod resourceMethod, final boolean breaking) {
+        return new ApiChange(type, uriTemplate, resourceMethod.getRequestMethodDesignator(), null, null, null, breaking);
+    }
+
+    /**
+     * The resource methods of all the resources with equivalent URI templates in a representation.
+     */
+    private static final class ResourceEntry {
+
+        private final String uriTemplate;
+        private final Map<String, List<MethodEntry>> methodsByRequestMethodDesignator = new HashMap<String, List<MethodEntry>>();
+        private final Fingerprint.Combiner contentFingerprint = new Fingerprint.Combiner();
+
+        ResourceEntry(final String uriTemplate) {
+            this.uriTemplate = uriTemplate;
+        }
+
+        void add(final FlatResourceMethod resourceMethod) {
+
+            final MethodEntry entry = new MethodEntry(resourceMethod);
+
+            List<MethodEntry> methods = methodsByRequestMethodDesignator.get(resourceMethod.getRequestMethodDesignator());
+            if (methods == null) {
+                methods = new ArrayList<MethodEntry>(1);
+                methodsByRequestMethodDesignator.put(resourceMethod.getRequestMethodDesignator(), methods);
+            }
+
+            methods.add(entry);
+            contentFingerprint.add(resourceMethod.getFingerprint());
+        }
+
+        Fingerprint getApiFingerprint() {
+
+            final Fingerprint.Combiner result = new Fingerprint.Combiner();
+
+            for (List<MethodEntry> methods : methodsByRequestMethodDesignator.values()) {
+                for (MethodEntry method : methods) {
+                    result.add(method.getApiFingerprint());
+                }
+            }
+
+            return result.toFingerprint();
+        }
+
+        void addEndpointChanges(final ApiChange.Type type, final boolean breaking, final List<ApiChange> changes) {
+
+            for (List<MethodEntry> methods : methodsByRequestMethodDesignator.values()) {
+                for (MethodEntry method : methods) {
+                    changes.add(endpointChange(type, uriTemplate, method.resourceMethod, breaking));
+                }
+            }
+        }
+    }
+
+    private static final class MethodEntry {
+
+        private final FlatResourceMethod resourceMethod;
+        private Fingerprint apiFingerprint;
+        private SortedSet<String> consumes;
+        private SortedSet<String> produces;
+
+        MethodEntry(final FlatResourceMethod resourceMethod) {
+            this.resourceMethod = resourceMethod;
+        }
+
+        Fingerprint getApiFingerprint() {
+
+            if (apiFingerprint == null) {
+                apiFingerprint = ApiFingerprints.of(resourceMethod);
+            }
+
+            return apiFingerprint;
+        }
+
+        /**
+         * The number of the canonical media types that this resource method and the specified one both consume, plus the
+         * number that they both produce.
+         */
+        int countSharedMediaTypes(final MethodEntry other) {
+            return countShared(getConsumes(), other.getConsumes()) + countShared(getProduces(), other.getProduces());
+        }
+
+        private SortedSet<String> getConsumes() {
+
+            if (consumes == null) {
+                consumes = ApiFingerprints.canonicalMediaTypes(resourceMethod.getConsumes());
+            }
+
+            return consumes;
+        }
+
+        private SortedSet<String> getProduces() {
+
+            if (produces == null) {
+                produces = ApiFingerprints.canonicalMediaTypes(resourceMethod.getProduces());
+            }
+
+            return produces;
+        }
+
+        private static int countShared(final Set<String> mediaTypes1, final Set<String> mediaTypes2) {
+
+            int result = 0;
+
+            for (String mediaType : mediaTypes1) {
+                if (mediaTypes2.contains(mediaType)) {
+                    result++;
+                }
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+/**
+ * A pair of resource methods with the same request method designator whose URI templates can match the same request path.
+ */
+public final class RouteConflict {
+
+    /**
+     * The kinds of conflict.
+     */
+    public enum Type {
+
+        /**
+         * The URI templates are equivalent - i.e. they match exactly the same paths - so which resource method serves a
+         * request is undefined.
+         */
+        DUPLICATE,
+
+        /**
+         * The URI templates overlap and have equal JAX-RS precedence so which resource method serves a request matching
+         * both is undefined.
+         */
+        AMBIGUOUS,
+
+        /**
+         * The URI templates overlap and requests matching both are always served by the template with higher JAX-RS
+         * precedence.
+         */
+        SHADOWED
+    }
+
+    private final Type type;
+    private final String requestMethodDesignator;
+    private final FlatRoute route;
+    private final FlatRoute conflictingRoute;
+
+    RouteConflict(final Type type, final FlatRoute route, final FlatRoute conflictingRoute) {
+        this.type = type;
+        this.requestMethodDesignator = route.getResourceMethod().getRequestMethodDesignator();
+        this.route = route;
+        this.conflictingRoute = conflictingRoute;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRequestMethodDesignator() {
+        return requestMethodDesignator;
+    }
+
+    /**
+     * The first route of the conflict - for {@link Type#SHADOWED}, the route that takes precedence.
+     */
+    public FlatRoute getRoute() {
+        return route;
+    }
+
+    /**
+     * The second route of the conflict - for {@link Type#SHADOWED}, the route that is shadowed.
+     */
+    public FlatRoute getConflictingRoute() {
+        return conflictingRoute;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + requestMethodDesignator + ": '" + route.getUriTemplate() + "' (" + describe(route) + ") and '"
+                + conflictingRoute.getUriTemplate() + "' (" + describe(conflictingRoute) + ")";
+    }
+
+    private static String describe(final FlatRoute route) {
+        return route.getResourceMethod().getResourceClass() + "." + route.getResourceMethod().getName();
+    }
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Finds the {@link RouteConflict}s in a representation - i.e. resource methods with the same request method designator
+ * whose URI templates can match the same request path.
+ * <p>
+ * URI templates are compiled into a trie of path segments which is then walked against itself, following only pairs of
+ * edges that can match the same path segment. Only prefixes that two templates genuinely share are visited, so the cost
+ * grows with the number of overlapping templates rather than with the square of the number of templates. Whether two
+ * different regular expressions in template variables can match the same segment is undecidable in general; they are
+ * assumed not to.
+ * <p>
+ * Resource methods with equivalent URI templates are only {@link RouteConflict.Type#DUPLICATE duplicates} if a request
+ * could select either of them - i.e. if both what they consume and what they produce overlap. Methods with the same
+ * request method designator that differ in either are legal overloads. Media types are not considered for templates that
+ * merely overlap since the template is chosen before the resource method.
+ */
+public final class RouteConflictDetector {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RouteConflictDetector.class);
+
+    private static final Comparator<RouteConflict> CONFLICT_COMPARATOR = new Comparator<RouteConflict>() {
+        @Override
+        public int compare(final RouteConflict conflict1, final RouteConflict conflict2) {
+
+            int result = conflict1.getRoute().getUriTemplate().getTemplate().compareTo(conflict2.getRoute().getUriTemplate().getTemplate());
+
+            if (result == 0) {
+                result = conflict1.getConflictingRoute().getUriTemplate().getTemplate().compareTo(conflict2.getConflictingRoute().getUriTemplate().getTemplate());
+            }
+
+            if (result == 0) {
+                result = conflict1.getRequestMethodDesignator().compareTo(conflict2.getRequestMethodDesignator());
+            }
+
+            return result != 0 ? result : conflict1.getType().compareTo(conflict2.getType());
+        }
+    };
+
+    /**
+     * Finds the conflicts between the resource methods of the specified resources.
+     *
+     * @param resources
+     *      The resources.
+     * @return
+     *      The conflicts, ordered by URI template.
+     */
+    public List<RouteConflict> detect(final Set<FlatResource> resources) {
+
+        final long start = System.nanoTime();
+
+        final Trie trie = new Trie();
+        for (FlatResource resource : resources) {
+            trie.add(resource);
+        }
+
+        final List<RouteConflict> result = new ArrayList<RouteConflict>();
+        new Walk(result).visit(trie.root, trie.root);
+
+        Collections.sort(result, CONFLICT_COMPARATOR);
+
+        LOGGER.debug("Found {} route conflicts between {} resources in {}ms.", new Object[] { result.size(), resources.size(), (System.nanoTime() - start) / 1000000 });
+
+        return result;
+    }
+
+    private static final class Trie {
+
+        private final Node root = new Node(0, null);
+        private int nodeCount = 1;
+
+        void add(final FlatResource resource) {
+
+            final UriTemplate template = new UriTemplate(resource.getUriTemplate());
+
+            Node node = root;
+            for (UriTemplate.Segment segment : template.getSegments()) {
+                node = child(node, segment);
+            }
+
+            node.addTerminal(resource, template);
+        }
+
+        private Node child(final Node node, final UriTemplate.Segment segment) {
+
+            final Map<String, Node> children;
+
+            switch (segment.getType()) {
+                case LITERAL:
+                    children = node.literalChildren;
+                    break;
+                case PATTERN:
+                    children = node.patternChildren;
+                    break;
+                case TAIL:
+                    children = node.tailChildren;
+                    break;
+                default:
+                    if (node.variableChild == null) {
+                        node.variableChild = new Node(nodeCount++, segment);
+                    }
+                    return node.variableChild;
+            }
+
+            Node child = children.get(segment.getKey());
+            if (child == null) {
+                child = new Node(nodeCount++, segment);
+                children.put(segment.getKey(), child);
+            }
+
+            return child;
+        }
+    }
+
+    private static final class Node {
+
+        private final int id;
+        private final UriTemplate.Segment segment;
+        private final Map<String, Node> literalChildren = new HashMap<String, Node>();
+        private final Map<String, Node> patternChildren = new LinkedHashMap<String, Node>();
+        private final Map<String, Node> tailChildren = new LinkedHashMap<String, Node>();
+        private Node variableChild;
+
+        private final Map<String, List<FlatRoute>> routesByRequestMethodDesignator = new LinkedHashMap<String, List<FlatRoute>>();
+
+        Node(final int id, final UriTemplate.Segment segment) {
+            this.id = id;
+            this.segment = segment;
+        }
+
+        void addTerminal(final FlatResource resource, final UriTemplate template) {
+
+            for (FlatResourceMethod resourceMethod : resource.getResourceMethods()) {
+                final String requestMethodDesignator = resourceMethod.getRequestMethodDesignator();
+
+                if (requestMethodDesignator != null) {
+                    List<FlatRoute> routes = routesByRequestMethodDesignator.get(requestMethodDesignator);
+                    if (routes == null) {
+                        routes = new ArrayList<FlatRoute>();
+                        routesByRequestMethodDesignator.put(requestMethodDesignator, routes);
+                    }
+
+                    routes.add(new FlatRoute(resource, resourceMethod, template));
+                }
+            }
+        }
+
+        boolean isTerminal() {
+            return !routesByRequestMethodDesignator.isEmpty();
+        }
+
+        void collectDescendants(final List<Node> descendants) {
+
+            for (Node child : literalChildren.values()) {
+                descendants.add(child);
+                child.collectDescendants(descendants);
+            }
+            for (Node child : patternChildren.values()) {
+                descendants.add(child);
+                child.collectDescendants(descendants);
+            }
+            for (Node child : tailChildren.values()) {
+                descendants.add(child);
+            }
+            if (variableChild != null) {
+                descendants.add(variableChild);
+                variableChild.collectDescendants(descendants);
+            }
+        }
+    }
+
+    /**
+     * Walks pairs of trie nodes that can match the same path prefix.
+     */
+    private static final class Walk {
+
+        private final List<RouteConflict> conflicts;
+        private final Set<Long> visited = new HashSet<Long>();
+
+        Walk(final List<RouteConflict> conflicts) {
+            this.conflicts = conflicts;
+        }
+
+        void visit(final Node node1, final Node node2) {
+
+            final Node first = node1.id <= node2.id ? node1 : node2;
+            final Node second = node1.id <= node2.id ? node2 : node1;
+
+            if (!visited.add(((long) first.id << 32) | second.id)) {
+                return;
+            }
+
+            if (first == second) {
+                recordEquivalent(first);
+                visitChildrenOf(first);
+            } else {
+                recordOverlapping(first, second);
+                visitChildrenOf(first, second);
+                visitChildrenOf(second, first);
+            }
+        }
+
+        private void visitChildrenOf(final Node node) {
+
+            for (Node literalChild : node.literalChildren.values()) {
+                visit(literalChild, literalChild);
+
+                if (node.variableChild != null) {
+                    visit(literalChild, node.variableChild);
+                }
+
+                for (Node patternChild : node.patternChildren.values()) {
+                    if (patternChild.segment.matchesLiteral(literalChild.segment.getKey())) {
+                        visit(literalChild, patternChild);
+                    }
+                }
+            }
+
+            for (Node patternChild : node.patternChildren.values()) {
+                visit(patternChild, patternChild);
+
+                if (node.variableChild != null) {
+                    visit(patternChild, node.variableChild);
+                }
+            }
+
+            if (node.variableChild != null) {
+                visit(node.variableChild, node.variableChild);
+            }
+
+            for (Node tailChild : node.tailChildren.values()) {
+                recordEquivalent(tailChild);
+                recordTailOverlaps(tailChild, node);
+            }
+        }
+
+        /**
+         * Visits the pairs of a child of the first node and a child of the second node that can match the same segment.
+         * Called once in each direction.
+         */
+        private void visitChildrenOf(final Node node1, final Node node2) {
+
+            final Map<String, Node> smaller = node1.literalChildren.size() <= node2.literalChildren.size() ? node1.literalChildren : node2.literalChildren;
+            final Map<String, Node> larger = smaller == node1.literalChildren ? node2.literalChildren : node1.literalChildren;
+
+            for (Map.Entry<String, Node> literalChild : smaller.entrySet()) {
+                final Node otherLiteralChild = larger.get(literalChild.getKey());
+
+                if (otherLiteralChild != null) {
+                    visit(literalChild.getValue(), otherLiteralChild);
+                }
+            }
+
+            for (Node literalChild : node1.literalChildren.values()) {
+                if (node2.variableChild != null) {
+                    visit(literalChild, node2.variableChild);
+                }
+
+                for (Node patternChild : node2.patternChildren.values()) {
+                    if (patternChild.segment.matchesLiteral(literalChild.segment.getKey())) {
+                        visit(literalChild, patternChild);
+                    }
+                }
+            }
+
+            for (Map.Entry<String, Node> patternChild : node1.patternChildren.entrySet()) {
+                final Node otherPatternChild = node2.patternChildren.get(patternChild.getKey());
+
+                if (otherPatternChild != null) {
+                    visit(patternChild.getValue(), otherPatternChild);
+                }
+
+                if (node2.variableChild != null) {
+                    visit(patternChild.getValue(), node2.variableChild);
+                }
+            }
+
+            if ((node1.variableChild != null) && (node2.variableChild != null)) {
+                visit(node1.variableChild, node2.variableChild);
+            }
+
+            for (Node tailChild : node1.tailChildren.values()) {
+                recordTailOverlaps(tailChild, node2);
+            }
+        }
+
+        /**
+         * A tail matches the rest of the path so it is treated as overlapping everything below the node that it hangs
+         * off.
+         */
+        private void recordTailOverlaps(final Node tail, final Node node) {
+
+            final List<Node> descendants = new ArrayList<Node>();
+            node.collectDescendants(descendants);
+
+            for (Node descendant : descendants) {
+                if ((descendant != tail) && visited.add(((long) Math.min(tail.id, descendant.id) << 32) | Math.max(tail.id, descendant.id))) {
+                    recordOverlapping(tail, descendant);
+                }
+            }
+        }
+
+        private void recordEquivalent(final Node node) {
+
+            for (List<FlatRoute> routes : node.routesByRequestMethodDesignator.values()) {
+                for (int i = 0; i < routes.size(); i++) {
+                    for (int j = i + 1; j < routes.size(); j++) {
+                        if (canServeSameRequest(routes.get(i), routes.get(j))) {
+                            conflicts.add(new RouteConflict(RouteConflict.Type.DUPLICATE, routes.get(i), routes.get(j)));
+                        }
+                    }
+                }
+            }
+        }
+
+        private static boolean canServeSameRequest(final FlatRoute route1, final FlatRoute route2) {
+            return overlap(route1.getConsumes(), route2.getConsumes()) && overlap(route1.getProduces(), route2.getProduces());
+        }
+
+        /**
+         * Whether a media type could be in both of the specified lists - an empty list standing for any media type.
+         */
+        private static boolean overlap(final List<MediaType> mediaTypes1, final List<MediaType> mediaTypes2) {
+
+            if (mediaTypes1.isEmpty() || mediaTypes2.isEmpty()) {
+                return true;
+            }
+
+            for (MediaType mediaType1 : mediaTypes1) {
+                for (MediaType mediaType2 : mediaTypes2) {
+                    if (mediaType1.isCompatibleWith(mediaType2)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        private void recordOverlapping(final Node node1, final Node node2) {
+
+            if (!node1.isTerminal() || !node2.isTerminal()) {
+                return;
+            }
+
+            for (Map.Entry<String, List<FlatRoute>> entry : node1.routesByRequestMethodDesignator.entrySet()) {
+                final List<FlatRoute> otherRoutes = node2.routesByRequestMethodDesignator.get(entry.getKey());
+
+                if (otherRoutes == null) {
+                    continue;
+                }
+
+                for (FlatRoute route : entry.getValue()) {
+                    for (FlatRoute otherRoute : otherRoutes) {
+                        final int precedence = UriTemplate.PRECEDENCE_COMPARATOR.compare(route.getUriTemplate(), otherRoute.getUriTemplate());
+
+                        if (precedence == 0) {
+                            conflicts.add(new RouteConflict(RouteConflict.Type.AMBIGUOUS, route, otherRoute));
+                        } else if (precedence < 0) {
+                            conflicts.add(new RouteConflict(RouteConflict.Type.SHADOWED, route, otherRoute));
+                        } else {
+                            conflicts.add(new RouteConflict(RouteConflict.Type.SHADOWED, otherRoute, route));
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
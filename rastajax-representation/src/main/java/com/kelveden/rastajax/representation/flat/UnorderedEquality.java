@@ -0,0 +1,94 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Equality of the parts of a representation that - like their {@link Fingerprint}s - does not depend on the order of
+ * resource methods, parameters or media types.
+ */
+final class UnorderedEquality {
+
+    private UnorderedEquality() {
+    }
+
+    /**
+     * Whether the specified lists hold the same elements the same number of times, in any order.
+     */
+    static boolean equalIgnoringOrder(final List<?> list1, final List<?> list2) {
+
+        if (list1.size() != list2.size()) {
+            return false;
+        }
+
+        if (list1.equals(list2)) {
+            return true;
+        }
+
+        final Map<Object, Integer> counts = new HashMap<Object, Integer>();
+
+        for (Object element : list1) {
+            final Integer count = counts.get(element);
+            counts.put(element, count == null ? 1 : count + 1);
+        }
+
+        for (Object element : list2) {
+            final Integer count = counts.get(element);
+
+            if (count == null) {
+                return false;
+            }
+
+            if (count == 1) {
+                counts.remove(element);
+            } else {
+                counts.put(element, count - 1);
+            }
+        }
+
+        return counts.isEmpty();
+    }
+
+    /**
+     * Whether the specified maps have the same keys and, for each key, lists that are {@link #equalIgnoringOrder equal
+     * ignoring order}.
+     */
+    static <K> boolean equalIgnoringOrder(final Map<K, ? extends List<?>> map1, final Map<K, ? extends List<?>> map2) {
+
+        if (!map1.keySet().equals(map2.keySet())) {
+            return false;
+        }
+
+        for (Map.Entry<K, ? extends List<?>> entry : map1.entrySet()) {
+            if (!equalIgnoringOrder(entry.getValue(), map2.get(entry.getKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Whether the specified media type lists are the same once in {@link ApiFingerprints#canonicalMediaTypes canonical
+     * form} - e.g. one list of two media types and two lists of one.
+     */
+    static boolean equalMediaTypes(final List<String> mediaTypes1, final List<String> mediaTypes2) {
+        return mediaTypes1.equals(mediaTypes2) || ApiFingerprints.canonicalMediaTypes(mediaTypes1).equals(ApiFingerprints.canonicalMediaTypes(mediaTypes2));
+    }
+}
@@ -0,0 +1,508 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A parsed <a href="http://jsr311.java.net/">JAX-RS</a> URI template - e.g. <code>/orders/{id: \d+}/items</code> - broken
+ * down into path segments.
+ */
+public final class UriTemplate {
+
+    /**
+     * Orders templates by the JAX-RS matching precedence: most literal characters first, then most template variables,
+     * then most template variables with a regular expression.
+     */
+    public static final Comparator<UriTemplate> PRECEDENCE_COMPARATOR = new Comparator<UriTemplate>() {
+        @Override
+        public int compare(final UriTemplate template1, final UriTemplate template2) {
+
+            if (template1.literalCharacterCount != template2.literalCharacterCount) {
+                return template2.literalCharacterCount - template1.literalCharacterCount;
+            }
+
+            if (template1.variableNames.size() != template2.variableNames.size()) {
+                return template2.variableNames.size() - template1.variableNames.size();
+            }
+
+            return template2.regexVariableCount - template1.regexVariableCount;
+        }
+    };
+
+    static final String DEFAULT_VARIABLE_REGEX = "[^/]+?";
+
+    private final String template;
+    private final List<Segment> segments;
+    private final List<String> variableNames;
+    private final int literalCharacterCount;
+    private final int regexVariableCount;
+    private final Pattern pattern;
+    private final Map<String, Integer> variableGroups;
+
+    /**
+     * Constructor.
+     *
+     * @param template
+     *      The raw URI template. Repeated, leading and trailing slashes are ignored.
+     */
+    public UriTemplate(final String template) {
+
+        this.template = template == null ? "" : template;
+
+        final List<Segment> parsedSegments = new ArrayList<Segment>();
+        final List<String> names = new ArrayList<String>();
+        final Map<String, Integer> groups = new HashMap<String, Integer>();
+        final StringBuilder regex = new StringBuilder("/*");
+
+        int literalCharacters = 0;
+        int regexVariables = 0;
+        int groupCount = 0;
+
+        final List<String> rawSegments = splitIntoRawSegments(this.template);
+
+        for (int i = 0; i < rawSegments.size(); i++) {
+            final List<Part> parts = parseParts(rawSegments.get(i), this.template);
+
+            if (spansSegments(parts)) {
+                final List<Part> remainingParts = new ArrayList<Part>(parts);
+                for (int j = i + 1; j < rawSegments.size(); j++) {
+                    remainingParts.add(Part.literal("/"));
+                    remainingParts.addAll(parseParts(rawSegments.get(j), this.template));
+                }
+
+                parsedSegments.add(Segment.tail(remainingParts));
+                i = rawSegments.size();
+                parts.clear();
+                parts.addAll(remainingParts);
+
+            } else {
+                parsedSegments.add(Segment.from(parts));
+            }
+
+            if (regex.length() > 2) {
+                regex.append("/+");
+            }
+
+            for (Part part : parts) {
+                if (part.isVariable()) {
+                    groupCount++;
+                    names.add(part.value);
+
+                    if (!groups.containsKey(part.value)) {
+                        groups.put(part.value, groupCount);
+                    }
+
+                    if (part.regex != null) {
+                        regexVariables++;
+                        groupCount += Pattern.compile(part.regex).matcher("").groupCount();
+                    }
+
+                } else if (!"/".equals(part.value)) {
+                    literalCharacters += part.value.length();
+                }
+
+                regex.append(part.toRegex());
+            }
+        }
+
+        regex.append("/*");
+
+        this.segments = Collections.unmodifiableList(parsedSegments);
+        this.variableNames = Collections.unmodifiableList(names);
+        this.literalCharacterCount = literalCharacters;
+        this.regexVariableCount = regexVariables;
+        this.variableGroups = groups;
+        this.pattern = Pattern.compile(regex.toString());
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public List<String> getVariableNames() {
+        return variableNames;
+    }
+
+    public int getLiteralCharacterCount() {
+        return literalCharacterCount;
+    }
+
+    public int getRegexVariableCount() {
+        return regexVariableCount;
+    }
+
+    List<Segment> getSegments() {
+        return segments;
+    }
+
+    /**
+     * The index of the path segment that holds the value of the specified template variable.
+     *
+     * @param variableName
+     *      The name of the template variable.
+     * @return
+     *      The index - ignoring empty segments - or -1 if the variable does not occupy a whole segment on its own or
+     *      follows a variable that can match across segments.
+     */
+    public int getSegmentIndexOf(final String variableName) {
+
+        for (int i = 0; i < segments.size(); i++) {
+            final Segment segment = segments.get(i);
+
+            if (segment.getType() == Segment.Type.TAIL) {
+                return -1;
+            }
+
+            if (segment.isSingleVariable() && segment.getVariableNames().contains(variableName)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Whether the specified path matches this template.
+     *
+     * @param path
+     *      The path, excluding any query string.
+     */
+    public boolean matches(final String path) {
+        return pattern.matcher(path).matches();
+    }
+
+    /**
+     * Extracts the values of the template variables from the specified path.
+     *
+     * @param path
+     *      The path, excluding any query string.
+     * @return
+     *      The values keyed by variable name or null if the path does not match the template. Where a variable name
+     *      is repeated in the template the first value is used.
+     */
+    public Map<String, String> extractVariables(final String path) {
+
+        final Matcher matcher = pattern.matcher(path);
+
+        if (!matcher.matches()) {
+            return null;
+        }
+
+        final Map<String, String> values = new HashMap<String, String>();
+
+        for (Map.Entry<String, Integer> variableGroup : variableGroups.entrySet()) {
+            values.put(variableGroup.getKey(), matcher.group(variableGroup.getValue()));
+        }
+
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+
+    private static List<String> splitIntoRawSegments(final String template) {
+
+        final List<String> rawSegments = new ArrayList<String>();
+
+        int depth = 0;
+        int start = 0;
+
+        for (int i = 0; i <= template.length(); i++) {
+            final char c = i < template.length() ? template.charAt(i) : '/';
+
+            if (c == '{') {
+                depth++;
+
+            } else if (c == '}') {
+                depth--;
+
+                if (depth < 0) {
+                    throw new IllegalArgumentException("URI template '" + template + "' has unbalanced braces.");
+                }
+
+            } else if ((c == '/') && (depth == 0)) {
+                if (i > start) {
+                    rawSegments.add(template.substring(start, i));
+                }
+                start = i + 1;
+            }
+        }
+
+        if (depth != 0) {
+            throw new IllegalArgumentException("URI template '" + template + "' has unbalanced braces.");
+        }
+
+        return rawSegments;
+    }
+
+    private static List<Part> parseParts(final String rawSegment, final String template) {
+
+        final List<Part> parts = new ArrayList<Part>();
+        final StringBuilder literal = new StringBuilder();
+
+        int i = 0;
+        while (i < rawSegment.length()) {
+            final char c = rawSegment.charAt(i);
+
+            if (c == '{') {
+                if (literal.length() > 0) {
+                    parts.add(Part.literal(literal.toString()));
+                    literal.setLength(0);
+                }
+
+                final int close = findClosingBrace(rawSegment, i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("URI template '" + template + "' has unbalanced braces.");
+                }
+
+                parts.add(Part.variable(rawSegment.substring(i + 1, close)));
+                i = close + 1;
+
+            } else {
+                literal.append(c);
+                i++;
+            }
+        }
+
+        if (literal.length() > 0) {
+            parts.add(Part.literal(literal.toString()));
+        }
+
+        return parts;
+    }
+
+    private static int findClosingBrace(final String rawSegment, final int open) {
+
+        int depth = 0;
+
+        for (int i = open; i < rawSegment.length(); i++) {
+            final char c = rawSegment.charAt(i);
+
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth--;
+
+                if (depth == 0) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean spansSegments(final List<Part> parts) {
+
+        for (Part part : parts) {
+            if (part.isVariable() && (part.regex != null) && canMatchSlash(part.regex)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean canMatchSlash(final String regex) {
+
+        if (regex.indexOf('/') >= 0) {
+            return true;
+        }
+
+        final Matcher matcher = Pattern.compile(regex).matcher("/");
+        while (matcher.find()) {
+            if (matcher.end() > matcher.start()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * A single path segment of a template - or, for templates with a variable that can match across segments, the
+     * remainder of the template from that variable onwards.
+     */
+    static final class Segment {
+
+        enum Type {
+            LITERAL, VARIABLE, PATTERN, TAIL
+        }
+
+        private final Type type;
+        private final String key;
+        private final Pattern pattern;
+        private final int literalCharacterCount;
+        private final int variableCount;
+        private final int regexVariableCount;
+        private final List<String> variableNames;
+        private final boolean singleVariable;
+
+        private Segment(final Type type, final List<Part> parts) {
+
+            final StringBuilder regex = new StringBuilder();
+            final List<String> names = new ArrayList<String>();
+            int literalCharacters = 0;
+            int variables = 0;
+            int regexVariables = 0;
+
+            for (Part part : parts) {
+                regex.append(part.toRegex());
+
+                if (part.isVariable()) {
+                    variables++;
+                    names.add(part.value);
+                    if (part.regex != null) {
+                        regexVariables++;
+                    }
+                } else if (!"/".equals(part.value)) {
+                    literalCharacters += part.value.length();
+                }
+            }
+
+            this.type = type;
+            this.literalCharacterCount = literalCharacters;
+            this.variableCount = variables;
+            this.regexVariableCount = regexVariables;
+            this.variableNames = names;
+            this.singleVariable = (parts.size() == 1) && parts.get(0).isVariable();
+
+            if (type == Type.LITERAL) {
+                this.key = parts.get(0).value;
+                this.pattern = null;
+            } else {
+                this.key = regex.toString();
+                this.pattern = Pattern.compile(this.key);
+            }
+        }
+
+        static Segment from(final List<Part> parts) {
+
+            if ((parts.size() == 1) && !parts.get(0).isVariable()) {
+                return new Segment(Type.LITERAL, parts);
+
+            } else if ((parts.size() == 1) && (parts.get(0).regex == null)) {
+                return new Segment(Type.VARIABLE, parts);
+
+            } else {
+                return new Segment(Type.PATTERN, parts);
+            }
+        }
+
+        static Segment tail(final List<Part> parts) {
+            return new Segment(Type.TAIL, parts);
+        }
+
+        Type getType() {
+            return type;
+        }
+
+        /**
+         * The literal value for a {@link Type#LITERAL} segment; otherwise the regular expression for the segment with
+         * all variable names removed - i.e. two segments with equal keys match exactly the same input.
+         */
+        String getKey() {
+            return key;
+        }
+
+        Pattern getPattern() {
+            return pattern;
+        }
+
+        int getLiteralCharacterCount() {
+            return literalCharacterCount;
+        }
+
+        int getVariableCount() {
+            return variableCount;
+        }
+
+        int getRegexVariableCount() {
+            return regexVariableCount;
+        }
+
+        List<String> getVariableNames() {
+            return variableNames;
+        }
+
+        /**
+         * Whether the segment consists of nothing but a single template variable.
+         */
+        boolean isSingleVariable() {
+            return singleVariable;
+        }
+
+        /**
+         * Whether the literal value of another segment would be matched by this segment.
+         */
+        boolean matchesLiteral(final String literal) {
+
+            if (type == Type.LITERAL) {
+                return key.equals(literal);
+            }
+
+            return pattern.matcher(literal).matches();
+        }
+    }
+
+    private static final class Part {
+
+        private final String value;
+        private final String regex;
+        private final boolean variable;
+
+        private Part(final String value, final String regex, final boolean variable) {
+            this.value = value;
+            this.regex = regex;
+            this.variable = variable;
+        }
+
+        static Part literal(final String value) {
+            return new Part(value, null, false);
+        }
+
+        static Part variable(final String declaration) {
+
+            final int colon = declaration.indexOf(':');
+
+            if (colon < 0) {
+                return new Part(declaration.trim(), null, true);
+            }
+
+            final String regex = declaration.substring(colon + 1).trim();
+
+            return new Part(declaration.substring(0, colon).trim(), regex.length() == 0 ? null : regex, true);
+        }
+
+        boolean isVariable() {
+            return variable;
+        }
+
+        String toRegex() {
+
+            if (!variable) {
+                return Pattern.quote(value);
+            }
+
+            return "(" + (regex == null ? DEFAULT_VARIABLE_REGEX : regex) + ")";
+        }
+    }
+}
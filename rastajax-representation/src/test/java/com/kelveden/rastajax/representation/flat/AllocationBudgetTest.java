@@ -0,0 +1,193 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.corpus.Corpus;
+import com.kelveden.rastajax.corpus.CorpusGenerator;
+import com.kelveden.rastajax.corpus.CorpusSpecification;
+import org.junit.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+/**
+ * Guards against allocation regressions in the describe pipeline by measuring the bytes allocated by the current thread
+ * - so everything is run sequentially - over a fixed generated application and comparing them against the budgets in
+ * <code>allocation-budget.properties</code>. Each measurement is the minimum over several runs after a warm-up so that
+ * class loading and JIT compilation do not count. Skipped on JVMs that cannot count allocated bytes per thread.
+ * <p>
+ * If a change legitimately needs more memory, raise the budget in the same commit and say why.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARM_UP_RUNS = 5;
+    private static final int MEASURED_RUNS = 5;
+
+    private static final CorpusSpecification CORPUS_SPECIFICATION = new CorpusSpecification()
+            .withRootResources(50)
+            .withLocatorDepth(2)
+            .withLocatorFanOut(2)
+            .withInterfaceHierarchyDepth(2)
+            .withJars(2)
+            .withFillerClassesPerArchive(50);
+
+    private static Corpus corpus;
+    private static List<Class<?>> rootResourceClasses;
+    private static Properties budgets;
+
+    private final Logger rastajaxLogger = (Logger) LoggerFactory.getLogger("com.kelveden.rastajax");
+    private Level originalLevel;
+
+    @BeforeClass
+    public static void generateCorpus() throws IOException {
+
+        Assume.assumeTrue(isThreadAllocatedMemorySupported());
+
+        corpus = CorpusGenerator.generate(CORPUS_SPECIFICATION);
+        rootResourceClasses = corpus.loadRootResourceClasses();
+        budgets = loadBudgets();
+    }
+
+    @AfterClass
+    public static void deleteCorpus() {
+        if (corpus != null) {
+            corpus.delete();
+        }
+    }
+
+    @Before
+    public void quietenLogging() {
+
+        // Debug logging allocates far more than the code being measured.
+        originalLevel = rastajaxLogger.getLevel();
+        rastajaxLogger.setLevel(Level.WARN);
+    }
+
+    @After
+    public void restoreLogging() {
+        rastajaxLogger.setLevel(originalLevel);
+    }
+
+    @Test
+    public void describingApplicationStaysWithinBudgetPerEndpoint() {
+
+        final long endpoints = CORPUS_SPECIFICATION.getRootResourceCount() * CORPUS_SPECIFICATION.getEndpointsPerRootResource();
+
+        final long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                final Set<FlatResource> representation = RestDescriber.describeApplication(rootResourceClasses, new FlatRepresentationBuilder());
+                if (representation.isEmpty()) {
+                    throw new IllegalStateException("Nothing was described.");
+                }
+            }
+        });
+
+        assertWithinBudget("describe.bytesPerEndpoint", allocated / endpoints);
+    }
+
+    @Test
+    public void scanningApplicationStaysWithinBudgetPerClass() {
+
+        final long allocated = measure(new Runnable() {
+            @Override
+            public void run() {
+                final Set<Class<?>> rootResources = new ClassLoaderRootResourceScanner(corpus.getClassLoader(), corpus.getPackageName()).scan();
+                if (rootResources.isEmpty()) {
+                    throw new IllegalStateException("Nothing was scanned.");
+                }
+            }
+        });
+
+        assertWithinBudget("scan.bytesPerClass", allocated / CORPUS_SPECIFICATION.getClassCount());
+    }
+
+    private static long measure(final Runnable task) {
+
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            task.run();
+        }
+
+        long result = Long.MAX_VALUE;
+
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            final long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            task.run();
+            result = Math.min(result, threadMXBean.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        return result;
+    }
+
+    private static void assertWithinBudget(final String budgetName, final long actual) {
+
+        final long budget = Long.parseLong(budgets.getProperty(budgetName).trim());
+
+        LoggerFactory.getLogger(AllocationBudgetTest.class).info("{}: {} bytes allocated against a budget of {}.", new Object[] { budgetName, actual, budget });
+
+        assertThat(budgetName, actual, lessThanOrEqualTo(budget));
+    }
+
+    private static boolean isThreadAllocatedMemorySupported() {
+
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+
+        if (!sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+            return false;
+        }
+
+        if (!sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+            sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        }
+
+        return true;
+    }
+
+    private static Properties loadBudgets() throws IOException {
+
+        final InputStream input = AllocationBudgetTest.class.getResourceAsStream("/allocation-budget.properties");
+
+        try {
+            final Properties result = new Properties();
+            result.load(input);
+            return result;
+        } finally {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.*;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class BinaryRepresentationTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void representationIsReadBackUnchanged() throws IOException {
+
+        // Given
+        final Set<FlatResource> representation = representation(50);
+
+        // When
+        final Set<FlatResource> readBack = BinaryRepresentationReader.readAll(new ByteArrayInputStream(write(representation)));
+
+        // Then
+        assertThat(new ArrayList<FlatResource>(readBack), is(new ArrayList<FlatResource>(representation)));
+        assertThat(Fingerprint.of(readBack), is(Fingerprint.of(representation)));
+    }
+
+    @Test
+    public void nullsAndUnusualStringsAreReadBackUnchanged() throws IOException {
+
+        // Given
+        final Map<String, List<FlatResourceMethodParameter>> parameters = new HashMap<String, List<FlatResourceMethodParameter>>();
+        parameters.put("queryParam", Arrays.asList(new FlatResourceMethodParameter("q\u00e9", "String")));
+
+        final FlatResource resource = new FlatResource("/{path: .+}/", Arrays.asList(
+                new FlatResourceMethod("locate", null, parameters, new ArrayList<String>(), new ArrayList<String>(), "DefaultPackageClass")));
+
+        // When
+        final Set<FlatResource> readBack = BinaryRepresentationReader.readAll(new ByteArrayInputStream(write(Collections.singleton(resource))));
+
+        // Then
+        assertThat(readBack, contains(resource));
+    }
+
+    @Test
+    public void resourcesCanBeReadOneAtATime() throws IOException {
+
+        final BinaryRepresentationReader reader = new BinaryRepresentationReader(new ByteArrayInputStream(write(representation(3))));
+
+        assertThat(reader.read().getUriTemplate(), is("service0/resource0/{id}"));
+        assertThat(reader.read().getUriTemplate(), is("service1/resource1/{id}"));
+        assertThat(reader.read().getUriTemplate(), is("service2/resource2/{id}"));
+        assertThat(reader.read(), is(nullValue()));
+        assertThat(reader.read(), is(nullValue()));
+    }
+
+    @Test
+    public void encodingIsMuchSmallerThanJson() throws IOException {
+
+        final Set<FlatResource> representation = representation(1000);
+
+        final int binarySize = write(representation).length;
+        final int jsonSize = new ObjectMapper().writeValueAsBytes(representation).length;
+
+        assertThat(binarySize * 4, is(lessThan(jsonSize)));
+    }
+
+    @Test
+    public void streamThatIsNotABinaryRepresentationIsRejected() throws IOException {
+
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Not a binary representation");
+
+        BinaryRepresentationReader.readAll(new ByteArrayInputStream("[{\"uriTemplate\":\"x\"}]".getBytes("UTF-8")));
+    }
+
+    @Test
+    public void truncatedStreamIsRejected() throws IOException {
+
+        final byte[] bytes = write(representation(5));
+
+        thrown.expect(IOException.class);
+
+        BinaryRepresentationReader.readAll(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length / 2)));
+    }
+
+    @Test
+    public void negativeStringReferenceIsRejected() throws IOException {
+
+        thrown.expect(IOException.class);
+        thrown.expectMessage("undefined string");
+
+        // A resource with two segments whose first refers to a string with a negative index - a five byte varint
+        // overflowing into the sign bit.
+        BinaryRepresentationReader.readAll(new ByteArrayInputStream(stream(2, 0x80, 0x80, 0x80, 0x80, 0x0f)));
+    }
+
+    @Test
+    public void stringLongerThanTheStreamIsRejectedAsTruncated() throws IOException {
+
+        thrown.expect(EOFException.class);
+
+        // A resource with two segments whose first is a new string of 2^24 bytes - of which there are three.
+        BinaryRepresentationReader.readAll(new ByteArrayInputStream(stream(2, BinaryRepresentation.NEW_STRING, 0x80, 0x80, 0x80, 0x08, 'a', 'b', 'c')));
+    }
+
+    @Test
+    public void countLargerThanTheStreamIsRejectedAsTruncated() throws IOException {
+
+        thrown.expect(EOFException.class);
+
+        // A resource with no segments and 2^24 resource methods - of which there is the start of one.
+        BinaryRepresentationReader.readAll(new ByteArrayInputStream(stream(1, 0x80, 0x80, 0x80, 0x08, BinaryRepresentation.NULL_STRING)));
+    }
+
+    /**
+     * A binary representation with the specified bytes after its header.
+     */
+    private static byte[] stream(final int... body) {
+
+        final byte[] result = new byte[BinaryRepresentation.MAGIC.length + 1 + body.length];
+
+        System.arraycopy(BinaryRepresentation.MAGIC, 0, result, 0, BinaryRepresentation.MAGIC.length);
+        result[BinaryRepresentation.MAGIC.length] = BinaryRepresentation.FORMAT_VERSION;
+
+        for (int i = 0; i < body.length; i++) {
+            result[BinaryRepresentation.MAGIC.length + 1 + i] = (byte) body[i];
+        }
+
+        return result;
+    }
+
+    private byte[] write(final Set<FlatResource> representation) throws IOException {
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryRepresentationWriter.write(representation, out);
+
+        return out.toByteArray();
+    }
+
+    private Set<FlatResource> representation(final int resourceCount) {
+
+        final Set<FlatResource> result = new LinkedHashSet<FlatResource>();
+
+        for (int i = 0; i < resourceCount; i++) {
+            final Map<String, List<FlatResourceMethodParameter>> parameters = new LinkedHashMap<String, List<FlatResourceMethodParameter>>();
+            parameters.put("pathParam", Arrays.asList(new FlatResourceMethodParameter("id", "long")));
+            parameters.put("queryParam", Arrays.asList(new FlatResourceMethodParameter("expand", "boolean"), new FlatResourceMethodParameter("fields", "String")));
+
+            final String resourceClass = "com.example.service" + i + ".Resource" + i;
+
+            result.add(new FlatResource("service" + i + "/resource" + i + "/{id}", Arrays.asList(
+                    new FlatResourceMethod("get", "GET", parameters, new ArrayList<String>(), Arrays.asList("application/json", "application/xml"), resourceClass),
+                    new FlatResourceMethod("update", "PUT", parameters, Arrays.asList("application/json"), Arrays.asList("application/json"), resourceClass),
+                    new FlatResourceMethod("delete", "DELETE", parameters, new ArrayList<String>(), new ArrayList<String>(), resourceClass))));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DescriptionSnapshotTest {
+
+    private static final String[] API_PACKAGES = { "com.example.orders", "com.example.customers" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File snapshotDirectory;
+    private Set<FlatResource> representation;
+
+    @Before
+    public void setUp() throws IOException {
+
+        snapshotDirectory = folder.newFolder("classes");
+
+        representation = new LinkedHashSet<FlatResource>();
+        representation.add(new FlatResource("orders/{id}", Arrays.asList(method("getOrder", FlatResourceTest.class))));
+        representation.add(new FlatResource("customers", Arrays.asList(method("getCustomers", FlatResourceMethodTest.class))));
+    }
+
+    @Test
+    public void snapshotIsLoadedUnchanged() throws IOException {
+
+        // Given
+        DescriptionSnapshot.write(representation, API_PACKAGES, getClass().getClassLoader(), snapshotDirectory);
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(snapshotClassLoader(), new String[] { "com.example.customers", "com.example.orders" });
+
+        // Then
+        assertThat(new ArrayList<FlatResource>(loaded), is(new ArrayList<FlatResource>(representation)));
+    }
+
+    @Test
+    public void missingSnapshotIsNotLoaded() throws IOException {
+
+        assertThat(DescriptionSnapshot.load(snapshotClassLoader(), API_PACKAGES), is(nullValue()));
+    }
+
+    @Test
+    public void snapshotForOtherPackagesIsNotLoaded() throws IOException {
+
+        // Given
+        DescriptionSnapshot.write(representation, API_PACKAGES, getClass().getClassLoader(), snapshotDirectory);
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(snapshotClassLoader(), new String[] { "com.example.orders" });
+
+        // Then
+        assertThat(loaded, is(nullValue()));
+    }
+
+    @Test
+    public void snapshotIsNotLoadedIfAResourceClassHasChanged() throws IOException {
+
+        // Given
+        DescriptionSnapshot.write(representation, API_PACKAGES, getClass().getClassLoader(), snapshotDirectory);
+
+        final File changedClassFile = folder.newFile("Changed.class");
+        final OutputStream out = new FileOutputStream(changedClassFile);
+        try {
+            out.write(new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe });
+        } finally {
+            out.close();
+        }
+
+        final ClassLoader classLoader = new ClassLoader(snapshotClassLoader()) {
+            @Override
+            public URL getResource(final String name) {
+                try {
+                    return name.equals(FlatResourceMethodTest.class.getName().replace('.', '/') + ".class") ? changedClassFile.toURI().toURL() : super.getResource(name);
+
+                } catch (final MalformedURLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(classLoader, API_PACKAGES);
+
+        // Then
+        assertThat(loaded, is(nullValue()));
+    }
+
+    @Test
+    public void snapshotIsNotLoadedIfAClassIsAddedToAnApiPackage() throws IOException {
+
+        // Given
+        final File apiClasses = folder.newFolder("api");
+        writeClassFile(new File(apiClasses, "com/example/orders/OrderSupport.class"), 1);
+
+        DescriptionSnapshot.write(representation, API_PACKAGES, snapshotClassLoader(apiClasses), snapshotDirectory);
+
+        final Set<FlatResource> loadedBefore = DescriptionSnapshot.load(snapshotClassLoader(apiClasses), API_PACKAGES);
+
+        writeClassFile(new File(apiClasses, "com/example/orders/returns/ReturnsResource.class"), 2);
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(snapshotClassLoader(apiClasses), API_PACKAGES);
+
+        // Then
+        assertThat(loadedBefore, is(notNullValue()));
+        assertThat(loaded, is(nullValue()));
+    }
+
+    @Test
+    public void snapshotIsNotLoadedIfAClassInAnApiPackageJarHasChanged() throws IOException {
+
+        // Given
+        final File apiJar = new File(folder.getRoot(), "api.jar");
+        writeJar(apiJar, "com/example/customers/CustomerBase.class", 1);
+
+        DescriptionSnapshot.write(representation, API_PACKAGES, snapshotClassLoader(apiJar), snapshotDirectory);
+
+        final Set<FlatResource> loadedBefore = DescriptionSnapshot.load(snapshotClassLoader(apiJar), API_PACKAGES);
+
+        writeJar(apiJar, "com/example/customers/CustomerBase.class", 2);
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(snapshotClassLoader(apiJar), API_PACKAGES);
+
+        // Then
+        assertThat(loadedBefore, is(notNullValue()));
+        assertThat(loaded, is(nullValue()));
+    }
+
+    @Test
+    public void classesInApiPackagesOfParentClassLoadersAreNotStamped() throws IOException {
+
+        // Given
+        final File parentClasses = folder.newFolder("parent");
+        writeClassFile(new File(parentClasses, "com/example/orders/OrderSupport.class"), 1);
+
+        final ClassLoader parentClassLoader = new URLClassLoader(new URL[] { parentClasses.toURI().toURL() }, getClass().getClassLoader());
+        final ClassLoader classLoader = new URLClassLoader(new URL[] { snapshotDirectory.toURI().toURL() }, parentClassLoader);
+
+        DescriptionSnapshot.write(representation, API_PACKAGES, classLoader, snapshotDirectory);
+
+        writeClassFile(new File(parentClasses, "com/example/orders/OrderSupport.class"), 2);
+        writeClassFile(new File(parentClasses, "com/example/orders/returns/ReturnsResource.class"), 1);
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(classLoader, API_PACKAGES);
+
+        // Then
+        assertThat(loaded, is(notNullValue()));
+    }
+
+    @Test
+    public void corruptSnapshotIsNotLoaded() throws IOException {
+
+        // Given
+        DescriptionSnapshot.write(representation, API_PACKAGES, getClass().getClassLoader(), snapshotDirectory);
+
+        final OutputStream out = new FileOutputStream(new File(snapshotDirectory, DescriptionSnapshot.REPRESENTATION_LOCATION));
+        try {
+            out.write("not a representation".getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+
+        // When
+        final Set<FlatResource> loaded = DescriptionSnapshot.load(snapshotClassLoader(), API_PACKAGES);
+
+        // Then
+        assertThat(loaded, is(nullValue()));
+    }
+
+    private ClassLoader snapshotClassLoader() throws MalformedURLException {
+        return new URLClassLoader(new URL[] { snapshotDirectory.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    private ClassLoader snapshotClassLoader(final File apiClasses) throws MalformedURLException {
+        return new URLClassLoader(new URL[] { snapshotDirectory.toURI().toURL(), apiClasses.toURI().toURL() }, getClass().getClassLoader());
+    }
+
+    /**
+     * Writes a stand-in class file - only its bytes matter to a snapshot.
+     */
+    private static void writeClassFile(final File classFile, final int version) throws IOException {
+
+        if (!classFile.getParentFile().isDirectory() && !classFile.getParentFile().mkdirs()) {
+            throw new IOException("Could not create directory '" + classFile.getParentFile() + "'.");
+        }
+
+        final OutputStream out = new FileOutputStream(classFile);
+        try {
+            out.write(classFileContent(version));
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void writeJar(final File jar, final String classFileName, final int version) throws IOException {
+
+        final JarOutputStream out = new JarOutputStream(new FileOutputStream(jar));
+        try {
+            final String[] segments = classFileName.split("/");
+            final StringBuilder directory = new StringBuilder();
+
+            for (int i = 0; i < segments.length - 1; i++) {
+                directory.append(segments[i]).append('/');
+                out.putNextEntry(new JarEntry(directory.toString()));
+                out.closeEntry();
+            }
+
+            out.putNextEntry(new JarEntry(classFileName));
+            out.write(classFileContent(version));
+            out.closeEntry();
+
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] classFileContent(final int version) {
+        return new byte[] { (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 0, 0, 0, (byte) version };
+    }
+
+    private static FlatResourceMethod method(final String name, final Class<?> resourceClass) {
+        return new FlatResourceMethod(name, "GET", new HashMap<String, List<FlatResourceMethodParameter>>(), new ArrayList<String>(), Arrays.asList("application/json"), resourceClass.getName());
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.kelveden.rastajax.representation.flat.FlatFixtures.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class FingerprintTest {
+
+
+    @Test
+    public void fingerprintIsStable() {
+
+        final Fingerprint fingerprint = Fingerprint.of(Arrays.asList(resource("orders", method("GET", "list", list(), list("application/json")))));
+
+        assertThat(fingerprint.toString(), is("4c468f320d224eed65f5680f3603bfdb"));
+    }
+
+    @Test
+    public void fingerprintIsIndependentOfOrder() {
+
+        final FlatResource resource1 = resource("orders", method("GET", "list", list(), list("application/json", "application/xml")), method("POST", "create"));
+        final FlatResource resource2 = resource("orders", method("POST", "create"), method("GET", "list", list(), list("application/xml", "application/json")));
+        final FlatResource other = resource("customers", method("GET", "list"));
+
+        assertThat(resource1.getFingerprint(), is(resource2.getFingerprint()));
+        assertThat(Fingerprint.of(Arrays.asList(resource1, other)), is(Fingerprint.of(Arrays.asList(other, resource2))));
+    }
+
+    @Test
+    public void fingerprintIsIndependentOfParameterOrder() {
+
+        final FlatResourceMethod method1 = new FlatResourceMethod("list", "GET", parameters("queryParam", new FlatResourceMethodParameter("a", "int"), "queryParam", new FlatResourceMethodParameter("b", "String")),
+                list(), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod method2 = new FlatResourceMethod("list", "GET", parameters("queryParam", new FlatResourceMethodParameter("b", "String"), "queryParam", new FlatResourceMethodParameter("a", "int")),
+                list(), list(), DUMMY_RESOURCE_CLASS);
+
+        assertThat(method1.getFingerprint(), is(method2.getFingerprint()));
+    }
+
+    @Test
+    public void resourcesAreEqualRegardlessOfOrder() {
+
+        // Given
+        final FlatResource resource1 = resource("orders", method("GET", "list", list(), list("application/json", "application/xml")), method("POST", "create"));
+        final FlatResource resource2 = resource("orders", method("POST", "create"), method("GET", "list", list(), list("application/xml, application/json")));
+
+        // When
+        final boolean equal = resource1.equals(resource2);
+
+        // Then
+        assertThat(equal, is(true));
+        assertThat(new HashSet<FlatResource>(Arrays.asList(resource1)).contains(resource2), is(true));
+    }
+
+    @Test
+    public void resourceMethodsAreEqualRegardlessOfParameterOrder() {
+
+        // Given
+        final FlatResourceMethod method1 = new FlatResourceMethod("list", "GET", parameters("queryParam", new FlatResourceMethodParameter("a", "int"), "queryParam", new FlatResourceMethodParameter("b", "String")),
+                list(), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod method2 = new FlatResourceMethod("list", "GET", parameters("queryParam", new FlatResourceMethodParameter("b", "String"), "queryParam", new FlatResourceMethodParameter("a", "int")),
+                list(), list(), DUMMY_RESOURCE_CLASS);
+
+        // When
+        final boolean equal = method1.equals(method2);
+
+        // Then
+        assertThat(equal, is(true));
+    }
+
+    @Test
+    public void resourcesWithTheSameMethodsRepeatedDifferentlyAreNotEqual() {
+
+        // Given
+        final FlatResource resource1 = resource("orders", method("GET", "list"), method("GET", "list"), method("POST", "create"));
+        final FlatResource resource2 = resource("orders", method("GET", "list"), method("POST", "create"), method("POST", "create"));
+
+        // When
+        final boolean equal = resource1.equals(resource2);
+
+        // Then
+        assertThat(equal, is(false));
+    }
+
+    @Test
+    public void anyChangeChangesFingerprint() {
+
+        final Set<Fingerprint> fingerprints = new HashSet<Fingerprint>(Arrays.asList(
+                resource("orders", method("GET", "list")).getFingerprint(),
+                resource("orders2", method("GET", "list")).getFingerprint(),
+                resource("orders", method("PUT", "list")).getFingerprint(),
+                resource("orders", method("GET", "list2")).getFingerprint(),
+                resource("orders", method("GET", "list", list(), list("text/plain"))).getFingerprint(),
+                resource("orders", method("GET", "list"), method("GET", "list")).getFingerprint(),
+                resource("orders").getFingerprint()));
+
+        assertThat(fingerprints, hasSize(7));
+    }
+
+    @Test
+    public void equalResourcesHaveEqualHashCodes() {
+
+        final FlatResource resource1 = resource("orders", method("GET", "list", list(), list("application/json")));
+        final FlatResource resource2 = resource("orders", method("GET", "list", list(), list("application/json")));
+
+        assertThat(resource1, is(resource2));
+        assertThat(resource1.hashCode(), is(resource2.hashCode()));
+        assertThat(resource1, is(not(resource("orders", method("GET", "list", list(), list("application/xml"))))));
+    }
+
+    @Test
+    public void fingerprintIsNotSerialised() throws Exception {
+
+        final String json = new ObjectMapper().writeValueAsString(resource("orders", method("GET", "list")));
+
+        assertThat(json, not(containsString("fingerprint")));
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import java.util.*;
+
+/**
+ * Factories for the small flat representations used as fixtures by the tests in this package.
+ */
+final class FlatFixtures {
+
+    static final String DUMMY_RESOURCE_CLASS = "SomeClass";
+
+    private FlatFixtures() {
+    }
+
+    static Set<FlatResource> resources(final FlatResource... resources) {
+        return new HashSet<FlatResource>(Arrays.asList(resources));
+    }
+
+    static FlatResource resource(final String uriTemplate, final FlatResourceMethod... resourceMethods) {
+        return new FlatResource(uriTemplate, Arrays.asList(resourceMethods));
+    }
+
+    static FlatResource resource(final String uriTemplate, final String requestMethodDesignator, final String name) {
+        return resource(uriTemplate, method(requestMethodDesignator, name));
+    }
+
+    static FlatResourceMethod method(final String requestMethodDesignator, final String name) {
+        return method(requestMethodDesignator, name, list(), list());
+    }
+
+    static FlatResourceMethod method(final String requestMethodDesignator, final String name, final List<String> consumes, final List<String> produces) {
+        return method(requestMethodDesignator, name, parameters(), consumes, produces);
+    }
+
+    static FlatResourceMethod method(final String requestMethodDesignator, final String name, final Map<String, List<FlatResourceMethodParameter>> parameters,
+                                     final List<String> consumes, final List<String> produces) {
+        return new FlatResourceMethod(name, requestMethodDesignator, parameters, consumes, produces, DUMMY_RESOURCE_CLASS);
+    }
+
+    /**
+     * Parameters keyed by parameter type - given as alternating types (e.g. <code>"queryParam"</code>) and parameters.
+     */
+    static Map<String, List<FlatResourceMethodParameter>> parameters(final Object... typesAndParameters) {
+
+        final Map<String, List<FlatResourceMethodParameter>> result = new HashMap<String, List<FlatResourceMethodParameter>>();
+
+        for (int i = 0; i < typesAndParameters.length; i += 2) {
+            final String type = (String) typesAndParameters[i];
+
+            if (!result.containsKey(type)) {
+                result.put(type, new ArrayList<FlatResourceMethodParameter>());
+            }
+            result.get(type).add((FlatResourceMethodParameter) typesAndParameters[i + 1]);
+        }
+
+        return result;
+    }
+
+    static List<String> list(final String... values) {
+        return new ArrayList<String>(Arrays.asList(values));
+    }
+}
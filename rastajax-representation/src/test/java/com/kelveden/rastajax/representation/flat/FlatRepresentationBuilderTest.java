@@ -15,12 +15,23 @@
  */
 package com.kelveden.rastajax.representation.flat;
 
+import com.kelveden.rastajax.core.DescriptionStatistics;
+import com.kelveden.rastajax.core.RestDescriber;
 import com.kelveden.rastajax.core.raw.*;
+import com.kelveden.rastajax.corpus.Corpus;
+import com.kelveden.rastajax.corpus.CorpusGenerator;
+import com.kelveden.rastajax.corpus.CorpusSpecification;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import javax.ws.rs.FormParam;
 import javax.ws.rs.QueryParam;
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
@@ -48,6 +59,9 @@ public class FlatRepresentationBuilderTest {
     
     private static final List<Parameter> NO_FIELDS = new ArrayList<Parameter>();
 
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
     @Test
     public void canInstantiate() {
         new FlatRepresentationBuilder();
@@ -230,6 +244,249 @@ public class FlatRepresentationBuilderTest {
         assertThat(result.iterator().next().getResourceMethods().get(1).getName(), is("mymethod2"));
     }
 
+    @Test
+    public void subResourceReachedThroughSeveralLocatorsIsRepresentedUnderEachLocator() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder();
+
+        final ResourceClass subResource = new ResourceClass(DUMMY_RESOURCE_CLASS, NO_PATH, Arrays.<ResourceClassMethod>asList(new ResourceMethod("audit", "GET", DUMMY_PRODUCES, DUMMY_CONSUMES, DUMMY_PARAMETERS, NO_RETURN_TYPE)), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+
+        final ResourceClass resource1 = new ResourceClass(DUMMY_RESOURCE_CLASS, "orders", Arrays.<ResourceClassMethod>asList(new SubResourceLocator(DUMMY_METHOD_NAME, "audit", DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, subResource)), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+        final ResourceClass resource2 = new ResourceClass(DUMMY_RESOURCE_CLASS, "customers", Arrays.<ResourceClassMethod>asList(new SubResourceLocator(DUMMY_METHOD_NAME, "audit", DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, subResource)), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(resource1, resource2)));
+
+        assertThat(uriTemplatesOf(result), contains("customers/audit", "orders/audit"));
+    }
+
+    @Test
+    public void subResourceLocatorsBeyondMaximumLocatorDepthAreNotRepresented() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withMaximumLocatorDepth(2);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 4, 1))));
+
+        assertThat(uriTemplatesOf(result), contains("root", "root/child0", "root/child0/child0"));
+    }
+
+    @Test
+    public void zeroMaximumLocatorDepthIgnoresSubResourceLocators() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withMaximumLocatorDepth(0);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 4, 1))));
+
+        assertThat(uriTemplatesOf(result), contains("root"));
+    }
+
+    @Test
+    public void resourceMethodsBeyondMaximumEndpointsPerRootResourceAreNotRepresented() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withMaximumEndpointsPerRootResource(100);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 10, 3))));
+
+        int endpoints = 0;
+        for (FlatResource resource : result) {
+            endpoints += resource.getResourceMethods().size();
+        }
+
+        assertThat(endpoints, is(100));
+    }
+
+    @Test
+    public void representationIsRecordedAsCompleteWhenNothingIsLeftOut() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withStatistics(statistics);
+
+        builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 3, 2))));
+
+        assertThat(statistics.isRepresentationComplete(), is(true));
+    }
+
+    @Test
+    public void subResourceLocatorsLeftOutOfTheRepresentationAreRecordedInStatistics() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withMaximumLocatorDepth(2).withStatistics(statistics);
+
+        builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(
+                nestedResource("root", 4, 1),
+                new ResourceClass(DUMMY_RESOURCE_CLASS, "unresolved", Arrays.<ResourceClassMethod>asList(DUMMY_METHOD, new SubResourceLocator(DUMMY_METHOD_NAME, "parts", DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, null)), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS))));
+
+        assertThat(statistics.getLocatorsOmitted(), is(2L));
+        assertThat(statistics.isRepresentationComplete(), is(false));
+    }
+
+    @Test
+    public void resourceClassesCutShortByMaximumEndpointsPerRootResourceAreRecordedInStatistics() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withMaximumEndpointsPerRootResource(100).withStatistics(statistics);
+
+        builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 10, 3))));
+
+        assertThat(statistics.getResourcesTruncated(), greaterThan(0L));
+        assertThat(statistics.isRepresentationComplete(), is(false));
+    }
+
+    @Test
+    public void deeplyNestedFanOutOfSubResourceLocatorsIsFlattenedInFull() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder();
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 10, 2))));
+
+        assertThat(result, hasSize(2047));
+    }
+
+    @Test
+    public void everyEndpointOfALargeGeneratedApplicationIsRepresented() throws IOException {
+
+        final Corpus corpus = CorpusGenerator.generate(new CorpusSpecification()
+                .withRootResources(100)
+                .withLocatorDepth(3)
+                .withLocatorFanOut(3)
+                .withInterfaceHierarchyDepth(3)
+                .withJars(4)
+                .withFillerClassesPerArchive(50));
+
+        try {
+            final Set<FlatResource> result = RestDescriber.describeApplication(corpus.loadRootResourceClasses(), new FlatRepresentationBuilder().inParallel());
+
+            int endpoints = 0;
+            for (FlatResource resource : result) {
+                endpoints += resource.getResourceMethods().size();
+            }
+
+            assertThat((long) endpoints, is(100 * corpus.getSpecification().getEndpointsPerRootResource()));
+
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    @Test
+    public void reuseOfFlattenedSubResourcesIsRecordedInStatistics() {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder().withStatistics(statistics);
+
+        builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(nestedResource("root", 3, 2))));
+
+        // Each of the three nested levels is flattened once and then reused by the second locator to it.
+        assertThat(statistics.getCacheMisses(FlatRepresentationBuilder.FLATTENED_SUB_RESOURCE_CACHE), is(3L));
+        assertThat(statistics.getCacheHits(FlatRepresentationBuilder.FLATTENED_SUB_RESOURCE_CACHE), is(3L));
+    }
+
+    @Test
+    public void flattenedSubResourcesAreReusedWhenDescribingGeneratedApplication() throws IOException {
+
+        final Corpus corpus = CorpusGenerator.generate(new CorpusSpecification().withRootResources(2).withLocatorDepth(3).withLocatorFanOut(3));
+
+        try {
+            final DescriptionStatistics statistics = new DescriptionStatistics();
+
+            RestDescriber.describeApplication(corpus.loadRootResourceClasses(), new FlatRepresentationBuilder().withStatistics(statistics), statistics);
+
+            // Every locator to a level returns the same sub-resource class so each level is flattened only once.
+            assertThat(statistics.getCacheMisses(FlatRepresentationBuilder.FLATTENED_SUB_RESOURCE_CACHE), is(3L));
+            assertThat(statistics.getCacheHits(FlatRepresentationBuilder.FLATTENED_SUB_RESOURCE_CACHE), greaterThan(0L));
+
+            // ...and each level is counted as loaded only once, however many locators reach it.
+            assertThat(statistics.getResourcesLoaded(), is(2L + 3));
+
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    @Test
+    public void describingGeneratedApplicationIsRecordedInStatistics() throws IOException {
+
+        final Corpus corpus = CorpusGenerator.generate(new CorpusSpecification().withRootResources(5).withLocatorDepth(1).withLocatorFanOut(2));
+
+        try {
+            final DescriptionStatistics statistics = new DescriptionStatistics(3);
+
+            RestDescriber.describeApplication(corpus.loadRootResourceClasses(), new FlatRepresentationBuilder().withStatistics(statistics), statistics);
+
+            // Each root resource has four resource methods and two locators to the same sub-resource class, which has two
+            // resource methods and is loaded - and counted - once.
+            assertThat(statistics.getResourcesLoaded(), is(5L + 1));
+            assertThat(statistics.getMethodsFound(), is(5L * 6 + 2));
+            assertThat(statistics.getSlowestClasses(), hasSize(3));
+            assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.LOAD, TimeUnit.NANOSECONDS), greaterThan(0L));
+            assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.BUILD, TimeUnit.NANOSECONDS), greaterThan(0L));
+
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    @Test
+    public void describingGeneratedApplicationFromClassFilesIsRecordedInStatistics() throws IOException {
+
+        final Corpus corpus = CorpusGenerator.generate(new CorpusSpecification().withRootResources(5).withLocatorDepth(1).withLocatorFanOut(2));
+
+        try {
+            final DescriptionStatistics statistics = new DescriptionStatistics(3);
+
+            RestDescriber.describeApplicationFromClassFiles(corpus.getRootResourceClassNames(), corpus.getClassLoader(),
+                    new FlatRepresentationBuilder().withStatistics(statistics), statistics);
+
+            assertThat(statistics.getResourcesLoaded(), is(5L + 1));
+            assertThat(statistics.getMethodsFound(), is(5L * 6 + 2));
+            assertThat(statistics.getSlowestClasses(), hasSize(3));
+            assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.LOAD, TimeUnit.NANOSECONDS), greaterThan(0L));
+            assertThat(statistics.getPhaseTime(DescriptionStatistics.Phase.BUILD, TimeUnit.NANOSECONDS), greaterThan(0L));
+
+        } finally {
+            corpus.delete();
+        }
+    }
+
+    @Test
+    public void representationBuiltInParallelIsIdenticalToThatBuiltSequentially() {
+
+        final Set<ResourceClass> resources = new LinkedHashSet<ResourceClass>();
+        for (int i = 0; i < 20; i++) {
+            resources.add(nestedResource("root" + (i % 15), 4, 2));
+        }
+
+        final Set<FlatResource> sequential = new FlatRepresentationBuilder().buildRepresentationFor(resources);
+        final Set<FlatResource> parallel = new FlatRepresentationBuilder().inParallel().buildRepresentationFor(resources);
+
+        assertThat(describe(parallel), is(describe(sequential)));
+    }
+
+    @Test
+    public void suppliedExecutorIsUsedAndNotShutDown() throws Exception {
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Set<ResourceClass> resources = new HashSet<ResourceClass>(Arrays.asList(nestedResource("root1", 2, 2), nestedResource("root2", 2, 2)));
+
+            final Set<FlatResource> result = new FlatRepresentationBuilder().inParallel(executor).buildRepresentationFor(resources);
+
+            assertThat(result, hasSize(14));
+            assertThat(executor.isShutdown(), is(false));
+
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void negativeMaximumLocatorDepthIsRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        new FlatRepresentationBuilder().withMaximumLocatorDepth(-1);
+    }
+
     @Test
     public void rawResourceClassLevelConsumesTranslatesIntoMethodConsumes() {
 
@@ -320,6 +577,38 @@ public class FlatRepresentationBuilderTest {
         assertThat(result.iterator().next().getResourceMethods().get(0).getProduces(), contains(expectedProduces));
     }
 
+    @Test
+    public void resourcesWithSameUriTemplateFromDifferentRootResourcesAreMerged() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder();
+
+        final ResourceClassMethod method1 = new ResourceMethod("get", "GET", DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, NO_RETURN_TYPE);
+        final ResourceClassMethod method2 = new ResourceMethod("delete", "DELETE", DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, NO_RETURN_TYPE);
+        final ResourceClass resource1 = new ResourceClass(String.class, DUMMY_PATH, Arrays.asList(method1), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+        final ResourceClass resource2 = new ResourceClass(Integer.class, DUMMY_PATH, Arrays.asList(method2), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new LinkedHashSet<ResourceClass>(Arrays.asList(resource1, resource2)));
+
+        assertThat(result, hasSize(1));
+        assertThat(result.iterator().next().getResourceMethods(), hasSize(2));
+        assertThat(result.iterator().next().getResourceMethods().get(0).getName(), is("get"));
+        assertThat(result.iterator().next().getResourceMethods().get(1).getName(), is("delete"));
+    }
+
+    @Test
+    public void multiValuedMediaTypesAreSplitIntoSeparateMediaTypes() {
+
+        final FlatRepresentationBuilder builder = new FlatRepresentationBuilder();
+
+        final ResourceClassMethod method = new ResourceMethod(DUMMY_METHOD_NAME, DUMMY_REQUEST_METHOD_DESIGNATOR, Arrays.asList("application/json, text/xml"), Arrays.asList(" text/plain ,text/html"), DUMMY_PARAMETERS, NO_RETURN_TYPE);
+        final ResourceClass resource = new ResourceClass(DUMMY_RESOURCE_CLASS, DUMMY_PATH, Arrays.asList(method), DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+
+        final Set<FlatResource> result = builder.buildRepresentationFor(new HashSet<ResourceClass>(Arrays.asList(resource)));
+
+        assertThat(result.iterator().next().getResourceMethods().get(0).getConsumes(), contains("application/json", "text/xml"));
+        assertThat(result.iterator().next().getResourceMethods().get(0).getProduces(), contains("text/plain", "text/html"));
+    }
+
     @Test
     public void rawResourceMethodParameterNamesAreAddedToRepresentation() {
 
@@ -527,4 +816,50 @@ public class FlatRepresentationBuilderTest {
         FlatResource flatResource = result.iterator().next();
         assertThat(flatResource.getResourceMethods().get(0).getParameters().get("queryParam").get(0).getName(), is("myparam"));
     }
+
+    /**
+     * A resource with a GET resource method and the specified number of sub-resource locators - each to the same nested
+     * resource of the same shape - down to the specified depth.
+     */
+    private ResourceClass nestedResource(final String uriTemplate, final int depth, final int fanOut) {
+
+        final List<ResourceClassMethod> methods = new ArrayList<ResourceClassMethod>();
+        methods.add(new ResourceMethod("get" + depth, "GET", DUMMY_PRODUCES, DUMMY_CONSUMES, DUMMY_PARAMETERS, NO_RETURN_TYPE));
+
+        if (depth > 0) {
+            final ResourceClass child = nestedResource(NO_PATH, depth - 1, fanOut);
+
+            for (int i = 0; i < fanOut; i++) {
+                methods.add(new SubResourceLocator("locate" + i, "child" + i, DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_PARAMETERS, child));
+            }
+        }
+
+        return new ResourceClass(DUMMY_RESOURCE_CLASS, uriTemplate, methods, DUMMY_CONSUMES, DUMMY_PRODUCES, NO_FIELDS);
+    }
+
+    private String describe(final Set<FlatResource> resources) {
+
+        final StringBuilder result = new StringBuilder();
+        for (FlatResource resource : resources) {
+            result.append(resource.getUriTemplate()).append('\n');
+
+            for (FlatResourceMethod method : resource.getResourceMethods()) {
+                result.append(' ').append(method.getRequestMethodDesignator()).append(' ').append(method.getName()).append(' ')
+                        .append(method.getResourceClass()).append(' ').append(method.getParameters()).append(' ')
+                        .append(method.getConsumes()).append(' ').append(method.getProduces()).append('\n');
+            }
+        }
+
+        return result.toString();
+    }
+
+    private List<String> uriTemplatesOf(final Set<FlatResource> resources) {
+
+        final List<String> result = new ArrayList<String>();
+        for (FlatResource resource : resources) {
+            result.add(resource.getUriTemplate());
+        }
+
+        return result;
+    }
 }
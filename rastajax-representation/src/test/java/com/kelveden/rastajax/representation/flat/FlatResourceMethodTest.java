@@ -69,6 +69,30 @@ public class FlatResourceMethodTest {
         assertThat(method.getParameters().get("myparametertype"), hasSize(2));
     }
 
+    @Test
+    public void readingMissingParameterTypeDoesNotAddIt() {
+
+        final Map<String, List<FlatResourceMethodParameter>> insertingParameters = new HashMap<String, List<FlatResourceMethodParameter>>() {
+            @Override
+            public List<FlatResourceMethodParameter> get(final Object key) {
+
+                if (!containsKey(key)) {
+                    put((String) key, new ArrayList<FlatResourceMethodParameter>());
+                }
+
+                return super.get(key);
+            }
+        };
+        insertingParameters.put("myparametertype", Arrays.asList(dummyParameter()));
+
+        final FlatResourceMethod method = new FlatResourceMethod(DUMMY_NAME, DUMMY_REQUEST_METHOD_DESIGNATOR, insertingParameters, DUMMY_CONSUMES, DUMMY_PRODUCES, DUMMY_RESOURCE_CLASS);
+
+        final List<FlatResourceMethodParameter> missing = method.getParameters().get("otherparametertype");
+
+        assertThat(missing, is(nullValue()));
+        assertThat(method.getParameters().keySet(), contains("myparametertype"));
+    }
+
     @Test
     public void producesIsLoaded() {
 
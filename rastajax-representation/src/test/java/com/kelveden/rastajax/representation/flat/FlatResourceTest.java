@@ -15,16 +15,21 @@
  */
 package com.kelveden.rastajax.representation.flat;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 
@@ -70,6 +75,35 @@ public class FlatResourceTest {
         resource.getResourceMethods().clear();
     }
 
+    @Test
+    public void canBeReadBackFromJson() throws IOException {
+
+        // Given
+        final Map<String, List<FlatResourceMethodParameter>> parameters = new HashMap<String, List<FlatResourceMethodParameter>>();
+        parameters.put("queryParam", Arrays.asList(new FlatResourceMethodParameter("limit", "int")));
+
+        final FlatResource resource = new FlatResource("my/path", Arrays.asList(
+                new FlatResourceMethod("list", "GET", parameters, new ArrayList<String>(), Arrays.asList("application/json"), "MyClass")));
+
+        final ObjectMapper mapper = new ObjectMapper();
+
+        // When
+        final FlatResource readBack = mapper.readValue(mapper.writeValueAsString(resource), FlatResource.class);
+
+        // Then
+        assertThat(readBack.getUriTemplate(), is("my/path"));
+        assertThat(readBack.getResourceMethods(), hasSize(1));
+
+        final FlatResourceMethod resourceMethod = readBack.getResourceMethods().get(0);
+        assertThat(resourceMethod.getName(), is("list"));
+        assertThat(resourceMethod.getRequestMethodDesignator(), is("GET"));
+        assertThat(resourceMethod.getResourceClass(), is("MyClass"));
+        assertThat(resourceMethod.getParameters().get("queryParam").get(0).getName(), is("limit"));
+        assertThat(resourceMethod.getParameters().get("queryParam").get(0).getType(), is("int"));
+        assertThat(resourceMethod.getProduces(), contains("application/json"));
+        assertThat(resourceMethod.getConsumes(), is(empty()));
+    }
+
     private FlatResourceMethod dummyResourceMethod() {
         return new FlatResourceMethod("somename", "somerequestmethoddesignator", new HashMap<String, List<FlatResourceMethodParameter>>(), new ArrayList<String>(), new ArrayList<String>(), DUMMY_RESOURCE_CLASS);
     }
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.kelveden.rastajax.representation.flat.FlatFixtures.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class FlatRouteIndexTest {
+
+
+    @Test
+    public void literalPathIsResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders", "GET", "listOrders")));
+
+        final FlatRoute route = index.lookup("GET", "/orders");
+
+        assertThat(route.getResource().getUriTemplate(), is("orders"));
+        assertThat(route.getResourceMethod().getName(), is("listOrders"));
+    }
+
+    @Test
+    public void trailingAndRepeatedSlashesInPathAreIgnored() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("/orders/items", "GET", "listItems")));
+
+        assertThat(index.lookup("GET", "//orders//items/").getResourceMethod().getName(), is("listItems"));
+    }
+
+    @Test
+    public void rootPathIsResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("/", "GET", "root")));
+
+        assertThat(index.lookup("GET", "/").getResourceMethod().getName(), is("root"));
+    }
+
+    @Test
+    public void unknownPathIsNotResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders", "GET", "listOrders")));
+
+        assertThat(index.lookup("GET", "/customers"), is(nullValue()));
+        assertThat(index.lookupResource("/orders/1"), is(nullValue()));
+    }
+
+    @Test
+    public void unsupportedRequestMethodIsNotResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders", "GET", "listOrders")));
+
+        assertThat(index.lookup("DELETE", "/orders"), is(nullValue()));
+        assertThat(index.lookupResource("/orders").getUriTemplate(), is("orders"));
+    }
+
+    @Test
+    public void headFallsBackToGet() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders", "GET", "listOrders")));
+
+        assertThat(index.lookup("HEAD", "/orders").getResourceMethod().getName(), is("listOrders"));
+    }
+
+    @Test
+    public void templateVariableIsResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders/{id}", "GET", "getOrder")));
+
+        assertThat(index.lookup("GET", "/orders/123").getResourceMethod().getName(), is("getOrder"));
+    }
+
+    @Test
+    public void literalTakesPrecedenceOverTemplateVariable() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("orders/{id}", "GET", "getOrder"),
+                resource("orders/latest", "GET", "getLatestOrder")));
+
+        assertThat(index.lookup("GET", "/orders/latest").getResourceMethod().getName(), is("getLatestOrder"));
+        assertThat(index.lookup("GET", "/orders/1").getResourceMethod().getName(), is("getOrder"));
+    }
+
+    @Test
+    public void regexVariableIsHonoured() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("orders/{id: \\d+}", "GET", "getOrderById"),
+                resource("orders/{name}", "GET", "getOrderByName")));
+
+        assertThat(index.lookup("GET", "/orders/123").getResourceMethod().getName(), is("getOrderById"));
+        assertThat(index.lookup("GET", "/orders/abc").getResourceMethod().getName(), is("getOrderByName"));
+    }
+
+    @Test
+    public void precedenceIsAppliedToWholeTemplateRatherThanFirstMatchingSegment() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("a/{x}/ccc", "GET", "moreLiteralCharacters"),
+                resource("a/b/{y}", "GET", "fewerLiteralCharacters")));
+
+        assertThat(index.lookup("GET", "/a/b/ccc").getResourceMethod().getName(), is("moreLiteralCharacters"));
+        assertThat(index.lookup("GET", "/a/b/c").getResourceMethod().getName(), is("fewerLiteralCharacters"));
+    }
+
+    @Test
+    public void matchingBacktracksWhenLiteralBranchFails() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("orders/latest/summary", "GET", "getLatestSummary"),
+                resource("orders/{id}/items", "GET", "getItems")));
+
+        assertThat(index.lookup("GET", "/orders/latest/items").getResourceMethod().getName(), is("getItems"));
+    }
+
+    @Test
+    public void segmentMixingLiteralAndVariableIsResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("reports/{name}.csv", "GET", "getCsv"),
+                resource("reports/{name}", "GET", "getReport")));
+
+        assertThat(index.lookup("GET", "/reports/sales.csv").getResourceMethod().getName(), is("getCsv"));
+        assertThat(index.lookup("GET", "/reports/sales").getResourceMethod().getName(), is("getReport"));
+    }
+
+    @Test
+    public void variableMatchingAcrossSegmentsIsResolved() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("files/{path: .*}", "GET", "getFile"),
+                resource("files/index", "GET", "getIndex")));
+
+        assertThat(index.lookup("GET", "/files/a/b/c.txt").getResourceMethod().getName(), is("getFile"));
+        assertThat(index.lookup("GET", "/files/index").getResourceMethod().getName(), is("getIndex"));
+    }
+
+    @Test
+    public void variableMatchingAcrossSegmentsMatchesEmptyRemainderAsUriTemplateDoes() {
+
+        final UriTemplate template = new UriTemplate("files/{path: .*}");
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource(template.getTemplate(), "GET", "getFile")));
+
+        for (String path : Arrays.asList("/files", "/files/", "files/", "/files//", "/file")) {
+            assertThat(path, index.lookup("GET", path) != null, is(template.matches(path)));
+        }
+    }
+
+    @Test
+    public void everyResourceMethodForARequestMethodIsKept() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders",
+                method("POST", "createFromJson", list("application/json"), list()),
+                method("POST", "createFromXml", list("application/xml"), list()))));
+
+        assertThat(index.getRoutes(), hasSize(2));
+        assertThat(names(index.lookupAll("POST", "/orders")), contains("createFromJson", "createFromXml"));
+    }
+
+    @Test
+    public void resourceMethodIsChosenByContentType() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders",
+                method("POST", "createFromJson", list("application/json"), list()),
+                method("POST", "createFromXml", list("application/xml", "text/xml"), list()))));
+
+        assertThat(index.lookup("POST", "/orders", "application/xml; charset=UTF-8", null).getResourceMethod().getName(), is("createFromXml"));
+        assertThat(index.lookup("POST", "/orders", "text/xml", null).getResourceMethod().getName(), is("createFromXml"));
+        assertThat(index.lookup("POST", "/orders", "application/json", null).getResourceMethod().getName(), is("createFromJson"));
+        assertThat(index.lookup("POST", "/orders", "text/plain", null), is(nullValue()));
+        assertThat(index.lookup("POST", "/orders", "garbage", null), is(nullValue()));
+    }
+
+    @Test
+    public void resourceMethodIsChosenByAcceptHeader() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders",
+                method("GET", "listAsJson", list(), list("application/json")),
+                method("GET", "listAsXml", list(), list("application/xml")))));
+
+        assertThat(index.lookup("GET", "/orders", null, "application/xml").getResourceMethod().getName(), is("listAsXml"));
+        assertThat(index.lookup("GET", "/orders", null, "application/json;q=0.5, application/xml;q=0.9").getResourceMethod().getName(), is("listAsXml"));
+        assertThat(index.lookup("GET", "/orders", null, null).getResourceMethod().getName(), is("listAsJson"));
+        assertThat(index.lookup("GET", "/orders", null, "image/png").getResourceMethod().getName(), is("listAsJson"));
+    }
+
+    @Test
+    public void resourceMethodExplicitlyNotAcceptedIsOnlyChosenAsALastResort() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders",
+                method("GET", "listAsJson", list(), list("application/json")),
+                method("GET", "listAsXml", list(), list("application/xml")))));
+
+        assertThat(index.lookup("GET", "/orders", null, "*/*, application/json;q=0").getResourceMethod().getName(), is("listAsXml"));
+        assertThat(index.lookup("GET", "/orders", null, "application/*;q=0").getResourceMethod().getName(), is("listAsJson"));
+    }
+
+    @Test
+    public void malformedDeclaredMediaTypesAreIgnored() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(resource("orders",
+                method("POST", "createFromJson", list("garbage", "application/json"), list()),
+                method("POST", "createFromAnything", list("garbage"), list()))));
+
+        assertThat(index.lookup("POST", "/orders", "application/json", null).getResourceMethod().getName(), is("createFromJson"));
+        assertThat(index.lookup("POST", "/orders", "text/plain", null).getResourceMethod().getName(), is("createFromAnything"));
+    }
+
+    @Test
+    public void requestMethodsOfEquivalentTemplatesAreCombined() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("orders/{id}", "GET", "getOrder"),
+                resource("orders/{name}", "DELETE", "deleteOrder")));
+
+        assertThat(index.lookupRequestMethodDesignators("/orders/1"), containsInAnyOrder("GET", "DELETE"));
+        assertThat(index.lookup("DELETE", "/orders/1").getResourceMethod().getName(), is("deleteOrder"));
+        assertThat(index.lookupRequestMethodDesignators("/customers"), is(nullValue()));
+    }
+
+    @Test
+    public void requestMethodIsOnlyMatchedAgainstWinningResource() {
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources(
+                resource("orders/{id}", "DELETE", "deleteOrder"),
+                resource("orders/latest", "GET", "getLatestOrder")));
+
+        assertThat(index.lookup("DELETE", "/orders/latest"), is(nullValue()));
+    }
+
+    @Test
+    public void manyLiteralSiblingsAreResolved() {
+
+        final Set<FlatResource> resources = new HashSet<FlatResource>();
+        for (int i = 0; i < 500; i++) {
+            resources.add(resource("resource" + i + "/{id}", "GET", "get" + i));
+        }
+
+        final FlatRouteIndex index = new FlatRouteIndex(resources);
+
+        for (int i = 0; i < 500; i++) {
+            assertThat(index.lookup("GET", "/resource" + i + "/x").getResourceMethod().getName(), is("get" + i));
+        }
+        assertThat(index.getRoutes(), hasSize(500));
+    }
+
+    private List<String> names(final List<FlatRoute> routes) {
+
+        final List<String> result = new ArrayList<String>();
+        for (FlatRoute route : routes) {
+            result.add(route.getResourceMethod().getName());
+        }
+
+        return result;
+    }
+}
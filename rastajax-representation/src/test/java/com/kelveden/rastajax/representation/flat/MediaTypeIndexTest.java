@@ -0,0 +1,191 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.kelveden.rastajax.representation.flat.FlatFixtures.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MediaTypeIndexTest {
+
+    private static final String DUMMY_URI_TEMPLATE = "orders";
+
+    @Test
+    public void methodsAreFilteredByRequestMethodDesignator() {
+
+        final MediaTypeIndex index = index(method("GET", "list", list(), list("application/json")), method("POST", "create", list("application/json"), list()));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", null, null)), contains("create"));
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "PUT", null, null)), is(empty()));
+    }
+
+    @Test
+    public void unknownUriTemplateHasNoMethods() {
+
+        final MediaTypeIndex index = index(method("GET", "list", list(), list()));
+
+        assertThat(index.lookup("unknown", null, null, null), is(empty()));
+    }
+
+    @Test
+    public void contentTypeIsMatchedAgainstConcreteAndWildcardConsumes() {
+
+        final MediaTypeIndex index = index(
+                method("POST", "json", list("application/json"), list()),
+                method("POST", "text", list("text/*"), list()),
+                method("POST", "anything", list(), list()));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", "application/json; charset=UTF-8", null)), contains("json", "anything"));
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", "text/csv", null)), contains("text", "anything"));
+    }
+
+    @Test
+    public void malformedContentTypeMatchesNothing() {
+
+        final MediaTypeIndex index = index(method("POST", "anything", list(), list()));
+
+        assertThat(index.lookup(DUMMY_URI_TEMPLATE, "POST", "garbage", null), is(empty()));
+    }
+
+    @Test
+    public void malformedDeclaredMediaTypesAreIgnored() {
+
+        final MediaTypeIndex index = index(
+                method("POST", "json", list("garbage", "application/json"), list("application/json")),
+                method("POST", "anything", list("garbage"), list("garbage")));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", "application/json", "text/plain")), contains("anything"));
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", "application/json", null)), contains("json", "anything"));
+    }
+
+    @Test
+    public void multiValuedMediaTypesAreSplit() {
+
+        final MediaTypeIndex index = index(method("POST", "both", list("application/json, text/xml"), list()));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "POST", "text/xml", null)), contains("both"));
+    }
+
+    @Test
+    public void methodsAreOrderedByAcceptHeaderPreference() {
+
+        final MediaTypeIndex index = index(
+                method("GET", "xml", list(), list("application/xml")),
+                method("GET", "json", list(), list("application/json")),
+                method("GET", "html", list(), list("text/html")));
+
+        final List<FlatResourceMethod> result = index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "application/xml;q=0.5, application/json, text/*;q=0.1");
+
+        assertThat(names(result), contains("json", "xml", "html"));
+    }
+
+    @Test
+    public void methodsProducingNothingAcceptableAreExcluded() {
+
+        final MediaTypeIndex index = index(method("GET", "xml", list(), list("application/xml")), method("GET", "json", list(), list("application/json")));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "application/json")), contains("json"));
+    }
+
+    @Test
+    public void methodsWithOnlyExplicitlyUnacceptableMediaTypesAreExcluded() {
+
+        final MediaTypeIndex index = index(method("GET", "xml", list(), list("application/xml")), method("GET", "json", list(), list("application/json")));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "*/*, application/xml;q=0")), contains("json"));
+    }
+
+    @Test
+    public void methodWithoutProducesMatchesAnyAcceptHeader() {
+
+        final MediaTypeIndex index = index(method("GET", "anything", list(), list()));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "image/png")), contains("anything"));
+    }
+
+    @Test
+    public void moreThanSixtyFourMethodsAreIndexed() {
+
+        final List<FlatResourceMethod> methods = new ArrayList<FlatResourceMethod>();
+        for (int i = 0; i < 100; i++) {
+            methods.add(method("GET", "method" + i, list(), list(i == 99 ? "application/json" : "text/plain")));
+        }
+
+        final MediaTypeIndex index = new MediaTypeIndex(new HashSet<FlatResource>(Arrays.asList(new FlatResource(DUMMY_URI_TEMPLATE, methods))));
+
+        assertThat(names(index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "application/json")), contains("method99"));
+        assertThat(index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "text/plain"), hasSize(99));
+    }
+
+    @Test
+    public void acceptedTypeWildcardMatchesConcreteAndWildcardProduces() {
+
+        // Given
+        final MediaTypeIndex index = index(
+                method("GET", "json", list(), list("application/json")),
+                method("GET", "anyApplication", list(), list("application/*")),
+                method("GET", "text", list(), list("text/plain")),
+                method("GET", "anything", list(), list()));
+
+        // When
+        final List<FlatResourceMethod> result = index.lookup(DUMMY_URI_TEMPLATE, "GET", null, "application/*");
+
+        // Then
+        assertThat(names(result), contains("json", "anyApplication", "anything"));
+    }
+
+    @Test
+    public void lookupsOfResourcesOfDifferentSizesDoNotAffectEachOther() {
+
+        // Given
+        final List<FlatResourceMethod> methods = new ArrayList<FlatResourceMethod>();
+        for (int i = 0; i < 100; i++) {
+            methods.add(method("GET", "method" + i, list(), list("text/plain")));
+        }
+
+        final MediaTypeIndex index = new MediaTypeIndex(new HashSet<FlatResource>(Arrays.asList(
+                new FlatResource("large", methods),
+                new FlatResource("small", Arrays.asList(method("GET", "json", list(), list("application/json")))))));
+
+        // When
+        final List<FlatResourceMethod> large = index.lookup("large", "GET", null, "application/json");
+        final List<FlatResourceMethod> small = index.lookup("small", "GET", null, null);
+        final List<FlatResourceMethod> largeAgain = index.lookup("large", "GET", null, null);
+
+        // Then
+        assertThat(large, is(empty()));
+        assertThat(names(small), contains("json"));
+        assertThat(largeAgain, hasSize(100));
+    }
+
+    private MediaTypeIndex index(final FlatResourceMethod... methods) {
+        return new MediaTypeIndex(new HashSet<FlatResource>(Arrays.asList(new FlatResource(DUMMY_URI_TEMPLATE, Arrays.asList(methods)))));
+    }
+
+    private List<String> names(final List<FlatResourceMethod> methods) {
+
+        final List<String> result = new ArrayList<String>();
+        for (FlatResourceMethod method : methods) {
+            result.add(method.getName());
+        }
+
+        return result;
+    }
+}
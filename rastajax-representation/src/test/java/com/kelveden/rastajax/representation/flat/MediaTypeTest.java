@@ -0,0 +1,121 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class MediaTypeTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void typeSubtypeAndParametersAreParsedCaseInsensitively() {
+
+        final MediaType mediaType = MediaType.valueOf("Text/HTML; Charset=UTF-8");
+
+        assertThat(mediaType.getType(), is("text"));
+        assertThat(mediaType.getSubtype(), is("html"));
+        assertThat(mediaType.getParameters(), hasEntry("charset", "UTF-8"));
+    }
+
+    @Test
+    public void qualityFactorIsParsedIntoThousandthsAndExcludedFromParameters() {
+
+        final MediaType mediaType = MediaType.valueOf("application/json;q=0.25");
+
+        assertThat(mediaType.getQuality(), is(250));
+        assertThat(mediaType.getParameters().isEmpty(), is(true));
+    }
+
+    @Test
+    public void qualityFactorDefaultsToOne() {
+        assertThat(MediaType.valueOf("application/json").getQuality(), is(1000));
+    }
+
+    @Test
+    public void bareWildcardIsReadAsAnyMediaType() {
+        assertThat(MediaType.valueOf("*"), is(MediaType.ANY));
+    }
+
+    @Test
+    public void mediaTypeWithoutSubtypeIsRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        MediaType.valueOf("text");
+    }
+
+    @Test
+    public void qualityFactorOutsideOfRangeIsRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        MediaType.valueOf("text/html;q=2");
+    }
+
+    @Test
+    public void listIsSplitOnCommasOutsideOfQuotedParameterValues() {
+
+        final List<MediaType> mediaTypes = MediaType.parseList("application/json, text/plain;x=\"a,b\"");
+
+        assertThat(mediaTypes, hasSize(2));
+        assertThat(mediaTypes.get(1).getParameters(), hasEntry("x", "a,b"));
+    }
+
+    @Test
+    public void acceptHeaderIsOrderedByQualityThenSpecificity() {
+
+        final List<MediaType> mediaRanges = MediaType.parseAcceptHeader("*/*;q=0.1, text/*, text/html, application/xml;q=0.5");
+
+        assertThat(mediaRanges.get(0).toString(), is("text/html"));
+        assertThat(mediaRanges.get(1).toString(), is("text/*"));
+        assertThat(mediaRanges.get(2).toString(), is("application/xml;q=0.500"));
+        assertThat(mediaRanges.get(3).toString(), is("*/*;q=0.100"));
+    }
+
+    @Test
+    public void malformedMediaRangesInAcceptHeaderAreIgnored() {
+
+        final List<MediaType> mediaRanges = MediaType.parseAcceptHeader("garbage, text/html");
+
+        assertThat(mediaRanges, contains(MediaType.valueOf("text/html")));
+    }
+
+    @Test
+    public void missingAcceptHeaderAcceptsAnyMediaType() {
+        assertThat(MediaType.parseAcceptHeader(null), contains(MediaType.ANY));
+    }
+
+    @Test
+    public void wildcardMediaRangesIncludeConcreteMediaTypesButNotViceVersa() {
+
+        final MediaType html = MediaType.valueOf("text/html");
+
+        assertThat(MediaType.valueOf("text/*").includes(html), is(true));
+        assertThat(MediaType.ANY.includes(html), is(true));
+        assertThat(html.includes(MediaType.valueOf("text/*")), is(false));
+        assertThat(html.isCompatibleWith(MediaType.valueOf("text/*")), is(true));
+        assertThat(MediaType.valueOf("application/*").includes(html), is(false));
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.kelveden.rastajax.representation.flat.FlatFixtures.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RepresentationDifferTest {
+
+
+    @Test
+    public void identicalRepresentationsHaveNoChanges() {
+
+        final List<ApiChange> changes = diff(
+                resources(resource("orders", method("GET", "list"))),
+                resources(resource("orders", method("GET", "list"))));
+
+        assertThat(changes, is(empty()));
+    }
+
+    @Test
+    public void implementationChangesAreIgnored() {
+
+        final FlatResource before = resource("orders/{id}", new FlatResourceMethod("getOrder", "GET", parameters(), list(), list(), "OrderResource"));
+        final FlatResource after = resource("orders/{orderId}", new FlatResourceMethod("fetch", "GET", parameters(), list(), list(), "OrdersEndpoint"));
+
+        assertThat(diff(resources(before), resources(after)), is(empty()));
+    }
+
+    @Test
+    public void addedEndpointIsNotBreaking() {
+
+        final List<ApiChange> changes = diff(
+                resources(resource("orders", method("GET", "list"))),
+                resources(resource("orders", method("GET", "list"), method("POST", "create"))));
+
+        assertThat(changes, hasSize(1));
+        assertThat(changes.get(0).getType(), is(ApiChange.Type.ENDPOINT_ADDED));
+        assertThat(changes.get(0).getRequestMethodDesignator(), is("POST"));
+        assertThat(changes.get(0).isBreaking(), is(false));
+    }
+
+    @Test
+    public void removedResourceIsBreaking() {
+
+        final List<ApiChange> changes = diff(
+                resources(resource("orders", method("GET", "list")), resource("customers", method("GET", "list"))),
+                resources(resource("orders", method("GET", "list"))));
+
+        assertThat(changes, hasSize(1));
+        assertThat(changes.get(0).getType(), is(ApiChange.Type.ENDPOINT_REMOVED));
+        assertThat(changes.get(0).getUriTemplate(), is("customers"));
+        assertThat(changes.get(0).isBreaking(), is(true));
+    }
+
+    @Test
+    public void parameterChangesAreReported() {
+
+        final FlatResourceMethod before = new FlatResourceMethod("list", "GET", parameters(
+                "queryParam", new FlatResourceMethodParameter("limit", "int"),
+                "queryParam", new FlatResourceMethodParameter("sort", "String")), list(), list(), DUMMY_RESOURCE_CLASS);
+
+        final FlatResourceMethod after = new FlatResourceMethod("list", "GET", parameters(
+                "queryParam", new FlatResourceMethodParameter("limit", "long"),
+                "headerParam", new FlatResourceMethodParameter("X-Tenant", "String")), list(), list(), DUMMY_RESOURCE_CLASS);
+
+        final List<ApiChange> changes = diff(resources(resource("orders", before)), resources(resource("orders", after)));
+
+        assertThat(changes, hasSize(3));
+        assertThat(changes.get(0).getType(), is(ApiChange.Type.PARAMETER_ADDED));
+        assertThat(changes.get(0).getSubject(), is("headerParam X-Tenant"));
+        assertThat(changes.get(0).isBreaking(), is(false));
+        assertThat(changes.get(1).getType(), is(ApiChange.Type.PARAMETER_REMOVED));
+        assertThat(changes.get(1).getSubject(), is("queryParam sort"));
+        assertThat(changes.get(1).isBreaking(), is(true));
+        assertThat(changes.get(2).getType(), is(ApiChange.Type.PARAMETER_TYPE_CHANGED));
+        assertThat(changes.get(2).getBefore(), is("int"));
+        assertThat(changes.get(2).getAfter(), is("long"));
+        assertThat(changes.get(2).isBreaking(), is(true));
+    }
+
+    @Test
+    public void renamedPathParameterIsNotBreaking() {
+
+        final FlatResourceMethod before = new FlatResourceMethod("get", "GET", parameters("pathParam", new FlatResourceMethodParameter("id", "long")), list(), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod after = new FlatResourceMethod("get", "GET", parameters("pathParam", new FlatResourceMethodParameter("orderId", "long")), list(), list(), DUMMY_RESOURCE_CLASS);
+
+        final List<ApiChange> changes = diff(resources(resource("orders/{id}", before)), resources(resource("orders/{orderId}", after)));
+
+        assertThat(changes, hasSize(2));
+        for (ApiChange change : changes) {
+            assertThat(change.isBreaking(), is(false));
+        }
+    }
+
+    @Test
+    public void removedMediaTypeIsBreakingUnlessStillIncluded() {
+
+        final FlatResourceMethod before = new FlatResourceMethod("create", "POST", parameters(), list("application/json", "application/xml"), list("text/plain"), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod after = new FlatResourceMethod("create", "POST", parameters(), list("application/*"), list("text/html"), DUMMY_RESOURCE_CLASS);
+
+        final List<ApiChange> changes = diff(resources(resource("orders", before)), resources(resource("orders", after)));
+
+        assertThat(changes, hasSize(5));
+        assertThat(changes.get(0).getType(), is(ApiChange.Type.CONSUMES_ADDED));
+        assertThat(changes.get(1).getType(), is(ApiChange.Type.CONSUMES_REMOVED));
+        assertThat(changes.get(1).isBreaking(), is(false));
+        assertThat(changes.get(2).getType(), is(ApiChange.Type.CONSUMES_REMOVED));
+        assertThat(changes.get(2).isBreaking(), is(false));
+        assertThat(changes.get(3).getType(), is(ApiChange.Type.PRODUCES_ADDED));
+        assertThat(changes.get(4).getType(), is(ApiChange.Type.PRODUCES_REMOVED));
+        assertThat(changes.get(4).getSubject(), is("text/plain"));
+        assertThat(changes.get(4).isBreaking(), is(true));
+    }
+
+    @Test
+    public void consumingAnyMediaTypeThenASpecificOneIsBreaking() {
+
+        final FlatResourceMethod before = new FlatResourceMethod("create", "POST", parameters(), list(), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod after = new FlatResourceMethod("create", "POST", parameters(), list("application/json"), list(), DUMMY_RESOURCE_CLASS);
+
+        final List<ApiChange> changes = diff(resources(resource("orders", before)), resources(resource("orders", after)));
+
+        assertThat(changes, hasSize(2));
+        assertThat(changes.get(1).getType(), is(ApiChange.Type.CONSUMES_REMOVED));
+        assertThat(changes.get(1).getSubject(), is("*/*"));
+        assertThat(changes.get(1).isBreaking(), is(true));
+    }
+
+    @Test
+    public void changedOverloadsAreComparedWithTheOverloadForTheSameMediaTypes() {
+
+        // Given
+        final FlatResourceMethod jsonBefore = new FlatResourceMethod("createFromJson", "POST", parameters(), list("application/json"), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod xmlBefore = new FlatResourceMethod("createFromXml", "POST", parameters(), list("application/xml"), list(), DUMMY_RESOURCE_CLASS);
+
+        final FlatResourceMethod xmlAfter = new FlatResourceMethod("createFromXml", "POST", parameters(
+                "queryParam", new FlatResourceMethodParameter("schema", "String")), list("application/xml"), list(), DUMMY_RESOURCE_CLASS);
+        final FlatResourceMethod jsonAfter = new FlatResourceMethod("createFromJson", "POST", parameters(
+                "queryParam", new FlatResourceMethodParameter("pretty", "boolean")), list("application/json"), list(), DUMMY_RESOURCE_CLASS);
+
+        // When
+        final List<ApiChange> changes = diff(resources(resource("orders", jsonBefore, xmlBefore)), resources(resource("orders", xmlAfter, jsonAfter)));
+
+        // Then
+        assertThat(changes, hasSize(2));
+        assertThat(changes.get(0).getType(), is(ApiChange.Type.PARAMETER_ADDED));
+        assertThat(changes.get(0).getSubject(), is("queryParam pretty"));
+        assertThat(changes.get(1).getType(), is(ApiChange.Type.PARAMETER_ADDED));
+        assertThat(changes.get(1).getSubject(), is("queryParam schema"));
+    }
+
+    @Test
+    public void largeRepresentationsWithOneChangeAreDiffed() {
+
+        // Given
+        final Set<FlatResource> before = new HashSet<FlatResource>();
+        final Set<FlatResource> after = new HashSet<FlatResource>();
+
+        for (int i = 0; i < 20000; i++) {
+            before.add(resource("service" + (i % 100) + "/resource" + i + "/{id}", method("GET", "get" + i)));
+            after.add(resource("service" + (i % 100) + "/resource" + i + "/{id}", method(i == 12345 ? "PUT" : "GET", "get" + i)));
+        }
+
+        // When
+        final List<ApiChange> changes = new RepresentationDiffer().diff(before, after);
+
+        // Then
+        assertThat(changes, hasSize(2));
+        assertThat(changes.get(0).getUriTemplate(), is("service45/resource12345/{id}"));
+    }
+
+    private List<ApiChange> diff(final Set<FlatResource> before, final Set<FlatResource> after) {
+        return new RepresentationDiffer().diff(before, after);
+    }
+}
@@ -0,0 +1,194 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static com.kelveden.rastajax.representation.flat.FlatFixtures.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RouteConflictDetectorTest {
+
+
+    @Test
+    public void distinctLiteralTemplatesDoNotConflict() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders", "GET", "listOrders"), resource("customers", "GET", "listCustomers"));
+
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void templatesDifferingOnlyInVariableNamesAreDuplicates() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id}", "GET", "getOrder"), resource("orders/{orderId}", "GET", "fetchOrder"));
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.DUPLICATE));
+        assertThat(conflicts.get(0).getRequestMethodDesignator(), is("GET"));
+    }
+
+    @Test
+    public void sameRequestMethodDesignatorTwiceOnOneResourceIsADuplicate() {
+
+        final FlatResource resource = new FlatResource("orders", Arrays.asList(method("GET", "list1"), method("GET", "list2")));
+
+        final List<RouteConflict> conflicts = detect(resource);
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.DUPLICATE));
+    }
+
+    @Test
+    public void sameRequestMethodDesignatorConsumingDifferentMediaTypesIsNotADuplicate() {
+
+        // Given
+        final FlatResource resource = resource("orders",
+                method("POST", "createFromJson", list("application/json"), list()),
+                method("POST", "createFromXml", list("application/xml"), list()));
+
+        // When
+        final List<RouteConflict> conflicts = detect(resource);
+
+        // Then
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void sameRequestMethodDesignatorProducingDifferentMediaTypesIsNotADuplicate() {
+
+        // Given
+        final FlatResource resource = resource("orders",
+                method("GET", "listAsJson", list(), list("application/json")),
+                method("GET", "listAsCsv", list(), list("text/csv")));
+
+        // When
+        final List<RouteConflict> conflicts = detect(resource);
+
+        // Then
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void sameRequestMethodDesignatorWithOverlappingMediaTypesIsADuplicate() {
+
+        // Given
+        final FlatResource resource = resource("orders",
+                method("POST", "createFromJson", list("application/json"), list()),
+                method("POST", "createFromAnyText", list("text/plain", "application/*"), list()),
+                method("POST", "createFromXml", list("application/xml"), list()));
+
+        // When
+        final List<RouteConflict> conflicts = detect(resource);
+
+        // Then
+        assertThat(conflicts, hasSize(2));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.DUPLICATE));
+        assertThat(conflicts.get(1).getType(), is(RouteConflict.Type.DUPLICATE));
+        assertThat(namesOf(conflicts), containsInAnyOrder("createFromJson/createFromAnyText", "createFromAnyText/createFromXml"));
+    }
+
+    @Test
+    public void overlappingTemplatesWithDifferentRequestMethodDesignatorsDoNotConflict() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id}", "DELETE", "deleteOrder"), resource("orders/latest", "GET", "getLatest"));
+
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void literalTemplateShadowsVariableTemplate() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id}", "GET", "getOrder"), resource("orders/latest", "GET", "getLatest"));
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.SHADOWED));
+        assertThat(conflicts.get(0).getRoute().getResourceMethod().getName(), is("getLatest"));
+        assertThat(conflicts.get(0).getConflictingRoute().getResourceMethod().getName(), is("getOrder"));
+    }
+
+    @Test
+    public void regexTemplateMatchingLiteralIsShadowedByLiteral() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id: \\d+}", "GET", "getOrder"), resource("orders/123", "GET", "getSpecial"));
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getRoute().getResourceMethod().getName(), is("getSpecial"));
+    }
+
+    @Test
+    public void regexTemplateNotMatchingLiteralDoesNotConflict() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id: \\d+}", "GET", "getOrder"), resource("orders/latest", "GET", "getLatest"));
+
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void overlappingTemplatesWithEqualPrecedenceAreAmbiguous() {
+
+        final List<RouteConflict> conflicts = detect(resource("{a}/x", "GET", "first"), resource("x/{b}", "GET", "second"));
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.AMBIGUOUS));
+    }
+
+    @Test
+    public void templatesOfDifferentLengthsDoNotConflict() {
+
+        final List<RouteConflict> conflicts = detect(resource("orders/{id}", "GET", "getOrder"), resource("orders/{id}/items", "GET", "getItems"));
+
+        assertThat(conflicts, is(empty()));
+    }
+
+    @Test
+    public void templateWithVariableMatchingSlashesOverlapsLongerTemplates() {
+
+        final List<RouteConflict> conflicts = detect(resource("files/{path: .+}", "GET", "getFile"), resource("files/a/b", "GET", "getSpecial"));
+
+        assertThat(conflicts, hasSize(1));
+        assertThat(conflicts.get(0).getType(), is(RouteConflict.Type.SHADOWED));
+        assertThat(conflicts.get(0).getRoute().getResourceMethod().getName(), is("getSpecial"));
+    }
+
+    @Test
+    public void largeNumberOfDistinctTemplatesIsAnalysedWithoutConflicts() {
+
+        final Set<FlatResource> resources = new HashSet<FlatResource>();
+        for (int i = 0; i < 20000; i++) {
+            resources.add(resource("service" + (i % 100) + "/resource" + i + "/{id}", "GET", "get" + i));
+        }
+
+        assertThat(new RouteConflictDetector().detect(resources), is(empty()));
+    }
+
+    private static List<String> namesOf(final List<RouteConflict> conflicts) {
+
+        final List<String> result = new ArrayList<String>();
+        for (RouteConflict conflict : conflicts) {
+            result.add(conflict.getRoute().getResourceMethod().getName() + "/" + conflict.getConflictingRoute().getResourceMethod().getName());
+        }
+
+        return result;
+    }
+
+    private List<RouteConflict> detect(final FlatResource... resources) {
+        return new RouteConflictDetector().detect(new HashSet<FlatResource>(Arrays.asList(resources)));
+    }
+}
@@ -0,0 +1,171 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.representation.flat;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class UriTemplateTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void repeatedLeadingAndTrailingSlashesAreIgnored() {
+
+        final UriTemplate template = new UriTemplate("//orders///items/");
+
+        assertThat(template.getSegments(), hasSize(2));
+        assertThat(template.getSegments().get(0).getKey(), is("orders"));
+        assertThat(template.getSegments().get(1).getKey(), is("items"));
+    }
+
+    @Test
+    public void plainVariableIsParsedAsVariableSegment() {
+
+        final UriTemplate template = new UriTemplate("orders/{id}");
+
+        assertThat(template.getSegments().get(1).getType(), is(UriTemplate.Segment.Type.VARIABLE));
+        assertThat(template.getVariableNames(), contains("id"));
+    }
+
+    @Test
+    public void variableWithRegexIsParsedAsPatternSegment() {
+
+        final UriTemplate template = new UriTemplate("orders/{id: \\d{1,3}}");
+
+        assertThat(template.getSegments().get(1).getType(), is(UriTemplate.Segment.Type.PATTERN));
+        assertThat(template.getVariableNames(), contains("id"));
+        assertThat(template.getRegexVariableCount(), is(1));
+    }
+
+    @Test
+    public void variableMixedWithLiteralIsParsedAsPatternSegment() {
+
+        final UriTemplate template = new UriTemplate("orders/{id}.json");
+
+        assertThat(template.getSegments().get(1).getType(), is(UriTemplate.Segment.Type.PATTERN));
+        assertThat(template.getLiteralCharacterCount(), is(11));
+    }
+
+    @Test
+    public void variableWithRegexMatchingSlashesConsumesRemainderOfTemplate() {
+
+        final UriTemplate template = new UriTemplate("files/{path: .+}/content");
+
+        assertThat(template.getSegments(), hasSize(2));
+        assertThat(template.getSegments().get(1).getType(), is(UriTemplate.Segment.Type.TAIL));
+        assertThat(template.matches("/files/a/b/c/content"), is(true));
+    }
+
+    @Test
+    public void segmentsDifferingOnlyInVariableNamesHaveTheSameKey() {
+
+        final UriTemplate template1 = new UriTemplate("orders/{id: \\d+}");
+        final UriTemplate template2 = new UriTemplate("orders/{orderId:\\d+}");
+
+        assertThat(template1.getSegments().get(1).getKey(), is(template2.getSegments().get(1).getKey()));
+    }
+
+    @Test
+    public void variablesAreExtractedFromMatchingPath() {
+
+        final UriTemplate template = new UriTemplate("orders/{orderId: \\d+}/items/{itemId}");
+
+        final Map<String, String> variables = template.extractVariables("/orders/12/items/abc/");
+
+        assertThat(variables, hasEntry("orderId", "12"));
+        assertThat(variables, hasEntry("itemId", "abc"));
+    }
+
+    @Test
+    public void variablesAreExtractedAfterRegexWithCapturingGroups() {
+
+        final UriTemplate template = new UriTemplate("{a: (x|y)+}/{b}");
+
+        final Map<String, String> variables = template.extractVariables("xyx/z");
+
+        assertThat(variables, hasEntry("a", "xyx"));
+        assertThat(variables, hasEntry("b", "z"));
+    }
+
+    @Test
+    public void variablesAreNotExtractedFromNonMatchingPath() {
+
+        final UriTemplate template = new UriTemplate("orders/{id: \\d+}");
+
+        assertThat(template.extractVariables("/orders/abc"), is(nullValue()));
+    }
+
+    @Test
+    public void segmentIndexOfVariableOccupyingWholeSegmentIsFound() {
+
+        final UriTemplate template = new UriTemplate("/orders/{orderId: \\d+}/items/{itemId}");
+
+        assertThat(template.getSegmentIndexOf("orderId"), is(1));
+        assertThat(template.getSegmentIndexOf("itemId"), is(3));
+    }
+
+    @Test
+    public void segmentIndexOfVariableSharingSegmentIsNotFound() {
+
+        final UriTemplate template = new UriTemplate("/reports/{name}.csv");
+
+        assertThat(template.getSegmentIndexOf("name"), is(-1));
+        assertThat(template.getSegmentIndexOf("unknown"), is(-1));
+    }
+
+    @Test
+    public void templateWithMoreLiteralCharactersTakesPrecedence() {
+
+        final UriTemplate template1 = new UriTemplate("orders/{id}");
+        final UriTemplate template2 = new UriTemplate("orders/latest");
+
+        assertThat(UriTemplate.PRECEDENCE_COMPARATOR.compare(template2, template1), lessThan(0));
+    }
+
+    @Test
+    public void templateWithMoreVariablesTakesPrecedenceWhenLiteralCharactersAreEqual() {
+
+        final UriTemplate template1 = new UriTemplate("orders/{id}");
+        final UriTemplate template2 = new UriTemplate("orders/{id}-{version}");
+
+        assertThat(UriTemplate.PRECEDENCE_COMPARATOR.compare(template1, template2), greaterThan(0));
+    }
+
+    @Test
+    public void templateWithMoreRegexVariablesTakesPrecedenceWhenVariableCountsAreEqual() {
+
+        final UriTemplate template1 = new UriTemplate("orders/{id}");
+        final UriTemplate template2 = new UriTemplate("orders/{id: \\d+}");
+
+        assertThat(UriTemplate.PRECEDENCE_COMPARATOR.compare(template2, template1), lessThan(0));
+    }
+
+    @Test
+    public void unbalancedBracesAreRejected() {
+
+        thrown.expect(IllegalArgumentException.class);
+
+        new UriTemplate("orders/{id");
+    }
+}
@@ -15,16 +15,14 @@
  */
 package com.kelveden.rastajax.servlet;
 
-import com.kelveden.rastajax.core.RestDescriber;
 import com.kelveden.rastajax.representation.flat.*;
-import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
 import org.apache.commons.lang.StringUtils;
 
-import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
@@ -41,35 +39,43 @@ public class DefaultHtmlServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
 
-    private String apiPackages;
+    private static final String CONTENT_TYPE = "text/html; charset=utf8";
+    private static final String RENDERING = "html";
 
-    @Override
-    public void init() throws ServletException {
-        super.init();
+    private final transient RepresentationCache.Renderer htmlRenderer = new RepresentationCache.Renderer() {
+        @Override
+        public byte[] render(final Set<FlatResource> representation) throws IOException {
 
-        final ServletContext context = getServletContext();
-        apiPackages = context.getInitParameter("rastajax.apipackages");
-    }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            final PrintStream printStream = new PrintStream(outputStream, false, "UTF-8");
+
+            writeRepresentation(representation, printStream);
+
+            return outputStream.toByteArray();
+        }
+    };
 
     @Override
     protected final void doGet(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse) throws ServletException, IOException {
 
-        final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(this.getClass().getClassLoader(), apiPackages.split(","))
-                .allowInterfaceInheritance();
-
-        final Set<FlatResource> representation = RestDescriber.describeApplication(
-                scanner.scan(),
-                new FlatRepresentationBuilder());
+        final RepresentationCache cache = RepresentationCache.forContext(getServletContext());
 
-        writeRepresentationToResponse(representation, httpResponse);
-    }
+        if (ServletRequests.checkNotModified(httpRequest, httpResponse, cache.getFingerprint(), RENDERING)) {
+            return;
+        }
 
-    private void writeRepresentationToResponse(Set<FlatResource> representation, HttpServletResponse httpResponse) throws IOException {
+        final byte[] representation = cache.getRendering(CONTENT_TYPE, htmlRenderer);
 
-        httpResponse.setContentType("text/html; charset=utf8");
+        httpResponse.setContentType(CONTENT_TYPE);
+        httpResponse.setContentLength(representation.length);
 
         final OutputStream outputStream = httpResponse.getOutputStream();
-        final PrintStream printStream = new PrintStream(outputStream);
+
+        outputStream.write(representation);
+        outputStream.flush();
+    }
+
+    private void writeRepresentation(Set<FlatResource> representation, PrintStream printStream) {
 
         printStream.println("<html>");
         printStream.println("<body>");
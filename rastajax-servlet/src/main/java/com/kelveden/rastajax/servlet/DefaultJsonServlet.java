@@ -17,15 +17,13 @@ package com.kelveden.rastajax.servlet;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.kelveden.rastajax.core.RestDescriber;
 import com.kelveden.rastajax.representation.flat.*;
-import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
 
-import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Set;
@@ -33,42 +31,121 @@ import java.util.Set;
 /**
  * Example servlet showcasing a simple integration with Rastajax that will use the {@link FlatRepresentationBuilder} that ships with Rastajax to build a flat
  * representation of a REST application that is then rendered as JSON. See the <a href="https://github.com/kelveden/rastajax">Rastajax Homepage</a> for more information.
+ * <p>
+ * The version of the representation is sent in the <code>X-Rastajax-Version</code> header. A client that already has a
+ * version can send it back as the <code>since</code> query parameter to get just a {@link RepresentationDelta} - or the
+ * whole representation, with the ETag of the whole representation, if the version is not one that the
+ * {@link RepresentationCache} remembers.
+ * <p>
+ * Clients that prefer <code>application/vnd.rastajax+binary</code> to <code>application/json</code> in their
+ * <code>Accept</code> header are sent the whole representation in the compact encoding of
+ * {@link BinaryRepresentationWriter} instead.
  */
 public class DefaultJsonServlet extends HttpServlet {
 
     private static final long serialVersionUID = 1L;
     private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONTENT_TYPE = "application/json; charset=utf8";
+    private static final String RENDERING = "json";
+    private static final String BINARY_RENDERING = "binary";
+    private static final String DELTA_RENDERING = "json-delta";
+    private static final String SINCE_PARAMETER = "since";
+    private static final String VERSION_HEADER = "X-Rastajax-Version";
 
-    private String apiPackages;
+    private static final RepresentationCache.Renderer JSON_RENDERER = new RepresentationCache.Renderer() {
+        @Override
+        public byte[] render(final Set<FlatResource> representation) throws IOException {
 
-    @Override
-    public void init() throws ServletException {
-        super.init();
+            final JsonNode jsonRepresentation = MAPPER.valueToTree(representation);
 
-        final ServletContext context = getServletContext();
-        apiPackages = context.getInitParameter("rastajax.apipackages");
-    }
+            return jsonRepresentation.toString().getBytes("UTF-8");
+        }
+    };
+
+    private static final RepresentationCache.Renderer BINARY_RENDERER = new RepresentationCache.Renderer() {
+        @Override
+        public byte[] render(final Set<FlatResource> representation) throws IOException {
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryRepresentationWriter.write(representation, out);
+
+            return out.toByteArray();
+        }
+    };
+
+    private static final MediaType JSON_MEDIA_TYPE = MediaType.valueOf(CONTENT_TYPE);
+    private static final MediaType BINARY_MEDIA_TYPE = MediaType.valueOf(BinaryRepresentationWriter.MEDIA_TYPE);
+
+    private static final RepresentationCache.DeltaRenderer JSON_DELTA_RENDERER = new RepresentationCache.DeltaRenderer() {
+        @Override
+        public byte[] render(final RepresentationDelta delta) throws IOException {
+            return MAPPER.writeValueAsBytes(delta);
+        }
+    };
 
     @Override
     protected final void doGet(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse) throws ServletException, IOException {
 
-        final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(this.getClass().getClassLoader(), apiPackages.split(",")).allowInterfaceInheritance();
+        final RepresentationCache cache = RepresentationCache.forContext(getServletContext());
+
+        final String since = httpRequest.getParameter(SINCE_PARAMETER);
+        final boolean binary = (since == null) && prefersBinary(httpRequest.getHeader("Accept"));
+
+        // Read once so that the version header and the ETag agree even if the representation is rebuilt meanwhile.
+        final Fingerprint fingerprint = cache.getFingerprint();
+
+        httpResponse.setHeader(VERSION_HEADER, fingerprint.toString());
+        httpResponse.setHeader("Vary", "Accept");
+
+        // Whether there is a delta is only known once it has been looked up - so that a client sent the whole
+        // representation instead is given its ETag and not that of a delta.
+        final byte[] delta = since == null ? null : cache.getDeltaRendering(DELTA_RENDERING, since, JSON_DELTA_RENDERER);
+
+        if (ServletRequests.checkNotModified(httpRequest, httpResponse, fingerprint, delta != null ? DELTA_RENDERING : binary ? BINARY_RENDERING : RENDERING)) {
+            return;
+        }
+
+        if (binary) {
+            writeRepresentationToResponse(cache.getRendering(BinaryRepresentationWriter.MEDIA_TYPE, BINARY_RENDERER), BinaryRepresentationWriter.MEDIA_TYPE, httpResponse);
+            return;
+        }
+
+        final byte[] representation = delta != null ? delta : cache.getRendering(CONTENT_TYPE, JSON_RENDERER);
+
+        writeRepresentationToResponse(representation, CONTENT_TYPE, httpResponse);
+    }
+
+    /**
+     * Whether the first media range of the <code>Accept</code> header that includes either JSON or the binary encoding
+     * only includes the binary encoding.
+     */
+    private static boolean prefersBinary(final String accept) {
+
+        for (MediaType mediaRange : MediaType.parseAcceptHeader(accept)) {
+            if (mediaRange.getQuality() == 0) {
+                break;
+            }
+
+            if (mediaRange.includes(JSON_MEDIA_TYPE)) {
+                return false;
+            }
 
-        final Set<FlatResource> representation = RestDescriber.describeApplication(
-                scanner.scan(),
-                new FlatRepresentationBuilder());
+            if (mediaRange.includes(BINARY_MEDIA_TYPE)) {
+                return true;
+            }
+        }
 
-        final JsonNode jsonRepresentation = MAPPER.valueToTree(representation);
-        writeRepresentationToResponse(jsonRepresentation, httpResponse);
+        return false;
     }
 
-    private void writeRepresentationToResponse(JsonNode representation, HttpServletResponse httpResponse) throws IOException {
+    private void writeRepresentationToResponse(byte[] representation, String contentType, HttpServletResponse httpResponse) throws IOException {
 
-        httpResponse.setContentType("application/json; charset=utf8");
+        httpResponse.setContentType(contentType);
+        httpResponse.setContentLength(representation.length);
 
         final OutputStream outputStream = httpResponse.getOutputStream();
 
-        outputStream.write(representation.toString().getBytes("UTF-8"));
+        outputStream.write(representation);
         outputStream.flush();
     }
 }
\ No newline at end of file
@@ -0,0 +1,246 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import com.kelveden.rastajax.representation.flat.FlatRouteIndex;
+
+import javax.servlet.ServletContext;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Request counts and latency histograms for each endpoint - i.e. each {@link FlatRoute} - of the REST application.
+ * <p>
+ * Counters are striped by thread and updated without locking; the stripes are padded so that threads recording into
+ * different stripes do not contend for the same cache lines. The counters for an endpoint are only allocated when the
+ * endpoint is first called.
+ * <p>
+ * An instance records requests against the endpoints of one version of the representation; when the representation is
+ * rebuilt, {@link #forContext(ServletContext)} starts recording afresh against the new version.
+ */
+public final class EndpointStatistics {
+
+    /**
+     * The number of latency histogram buckets. Bucket 0 counts requests taking under 2^10 nanoseconds (~1 microsecond);
+     * each subsequent bucket doubles the upper bound; the last bucket counts everything else.
+     */
+    public static final int LATENCY_BUCKETS = 23;
+
+    private static final String CONTEXT_ATTRIBUTE = EndpointStatistics.class.getName();
+    private static final int FIRST_BUCKET_BITS = 10;
+    private static final int MAXIMUM_STRIPES = 8;
+
+    // A stripe holds the total nanos followed by the buckets. The array header means that a stripe doesn't start on a
+    // cache line boundary, so the stripes are kept a cache line apart - and the first a cache line from the start of the
+    // array - rather than relying on their length.
+    private static final int STRIPE_LENGTH = LATENCY_BUCKETS + 1;
+    private static final int CACHE_LINE_LONGS = 64 / 8;
+    private static final int STRIPE_STRIDE = STRIPE_LENGTH + CACHE_LINE_LONGS;
+
+    private final FlatRouteIndex routeIndex;
+    private final List<FlatRoute> routes;
+    private final Map<FlatRoute, Integer> routeIndices = new IdentityHashMap<FlatRoute, Integer>();
+    private final AtomicReferenceArray<AtomicLongArray> counters;
+    private final AtomicLongArray unmatchedRequests;
+    private final int stripeMask;
+
+    /**
+     * Constructor.
+     *
+     * @param routeIndex
+     *      The {@link FlatRouteIndex} used to resolve requests to endpoints.
+     */
+    public EndpointStatistics(final FlatRouteIndex routeIndex) {
+
+        this.routeIndex = routeIndex;
+        this.routes = routeIndex.getRoutes();
+
+        for (int i = 0; i < routes.size(); i++) {
+            routeIndices.put(routes.get(i), i);
+        }
+
+        int stripes = 1;
+        while ((stripes < Runtime.getRuntime().availableProcessors()) && (stripes < MAXIMUM_STRIPES)) {
+            stripes <<= 1;
+        }
+
+        this.stripeMask = stripes - 1;
+        this.counters = new AtomicReferenceArray<AtomicLongArray>(routes.size());
+        this.unmatchedRequests = new AtomicLongArray(stripedArrayLength(stripes));
+    }
+
+    /**
+     * Gets the {@link EndpointStatistics} for the current representation in the {@link RepresentationCache} of the
+     * specified {@link ServletContext}; creating it if necessary.
+     */
+    public static EndpointStatistics forContext(final ServletContext context) {
+
+        final FlatRouteIndex currentRouteIndex = RepresentationCache.forContext(context).getRouteIndex();
+
+        synchronized (context) {
+            EndpointStatistics statistics = (EndpointStatistics) context.getAttribute(CONTEXT_ATTRIBUTE);
+
+            if ((statistics == null) || !statistics.isFor(currentRouteIndex)) {
+                statistics = new EndpointStatistics(currentRouteIndex);
+                context.setAttribute(CONTEXT_ATTRIBUTE, statistics);
+            }
+
+            return statistics;
+        }
+    }
+
+    /**
+     * Whether statistics are recorded against the endpoints in the specified {@link FlatRouteIndex}.
+     */
+    boolean isFor(final FlatRouteIndex candidateRouteIndex) {
+        return routeIndex == candidateRouteIndex;
+    }
+
+    /**
+     * Records a request that has no entity and accepts any media type.
+     *
+     * @param requestMethodDesignator
+     *      The HTTP method of the request.
+     * @param path
+     *      The request path relative to the root of the JAX-RS application.
+     * @param durationNanos
+     *      How long the request took to serve.
+     */
+    public void record(final String requestMethodDesignator, final String path, final long durationNanos) {
+        record(requestMethodDesignator, path, null, null, durationNanos);
+    }
+
+    /**
+     * Records a request - against the endpoint chosen by its media types where several serve the same path and HTTP
+     * method.
+     *
+     * @param requestMethodDesignator
+     *      The HTTP method of the request.
+     * @param path
+     *      The request path relative to the root of the JAX-RS application.
+     * @param contentType
+     *      The <code>Content-Type</code> of the request or null if it has no entity.
+     * @param accept
+     *      The <code>Accept</code> header of the request or null if there is none.
+     * @param durationNanos
+     *      How long the request took to serve.
+     */
+    public void record(final String requestMethodDesignator, final String path, final String contentType, final String accept,
+                       final long durationNanos) {
+
+        final int offset = stripeOffset((int) (Thread.currentThread().getId() & stripeMask));
+
+        final FlatRoute route = routeIndex.lookup(requestMethodDesignator, path, contentType, accept);
+
+        if (route == null) {
+            unmatchedRequests.incrementAndGet(offset);
+            return;
+        }
+
+        final AtomicLongArray routeCounters = countersFor(routeIndices.get(route));
+
+        routeCounters.addAndGet(offset, durationNanos);
+        routeCounters.incrementAndGet(offset + 1 + bucketFor(durationNanos));
+    }
+
+    /**
+     * The endpoints that statistics are recorded for.
+     */
+    public List<FlatRoute> getRoutes() {
+        return routes;
+    }
+
+    /**
+     * The number of requests that could not be resolved to an endpoint.
+     */
+    public long getUnmatchedRequestCount() {
+
+        long total = 0;
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            total += unmatchedRequests.get(stripeOffset(stripe));
+        }
+
+        return total;
+    }
+
+    /**
+     * The latency histogram for the specified endpoint: the request count for each of the {@link #LATENCY_BUCKETS} buckets
+     * followed by the total latency in nanoseconds.
+     */
+    public long[] getLatencyHistogram(final FlatRoute route) {
+
+        final long[] histogram = new long[LATENCY_BUCKETS + 1];
+
+        final Integer routeIndex = routeIndices.get(route);
+        final AtomicLongArray routeCounters = routeIndex == null ? null : counters.get(routeIndex);
+
+        if (routeCounters != null) {
+            for (int stripe = 0; stripe <= stripeMask; stripe++) {
+                final int offset = stripeOffset(stripe);
+
+                histogram[LATENCY_BUCKETS] += routeCounters.get(offset);
+
+                for (int bucket = 0; bucket < LATENCY_BUCKETS; bucket++) {
+                    histogram[bucket] += routeCounters.get(offset + 1 + bucket);
+                }
+            }
+        }
+
+        return histogram;
+    }
+
+    /**
+     * The upper bound, in nanoseconds, of the specified latency histogram bucket; or {@link Long#MAX_VALUE} for the last bucket.
+     */
+    public static long getBucketUpperBoundNanos(final int bucket) {
+        return bucket == LATENCY_BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket + FIRST_BUCKET_BITS);
+    }
+
+    static int bucketFor(final long durationNanos) {
+
+        final int bucket = (Long.SIZE - Long.numberOfLeadingZeros(durationNanos)) - FIRST_BUCKET_BITS;
+
+        if ((durationNanos <= 0) || (bucket < 0)) {
+            return 0;
+        }
+
+        return bucket < LATENCY_BUCKETS ? bucket : LATENCY_BUCKETS - 1;
+    }
+
+    private static int stripeOffset(final int stripe) {
+        return CACHE_LINE_LONGS + stripe * STRIPE_STRIDE;
+    }
+
+    private static int stripedArrayLength(final int stripes) {
+        return stripeOffset(stripes);
+    }
+
+    private AtomicLongArray countersFor(final int routeIndex) {
+
+        AtomicLongArray routeCounters = counters.get(routeIndex);
+
+        if (routeCounters == null) {
+            counters.compareAndSet(routeIndex, null, new AtomicLongArray(stripedArrayLength(stripeMask + 1)));
+            routeCounters = counters.get(routeIndex);
+        }
+
+        return routeCounters;
+    }
+}
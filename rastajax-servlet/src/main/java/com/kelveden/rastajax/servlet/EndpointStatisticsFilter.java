@@ -0,0 +1,81 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+
+/**
+ * Filter that records the request count and latency of each endpoint of the REST application in the {@link EndpointStatistics}
+ * for the web application. Map it to the same URL pattern as the JAX-RS servlet; the path resolved against the
+ * representation is the path info of the request - or the servlet path where there is no path info.
+ * <p>
+ * Requests are recorded against the current representation in the {@link RepresentationCache}; so recording starts
+ * afresh when it is rebuilt.
+ */
+public class EndpointStatisticsFilter implements Filter {
+
+    private ServletContext context;
+    private RepresentationCache cache;
+    private volatile EndpointStatistics statistics;
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+
+        context = filterConfig.getServletContext();
+        cache = RepresentationCache.forContext(context);
+        statistics = EndpointStatistics.forContext(context);
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+
+        if (!(request instanceof HttpServletRequest)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final long start = System.nanoTime();
+
+        try {
+            chain.doFilter(request, response);
+
+        } finally {
+            final long duration = System.nanoTime() - start;
+            final HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+            currentStatistics().record(httpRequest.getMethod(), ServletRequests.getResourcePath(httpRequest),
+                    httpRequest.getContentType(), httpRequest.getHeader("Accept"), duration);
+        }
+    }
+
+    private EndpointStatistics currentStatistics() {
+
+        EndpointStatistics result = statistics;
+
+        if (!result.isFor(cache.getRouteIndex())) {
+            result = EndpointStatistics.forContext(context);
+            statistics = result;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void destroy() {
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethod;
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Servlet that renders the {@link EndpointStatistics} recorded by the {@link EndpointStatisticsFilter} as JSON, merged with
+ * the representation of the REST application. Endpoints are listed busiest first and classified as <code>hot</code> (the
+ * busiest endpoints that together serve 80% of requests), <code>cold</code> or <code>never-called</code>. Percentiles are
+ * the upper bounds of histogram buckets in microseconds; a percentile in the last, unbounded bucket is given as a string of
+ * the form <code>"&gt; 2147483.648"</code>.
+ */
+public class EndpointStatisticsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final double HOT_REQUEST_SHARE = 0.8;
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    @Override
+    protected final void doGet(final HttpServletRequest httpRequest, final HttpServletResponse httpResponse) throws ServletException, IOException {
+
+        final EndpointStatistics statistics = EndpointStatistics.forContext(getServletContext());
+
+        final List<EndpointSummary> summaries = new ArrayList<EndpointSummary>();
+        long totalRequests = 0;
+
+        for (FlatRoute route : statistics.getRoutes()) {
+            final EndpointSummary summary = new EndpointSummary(route, statistics.getLatencyHistogram(route));
+
+            summaries.add(summary);
+            totalRequests += summary.requests;
+        }
+
+        Collections.sort(summaries, new Comparator<EndpointSummary>() {
+            @Override
+            public int compare(final EndpointSummary summary1, final EndpointSummary summary2) {
+                return summary1.requests < summary2.requests ? 1 : (summary1.requests == summary2.requests ? 0 : -1);
+            }
+        });
+
+        final ObjectNode result = MAPPER.createObjectNode();
+        result.put("totalRequests", totalRequests);
+        result.put("unmatchedRequests", statistics.getUnmatchedRequestCount());
+
+        final ArrayNode endpoints = result.putArray("endpoints");
+        long cumulativeRequests = 0;
+
+        for (EndpointSummary summary : summaries) {
+            final String status;
+            if (summary.requests == 0) {
+                status = "never-called";
+            } else if (cumulativeRequests < totalRequests * HOT_REQUEST_SHARE) {
+                status = "hot";
+            } else {
+                status = "cold";
+            }
+
+            cumulativeRequests += summary.requests;
+
+            endpoints.add(summary.toJson(status));
+        }
+
+        writeRepresentationToResponse(result, httpResponse);
+    }
+
+    private void writeRepresentationToResponse(final ObjectNode representation, final HttpServletResponse httpResponse) throws IOException {
+
+        httpResponse.setContentType("application/json; charset=utf8");
+
+        final OutputStream outputStream = httpResponse.getOutputStream();
+
+        outputStream.write(representation.toString().getBytes("UTF-8"));
+        outputStream.flush();
+    }
+
+    private static final class EndpointSummary {
+
+        private final FlatRoute route;
+        private final long[] histogram;
+        private final long requests;
+
+        EndpointSummary(final FlatRoute route, final long[] histogram) {
+            this.route = route;
+            this.histogram = histogram;
+
+            long total = 0;
+            for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS; bucket++) {
+                total += histogram[bucket];
+            }
+            this.requests = total;
+        }
+
+        ObjectNode toJson(final String status) {
+
+            final FlatResourceMethod method = route.getResourceMethod();
+
+            final ObjectNode endpoint = MAPPER.createObjectNode();
+            endpoint.put("uriTemplate", route.getResource().getUriTemplate());
+            endpoint.put("requestMethodDesignator", method.getRequestMethodDesignator());
+            endpoint.put("name", method.getName());
+            endpoint.put("resourceClass", method.getResourceClass());
+            endpoint.put("status", status);
+            endpoint.put("requests", requests);
+
+            if (requests > 0) {
+                endpoint.put("meanMicros", histogram[EndpointStatistics.LATENCY_BUCKETS] / NANOS_PER_MICRO / requests);
+                putPercentile(endpoint, "p50Micros", 0.5);
+                putPercentile(endpoint, "p99Micros", 0.99);
+
+                final ArrayNode buckets = endpoint.putArray("latencyHistogram");
+                for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS; bucket++) {
+                    if (histogram[bucket] > 0) {
+                        final ObjectNode bucketNode = buckets.addObject();
+                        final long upperBound = EndpointStatistics.getBucketUpperBoundNanos(bucket);
+
+                        if (upperBound != Long.MAX_VALUE) {
+                            bucketNode.put("upperBoundMicros", upperBound / NANOS_PER_MICRO);
+                        }
+                        bucketNode.put("requests", histogram[bucket]);
+                    }
+                }
+            }
+
+            return endpoint;
+        }
+
+        /**
+         * Puts the upper bound of the bucket that a percentile falls in - or, if it falls in the last bucket, which has no
+         * upper bound, "&gt; " followed by the upper bound of the bucket before.
+         */
+        private void putPercentile(final ObjectNode endpoint, final String name, final double percentile) {
+
+            final int lastBucket = EndpointStatistics.LATENCY_BUCKETS - 1;
+            final int bucket = percentileBucket(percentile);
+
+            if (bucket < lastBucket) {
+                endpoint.put(name, EndpointStatistics.getBucketUpperBoundNanos(bucket) / NANOS_PER_MICRO);
+            } else {
+                endpoint.put(name, "> " + EndpointStatistics.getBucketUpperBoundNanos(lastBucket - 1) / NANOS_PER_MICRO);
+            }
+        }
+
+        private int percentileBucket(final double percentile) {
+
+            final double threshold = requests * percentile;
+            long cumulative = 0;
+
+            for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS - 1; bucket++) {
+                cumulative += histogram[bucket];
+
+                if (cumulative >= threshold) {
+                    return bucket;
+                }
+            }
+
+            return EndpointStatistics.LATENCY_BUCKETS - 1;
+        }
+    }
+}
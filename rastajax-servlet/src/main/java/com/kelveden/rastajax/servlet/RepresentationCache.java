@@ -0,0 +1,437 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.core.ClassLoaderRootResourceScanner;
+import com.kelveden.rastajax.core.DescriptionStatistics;
+import com.kelveden.rastajax.core.RestDescriber;
+import com.kelveden.rastajax.representation.flat.DescriptionSnapshot;
+import com.kelveden.rastajax.representation.flat.Fingerprint;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import com.kelveden.rastajax.representation.flat.FlatRouteIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.ServletContext;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the flat representation of the REST application in a {@link ServletContext} so that it is only scanned once and
+ * can be shared between the Rastajax servlets and filters of a web application. The API packages to scan are read from
+ * the <code>rastajax.apipackages</code> context parameter.
+ * <p>
+ * If there is an up-to-date {@link DescriptionSnapshot} on the classpath - e.g. one saved by the Rastajax Maven plugin -
+ * the representation is loaded from it the first time that it is needed rather than scanned. Set the
+ * <code>rastajax.snapshot</code> context parameter to <code>false</code> to always scan.
+ * <p>
+ * Alongside the representation it caches a {@link FlatRouteIndex} over it and documents rendered from it - e.g. by the
+ * default servlets. All of them are dropped together when the representation is rebuilt or cleared.
+ * <p>
+ * The fingerprints of the resources of the last few versions of the representation are kept so that clients can be sent
+ * just the {@link RepresentationDelta changes} since a version that they already have. Versions are only ever added by
+ * this cache building the representation - on first access and on each {@link #rebuild()} - and are held in memory, so
+ * they do not survive a restart or redeployment; clients with a version from before then are sent the whole
+ * representation again.
+ */
+public final class RepresentationCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepresentationCache.class);
+
+    private static final String CONTEXT_ATTRIBUTE = RepresentationCache.class.getName();
+
+    private static final int MAXIMUM_VERSIONS = 16;
+
+    private final String[] apiPackages;
+    private final boolean useSnapshot;
+
+    private volatile Description description;
+
+    // Resource fingerprints by URI template of recent versions of the representation, keyed by version; guarded by this.
+    private final Map<String, Map<String, Fingerprint>> versions = new LinkedHashMap<String, Map<String, Fingerprint>>() {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Map<String, Fingerprint>> eldest) {
+            return size() > MAXIMUM_VERSIONS;
+        }
+    };
+
+    private final AtomicLong renderingHits = new AtomicLong();
+    private final AtomicLong renderingMisses = new AtomicLong();
+
+    private RepresentationCache(final String[] apiPackages, final boolean useSnapshot) {
+        this.apiPackages = apiPackages;
+        this.useSnapshot = useSnapshot;
+    }
+
+    /**
+     * Renders a document - e.g. JSON or HTML - from the representation.
+     */
+    public interface Renderer {
+
+        byte[] render(Set<FlatResource> representation) throws IOException;
+    }
+
+    /**
+     * Renders a document from the changes to the representation since an earlier version.
+     */
+    public interface DeltaRenderer {
+
+        byte[] render(RepresentationDelta delta) throws IOException;
+    }
+
+    /**
+     * Gets the {@link RepresentationCache} for the specified {@link ServletContext}; creating it if necessary.
+     */
+    public static RepresentationCache forContext(final ServletContext context) {
+
+        synchronized (context) {
+            RepresentationCache cache = (RepresentationCache) context.getAttribute(CONTEXT_ATTRIBUTE);
+
+            if (cache == null) {
+                final String apiPackages = context.getInitParameter("rastajax.apipackages");
+
+                if (apiPackages == null) {
+                    throw new IllegalStateException("The rastajax.apipackages context parameter must be set.");
+                }
+
+                cache = new RepresentationCache(apiPackages.split(","), !"false".equalsIgnoreCase(context.getInitParameter("rastajax.snapshot")));
+                context.setAttribute(CONTEXT_ATTRIBUTE, cache);
+            }
+
+            return cache;
+        }
+    }
+
+    /**
+     * The representation of the REST application; built on first access.
+     */
+    public Set<FlatResource> getRepresentation() {
+        return getDescription().representation;
+    }
+
+    /**
+     * The {@link Fingerprint} of the representation of the REST application - e.g. for use as an ETag; built on first
+     * access.
+     */
+    public Fingerprint getFingerprint() {
+        return getDescription().fingerprint;
+    }
+
+    /**
+     * A {@link FlatRouteIndex} over the representation of the REST application; built on first access.
+     */
+    public FlatRouteIndex getRouteIndex() {
+        return getDescription().getRouteIndex();
+    }
+
+    /**
+     * Whether the representation is known to cover every endpoint of the REST application; built on first access. It is
+     * not if sub-resource locators had to be left out - e.g. because their sub-resource classes could not be found - or if
+     * it was loaded from a snapshot, which does not record that.
+     */
+    public boolean isComplete() {
+        return getDescription().complete;
+    }
+
+    /**
+     * Gets a document rendered from the representation; rendering it on first access.
+     *
+     * @param name
+     *      The name that the document is cached under - e.g. its media type.
+     * @param renderer
+     *      Renders the document if it is not cached.
+     */
+    public byte[] getRendering(final String name, final Renderer renderer) throws IOException {
+
+        final Description current = getDescription();
+
+        byte[] result = current.renderings.get(name);
+
+        if (result == null) {
+            renderingMisses.incrementAndGet();
+
+            result = renderer.render(current.representation);
+
+            final byte[] existing = current.renderings.putIfAbsent(name, result);
+            if (existing != null) {
+                result = existing;
+            }
+
+        } else {
+            renderingHits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets a document rendered from the changes to the representation since an earlier version; rendering it on first
+     * access.
+     *
+     * @param name
+     *      The name that the document is cached under - e.g. its media type.
+     * @param fromVersion
+     *      The version that the changes are from; i.e. the {@link #getFingerprint() fingerprint} of an earlier
+     *      representation.
+     * @param renderer
+     *      Renders the document if it is not cached.
+     * @return
+     *      The document or null if the version is not one of the last few versions of the representation built by this
+     *      cache.
+     */
+    public byte[] getDeltaRendering(final String name, final String fromVersion, final DeltaRenderer renderer) throws IOException {
+
+        final Description current = getDescription();
+        final String key = name + "@" + fromVersion;
+
+        byte[] result = current.renderings.get(key);
+
+        if (result == null) {
+            final Map<String, Fingerprint> fromResourceFingerprints;
+            synchronized (this) {
+                fromResourceFingerprints = versions.get(fromVersion);
+            }
+
+            if (fromResourceFingerprints == null) {
+                return null;
+            }
+
+            renderingMisses.incrementAndGet();
+
+            result = renderer.render(current.deltaFrom(fromVersion, fromResourceFingerprints));
+
+            final byte[] existing = current.renderings.putIfAbsent(key, result);
+            if (existing != null) {
+                result = existing;
+            }
+
+        } else {
+            renderingHits.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * Scans and builds the representation again - ignoring any snapshot - and then replaces the cached one - along with everything derived from it
+     * - so that requests continue to be served from the old representation in the meantime. The Rastajax filters look up
+     * the {@link #getRouteIndex() route index} on each request so pick up the new representation straight away.
+     */
+    public void rebuild() {
+
+        final Description rebuilt = build(false);
+
+        synchronized (this) {
+            description = rebuilt;
+            versions.put(rebuilt.fingerprint.toString(), rebuilt.resourceFingerprints);
+        }
+
+        LOGGER.info("Rebuilt representation of {} resources.", rebuilt.representation.size());
+    }
+
+    /**
+     * Drops the representation and everything derived from it; they are built again on next access. The fingerprints of
+     * recent versions are kept so that deltas from them can still be served.
+     */
+    public void clear() {
+
+        synchronized (this) {
+            description = null;
+        }
+
+        LOGGER.info("Cleared cached representation.");
+    }
+
+    /**
+     * The statistics recorded when the representation was last built or null if it has not been built yet.
+     */
+    public DescriptionStatistics getLastBuildStatistics() {
+        final Description current = description;
+        return current == null ? null : current.statistics;
+    }
+
+    /**
+     * When the representation was last built or null if it has not been built yet.
+     */
+    public Date getLastBuildTime() {
+        final Description current = description;
+        return current == null ? null : new Date(current.builtAt);
+    }
+
+    /**
+     * The representation if it has been built or null if it has not.
+     */
+    public Set<FlatResource> getRepresentationIfBuilt() {
+        final Description current = description;
+        return current == null ? null : current.representation;
+    }
+
+    /**
+     * The number of rendered documents cached.
+     */
+    public int getRenderingCount() {
+        final Description current = description;
+        return current == null ? 0 : current.renderings.size();
+    }
+
+    /**
+     * The total size of the rendered documents cached.
+     */
+    public long getRenderedBytes() {
+
+        final Description current = description;
+
+        long result = 0;
+        if (current != null) {
+            for (byte[] rendering : current.renderings.values()) {
+                result += rendering.length;
+            }
+        }
+
+        return result;
+    }
+
+    public long getRenderingHits() {
+        return renderingHits.get();
+    }
+
+    public long getRenderingMisses() {
+        return renderingMisses.get();
+    }
+
+    private Description getDescription() {
+
+        Description result = description;
+
+        if (result == null) {
+            synchronized (this) {
+                result = description;
+
+                if (result == null) {
+                    result = build(useSnapshot);
+                    description = result;
+                    versions.put(result.fingerprint.toString(), result.resourceFingerprints);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    private Description build(final boolean fromSnapshot) {
+
+        final DescriptionStatistics statistics = new DescriptionStatistics();
+        final long builtAt = System.currentTimeMillis();
+
+        if (fromSnapshot) {
+            final Set<FlatResource> snapshot = DescriptionSnapshot.load(RepresentationCache.class.getClassLoader(), apiPackages);
+
+            if (snapshot != null) {
+                LOGGER.info("Loaded representation of {} resources from snapshot.", snapshot.size());
+                return new Description(snapshot, statistics, builtAt, false);
+            }
+        }
+
+        final ClassLoaderRootResourceScanner scanner = new ClassLoaderRootResourceScanner(RepresentationCache.class.getClassLoader(), apiPackages)
+                .allowInterfaceInheritance()
+                .withStatistics(statistics);
+
+        final Set<FlatResource> representation = RestDescriber.describeApplication(scanner.scan(), new FlatRepresentationBuilder().withStatistics(statistics), statistics);
+
+        if (!statistics.isRepresentationComplete()) {
+            LOGGER.info("The representation does not cover every endpoint: {} sub-resource locators were left out and {} resource classes were cut short.",
+                    statistics.getLocatorsOmitted(), statistics.getResourcesTruncated());
+        }
+
+        return new Description(representation, statistics, builtAt, statistics.isRepresentationComplete());
+    }
+
+    /**
+     * A representation together with everything derived from it.
+     */
+    private static final class Description {
+
+        private final Set<FlatResource> representation;
+        private final Fingerprint fingerprint;
+        private final Map<String, Fingerprint> resourceFingerprints = new HashMap<String, Fingerprint>();
+        private final DescriptionStatistics statistics;
+        private final long builtAt;
+        private final boolean complete;
+        private final ConcurrentMap<String, byte[]> renderings = new ConcurrentHashMap<String, byte[]>();
+        private volatile FlatRouteIndex routeIndex;
+
+        Description(final Set<FlatResource> representation, final DescriptionStatistics statistics, final long builtAt, final boolean complete) {
+            this.representation = representation;
+            this.fingerprint = Fingerprint.of(representation);
+            this.statistics = statistics;
+            this.builtAt = builtAt;
+            this.complete = complete;
+
+            for (FlatResource resource : representation) {
+                resourceFingerprints.put(resource.getUriTemplate(), resource.getFingerprint());
+            }
+        }
+
+        RepresentationDelta deltaFrom(final String fromVersion, final Map<String, Fingerprint> fromResourceFingerprints) {
+
+            final List<FlatResource> added = new ArrayList<FlatResource>();
+            final List<FlatResource> changed = new ArrayList<FlatResource>();
+            final List<String> removed = new ArrayList<String>();
+
+            for (FlatResource resource : representation) {
+                final Fingerprint fromFingerprint = fromResourceFingerprints.get(resource.getUriTemplate());
+
+                if (fromFingerprint == null) {
+                    added.add(resource);
+                } else if (!fromFingerprint.equals(resource.getFingerprint())) {
+                    changed.add(resource);
+                }
+            }
+
+            for (String uriTemplate : fromResourceFingerprints.keySet()) {
+                if (!resourceFingerprints.containsKey(uriTemplate)) {
+                    removed.add(uriTemplate);
+                }
+            }
+
+            Collections.sort(removed);
+
+            return new RepresentationDelta(fromVersion, fingerprint.toString(), added, changed, removed);
+        }
+
+        FlatRouteIndex getRouteIndex() {
+
+            FlatRouteIndex result = routeIndex;
+
+            if (result == null) {
+                synchronized (this) {
+                    result = routeIndex;
+
+                    if (result == null) {
+                        result = new FlatRouteIndex(representation);
+                        routeIndex = result;
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+}
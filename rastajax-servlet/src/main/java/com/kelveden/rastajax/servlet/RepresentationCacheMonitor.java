@@ -0,0 +1,215 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.core.DescriptionStatistics;
+import com.kelveden.rastajax.representation.flat.FlatRepresentationBuilder;
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethod;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethodParameter;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link RepresentationCacheMonitorMBean} over a {@link RepresentationCache}.
+ */
+public final class RepresentationCacheMonitor implements RepresentationCacheMonitorMBean {
+
+    // Rough sizes on a 64-bit JVM with compressed references.
+    private static final int OBJECT_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ARRAY_BYTES = 16;
+    private static final int STRING_BYTES = OBJECT_BYTES + 8 + ARRAY_BYTES;
+    private static final int LIST_BYTES = OBJECT_BYTES + 8 + ARRAY_BYTES;
+    private static final int MAP_ENTRY_BYTES = OBJECT_BYTES + 4 * REFERENCE_BYTES;
+
+    private final RepresentationCache cache;
+
+    public RepresentationCacheMonitor(final RepresentationCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Date getLastBuildTime() {
+        return cache.getLastBuildTime();
+    }
+
+    @Override
+    public long getLastScanMillis() {
+        return getLastPhaseMillis(DescriptionStatistics.Phase.SCAN);
+    }
+
+    @Override
+    public long getLastLoadMillis() {
+        return getLastPhaseMillis(DescriptionStatistics.Phase.LOAD);
+    }
+
+    @Override
+    public long getLastBuildMillis() {
+        return getLastPhaseMillis(DescriptionStatistics.Phase.BUILD);
+    }
+
+    @Override
+    public long getLastScanArchiveCount() {
+        final DescriptionStatistics statistics = cache.getLastBuildStatistics();
+        return statistics == null ? 0 : statistics.getArchivesOpened();
+    }
+
+    @Override
+    public long getLastScanClassCount() {
+        final DescriptionStatistics statistics = cache.getLastBuildStatistics();
+        return statistics == null ? 0 : statistics.getClassesInspected();
+    }
+
+    @Override
+    public String[] getLastBuildSlowestClasses() {
+
+        final DescriptionStatistics statistics = cache.getLastBuildStatistics();
+
+        if (statistics == null) {
+            return new String[0];
+        }
+
+        final List<String> result = new ArrayList<String>();
+        for (DescriptionStatistics.ClassTiming timing : statistics.getSlowestClasses()) {
+            result.add(timing.toString());
+        }
+
+        return result.toArray(new String[result.size()]);
+    }
+
+    @Override
+    public int getResourceCount() {
+        final Set<FlatResource> representation = cache.getRepresentationIfBuilt();
+        return representation == null ? 0 : representation.size();
+    }
+
+    @Override
+    public int getEndpointCount() {
+
+        final Set<FlatResource> representation = cache.getRepresentationIfBuilt();
+
+        int result = 0;
+        if (representation != null) {
+            for (FlatResource resource : representation) {
+                result += resource.getResourceMethods().size();
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public double getFlattenedSubResourceCacheHitRate() {
+        final DescriptionStatistics statistics = cache.getLastBuildStatistics();
+        return statistics == null ? 0 : statistics.getCacheHitRate(FlatRepresentationBuilder.FLATTENED_SUB_RESOURCE_CACHE);
+    }
+
+    @Override
+    public int getRenderingCount() {
+        return cache.getRenderingCount();
+    }
+
+    @Override
+    public long getRenderedBytes() {
+        return cache.getRenderedBytes();
+    }
+
+    @Override
+    public double getRenderingCacheHitRate() {
+
+        final long hits = cache.getRenderingHits();
+        final long lookups = hits + cache.getRenderingMisses();
+
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public long getEstimatedRetainedBytes() {
+
+        final Set<FlatResource> representation = cache.getRepresentationIfBuilt();
+
+        if (representation == null) {
+            return 0;
+        }
+
+        // Strings are mostly shared between resource methods so each distinct instance is only counted once.
+        final Set<String> strings = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+
+        long result = LIST_BYTES + (long) representation.size() * REFERENCE_BYTES;
+
+        for (FlatResource resource : representation) {
+            result += OBJECT_BYTES + 2 * REFERENCE_BYTES + LIST_BYTES + estimateBytesOf(resource.getUriTemplate(), strings);
+
+            for (FlatResourceMethod method : resource.getResourceMethods()) {
+                result += REFERENCE_BYTES + OBJECT_BYTES + 6 * REFERENCE_BYTES
+                        + estimateBytesOf(method.getName(), strings)
+                        + estimateBytesOf(method.getRequestMethodDesignator(), strings)
+                        + estimateBytesOf(method.getResourceClass(), strings)
+                        + estimateBytesOf(method.getConsumes(), strings)
+                        + estimateBytesOf(method.getProduces(), strings)
+                        + LIST_BYTES;
+
+                for (Map.Entry<String, List<FlatResourceMethodParameter>> parameters : method.getParameters().entrySet()) {
+                    result += MAP_ENTRY_BYTES + LIST_BYTES + estimateBytesOf(parameters.getKey(), strings);
+
+                    for (FlatResourceMethodParameter parameter : parameters.getValue()) {
+                        result += REFERENCE_BYTES + OBJECT_BYTES + 2 * REFERENCE_BYTES
+                                + estimateBytesOf(parameter.getName(), strings)
+                                + estimateBytesOf(parameter.getType(), strings);
+                    }
+                }
+            }
+        }
+
+        return result + cache.getRenderedBytes() + (long) cache.getRenderingCount() * (MAP_ENTRY_BYTES + ARRAY_BYTES);
+    }
+
+    @Override
+    public void rebuild() {
+        cache.rebuild();
+    }
+
+    @Override
+    public void clearCaches() {
+        cache.clear();
+    }
+
+    private long getLastPhaseMillis(final DescriptionStatistics.Phase phase) {
+        final DescriptionStatistics statistics = cache.getLastBuildStatistics();
+        return statistics == null ? 0 : statistics.getPhaseTime(phase, TimeUnit.MILLISECONDS);
+    }
+
+    private static long estimateBytesOf(final List<String> values, final Set<String> counted) {
+
+        long result = LIST_BYTES + (long) values.size() * REFERENCE_BYTES;
+        for (String value : values) {
+            result += estimateBytesOf(value, counted);
+        }
+
+        return result;
+    }
+
+    private static long estimateBytesOf(final String value, final Set<String> counted) {
+
+        if ((value == null) || !counted.add(value)) {
+            return 0;
+        }
+
+        return STRING_BYTES + 2L * value.length();
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Listener that registers a {@link RepresentationCacheMonitorMBean} for the {@link RepresentationCache} of the web
+ * application with the platform MBean server - under
+ * <code>com.kelveden.rastajax:type=RepresentationCache,context=&lt;context path&gt;</code> - and unregisters it when the
+ * web application is stopped. Registering the MBean does not build the representation.
+ */
+public class RepresentationCacheMonitorListener implements ServletContextListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepresentationCacheMonitorListener.class);
+
+    private ObjectName objectName;
+
+    @Override
+    public void contextInitialized(final ServletContextEvent event) {
+
+        final ServletContext context = event.getServletContext();
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            objectName = objectNameFor(context);
+
+            if (mBeanServer.isRegistered(objectName)) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+
+            mBeanServer.registerMBean(new RepresentationCacheMonitor(RepresentationCache.forContext(context)), objectName);
+
+            LOGGER.info("Registered MBean {}.", objectName);
+
+        } catch (final JMException e) {
+            LOGGER.warn("Could not register the representation cache MBean.", e);
+            objectName = null;
+        }
+    }
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent event) {
+
+        if (objectName == null) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (final JMException e) {
+            LOGGER.warn("Could not unregister MBean " + objectName + ".", e);
+        }
+    }
+
+    private static ObjectName objectNameFor(final ServletContext context) throws JMException {
+
+        final String contextPath = context.getContextPath();
+
+        return new ObjectName("com.kelveden.rastajax:type=RepresentationCache,context="
+                + ObjectName.quote(contextPath == null || contextPath.length() == 0 ? "/" : contextPath));
+    }
+}
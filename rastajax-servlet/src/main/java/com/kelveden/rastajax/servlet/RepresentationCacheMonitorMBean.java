@@ -0,0 +1,93 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import java.util.Date;
+
+/**
+ * JMX management interface of the {@link RepresentationCache} of a web application. Registered by
+ * {@link RepresentationCacheMonitorListener}.
+ */
+public interface RepresentationCacheMonitorMBean {
+
+    /**
+     * When the representation was last built or null if it has not been built yet.
+     */
+    Date getLastBuildTime();
+
+    long getLastScanMillis();
+
+    long getLastLoadMillis();
+
+    long getLastBuildMillis();
+
+    /**
+     * The number of archives opened by the last scan.
+     */
+    long getLastScanArchiveCount();
+
+    /**
+     * The number of classes inspected by the last scan.
+     */
+    long getLastScanClassCount();
+
+    /**
+     * The slowest resource classes to introspect during the last build, slowest first.
+     */
+    String[] getLastBuildSlowestClasses();
+
+    /**
+     * The number of resources - i.e. distinct URI templates - in the representation; zero if it has not been built.
+     */
+    int getResourceCount();
+
+    /**
+     * The number of resource methods in the representation; zero if it has not been built.
+     */
+    int getEndpointCount();
+
+    /**
+     * The hit rate of the cache of flattened sub-resource classes during the last build.
+     */
+    double getFlattenedSubResourceCacheHitRate();
+
+    /**
+     * The number of rendered documents - e.g. JSON and HTML - cached.
+     */
+    int getRenderingCount();
+
+    long getRenderedBytes();
+
+    /**
+     * The hit rate of the cache of rendered documents since the web application started.
+     */
+    double getRenderingCacheHitRate();
+
+    /**
+     * A rough estimate of the heap retained by the cached representation and the documents rendered from it.
+     */
+    long getEstimatedRetainedBytes();
+
+    /**
+     * Scans and builds the representation again, replacing the cached one.
+     */
+    void rebuild();
+
+    /**
+     * Drops the cached representation and everything derived from it so that they are built again on next access.
+     */
+    void clearCaches();
+}
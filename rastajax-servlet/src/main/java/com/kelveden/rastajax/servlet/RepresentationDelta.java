@@ -0,0 +1,66 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatResource;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes to the representation of the REST application from an earlier version to the current one: the resources
+ * that were added or changed - in full - and the URI templates of those that were removed. Versions are the
+ * {@link com.kelveden.rastajax.representation.flat.Fingerprint}s of the representations.
+ */
+public final class RepresentationDelta {
+
+    private final String fromVersion;
+    private final String toVersion;
+    private final List<FlatResource> added;
+    private final List<FlatResource> changed;
+    private final List<String> removed;
+
+    RepresentationDelta(final String fromVersion, final String toVersion, final List<FlatResource> added, final List<FlatResource> changed, final List<String> removed) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.added = Collections.unmodifiableList(added);
+        this.changed = Collections.unmodifiableList(changed);
+        this.removed = Collections.unmodifiableList(removed);
+    }
+
+    public String getFromVersion() {
+        return fromVersion;
+    }
+
+    public String getToVersion() {
+        return toVersion;
+    }
+
+    public List<FlatResource> getAdded() {
+        return added;
+    }
+
+    public List<FlatResource> getChanged() {
+        return changed;
+    }
+
+    /**
+     * The URI templates of the resources that were removed.
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+}
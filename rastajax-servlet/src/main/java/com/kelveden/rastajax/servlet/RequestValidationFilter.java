@@ -0,0 +1,205 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import com.kelveden.rastajax.representation.flat.FlatRouteIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Filter that rejects requests that the REST application would reject anyway - before they reach the JAX-RS runtime. The
+ * checks are generated from the representation of the application in the {@link RepresentationCache} - and generated
+ * again whenever it is rebuilt:
+ * <ul>
+ *     <li>404 if no resource matches the path;</li>
+ *     <li>405 (with an <code>Allow</code> header) if the resource does not support the HTTP method;</li>
+ *     <li>415 if none of the resource methods for the HTTP method consumes the <code>Content-Type</code>;</li>
+ *     <li>404 if a numeric path or query parameter of the chosen resource method cannot be parsed;</li>
+ *     <li>400 if a numeric header parameter of the chosen resource method cannot be parsed.</li>
+ * </ul>
+ * Where there are several resource methods for the HTTP method, the one that a JAX-RS runtime would choose - by the
+ * <code>Content-Type</code> and <code>Accept</code> headers - is the one whose parameters are checked.
+ * <p>
+ * Requests are only rejected if the representation is known to cover every endpoint of the application (see
+ * {@link RepresentationCache#isComplete()}); otherwise all requests are passed on, since a request for an endpoint missing
+ * from the representation may well be valid. Set the <code>strict</code> init parameter to <code>true</code> to reject
+ * requests regardless - e.g. where the representation is loaded from a snapshot.
+ * <p>
+ * Map the filter to the same URL pattern as the JAX-RS servlet. <code>OPTIONS</code> requests are always passed on.
+ */
+public class RequestValidationFilter implements Filter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestValidationFilter.class);
+
+    private static final String OPTIONS = "OPTIONS";
+
+    private RepresentationCache cache;
+    private boolean strict;
+    private volatile Validation validation;
+
+    @Override
+    public void init(final FilterConfig filterConfig) throws ServletException {
+
+        cache = RepresentationCache.forContext(filterConfig.getServletContext());
+        strict = "true".equalsIgnoreCase(filterConfig.getInitParameter("strict"));
+
+        currentValidation();
+    }
+
+    @Override
+    public void doFilter(final ServletRequest request, final ServletResponse response, final FilterChain chain) throws IOException, ServletException {
+
+        if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final Validation currentValidation = currentValidation();
+
+        if (!currentValidation.enabled) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final FlatRouteIndex routeIndex = currentValidation.routeIndex;
+
+        final HttpServletRequest httpRequest = (HttpServletRequest) request;
+        final HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        final String method = httpRequest.getMethod();
+        final String path = ServletRequests.getResourcePath(httpRequest);
+
+        if (routeIndex.lookupAll(method, path).isEmpty()) {
+            if (OPTIONS.equals(method)) {
+                chain.doFilter(request, response);
+                return;
+            }
+
+            final Set<String> requestMethodDesignators = routeIndex.lookupRequestMethodDesignators(path);
+
+            if (requestMethodDesignators == null) {
+                reject(httpRequest, httpResponse, HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                httpResponse.setHeader("Allow", allowedMethodsFor(requestMethodDesignators));
+                reject(httpRequest, httpResponse, HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+            }
+
+            return;
+        }
+
+        final FlatRoute route = routeIndex.lookup(method, path, httpRequest.getContentType(), httpRequest.getHeader("Accept"));
+
+        if (route == null) {
+            reject(httpRequest, httpResponse, HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE);
+            return;
+        }
+
+        final int status = currentValidation.validators.get(route).validate(httpRequest);
+
+        if (status != RequestValidator.VALID) {
+            reject(httpRequest, httpResponse, status);
+            return;
+        }
+
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * The checks generated from the current representation; generating them if it has been rebuilt since they were last
+     * generated.
+     */
+    private Validation currentValidation() {
+
+        final FlatRouteIndex routeIndex = cache.getRouteIndex();
+
+        Validation result = validation;
+
+        if ((result == null) || (result.routeIndex != routeIndex)) {
+            result = new Validation(routeIndex, strict || cache.isComplete());
+
+            // Only keep the checks if the representation was not rebuilt again while they were being generated.
+            if (cache.getRouteIndex() == routeIndex) {
+                validation = result;
+            }
+
+            if (!result.enabled) {
+                LOGGER.warn("Requests will not be validated as the representation is not known to cover every endpoint of the application.");
+            }
+        }
+
+        return result;
+    }
+
+    private void reject(final HttpServletRequest request, final HttpServletResponse response, final int status) throws IOException {
+
+        LOGGER.debug("Rejecting {} {} with status {}.", new Object[] { request.getMethod(), request.getRequestURI(), status });
+
+        response.sendError(status);
+    }
+
+    private static String allowedMethodsFor(final Set<String> requestMethodDesignators) {
+
+        final Set<String> allowedMethods = new LinkedHashSet<String>(requestMethodDesignators);
+
+        if (allowedMethods.contains("GET")) {
+            allowedMethods.add("HEAD");
+        }
+        allowedMethods.add(OPTIONS);
+
+        final StringBuilder allow = new StringBuilder();
+        for (String allowedMethod : allowedMethods) {
+            if (allow.length() > 0) {
+                allow.append(", ");
+            }
+            allow.append(allowedMethod);
+        }
+
+        return allow.toString();
+    }
+
+    /**
+     * The checks generated from one version of the representation.
+     */
+    private static final class Validation {
+
+        private final FlatRouteIndex routeIndex;
+        private final boolean enabled;
+        private final Map<FlatRoute, RequestValidator> validators = new IdentityHashMap<FlatRoute, RequestValidator>();
+
+        Validation(final FlatRouteIndex routeIndex, final boolean enabled) {
+            this.routeIndex = routeIndex;
+            this.enabled = enabled;
+
+            for (FlatRoute route : routeIndex.getRoutes()) {
+                validators.put(route, new RequestValidator(route));
+            }
+        }
+    }
+}
@@ -0,0 +1,496 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatResourceMethod;
+import com.kelveden.rastajax.representation.flat.FlatResourceMethodParameter;
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import com.kelveden.rastajax.representation.flat.UriTemplate;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Validates requests against what a single {@link FlatRoute} declares: that numeric path, query and header parameters can
+ * be parsed - as a <a href="http://jsr311.java.net/">JAX-RS</a> runtime would parse them, with the <code>valueOf</code>
+ * method or constructor of the parameter type, binding the first value of a repeated parameter. The response statuses
+ * mirror those a JAX-RS runtime would respond with: 404 for path and query parameters and 400 for header parameters.
+ */
+final class RequestValidator {
+
+    static final int VALID = 0;
+
+    private static final String PATH_PARAM = "pathParam";
+    private static final String QUERY_PARAM = "queryParam";
+    private static final String HEADER_PARAM = "headerParam";
+
+    private final UriTemplate uriTemplate;
+    private final List<ParameterCheck> pathChecks = new ArrayList<ParameterCheck>();
+    private final List<ParameterCheck> queryChecks = new ArrayList<ParameterCheck>();
+    private final List<ParameterCheck> headerChecks = new ArrayList<ParameterCheck>();
+
+    RequestValidator(final FlatRoute route) {
+
+        this.uriTemplate = route.getUriTemplate();
+
+        final FlatResourceMethod method = route.getResourceMethod();
+
+        for (FlatResourceMethodParameter parameter : parametersOfType(method, PATH_PARAM)) {
+            final NumericType type = NumericType.forTypeName(parameter.getType());
+            if (type != null) {
+                pathChecks.add(new ParameterCheck(parameter.getName(), type, uriTemplate.getSegmentIndexOf(parameter.getName())));
+            }
+        }
+
+        for (FlatResourceMethodParameter parameter : parametersOfType(method, QUERY_PARAM)) {
+            final NumericType type = NumericType.forTypeName(parameter.getType());
+            if (type != null) {
+                queryChecks.add(new ParameterCheck(parameter.getName(), type, -1));
+            }
+        }
+
+        for (FlatResourceMethodParameter parameter : parametersOfType(method, HEADER_PARAM)) {
+            final NumericType type = NumericType.forTypeName(parameter.getType());
+            if (type != null) {
+                headerChecks.add(new ParameterCheck(parameter.getName(), type, -1));
+            }
+        }
+    }
+
+    /**
+     * Validates the specified request.
+     *
+     * @param request
+     *      The request.
+     * @return
+     *      {@link #VALID} or the HTTP status to reject the request with.
+     */
+    int validate(final HttpServletRequest request) {
+
+        if (!pathChecks.isEmpty() && !pathParametersAreValid(ServletRequests.getEncodedResourcePath(request))) {
+            return HttpServletResponse.SC_NOT_FOUND;
+        }
+
+        if (!queryChecks.isEmpty() && !queryParametersAreValid(request.getQueryString())) {
+            return HttpServletResponse.SC_NOT_FOUND;
+        }
+
+        for (int i = 0; i < headerChecks.size(); i++) {
+            final ParameterCheck check = headerChecks.get(i);
+            final String value = request.getHeader(check.name);
+
+            if ((value != null) && !check.type.isValid(value, 0, value.length())) {
+                return HttpServletResponse.SC_BAD_REQUEST;
+            }
+        }
+
+        return VALID;
+    }
+
+    /**
+     * @param path
+     *      The path of the request relative to the root of the JAX-RS application, not yet percent-decoded.
+     */
+    private boolean pathParametersAreValid(final String path) {
+
+        Map<String, String> variables = null;
+
+        for (int i = 0; i < pathChecks.size(); i++) {
+            final ParameterCheck check = pathChecks.get(i);
+
+            if (check.segmentIndex >= 0) {
+                if (!segmentIsValid(path, check.segmentIndex, check.type)) {
+                    return false;
+                }
+
+            } else {
+                if (variables == null) {
+                    variables = uriTemplate.extractVariables(path);
+                }
+
+                final String value = variables == null ? null : variables.get(check.name);
+                if ((value != null) && !encodedPathValueIsValid(value, 0, value.length(), check.type)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean segmentIsValid(final String path, final int segmentIndex, final NumericType type) {
+
+        final int length = path.length();
+        int segment = -1;
+        int position = 0;
+
+        while (position < length) {
+            while ((position < length) && (path.charAt(position) == '/')) {
+                position++;
+            }
+
+            if (position >= length) {
+                break;
+            }
+
+            int end = path.indexOf('/', position);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (++segment == segmentIndex) {
+                return encodedPathValueIsValid(path, position, end, type);
+            }
+
+            position = end;
+        }
+
+        return true;
+    }
+
+    private boolean queryParametersAreValid(final String query) {
+
+        if (query == null) {
+            return true;
+        }
+
+        for (int i = 0; i < queryChecks.size(); i++) {
+            final ParameterCheck check = queryChecks.get(i);
+
+            if (!firstQueryParameterValueIsValid(query, check)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks the first value of a query parameter only - since that is the one that a JAX-RS runtime binds.
+     */
+    private static boolean firstQueryParameterValueIsValid(final String query, final ParameterCheck check) {
+
+        final int length = query.length();
+        final int nameLength = check.name.length();
+        int position = 0;
+
+        while (position < length) {
+            int end = query.indexOf('&', position);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (query.regionMatches(position, check.name, 0, nameLength)) {
+                final int afterName = position + nameLength;
+
+                if (afterName == end) {
+                    return true;
+                }
+
+                if (query.charAt(afterName) == '=') {
+                    return encodedQueryValueIsValid(query, afterName + 1, end, check.type);
+                }
+            }
+
+            position = end + 1;
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks a path segment - percent-decoded, in which a <code>+</code> is just a <code>+</code>.
+     */
+    private static boolean encodedPathValueIsValid(final String source, final int start, final int end, final NumericType type) {
+
+        final int escape = source.indexOf('%', start);
+
+        if ((escape < 0) || (escape >= end)) {
+            return type.isValid(source, start, end);
+        }
+
+        final String decoded = percentDecode(source, start, end);
+
+        return (decoded != null) && type.isValid(decoded, 0, decoded.length());
+    }
+
+    /**
+     * Percent-decodes part of a string as UTF-8 - or returns null if an escape is malformed.
+     */
+    private static String percentDecode(final String source, final int start, final int end) {
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(end - start);
+
+        try {
+            for (int i = start; i < end; i++) {
+                final char c = source.charAt(i);
+
+                if (c == '%') {
+                    if (i + 2 >= end) {
+                        return null;
+                    }
+
+                    final int high = Character.digit(source.charAt(i + 1), 16);
+                    final int low = Character.digit(source.charAt(i + 2), 16);
+
+                    if ((high < 0) || (low < 0)) {
+                        return null;
+                    }
+
+                    bytes.write((high << 4) | low);
+                    i += 2;
+
+                } else {
+                    bytes.write(String.valueOf(c).getBytes("UTF-8"));
+                }
+            }
+
+            return bytes.toString("UTF-8");
+
+        } catch (final IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks a query parameter value - form-decoded, in which a <code>+</code> is a space.
+     */
+    private static boolean encodedQueryValueIsValid(final String source, final int start, final int end, final NumericType type) {
+
+        if (start >= end) {
+            return true;
+        }
+
+        for (int i = start; i < end; i++) {
+            final char c = source.charAt(i);
+
+            if ((c == '%') || (c == '+')) {
+                try {
+                    final String decoded = URLDecoder.decode(source.substring(start, end), "UTF-8");
+                    return type.isValid(decoded, 0, decoded.length());
+
+                } catch (final IllegalArgumentException e) {
+                    return false;
+
+                } catch (final UnsupportedEncodingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+
+        return type.isValid(source, start, end);
+    }
+
+    private static List<FlatResourceMethodParameter> parametersOfType(final FlatResourceMethod method, final String parameterType) {
+
+        final Map<String, List<FlatResourceMethodParameter>> parametersByType = method.getParameters();
+
+        if (!parametersByType.containsKey(parameterType)) {
+            return Collections.emptyList();
+        }
+
+        return parametersByType.get(parameterType);
+    }
+
+    private static final class ParameterCheck {
+
+        private final String name;
+        private final NumericType type;
+        private final int segmentIndex;
+
+        ParameterCheck(final String name, final NumericType type, final int segmentIndex) {
+            this.name = name;
+            this.type = type;
+            this.segmentIndex = segmentIndex;
+        }
+    }
+
+    /**
+     * The numeric Java types that parameter values can be checked against without parsing them into objects.
+     */
+    enum NumericType {
+
+        BYTE(Byte.MIN_VALUE, Byte.MAX_VALUE),
+        SHORT(Short.MIN_VALUE, Short.MAX_VALUE),
+        INT(Integer.MIN_VALUE, Integer.MAX_VALUE),
+        LONG(Long.MIN_VALUE, Long.MAX_VALUE),
+        BIG_INTEGER(0, 0),
+        FLOATING_POINT(0, 0),
+        BIG_DECIMAL(0, 0);
+
+        private final long minimum;
+        private final long maximum;
+
+        NumericType(final long minimum, final long maximum) {
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        static NumericType forTypeName(final String typeName) {
+
+            if ("byte".equals(typeName) || "Byte".equals(typeName)) {
+                return BYTE;
+            } else if ("short".equals(typeName) || "Short".equals(typeName)) {
+                return SHORT;
+            } else if ("int".equals(typeName) || "Integer".equals(typeName)) {
+                return INT;
+            } else if ("long".equals(typeName) || "Long".equals(typeName)) {
+                return LONG;
+            } else if ("BigInteger".equals(typeName)) {
+                return BIG_INTEGER;
+            } else if ("float".equals(typeName) || "Float".equals(typeName) || "double".equals(typeName) || "Double".equals(typeName)) {
+                return FLOATING_POINT;
+            } else if ("BigDecimal".equals(typeName)) {
+                return BIG_DECIMAL;
+            }
+
+            return null;
+        }
+
+        boolean isValid(final String value, final int start, final int end) {
+
+            if (this == FLOATING_POINT) {
+                return isDecimal(value, start, end) || isFloatingPoint(value.substring(start, end));
+            }
+
+            if (this == BIG_DECIMAL) {
+                return isDecimal(value, start, end) || isBigDecimal(value.substring(start, end));
+            }
+
+            int position = start;
+            final boolean negative = (position < end) && (value.charAt(position) == '-');
+            if ((position < end) && ((value.charAt(position) == '-') || (value.charAt(position) == '+'))) {
+                position++;
+            }
+
+            if (position >= end) {
+                return false;
+            }
+
+            long result = 0;
+            for (; position < end; position++) {
+                final int digit = value.charAt(position) - '0';
+
+                if ((digit < 0) || (digit > 9)) {
+                    return false;
+                }
+
+                if (this != BIG_INTEGER) {
+                    // Accumulate negatively so that Long.MIN_VALUE can be represented.
+                    if (result < (Long.MIN_VALUE + digit) / 10) {
+                        return false;
+                    }
+                    result = result * 10 - digit;
+                }
+            }
+
+            if (this == BIG_INTEGER) {
+                return true;
+            }
+
+            if (negative) {
+                return result >= minimum;
+            }
+
+            return (result != Long.MIN_VALUE) && (-result <= maximum);
+        }
+
+        /**
+         * Whether a value is a plain decimal number - with an optional sign, fraction and exponent. This accepts the
+         * common case without parsing; the slower checks below accept the remaining forms that the parameter types do.
+         */
+        private static boolean isDecimal(final String value, final int start, final int end) {
+
+            int position = start;
+            if ((position < end) && ((value.charAt(position) == '-') || (value.charAt(position) == '+'))) {
+                position++;
+            }
+
+            final int digitsStart = position;
+            while ((position < end) && Character.isDigit(value.charAt(position))) {
+                position++;
+            }
+            int digits = position - digitsStart;
+
+            if ((position < end) && (value.charAt(position) == '.')) {
+                position++;
+                final int fractionStart = position;
+                while ((position < end) && Character.isDigit(value.charAt(position))) {
+                    position++;
+                }
+                digits += position - fractionStart;
+            }
+
+            if (digits == 0) {
+                return false;
+            }
+
+            if ((position < end) && ((value.charAt(position) == 'e') || (value.charAt(position) == 'E'))) {
+                position++;
+                if ((position < end) && ((value.charAt(position) == '-') || (value.charAt(position) == '+'))) {
+                    position++;
+                }
+
+                final int exponentStart = position;
+                while ((position < end) && Character.isDigit(value.charAt(position))) {
+                    position++;
+                }
+
+                if (position == exponentStart) {
+                    return false;
+                }
+            }
+
+            return position == end;
+        }
+
+        /**
+         * Whether {@link Double#valueOf(String)} - and so {@link Float#valueOf(String)} - accepts a value: e.g.
+         * <code>NaN</code>, <code>Infinity</code>, hexadecimal values, a trailing <code>f</code> or <code>d</code> and
+         * surrounding whitespace.
+         */
+        private static boolean isFloatingPoint(final String value) {
+
+            try {
+                Double.valueOf(value);
+                return true;
+
+            } catch (final NumberFormatException e) {
+                return false;
+            }
+        }
+
+        private static boolean isBigDecimal(final String value) {
+
+            try {
+                new BigDecimal(value);
+                return true;
+
+            } catch (final NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+}
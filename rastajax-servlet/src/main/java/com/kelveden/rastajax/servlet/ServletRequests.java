@@ -0,0 +1,114 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.Fingerprint;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Helpers for working with requests in the Rastajax filters and servlets.
+ */
+final class ServletRequests {
+
+    private static final String WEAK_ETAG_PREFIX = "W/";
+
+    private ServletRequests() {
+    }
+
+    /**
+     * The path of the request relative to the root of the JAX-RS application: the path info of the request or the servlet
+     * path where there is no path info. This assumes that the filter is mapped to the same URL pattern as the JAX-RS servlet.
+     */
+    static String getResourcePath(final HttpServletRequest request) {
+
+        final String pathInfo = request.getPathInfo();
+
+        return pathInfo != null ? pathInfo : request.getServletPath();
+    }
+
+    /**
+     * The same path as {@link #getResourcePath} but as sent by the client - i.e. not yet percent-decoded - so that the
+     * values of path parameters can be decoded exactly once.
+     */
+    static String getEncodedResourcePath(final HttpServletRequest request) {
+
+        final String requestUri = request.getRequestURI();
+        final String contextPath = request.getContextPath();
+
+        String result = requestUri;
+        if ((contextPath != null) && result.startsWith(contextPath)) {
+            result = result.substring(contextPath.length());
+        }
+
+        if (request.getPathInfo() == null) {
+            return result;
+        }
+
+        // The servlet path is decoded, so skip as many segments of the encoded path as it has rather than its length.
+        final String servletPath = request.getServletPath();
+        int position = 0;
+
+        for (int i = 0; (servletPath != null) && (i < servletPath.length()); i++) {
+            if (servletPath.charAt(i) == '/') {
+                final int next = result.indexOf('/', position + 1);
+                position = next < 0 ? result.length() : next;
+            }
+        }
+
+        return result.substring(position);
+    }
+
+    /**
+     * Sets the ETag of a document rendered from the representation and checks it against the <code>If-None-Match</code>
+     * header of the request - responding with 304 if it matches.
+     *
+     * @param fingerprint
+     *      The fingerprint of the representation.
+     * @param rendering
+     *      The name of the rendering - so that a change to how a representation is rendered can be given a new name.
+     * @return
+     *      Whether the client already has the document and has been sent a 304.
+     */
+    static boolean checkNotModified(final HttpServletRequest request, final HttpServletResponse response, final Fingerprint fingerprint, final String rendering) {
+
+        final String etag = "\"" + fingerprint + "-" + rendering + "\"";
+
+        response.setHeader("ETag", etag);
+
+        final String ifNoneMatch = request.getHeader("If-None-Match");
+
+        if (ifNoneMatch == null) {
+            return false;
+        }
+
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+
+            if (trimmed.startsWith(WEAK_ETAG_PREFIX)) {
+                trimmed = trimmed.substring(WEAK_ETAG_PREFIX.length());
+            }
+
+            if ("*".equals(trimmed) || etag.equals(trimmed)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class DefaultJsonServletTest {
+
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+
+    private ServletContext context;
+    private DefaultJsonServlet servlet;
+    private String version;
+
+    @Before
+    public void setUp() throws ServletException {
+
+        context = context(API_PACKAGE);
+
+        servlet = new DefaultJsonServlet();
+        servlet.init(servletConfig(context));
+
+        version = RepresentationCache.forContext(context).getFingerprint().toString();
+    }
+
+    @Test
+    public void wholeRepresentationIsSentWithItsVersion() throws IOException, ServletException {
+
+        // When
+        final RecordingResponse response = get("/resources.json");
+
+        // Then
+        assertThat(response.getHeader("X-Rastajax-Version"), is(version));
+        assertThat(response.getHeader("ETag"), is("\"" + version + "-json\""));
+        assertThat(json(response).isArray(), is(true));
+    }
+
+    @Test
+    public void versionBuiltByTheCacheGetsADelta() throws IOException, ServletException {
+
+        // When
+        final RecordingResponse response = get("/resources.json?since=" + version);
+
+        // Then
+        assertThat(response.getHeader("ETag"), is("\"" + version + "-json-delta\""));
+        assertThat(json(response).get("fromVersion").asText(), is(version));
+    }
+
+    @Test
+    public void unknownVersionGetsTheWholeRepresentationWithItsOwnETag() throws IOException, ServletException {
+
+        // When
+        final RecordingResponse response = get("/resources.json?since=0123456789abcdef0123456789abcdef");
+
+        // Then
+        assertThat(response.getHeader("ETag"), is("\"" + version + "-json\""));
+        assertThat(json(response).isArray(), is(true));
+    }
+
+    @Test
+    public void versionsBuiltBeforeARebuildStillGetDeltas() throws IOException, ServletException {
+
+        // Given
+        RepresentationCache.forContext(context).rebuild();
+
+        // When
+        final RecordingResponse response = get("/resources.json?since=" + version);
+
+        // Then
+        assertThat(json(response).get("fromVersion").asText(), is(version));
+    }
+
+    @Test
+    public void wholeRepresentationSentForAnUnknownVersionIsNotModifiedForItsETag() throws IOException, ServletException {
+
+        // Given
+        final String etag = get("/resources.json?since=unknown").getHeader("ETag");
+
+        // When
+        final RecordingResponse response = new RecordingResponse();
+        servlet.service(request("GET", "/resources.json", "If-None-Match", etag), response.getResponse());
+
+        // Then
+        assertThat(response.getStatus(), is(304));
+    }
+
+    private RecordingResponse get(final String path) throws IOException, ServletException {
+
+        final RecordingResponse response = new RecordingResponse();
+
+        servlet.service(request("GET", path), response.getResponse());
+
+        return response;
+    }
+
+    private static JsonNode json(final RecordingResponse response) throws IOException {
+        return new ObjectMapper().readTree(response.getBody());
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingChain;
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import java.io.IOException;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EndpointStatisticsFilterTest {
+
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+
+    private ServletContext context;
+    private EndpointStatisticsFilter filter;
+
+    @Before
+    public void setUp() throws ServletException {
+
+        context = context(API_PACKAGE);
+
+        filter = new EndpointStatisticsFilter();
+        filter.init(filterConfig(context));
+    }
+
+    @Test
+    public void requestIsRecordedAgainstItsEndpoint() throws IOException, ServletException {
+
+        // When
+        filter.doFilter(request("GET", "/widgets/12"), new RecordingResponse().getResponse(), new RecordingChain());
+
+        // Then
+        assertThat(requestCountOf(EndpointStatistics.forContext(context), "getWidget"), is(1L));
+    }
+
+    @Test
+    public void requestIsRecordedAgainstTheOverloadForItsContentType() throws IOException, ServletException {
+
+        // When
+        filter.doFilter(request("POST", "/widgets", "Content-Type", "application/xml"), new RecordingResponse().getResponse(), new RecordingChain());
+
+        // Then
+        assertThat(requestCountOf(EndpointStatistics.forContext(context), "createWidgetFromXml"), is(1L));
+        assertThat(requestCountOf(EndpointStatistics.forContext(context), "createWidgetFromJson"), is(0L));
+    }
+
+    @Test
+    public void requestsAreRecordedAgainstTheRebuiltRepresentation() throws IOException, ServletException {
+
+        // Given
+        final RepresentationCache cache = RepresentationCache.forContext(context);
+        final EndpointStatistics statisticsBeforeRebuild = EndpointStatistics.forContext(context);
+
+        cache.rebuild();
+
+        // When
+        filter.doFilter(request("GET", "/widgets/12"), new RecordingResponse().getResponse(), new RecordingChain());
+
+        // Then
+        final EndpointStatistics statistics = EndpointStatistics.forContext(context);
+
+        assertThat(statistics, is(not(sameInstance(statisticsBeforeRebuild))));
+        assertThat(statistics.isFor(cache.getRouteIndex()), is(true));
+        assertThat(requestCountOf(statistics, "getWidget"), is(1L));
+    }
+
+    private static long requestCountOf(final EndpointStatistics statistics, final String resourceMethodName) {
+
+        for (FlatRoute route : statistics.getRoutes()) {
+            if (route.getResourceMethod().getName().equals(resourceMethodName)) {
+                final long[] histogram = statistics.getLatencyHistogram(route);
+
+                long result = 0;
+                for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS; bucket++) {
+                    result += histogram[bucket];
+                }
+
+                return result;
+            }
+        }
+
+        throw new IllegalArgumentException("No endpoint for resource method '" + resourceMethodName + "'.");
+    }
+}
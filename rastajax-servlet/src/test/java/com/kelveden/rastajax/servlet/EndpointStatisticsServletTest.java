@@ -0,0 +1,156 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EndpointStatisticsServletTest {
+
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+    private static final long LATENCY = 1000;
+
+    private ServletContext context;
+    private EndpointStatisticsServlet servlet;
+
+    @Before
+    public void setUp() throws ServletException {
+
+        context = context(API_PACKAGE);
+
+        servlet = new EndpointStatisticsServlet();
+        servlet.init(servletConfig(context));
+    }
+
+    @Test
+    public void endpointsServingMostRequestsAreHotAndTheRestColdOrNeverCalled() throws IOException, ServletException {
+
+        // Given
+        final EndpointStatistics statistics = EndpointStatistics.forContext(context);
+
+        record(statistics, "GET", "/widgets/12", 7);
+        record(statistics, "GET", "/widgets", 2);
+        record(statistics, "DELETE", "/widgets", 1);
+        record(statistics, "GET", "/sprockets", 3);
+
+        // When
+        final JsonNode result = get();
+
+        // Then
+        assertThat(result.get("totalRequests").asLong(), is(10L));
+        assertThat(result.get("unmatchedRequests").asLong(), is(3L));
+
+        final Map<String, String> statuses = statusesByName(result);
+
+        assertThat(statuses.get("getWidget"), is("hot"));
+        assertThat(statuses.get("getWidgets"), is("hot"));
+        assertThat(statuses.get("deleteWidgets"), is("cold"));
+        assertThat(statuses.get("getGadget"), is("never-called"));
+        assertThat(statuses.get("createWidgetFromJson"), is("never-called"));
+    }
+
+    @Test
+    public void endpointsAreListedBusiestFirst() throws IOException, ServletException {
+
+        // Given
+        final EndpointStatistics statistics = EndpointStatistics.forContext(context);
+
+        record(statistics, "DELETE", "/widgets", 1);
+        record(statistics, "GET", "/widgets", 3);
+        record(statistics, "GET", "/widgets/12", 2);
+
+        // When
+        final JsonNode endpoints = get().get("endpoints");
+
+        // Then
+        assertThat(endpoints.get(0).get("name").asText(), is("getWidgets"));
+        assertThat(endpoints.get(1).get("name").asText(), is("getWidget"));
+        assertThat(endpoints.get(2).get("name").asText(), is("deleteWidgets"));
+        assertThat(endpoints.get(3).get("requests").asLong(), is(0L));
+    }
+
+    @Test
+    public void calledEndpointsIncludeTheirLatencyHistogram() throws IOException, ServletException {
+
+        // Given
+        record(EndpointStatistics.forContext(context), "GET", "/widgets", 4);
+
+        // When
+        final JsonNode endpoint = get().get("endpoints").get(0);
+
+        // Then
+        assertThat(endpoint.get("meanMicros").asDouble(), is(1.0));
+        assertThat(endpoint.get("latencyHistogram").get(0).get("requests").asLong(), is(4L));
+    }
+
+    @Test
+    public void percentileInTheLastBucketIsGivenAsBeyondTheBucketBefore() throws IOException, ServletException {
+
+        // Given
+        final EndpointStatistics statistics = EndpointStatistics.forContext(context);
+        final long overflowingLatency = EndpointStatistics.getBucketUpperBoundNanos(EndpointStatistics.LATENCY_BUCKETS - 2) * 4;
+
+        statistics.record("GET", "/widgets", LATENCY);
+        statistics.record("GET", "/widgets", overflowingLatency);
+
+        // When
+        final JsonNode endpoint = get().get("endpoints").get(0);
+
+        // Then
+        assertThat(endpoint.get("p50Micros").asDouble(), is(1.024));
+        assertThat(endpoint.get("p99Micros").asText(), is("> 2147483.648"));
+    }
+
+    private JsonNode get() throws IOException, ServletException {
+
+        final RecordingResponse response = new RecordingResponse();
+
+        servlet.service(request("GET", "/resources-statistics.json"), response.getResponse());
+
+        return new ObjectMapper().readTree(response.getBody());
+    }
+
+    private static void record(final EndpointStatistics statistics, final String requestMethodDesignator, final String path, final int requests) {
+
+        for (int i = 0; i < requests; i++) {
+            statistics.record(requestMethodDesignator, path, LATENCY);
+        }
+    }
+
+    private static Map<String, String> statusesByName(final JsonNode result) {
+
+        final Map<String, String> statuses = new HashMap<String, String>();
+
+        for (JsonNode endpoint : result.get("endpoints")) {
+            statuses.put(endpoint.get("name").asText(), endpoint.get("status").asText());
+        }
+
+        return statuses;
+    }
+}
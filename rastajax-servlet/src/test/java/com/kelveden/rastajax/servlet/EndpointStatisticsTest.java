@@ -0,0 +1,204 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatRoute;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.context;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class EndpointStatisticsTest {
+
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+
+    private static final long MICROSECOND = 1000;
+    private static final long MILLISECOND = 1000 * MICROSECOND;
+
+    private EndpointStatistics statistics;
+    private FlatRoute getWidgets;
+    private FlatRoute deleteWidgets;
+
+    @Before
+    public void setUp() {
+
+        statistics = new EndpointStatistics(RepresentationCache.forContext(context(API_PACKAGE)).getRouteIndex());
+
+        getWidgets = routeFor("getWidgets");
+        deleteWidgets = routeFor("deleteWidgets");
+    }
+
+    @Test
+    public void requestsAreCountedInTheBucketOfTheirLatency() {
+
+        statistics.record("GET", "/widgets", 500);
+        statistics.record("GET", "/widgets", 3 * MICROSECOND);
+        statistics.record("GET", "/widgets", 3 * MICROSECOND);
+        statistics.record("GET", "/widgets", 5 * MILLISECOND);
+
+        final long[] histogram = statistics.getLatencyHistogram(getWidgets);
+
+        assertThat(histogram[EndpointStatistics.bucketFor(500)], is(1L));
+        assertThat(histogram[EndpointStatistics.bucketFor(3 * MICROSECOND)], is(2L));
+        assertThat(histogram[EndpointStatistics.bucketFor(5 * MILLISECOND)], is(1L));
+        assertThat(histogram[EndpointStatistics.LATENCY_BUCKETS], is(500 + 6 * MICROSECOND + 5 * MILLISECOND));
+    }
+
+    @Test
+    public void requestsAreRecordedAgainstTheirOwnEndpoint() {
+
+        statistics.record("DELETE", "/widgets", MICROSECOND);
+
+        assertThat(requestCountOf(statistics.getLatencyHistogram(deleteWidgets)), is(1L));
+        assertThat(requestCountOf(statistics.getLatencyHistogram(getWidgets)), is(0L));
+    }
+
+    @Test
+    public void requestsToOverloadsAreRecordedAgainstTheOverloadForTheirMediaType() {
+
+        statistics.record("POST", "/widgets", "application/json", null, MICROSECOND);
+        statistics.record("POST", "/widgets", "application/xml; charset=UTF-8", "*/*", MICROSECOND);
+        statistics.record("POST", "/widgets", "application/xml", null, MICROSECOND);
+
+        assertThat(requestCountOf(statistics.getLatencyHistogram(routeFor("createWidgetFromJson"))), is(1L));
+        assertThat(requestCountOf(statistics.getLatencyHistogram(routeFor("createWidgetFromXml"))), is(2L));
+    }
+
+    @Test
+    public void requestsWithAContentTypeThatNoOverloadConsumesAreCountedAsUnmatched() {
+
+        statistics.record("POST", "/widgets", "text/plain", null, MICROSECOND);
+
+        assertThat(statistics.getUnmatchedRequestCount(), is(1L));
+    }
+
+    @Test
+    public void requestsThatMatchNoEndpointAreCountedAsUnmatched() {
+
+        statistics.record("GET", "/sprockets", MICROSECOND);
+        statistics.record("PUT", "/widgets", MICROSECOND);
+
+        assertThat(statistics.getUnmatchedRequestCount(), is(2L));
+    }
+
+    @Test
+    public void endpointThatHasNeverBeenCalledHasAnEmptyHistogram() {
+
+        final long[] histogram = statistics.getLatencyHistogram(getWidgets);
+
+        assertThat(histogram.length, is(EndpointStatistics.LATENCY_BUCKETS + 1));
+        for (long count : histogram) {
+            assertThat(count, is(0L));
+        }
+    }
+
+    @Test
+    public void requestsRecordedConcurrentlyIntoDifferentStripesAreMergedWithoutLoss() throws InterruptedException {
+
+        // Thread IDs are consecutive so this many threads record into every stripe.
+        final int threadCount = 16;
+        final int requestsPerThread = 10000;
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < threadCount; i++) {
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (final InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+
+                    for (int request = 0; request < requestsPerThread; request++) {
+                        statistics.record("GET", "/widgets", MICROSECOND);
+                        statistics.record("GET", "/sprockets", MICROSECOND);
+                    }
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        start.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final long[] histogram = statistics.getLatencyHistogram(getWidgets);
+
+        assertThat(requestCountOf(histogram), is((long) threadCount * requestsPerThread));
+        assertThat(histogram[EndpointStatistics.LATENCY_BUCKETS], is((long) threadCount * requestsPerThread * MICROSECOND));
+        assertThat(statistics.getUnmatchedRequestCount(), is((long) threadCount * requestsPerThread));
+    }
+
+    @Test
+    public void latenciesAreBucketedByPowerOfTwo() {
+
+        assertThat(EndpointStatistics.bucketFor(0), is(0));
+        assertThat(EndpointStatistics.bucketFor(-1), is(0));
+        assertThat(EndpointStatistics.bucketFor(1023), is(0));
+        assertThat(EndpointStatistics.bucketFor(1024), is(1));
+        assertThat(EndpointStatistics.bucketFor(2047), is(1));
+        assertThat(EndpointStatistics.bucketFor(2048), is(2));
+        assertThat(EndpointStatistics.bucketFor(Long.MAX_VALUE), is(EndpointStatistics.LATENCY_BUCKETS - 1));
+    }
+
+    @Test
+    public void bucketUpperBoundsMatchTheBucketing() {
+
+        for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS - 1; bucket++) {
+            final long upperBound = EndpointStatistics.getBucketUpperBoundNanos(bucket);
+
+            assertThat(EndpointStatistics.bucketFor(upperBound - 1), is(bucket));
+            assertThat(EndpointStatistics.bucketFor(upperBound), is(bucket + 1));
+        }
+
+        assertThat(EndpointStatistics.getBucketUpperBoundNanos(EndpointStatistics.LATENCY_BUCKETS - 1), is(Long.MAX_VALUE));
+    }
+
+    private FlatRoute routeFor(final String resourceMethodName) {
+
+        for (FlatRoute route : statistics.getRoutes()) {
+            if (route.getResourceMethod().getName().equals(resourceMethodName)) {
+                return route;
+            }
+        }
+
+        throw new IllegalArgumentException("No route for resource method '" + resourceMethodName + "'.");
+    }
+
+    private static long requestCountOf(final long[] histogram) {
+
+        long result = 0;
+        for (int bucket = 0; bucket < EndpointStatistics.LATENCY_BUCKETS; bucket++) {
+            result += histogram[bucket];
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.representation.flat.FlatResource;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import java.util.Date;
+import java.util.Set;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.context;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RepresentationCacheMonitorTest {
+
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+
+    private static final RepresentationCache.Renderer RENDERER = new RepresentationCache.Renderer() {
+        @Override
+        public byte[] render(final Set<FlatResource> representation) {
+            return new byte[100];
+        }
+    };
+
+    private RepresentationCache cache;
+    private MBeanServer mBeanServer;
+    private ObjectName objectName;
+
+    @Before
+    public void setUp() throws Exception {
+
+        cache = RepresentationCache.forContext(context(API_PACKAGE));
+
+        mBeanServer = MBeanServerFactory.newMBeanServer();
+        objectName = new ObjectName("com.kelveden.rastajax:type=RepresentationCache,context=test");
+        mBeanServer.registerMBean(new RepresentationCacheMonitor(cache), objectName);
+    }
+
+    @Test
+    public void attributesAreEmptyBeforeTheRepresentationIsBuilt() throws Exception {
+
+        assertThat(attribute("LastBuildTime"), is(nullValue()));
+        assertThat((Long) attribute("LastScanMillis"), is(0L));
+        assertThat((Long) attribute("LastScanClassCount"), is(0L));
+        assertThat((String[]) attribute("LastBuildSlowestClasses"), is(emptyArray()));
+        assertThat((Integer) attribute("ResourceCount"), is(0));
+        assertThat((Integer) attribute("EndpointCount"), is(0));
+        assertThat((Integer) attribute("RenderingCount"), is(0));
+        assertThat((Double) attribute("RenderingCacheHitRate"), is(0.0));
+        assertThat((Long) attribute("EstimatedRetainedBytes"), is(0L));
+    }
+
+    @Test
+    public void attributesDescribeTheBuiltRepresentation() throws Exception {
+
+        // Given
+        cache.getRepresentation();
+
+        // Then
+        assertThat(attribute("LastBuildTime"), is(instanceOf(Date.class)));
+        assertThat((Long) attribute("LastScanClassCount"), is(greaterThan(0L)));
+        assertThat((String[]) attribute("LastBuildSlowestClasses"), is(not(emptyArray())));
+        assertThat((Integer) attribute("ResourceCount"), is(cache.getRepresentation().size()));
+        assertThat((Integer) attribute("EndpointCount"), is(greaterThan((Integer) attribute("ResourceCount"))));
+        assertThat((Long) attribute("EstimatedRetainedBytes"), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void attributesDescribeTheCachedRenderings() throws Exception {
+
+        // Given
+        final long representationBytes = (Long) attribute("EstimatedRetainedBytes");
+
+        cache.getRendering("json", RENDERER);
+        cache.getRendering("json", RENDERER);
+        cache.getRendering("json", RENDERER);
+        cache.getRendering("html", RENDERER);
+
+        // Then
+        assertThat((Integer) attribute("RenderingCount"), is(2));
+        assertThat((Long) attribute("RenderedBytes"), is(200L));
+        assertThat((Double) attribute("RenderingCacheHitRate"), is(0.5));
+        assertThat((Long) attribute("EstimatedRetainedBytes"), is(greaterThan(representationBytes + 200L)));
+    }
+
+    @Test
+    public void clearCachesDropsTheRepresentationAndItsRenderings() throws Exception {
+
+        // Given
+        cache.getRendering("json", RENDERER);
+
+        // When
+        mBeanServer.invoke(objectName, "clearCaches", null, null);
+
+        // Then
+        assertThat(cache.getRepresentationIfBuilt(), is(nullValue()));
+        assertThat((Integer) attribute("ResourceCount"), is(0));
+        assertThat((Integer) attribute("RenderingCount"), is(0));
+        assertThat((Long) attribute("EstimatedRetainedBytes"), is(0L));
+    }
+
+    @Test
+    public void rebuildReplacesTheRepresentation() throws Exception {
+
+        // Given
+        final Set<FlatResource> representation = cache.getRepresentation();
+        cache.getRendering("json", RENDERER);
+
+        // When
+        mBeanServer.invoke(objectName, "rebuild", null, null);
+
+        // Then
+        assertThat(cache.getRepresentationIfBuilt(), is(not(sameInstance(representation))));
+        assertThat(cache.getRepresentationIfBuilt(), is(representation));
+        assertThat((Integer) attribute("RenderingCount"), is(0));
+    }
+
+    private Object attribute(final String name) throws Exception {
+        return mBeanServer.getAttribute(objectName, name);
+    }
+}
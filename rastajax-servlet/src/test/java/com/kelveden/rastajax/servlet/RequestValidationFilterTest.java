@@ -0,0 +1,242 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingChain;
+import com.kelveden.rastajax.servlet.ServletStubs.RecordingResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static com.kelveden.rastajax.servlet.ServletStubs.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+public class RequestValidationFilterTest {
+
+    // The scan covers every test class, so the unrepresentable sub-resource locator of the gadgets makes the
+    // representation incomplete.
+    private static final String API_PACKAGE = "com.kelveden.rastajax.servlet.testapi";
+
+    private RequestValidationFilter filter;
+    private RecordingResponse response;
+    private RecordingChain chain;
+
+    @Before
+    public void setUp() throws ServletException {
+
+        filter = filterFor(API_PACKAGE, "strict", "true");
+        response = new RecordingResponse();
+        chain = new RecordingChain();
+    }
+
+    @Test
+    public void validRequestIsPassedOn() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/widgets/12"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    @Test
+    public void requestForUnknownPathIsRejected() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/sprockets"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(false));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+    }
+
+    @Test
+    public void requestWithUnsupportedMethodIsRejectedWithTheMethodsOfEveryResourceClassAllowed() throws IOException, ServletException {
+
+        // When
+        filter(request("PUT", "/widgets"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(false));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_METHOD_NOT_ALLOWED));
+        assertThat(new HashSet<String>(Arrays.asList(response.getHeader("Allow").split(", "))),
+                is(new HashSet<String>(Arrays.asList("GET", "HEAD", "POST", "DELETE", "OPTIONS"))));
+    }
+
+    @Test
+    public void optionsRequestIsPassedOn() throws IOException, ServletException {
+
+        // When
+        filter(request("OPTIONS", "/widgets"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+    }
+
+    @Test
+    public void contentTypeConsumedByAnyResourceMethodForTheRequestMethodIsPassedOn() throws IOException, ServletException {
+
+        // When
+        filter(request("POST", "/widgets", "Content-Type", "application/json"));
+        filter(request("POST", "/widgets", "Content-Type", "application/xml; charset=UTF-8"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    @Test
+    public void contentTypeConsumedByNoResourceMethodIsRejected() throws IOException, ServletException {
+
+        // When
+        filter(request("POST", "/widgets", "Content-Type", "text/plain"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(false));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE));
+    }
+
+    @Test
+    public void unparseablePathParameterIsRejected() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/widgets/twelve"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(false));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+    }
+
+    @Test
+    public void floatingPointPathParameterIsParsedAsJaxRsWould() throws IOException, ServletException {
+
+        for (String price : Arrays.asList("1.5", "NaN", "Infinity", "-Infinity", "0x1.8p1", "1.5f", "2d", "%201.5%20")) {
+
+            // Given
+            chain = new RecordingChain();
+
+            // When
+            filter(request("GET", "/widgets/prices/" + price));
+
+            // Then
+            assertThat(price, chain.wasCalled(), is(true));
+        }
+
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    @Test
+    public void pathParameterIsPercentDecodedOnce() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/widgets/%31%32"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+
+        // When - a JAX-RS runtime binds "%31" here, which is not a number
+        filter(request("GET", "/widgets/%2531"));
+
+        // Then
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+    }
+
+    @Test
+    public void plusInPathParameterIsNotDecodedAsASpace() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/widgets/+12"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    @Test
+    public void onlyTheFirstValueOfARepeatedQueryParameterIsValidated() throws IOException, ServletException {
+
+        // When
+        filter(request("GET", "/widgets?limit=10&limit=ten"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+
+        // When
+        filter(request("GET", "/widgets?limit=ten&limit=10"));
+
+        // Then
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+    }
+
+    @Test
+    public void requestsAreValidatedAgainstTheRebuiltRepresentation() throws IOException, ServletException {
+
+        // Given
+        final ServletContext context = context(API_PACKAGE);
+        filter = new RequestValidationFilter();
+        filter.init(filterConfig(context, "strict", "true"));
+
+        RepresentationCache.forContext(context).rebuild();
+
+        // When
+        filter(request("GET", "/widgets/12"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+
+        // When
+        filter(request("GET", "/widgets/twelve"));
+
+        // Then
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_NOT_FOUND));
+    }
+
+    @Test
+    public void requestsArePassedOnWhenTheRepresentationIsIncomplete() throws IOException, ServletException {
+
+        // Given
+        filter = filterFor(API_PACKAGE);
+
+        // When
+        filter(request("GET", "/gadgets/parts"));
+        filter(request("GET", "/sprockets"));
+
+        // Then
+        assertThat(chain.wasCalled(), is(true));
+        assertThat(response.getStatus(), is(HttpServletResponse.SC_OK));
+    }
+
+    private void filter(final HttpServletRequest request) throws IOException, ServletException {
+        filter.doFilter(request, response.getResponse(), chain);
+    }
+
+    private static RequestValidationFilter filterFor(final String apiPackage, final String... initParameters) throws ServletException {
+
+        final RequestValidationFilter result = new RequestValidationFilter();
+        result.init(filterConfig(context(apiPackage), initParameters));
+
+        return result;
+    }
+}
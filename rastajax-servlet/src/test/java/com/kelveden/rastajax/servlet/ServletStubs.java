@@ -0,0 +1,285 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Minimal stand-ins for the servlet API for the tests of the Rastajax filters and servlets. Methods that a stub does not
+ * implement return null, zero or false.
+ */
+final class ServletStubs {
+
+    private ServletStubs() {
+    }
+
+    /**
+     * A {@link ServletContext} with the <code>rastajax.apipackages</code> context parameter set.
+     */
+    static ServletContext context(final String apiPackages) {
+
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+
+        return proxy(ServletContext.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+                final String name = method.getName();
+
+                if ("getInitParameter".equals(name)) {
+                    return "rastajax.apipackages".equals(args[0]) ? apiPackages : null;
+                } else if ("getAttribute".equals(name)) {
+                    return attributes.get(args[0]);
+                } else if ("setAttribute".equals(name)) {
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                } else if ("removeAttribute".equals(name)) {
+                    attributes.remove(args[0]);
+                    return null;
+                }
+
+                return defaultFor(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * A {@link FilterConfig} with the specified init parameters.
+     *
+     * @param initParameters
+     *      The names and values of the init parameters, alternately.
+     */
+    static FilterConfig filterConfig(final ServletContext context, final String... initParameters) {
+
+        final Map<String, String> initParameterValues = new HashMap<String, String>();
+        for (int i = 0; i < initParameters.length; i += 2) {
+            initParameterValues.put(initParameters[i], initParameters[i + 1]);
+        }
+
+        return proxy(FilterConfig.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+                if ("getServletContext".equals(method.getName())) {
+                    return context;
+                } else if ("getInitParameter".equals(method.getName())) {
+                    return initParameterValues.get(args[0]);
+                }
+
+                return defaultFor(proxy, method, args);
+            }
+        });
+    }
+
+    static ServletConfig servletConfig(final ServletContext context) {
+
+        return proxy(ServletConfig.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                return "getServletContext".equals(method.getName()) ? context : defaultFor(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * A request to a JAX-RS servlet mapped to <code>/*</code>. As in a container, the path info is percent-decoded and the
+     * request URI is not.
+     *
+     * @param method
+     *      The HTTP method.
+     * @param path
+     *      The encoded path, optionally followed by a query string.
+     * @param headers
+     *      The names and values of the headers, alternately.
+     */
+    static HttpServletRequest request(final String method, final String path, final String... headers) {
+
+        final int queryStart = path.indexOf('?');
+        final String requestUri = queryStart < 0 ? path : path.substring(0, queryStart);
+        final String pathInfo = percentDecode(requestUri);
+        final String query = queryStart < 0 ? null : path.substring(queryStart + 1);
+
+        final Map<String, String> headerValues = new HashMap<String, String>();
+        for (int i = 0; i < headers.length; i += 2) {
+            headerValues.put(headers[i].toLowerCase(), headers[i + 1]);
+        }
+
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(final Object proxy, final Method invoked, final Object[] args) {
+
+                final String name = invoked.getName();
+
+                if ("getMethod".equals(name)) {
+                    return method;
+                } else if ("getPathInfo".equals(name)) {
+                    return pathInfo;
+                } else if ("getServletPath".equals(name)) {
+                    return "";
+                } else if ("getRequestURI".equals(name)) {
+                    return requestUri;
+                } else if ("getQueryString".equals(name)) {
+                    return query;
+                } else if ("getParameter".equals(name)) {
+                    return parameter(query, (String) args[0]);
+                } else if ("getHeader".equals(name)) {
+                    return headerValues.get(((String) args[0]).toLowerCase());
+                } else if ("getContentType".equals(name)) {
+                    return headerValues.get("content-type");
+                }
+
+                return defaultFor(proxy, invoked, args);
+            }
+        });
+    }
+
+    private static String percentDecode(final String path) {
+
+        try {
+            return URLDecoder.decode(path.replace("+", "%2B"), "UTF-8");
+
+        } catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The first value of a query parameter - assuming that the query needs no decoding - or null if there is none.
+     */
+    private static String parameter(final String query, final String name) {
+
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                final int equals = pair.indexOf('=');
+
+                if ((equals >= 0) && pair.substring(0, equals).equals(name)) {
+                    return pair.substring(equals + 1);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Records the status, headers and body written to an {@link HttpServletResponse}.
+     */
+    static final class RecordingResponse implements InvocationHandler {
+
+        private final Map<String, String> headers = new HashMap<String, String>();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private int status = HttpServletResponse.SC_OK;
+
+        HttpServletResponse getResponse() {
+            return proxy(HttpServletResponse.class, this);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        String getHeader(final String name) {
+            return headers.get(name);
+        }
+
+        String getBody() throws UnsupportedEncodingException {
+            return body.toString("UTF-8");
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+
+            final String name = method.getName();
+
+            if ("sendError".equals(name) || "setStatus".equals(name)) {
+                status = (Integer) args[0];
+                return null;
+            } else if ("setHeader".equals(name) || "addHeader".equals(name)) {
+                headers.put((String) args[0], (String) args[1]);
+                return null;
+            } else if ("getOutputStream".equals(name)) {
+                return new ServletOutputStream() {
+                    @Override
+                    public void write(final int b) {
+                        body.write(b);
+                    }
+                };
+            }
+
+            return defaultFor(proxy, method, args);
+        }
+    }
+
+    /**
+     * Records whether a request was passed on down the chain.
+     */
+    static final class RecordingChain implements FilterChain {
+
+        private boolean called;
+
+        @Override
+        public void doFilter(final ServletRequest request, final ServletResponse response) {
+            called = true;
+        }
+
+        boolean wasCalled() {
+            return called;
+        }
+    }
+
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ServletStubs.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static Object defaultFor(final Object proxy, final Method method, final Object[] args) {
+
+        if ("equals".equals(method.getName())) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(method.getName())) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(method.getName())) {
+            return method.getDeclaringClass().getSimpleName() + " stub";
+        }
+
+        final Class<?> returnType = method.getReturnType();
+
+        if (returnType == boolean.class) {
+            return false;
+        } else if (returnType == int.class) {
+            return 0;
+        } else if (returnType == long.class) {
+            return 0L;
+        }
+
+        return null;
+    }
+}
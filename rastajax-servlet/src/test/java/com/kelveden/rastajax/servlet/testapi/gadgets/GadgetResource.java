@@ -0,0 +1,38 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet.testapi.gadgets;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+
+@Path("/gadgets")
+public class GadgetResource {
+
+    @GET
+    @Path("{id}")
+    public String getGadget(@PathParam("id") final int id) {
+        return null;
+    }
+
+    /**
+     * A sub-resource locator whose sub-resource class is only known at runtime - so cannot be represented.
+     */
+    @Path("parts")
+    public Object getParts() {
+        return null;
+    }
+}
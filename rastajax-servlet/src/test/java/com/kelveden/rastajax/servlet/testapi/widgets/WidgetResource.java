@@ -0,0 +1,50 @@
+/**
+ * Copyright 2012 Alistair Dutton
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.kelveden.rastajax.servlet.testapi.widgets;
+
+import javax.ws.rs.*;
+
+@Path("/widgets")
+public class WidgetResource {
+
+    @GET
+    @Produces("application/json")
+    public String getWidgets(@QueryParam("limit") final int limit) {
+        return null;
+    }
+
+    @POST
+    @Consumes("application/json")
+    public void createWidgetFromJson(final String widget) {
+    }
+
+    @POST
+    @Consumes("application/xml")
+    public void createWidgetFromXml(final String widget) {
+    }
+
+    @GET
+    @Path("{id}")
+    public String getWidget(@PathParam("id") final int id) {
+        return null;
+    }
+
+    @GET
+    @Path("prices/{price}")
+    public String getWidgetsPricedAt(@PathParam("price") final double price) {
+        return null;
+    }
+}